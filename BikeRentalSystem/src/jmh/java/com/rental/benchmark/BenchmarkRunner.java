@@ -0,0 +1,46 @@
+package com.rental.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/**
+ * Uruchamia benchmarki w trybie jednowątkowym oraz wielowątkowym
+ * (liczba wątków równa liczbie rdzeni) i zapisuje wyniki w formacie
+ * JSON do katalogu {@code jmh-results}, osobno dla każdego trybu.
+ * Przyjmuje standardowe opcje wiersza poleceń JMH; podanie {@code -t}
+ * ogranicza przebieg do jednego trybu.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cli = new CommandLineOptions(args);
+        File outputDir = new File("jmh-results");
+        if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+            throw new IllegalStateException("Nie można utworzyć katalogu " + outputDir);
+        }
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        int[] threadModes;
+        if (cli.getThreads().hasValue()) {
+            threadModes = new int[]{cli.getThreads().get()};
+        } else if (cores > 1) {
+            threadModes = new int[]{1, cores};
+        } else {
+            threadModes = new int[]{1};
+        }
+
+        for (int threads : threadModes) {
+            ChainedOptionsBuilder options = new OptionsBuilder()
+                    .parent(cli)
+                    .threads(threads)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(new File(outputDir, "threads-" + threads + ".json").getPath());
+            new Runner(options.build()).run();
+        }
+    }
+}
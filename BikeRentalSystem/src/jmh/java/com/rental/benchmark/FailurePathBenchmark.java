@@ -0,0 +1,95 @@
+package com.rental.benchmark;
+
+import com.rental.exception.NoBikesAvailableException;
+import com.rental.exception.StationFullException;
+import com.rental.exception.UserAlreadyRentingException;
+import com.rental.service.BikeRentalSystem;
+import com.rental.service.RentalOutcome;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Porównuje koszt odmowy wypożyczenia i zwrotu w API wyjątków
+ * ({@code rentBike}/{@code returnBike}) i w API kodów wyniku
+ * ({@code tryRentBike}/{@code tryReturnBike}). Każdy wątek ma własny,
+ * mały system, w którym każde wywołanie kończy się niepowodzeniem,
+ * więc mierzony jest wyłącznie koszt zgłoszenia błędu.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FailurePathBenchmark {
+
+    @State(Scope.Thread)
+    public static class FailureState {
+        BikeRentalSystem system;
+        String rentedBikeId;
+
+        @Setup
+        public void setUp() throws Exception {
+            system = new BikeRentalSystem();
+            system.addStation("EMPTY", "Pusta", 1);
+            system.addStation("FULL", "Pełna", 1);
+            system.addStation("SOURCE", "Źródłowa", 1);
+            system.addBike("B-FULL", "FULL");
+            system.addBike("B-RENTED", "SOURCE");
+            system.registerUser("RENTER", "Wypożyczający");
+            system.registerUser("IDLE", "Bez roweru");
+            rentedBikeId = system.rentBike("RENTER", "SOURCE").getBike().getBikeId();
+        }
+    }
+
+    @Benchmark
+    public Object noBikesThrowing(FailureState state) throws Exception {
+        try {
+            return state.system.rentBike("IDLE", "EMPTY");
+        } catch (NoBikesAvailableException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public RentalOutcome noBikesOutcome(FailureState state) {
+        return state.system.tryRentBike("IDLE", "EMPTY");
+    }
+
+    @Benchmark
+    public Object alreadyRentingThrowing(FailureState state) throws Exception {
+        try {
+            return state.system.rentBike("RENTER", "FULL");
+        } catch (UserAlreadyRentingException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public RentalOutcome alreadyRentingOutcome(FailureState state) {
+        return state.system.tryRentBike("RENTER", "FULL");
+    }
+
+    @Benchmark
+    public Object stationFullThrowing(FailureState state) throws Exception {
+        try {
+            return state.system.returnBike(state.rentedBikeId, "FULL");
+        } catch (StationFullException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public RentalOutcome stationFullOutcome(FailureState state) {
+        return state.system.tryReturnBike(state.rentedBikeId, "FULL");
+    }
+}
@@ -0,0 +1,97 @@
+package com.rental.benchmark;
+
+import com.rental.model.User;
+import com.rental.service.RentalOutcome;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Porównuje API uchwytów z API identyfikatorów tekstowych: wyszukiwanie
+ * użytkownika oraz pełny cykl wypożyczenia i zwrotu. Identyfikatory są
+ * nowymi obiektami {@code String} przy każdym wywołaniu, tak jak napisy
+ * przychodzące z zewnątrz, więc ścieżka tekstowa płaci za haszowanie.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HandleBenchmark {
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        String[] userIds;
+        int[] userHandles;
+        String[] stationIds;
+        int[] stationHandles;
+        String ownUserId;
+        int ownUserHandle;
+        SplittableRandom random;
+
+        @Setup
+        public void setUp(RentalSystemFixture fixture) {
+            random = new SplittableRandom(Thread.currentThread().getId());
+            userIds = new String[1024];
+            userHandles = new int[1024];
+            for (int i = 0; i < 1024; i++) {
+                userIds[i] = RentalSystemFixture.userId(random.nextInt(fixture.userCount));
+                userHandles[i] = fixture.system.userHandle(userIds[i]);
+            }
+            stationIds = new String[fixture.stationCount];
+            stationHandles = new int[fixture.stationCount];
+            for (int i = 0; i < fixture.stationCount; i++) {
+                stationIds[i] = RentalSystemFixture.stationId(i);
+                stationHandles[i] = fixture.system.stationHandle(stationIds[i]);
+            }
+            ownUserId = RentalSystemFixture.userId(fixture.claimThreadUser());
+            ownUserHandle = fixture.system.userHandle(ownUserId);
+        }
+
+        // a fresh copy has no cached hash code, like an id parsed from a request
+        static String fresh(String id) {
+            return new String(id);
+        }
+    }
+
+    @Benchmark
+    public User findUserById(RentalSystemFixture fixture, ThreadState state) throws Exception {
+        return fixture.system.findUser(ThreadState.fresh(state.userIds[state.random.nextInt(1024)]));
+    }
+
+    @Benchmark
+    public User findUserByHandle(RentalSystemFixture fixture, ThreadState state) {
+        return fixture.system.getUser(state.userHandles[state.random.nextInt(1024)]);
+    }
+
+    @Benchmark
+    public RentalOutcome rentAndReturnById(RentalSystemFixture fixture, ThreadState state) {
+        String stationId = state.stationIds[state.random.nextInt(state.stationIds.length)];
+        RentalOutcome rented = fixture.system.tryRentBike(ThreadState.fresh(state.ownUserId), ThreadState.fresh(stationId));
+        if (!rented.isSuccess()) {
+            return rented;
+        }
+        return fixture.system.tryReturnBike(ThreadState.fresh(rented.getRental().getBike().getBikeId()),
+                ThreadState.fresh(stationId));
+    }
+
+    @Benchmark
+    public RentalOutcome rentAndReturnByHandle(RentalSystemFixture fixture, ThreadState state) {
+        int stationHandle = state.stationHandles[state.random.nextInt(state.stationHandles.length)];
+        RentalOutcome rented = fixture.system.tryRentBike(state.ownUserHandle, stationHandle);
+        if (!rented.isSuccess()) {
+            return rented;
+        }
+        return fixture.system.tryReturnBike(rented.getRental().getBike().getHandle(), stationHandle);
+    }
+}
@@ -0,0 +1,176 @@
+package com.rental.benchmark;
+
+import com.rental.http.Json;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Klient obciążeniowy API HTTP ({@link com.rental.http.RentalHttpServer}).
+ *
+ * <p>Otwiera zadaną liczbę równoczesnych połączeń; każde z nich to
+ * osobny użytkownik, który na przemian wypożycza rower z losowej stacji
+ * i zwraca go na inną losową stację. Mierzy opóźnienie każdego żądania
+ * i wypisuje przepustowość oraz percentyle p50, p90, p99 i p99.9.
+ *
+ * <p>Użycie (serwer uruchomiony osobno, np. {@code Main --import dane/miasto --http 8080}):
+ * <pre>
+ * java -cp target/benchmarks.jar com.rental.benchmark.HttpLoadTest [url] [połączenia] [żądania na połączenie]
+ * </pre>
+ * Domyślnie {@code http://localhost:8080}, 10000 połączeń, 20 żądań na połączenie.
+ */
+public class HttpLoadTest {
+    // registration is setup, not measurement, so it runs with bounded concurrency
+    private static final int SETUP_CONCURRENCY = 256;
+
+    private final HttpClient client;
+    private final URI base;
+    private final List<String> stationIds;
+    private final AtomicLong conflicts = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    private HttpLoadTest(URI base, List<String> stationIds) {
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+        this.base = base;
+        this.stationIds = stationIds;
+    }
+
+    public static void main(String[] args) throws Exception {
+        URI base = URI.create(args.length > 0 ? args[0] : "http://localhost:8080");
+        int connections = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        int requestsPerConnection = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        HttpClient probe = HttpClient.newHttpClient();
+        HttpResponse<String> stations = probe.send(HttpRequest.newBuilder(base.resolve("/stations")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        List<String> stationIds = new ArrayList<>();
+        for (Object station : (List<?>) Json.parse(stations.body())) {
+            stationIds.add((String) ((Map<?, ?>) station).get("stationId"));
+        }
+        if (stationIds.size() < 2) {
+            throw new IllegalStateException("Test wymaga co najmniej dwóch stacji na serwerze.");
+        }
+
+        HttpLoadTest test = new HttpLoadTest(base, stationIds);
+        String prefix = "LOAD-" + Long.toString(System.currentTimeMillis(), 36) + "-";
+        test.registerUsers(prefix, connections);
+        test.run(prefix, connections, requestsPerConnection);
+    }
+
+    private void registerUsers(String prefix, int count) throws InterruptedException {
+        Semaphore permits = new Semaphore(SETUP_CONCURRENCY);
+        List<CompletableFuture<?>> pending = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            permits.acquire();
+            String body = "{\"userId\":\"" + prefix + i + "\",\"name\":\"Test obciążeniowy " + i + "\"}";
+            pending.add(client.sendAsync(post("/users", body), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, failure) -> permits.release()));
+        }
+        CompletableFuture.allOf(pending.toArray(new CompletableFuture[0])).join();
+        System.out.println("Zarejestrowano " + count + " użytkowników testowych.");
+    }
+
+    private void run(String prefix, int connections, int requestsPerConnection) {
+        long[][] latencies = new long[connections][requestsPerConnection];
+        List<CompletableFuture<?>> sessions = new ArrayList<>(connections);
+        long start = System.nanoTime();
+        for (int i = 0; i < connections; i++) {
+            Session session = new Session(prefix + i, latencies[i], new SplittableRandom(i));
+            sessions.add(session.next());
+        }
+        CompletableFuture.allOf(sessions.toArray(new CompletableFuture[0])).join();
+        long elapsed = System.nanoTime() - start;
+
+        long[] all = new long[connections * requestsPerConnection];
+        for (int i = 0; i < connections; i++) {
+            System.arraycopy(latencies[i], 0, all, i * requestsPerConnection, requestsPerConnection);
+        }
+        Arrays.sort(all);
+        System.out.printf("Żądania: %d w %d połączeniach, %.1f s, %.0f żądań/s%n",
+                all.length, connections, elapsed / 1e9, all.length * 1e9 / elapsed);
+        System.out.printf("Odmowy (409): %d, błędy: %d%n", conflicts.get(), errors.get());
+        System.out.printf("Opóźnienie [ms]: p50 %.2f, p90 %.2f, p99 %.2f, p99.9 %.2f, max %.2f%n",
+                percentile(all, 0.50), percentile(all, 0.90), percentile(all, 0.99),
+                percentile(all, 0.999), all[all.length - 1] / 1e6);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    private HttpRequest post(String path, String body) {
+        return HttpRequest.newBuilder(base.resolve(path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    /**
+     * Ciąg żądań jednego użytkownika; kolejne żądanie wysyłane jest po
+     * odebraniu odpowiedzi na poprzednie, więc każda sesja utrzymuje
+     * jedno połączenie w użyciu.
+     */
+    private final class Session {
+        private final String userId;
+        private final long[] latencies;
+        private final SplittableRandom random;
+        private String rentedBikeId;
+        private int sent;
+
+        Session(String userId, long[] latencies, SplittableRandom random) {
+            this.userId = userId;
+            this.latencies = latencies;
+            this.random = random;
+        }
+
+        CompletableFuture<Void> next() {
+            if (sent == latencies.length) {
+                return CompletableFuture.completedFuture(null);
+            }
+            String stationId = stationIds.get(random.nextInt(stationIds.size()));
+            HttpRequest request = rentedBikeId == null
+                    ? post("/rentals", "{\"userId\":\"" + userId + "\",\"stationId\":\"" + stationId + "\"}")
+                    : post("/returns", "{\"bikeId\":\"" + rentedBikeId + "\",\"stationId\":\"" + stationId + "\"}");
+            long begin = System.nanoTime();
+            return client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                    .handle((response, failure) -> {
+                        latencies[sent++] = System.nanoTime() - begin;
+                        if (failure != null) {
+                            errors.incrementAndGet();
+                        } else {
+                            record(response);
+                        }
+                        return null;
+                    })
+                    .thenCompose(ignored -> next());
+        }
+
+        private void record(HttpResponse<String> response) {
+            int status = response.statusCode();
+            if (status == 201) {
+                rentedBikeId = (String) Json.parseObject(response.body()).get("bikeId");
+            } else if (status == 200) {
+                rentedBikeId = null;
+            } else if (status == 409) {
+                conflicts.incrementAndGet();
+            } else {
+                errors.incrementAndGet();
+            }
+        }
+    }
+}
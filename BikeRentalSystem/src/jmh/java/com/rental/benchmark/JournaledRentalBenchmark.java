@@ -0,0 +1,125 @@
+package com.rental.benchmark;
+
+import com.rental.persistence.RentalJournal;
+import com.rental.service.BikeRentalSystem;
+import com.rental.service.RentalOutcome;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Mierzy skalowanie cyklu wypożyczenie + zwrot z liczbą wątków, z dziennikiem
+ * zapisu i bez niego. Każdy wątek ma własnego użytkownika i własne stacje,
+ * więc jedynym wspólnym zasobem jest dziennik; porównanie przebiegów
+ * {@code -t 1}, {@code -t 2}, {@code -t 4} ... pokazuje, czy zapis do
+ * dziennika ogranicza równoległość.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JournaledRentalBenchmark {
+    static final int MAX_THREADS = 256;
+    static final int STATIONS_PER_THREAD = 8;
+
+    @State(Scope.Benchmark)
+    public static class JournaledSystem {
+        @Param({"false", "true"})
+        public boolean journaled;
+
+        BikeRentalSystem system;
+        private RentalJournal journal;
+        private Path directory;
+        private final AtomicInteger nextThread = new AtomicInteger();
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            if (journaled) {
+                directory = Files.createTempDirectory("rental-journal-benchmark");
+                journal = RentalJournal.open(directory);
+                system = new BikeRentalSystem(journal);
+            } else {
+                system = new BikeRentalSystem();
+            }
+            for (int t = 0; t < MAX_THREADS; t++) {
+                system.registerUser("U" + t, "Użytkownik " + t);
+                for (int s = 0; s < STATIONS_PER_THREAD; s++) {
+                    String stationId = stationId(t, s);
+                    system.addStation(stationId, "Stacja " + stationId, 4);
+                    system.addBike("B" + t + "-" + s, stationId);
+                }
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            system.close();
+            if (journal != null) {
+                journal.close();
+                try (Stream<Path> files = Files.walk(directory)) {
+                    for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                        Files.delete(file);
+                    }
+                }
+            }
+        }
+
+        int claimThread() {
+            int thread = nextThread.getAndIncrement();
+            if (thread >= MAX_THREADS) {
+                throw new IllegalStateException("Benchmark obsługuje najwyżej " + MAX_THREADS + " wątków.");
+            }
+            return thread;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        String userId;
+        String[] stations = new String[STATIONS_PER_THREAD];
+        int next;
+
+        @Setup
+        public void setUp(JournaledSystem fixture) {
+            int thread = fixture.claimThread();
+            userId = "U" + thread;
+            for (int s = 0; s < STATIONS_PER_THREAD; s++) {
+                stations[s] = stationId(thread, s);
+            }
+        }
+    }
+
+    /**
+     * Wypożyczenie i zwrot na kolejnej z własnych stacji wątku.
+     */
+    @Benchmark
+    public RentalOutcome rentAndReturn(JournaledSystem fixture, ThreadState state) {
+        String station = state.stations[state.next];
+        state.next = (state.next + 1) % STATIONS_PER_THREAD;
+        RentalOutcome rented = fixture.system.tryRentBike(state.userId, station);
+        return fixture.system.tryReturnBike(rented.getRental().getBike().getBikeId(), station);
+    }
+
+    static String stationId(int thread, int station) {
+        return "S" + thread + "-" + station;
+    }
+}
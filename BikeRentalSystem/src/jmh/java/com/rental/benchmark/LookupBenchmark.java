@@ -0,0 +1,93 @@
+package com.rental.benchmark;
+
+import com.rental.model.Bike;
+import com.rental.model.Rental;
+import com.rental.model.Station;
+import com.rental.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mierzy operacje odczytu: wyszukiwanie encji po identyfikatorze,
+ * listę stacji oraz historię wypożyczeń użytkownika.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LookupBenchmark {
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        // identifiers are precomputed so that string building is not measured
+        String[] userIds;
+        String[] stationIds;
+        String[] bikeIds;
+        String[] probeUserIds;
+        SplittableRandom random;
+
+        @Setup
+        public void setUp(RentalSystemFixture fixture) {
+            random = new SplittableRandom(Thread.currentThread().getId());
+            userIds = new String[1024];
+            stationIds = new String[1024];
+            bikeIds = new String[1024];
+            for (int i = 0; i < 1024; i++) {
+                userIds[i] = RentalSystemFixture.userId(random.nextInt(fixture.userCount));
+                stationIds[i] = RentalSystemFixture.stationId(random.nextInt(fixture.stationCount));
+                bikeIds[i] = RentalSystemFixture.bikeId(random.nextInt(fixture.stationCount * fixture.bikesPerStation));
+            }
+            probeUserIds = new String[Math.min(RentalSystemFixture.PROBE_USERS, fixture.userCount)];
+            for (int i = 0; i < probeUserIds.length; i++) {
+                probeUserIds[i] = RentalSystemFixture.userId(i);
+            }
+        }
+
+        String next(String[] ids) {
+            return ids[random.nextInt(ids.length)];
+        }
+    }
+
+    @Benchmark
+    public User findUser(RentalSystemFixture fixture, ThreadState state) throws Exception {
+        return fixture.system.findUser(state.next(state.userIds));
+    }
+
+    @Benchmark
+    public Station findStation(RentalSystemFixture fixture, ThreadState state) throws Exception {
+        return fixture.system.findStation(state.next(state.stationIds));
+    }
+
+    @Benchmark
+    public Bike findBike(RentalSystemFixture fixture, ThreadState state) throws Exception {
+        return fixture.system.findBike(state.next(state.bikeIds));
+    }
+
+    @Benchmark
+    public List<Station> getAllStations(RentalSystemFixture fixture) {
+        return fixture.system.getAllStations();
+    }
+
+    @Benchmark
+    public long getUserHistory(RentalSystemFixture fixture, ThreadState state) throws Exception {
+        // walk the history so that lazily built views pay their full cost
+        long minutes = 0;
+        for (Rental rental : fixture.system.getUserHistory(state.next(state.probeUserIds))) {
+            minutes += rental.getDuration().toMinutes();
+        }
+        return minutes;
+    }
+}
@@ -0,0 +1,94 @@
+package com.rental.benchmark;
+
+import com.rental.exception.UserNotFoundException;
+import com.rental.metrics.Metrics;
+import com.rental.model.User;
+import com.rental.service.BikeRentalSystem;
+import com.rental.service.RentalOutcome;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Mierzy narzut metryk na najkrótszych operacjach systemu: wyszukaniu
+ * użytkownika oraz cyklu wypożyczenia i zwrotu przez API uchwytów.
+ * Wariant {@code disabled} pokazuje koszt samej instrumentacji przy
+ * wyłączonych metrykach i powinien nie odbiegać od wyniku sprzed jej
+ * dodania; {@code enabled} - koszt pełnego pomiaru.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsOverheadBenchmark {
+    private static final int STATIONS = 100;
+    private static final int USERS = 1024;
+
+    @State(Scope.Benchmark)
+    public static class SystemState {
+        @Param({"disabled", "enabled"})
+        public String metrics;
+
+        BikeRentalSystem system;
+        int[] stationHandles = new int[STATIONS];
+        private final AtomicInteger nextUser = new AtomicInteger();
+
+        @Setup
+        public void setUp() throws Exception {
+            system = new BikeRentalSystem();
+            system.setMetrics(metrics.equals("enabled") ? Metrics.create() : Metrics.disabled());
+            for (int i = 0; i < STATIONS; i++) {
+                // spare capacity so that returns to any station succeed
+                stationHandles[i] = system.addStation(RentalSystemFixture.stationId(i), "Stacja " + i, 40).getHandle();
+            }
+            for (int i = 0; i < STATIONS * 20; i++) {
+                system.addBike(RentalSystemFixture.bikeId(i), RentalSystemFixture.stationId(i % STATIONS));
+            }
+            for (int i = 0; i < USERS; i++) {
+                system.registerUser(RentalSystemFixture.userId(i), "Użytkownik " + i);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        String userId;
+        int userHandle;
+        SplittableRandom random;
+
+        @Setup
+        public void setUp(SystemState state) {
+            userId = RentalSystemFixture.userId(state.nextUser.getAndIncrement() % USERS);
+            userHandle = state.system.userHandle(userId);
+            random = new SplittableRandom(userHandle);
+        }
+    }
+
+    @Benchmark
+    public User findUser(SystemState state, ThreadState thread) throws UserNotFoundException {
+        return state.system.findUser(thread.userId);
+    }
+
+    @Benchmark
+    public RentalOutcome rentAndReturn(SystemState state, ThreadState thread) {
+        int station = state.stationHandles[thread.random.nextInt(STATIONS)];
+        RentalOutcome rented = state.system.tryRentBike(thread.userHandle, station);
+        if (!rented.isSuccess()) {
+            return rented;
+        }
+        return state.system.tryReturnBike(rented.getRental().getBike().getHandle(), station);
+    }
+}
@@ -0,0 +1,80 @@
+package com.rental.benchmark;
+
+import com.rental.exception.NoBikesAvailableException;
+import com.rental.exception.StationFullException;
+import com.rental.model.Rental;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mierzy ścieżkę wypożyczenia i zwrotu roweru. Pojedyncze wywołanie
+ * to pełny cykl {@code rentBike} + {@code returnBike}, dzięki czemu
+ * flota pozostaje stabilna między wywołaniami. Każdy wątek posługuje
+ * się własnym użytkownikiem, więc w trybie wielowątkowym rywalizacja
+ * występuje wyłącznie na stacjach.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RentalBenchmark {
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        String userId;
+        SplittableRandom random;
+
+        @Setup
+        public void setUp(RentalSystemFixture fixture) {
+            userId = RentalSystemFixture.userId(fixture.claimThreadUser());
+            random = new SplittableRandom(userId.hashCode());
+        }
+    }
+
+    /**
+     * Wypożyczenie i zwrot na tę samą stację.
+     */
+    @Benchmark
+    public Rental rentAndReturnSameStation(RentalSystemFixture fixture, ThreadState state) throws Exception {
+        String stationId = RentalSystemFixture.stationId(state.random.nextInt(fixture.stationCount));
+        Rental rental;
+        try {
+            rental = fixture.system.rentBike(state.userId, stationId);
+        } catch (NoBikesAvailableException e) {
+            return null;
+        }
+        return fixture.system.returnBike(rental.getBike().getBikeId(), stationId);
+    }
+
+    /**
+     * Wypożyczenie z losowej stacji i zwrot na inną losową stację.
+     */
+    @Benchmark
+    public Rental rentAndReturnElsewhere(RentalSystemFixture fixture, ThreadState state) throws Exception {
+        String from = RentalSystemFixture.stationId(state.random.nextInt(fixture.stationCount));
+        String to = RentalSystemFixture.stationId(state.random.nextInt(fixture.stationCount));
+        Rental rental;
+        try {
+            rental = fixture.system.rentBike(state.userId, from);
+        } catch (NoBikesAvailableException e) {
+            return null;
+        }
+        try {
+            return fixture.system.returnBike(rental.getBike().getBikeId(), to);
+        } catch (StationFullException e) {
+            return fixture.system.returnBike(rental.getBike().getBikeId(), from);
+        }
+    }
+}
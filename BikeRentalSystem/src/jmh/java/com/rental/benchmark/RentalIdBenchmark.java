@@ -0,0 +1,39 @@
+package com.rental.benchmark;
+
+import com.rental.model.TimeOrderedRentalIdGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Porównuje generator identyfikatorów uporządkowanych w czasie
+ * z dawnymi identyfikatorami {@code UUID.randomUUID().toString()}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RentalIdBenchmark {
+    private final TimeOrderedRentalIdGenerator generator = new TimeOrderedRentalIdGenerator();
+
+    @Benchmark
+    public long timeOrdered() {
+        return generator.nextId();
+    }
+
+    @Benchmark
+    public String randomUuid() {
+        return UUID.randomUUID().toString();
+    }
+}
@@ -0,0 +1,78 @@
+package com.rental.benchmark;
+
+import com.rental.service.BikeRentalSystem;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Wspólny stan benchmarków: system wypożyczalni wypełniony
+ * zadaną liczbą użytkowników, stacji, rowerów i wpisów historii.
+ */
+@State(Scope.Benchmark)
+public class RentalSystemFixture {
+    // users with a prefilled history, queried by getUserHistory
+    static final int PROBE_USERS = 64;
+
+    @Param({"1000", "100000"})
+    public int userCount;
+
+    @Param({"100"})
+    public int stationCount;
+
+    @Param({"20"})
+    public int bikesPerStation;
+
+    @Param({"100"})
+    public int historyLength;
+
+    public BikeRentalSystem system;
+
+    private final AtomicInteger nextThreadUser = new AtomicInteger();
+
+    @Setup
+    public void setUp() throws Exception {
+        system = new BikeRentalSystem();
+        for (int i = 0; i < stationCount; i++) {
+            // spare capacity so that returns to any station succeed
+            system.addStation(stationId(i), "Stacja " + i, bikesPerStation * 2);
+        }
+        for (int i = 0; i < stationCount * bikesPerStation; i++) {
+            system.addBike(bikeId(i), stationId(i % stationCount));
+        }
+        for (int i = 0; i < userCount; i++) {
+            system.registerUser(userId(i), "Użytkownik " + i);
+        }
+        int probes = Math.min(PROBE_USERS, userCount);
+        for (int u = 0; u < probes; u++) {
+            for (int h = 0; h < historyLength; h++) {
+                String station = stationId((u + h) % stationCount);
+                String bikeId = system.rentBike(userId(u), station).getBike().getBikeId();
+                system.returnBike(bikeId, station);
+            }
+        }
+    }
+
+    /**
+     * Przydziela każdemu wątkowi benchmarku własnego użytkownika,
+     * licząc od końca puli, aby nie dotykać użytkowników z historią.
+     */
+    int claimThreadUser() {
+        return userCount - 1 - (nextThreadUser.getAndIncrement() % userCount);
+    }
+
+    static String userId(int index) {
+        return "U" + index;
+    }
+
+    static String stationId(int index) {
+        return "S" + index;
+    }
+
+    static String bikeId(int index) {
+        return "B" + index;
+    }
+}
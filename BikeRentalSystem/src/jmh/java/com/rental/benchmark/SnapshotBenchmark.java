@@ -0,0 +1,89 @@
+package com.rental.benchmark;
+
+import com.rental.model.Bike;
+import com.rental.model.Station;
+import com.rental.model.User;
+import com.rental.persistence.SystemSnapshot;
+import com.rental.service.BikeRentalSystem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mierzy zimny start systemu z migawki binarnej. Encje dzielone są
+ * po równo między rowery i użytkowników, z jedną stacją na 50 rowerów.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Threads(1)
+@State(Scope.Benchmark)
+public class SnapshotBenchmark {
+
+    @Param({"1000000"})
+    public int entityCount;
+
+    private Path file;
+    private BikeRentalSystem system;
+
+    @Setup
+    public void setUp() throws Exception {
+        int bikeCount = entityCount / 2;
+        int stationCount = Math.max(1, bikeCount / 50);
+        int userCount = entityCount - bikeCount - stationCount;
+
+        List<Station> stations = new ArrayList<>(stationCount);
+        for (int i = 0; i < stationCount; i++) {
+            stations.add(new Station(RentalSystemFixture.stationId(i), "Stacja " + i, 64));
+        }
+        List<Bike> bikes = new ArrayList<>(bikeCount);
+        for (int i = 0; i < bikeCount; i++) {
+            Bike bike = new Bike(RentalSystemFixture.bikeId(i));
+            stations.get(i % stationCount).dockBike(bike);
+            bikes.add(bike);
+        }
+        List<User> users = new ArrayList<>(userCount);
+        for (int i = 0; i < userCount; i++) {
+            users.add(new User(RentalSystemFixture.userId(i), "Użytkownik " + i));
+        }
+        system = new BikeRentalSystem();
+        system.bulkLoad(stations, bikes, users);
+
+        file = Files.createTempFile("snapshot", ".bin");
+        SystemSnapshot.save(system, file);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public BikeRentalSystem load() throws Exception {
+        return SystemSnapshot.load(file);
+    }
+
+    @Benchmark
+    public Path save() throws Exception {
+        SystemSnapshot.save(system, file);
+        return file;
+    }
+}
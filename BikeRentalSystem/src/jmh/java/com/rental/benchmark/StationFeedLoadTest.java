@@ -0,0 +1,180 @@
+package com.rental.benchmark;
+
+import com.rental.feed.StationSubscription;
+import com.rental.feed.StationUpdate;
+import com.rental.feed.StationUpdateListener;
+import com.rental.service.BikeRentalSystem;
+import com.rental.service.RentalOutcome;
+import com.rental.service.StationStatusSnapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Test obciążeniowy subskrypcji zmian stacji
+ * ({@link BikeRentalSystem#subscribeToStations}).
+ *
+ * <p>Rejestruje zadaną liczbę subskrybentów wszystkich stacji (co tysięczny
+ * z nich jest celowo wolny), a kilka wątków przez zadany czas wypożycza
+ * i zwraca rowery. Po zatrzymaniu ruchu czeka na dostarczenie zaległych
+ * zmian i sprawdza, że każdy subskrybent zna ostatni stan każdej stacji,
+ * że nie był wywoływany równolegle i że wersje docierały do niego
+ * w kolejności. Wypisuje liczbę zmian, dostarczeń i największą
+ * zaobserwowaną zaległość subskrybenta.
+ *
+ * <p>Użycie:
+ * <pre>
+ * java -cp target/benchmarks.jar com.rental.benchmark.StationFeedLoadTest [subskrybenci] [stacje] [sekundy]
+ * </pre>
+ * Domyślnie 10000 subskrybentów, 200 stacji, 10 sekund.
+ */
+public class StationFeedLoadTest {
+    private static final int WRITERS = 4;
+    private static final int BIKES_PER_STATION = 10;
+
+    public static void main(String[] args) throws Exception {
+        int subscriberCount = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int stationCount = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        BikeRentalSystem system = new BikeRentalSystem();
+        for (int i = 0; i < stationCount; i++) {
+            system.addStation(RentalSystemFixture.stationId(i), "Stacja " + i, BIKES_PER_STATION * 2);
+        }
+        for (int i = 0; i < stationCount * BIKES_PER_STATION; i++) {
+            system.addBike(RentalSystemFixture.bikeId(i), RentalSystemFixture.stationId(i % stationCount));
+        }
+        for (int i = 0; i < WRITERS; i++) {
+            system.registerUser(RentalSystemFixture.userId(i), "Użytkownik " + i);
+        }
+
+        List<Subscriber> subscribers = new ArrayList<>(subscriberCount);
+        List<StationSubscription> subscriptions = new ArrayList<>(subscriberCount);
+        for (int i = 0; i < subscriberCount; i++) {
+            Subscriber subscriber = new Subscriber(stationCount, i % 1000 == 0);
+            subscribers.add(subscriber);
+            subscriptions.add(system.subscribeToStations(subscriber));
+        }
+
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        List<Thread> writers = new ArrayList<>();
+        AtomicLong trips = new AtomicLong();
+        for (int w = 0; w < WRITERS; w++) {
+            String userId = RentalSystemFixture.userId(w);
+            Thread writer = new Thread(() -> {
+                SplittableRandom random = new SplittableRandom(userId.hashCode());
+                while (System.nanoTime() < deadline) {
+                    RentalOutcome rented = system.tryRentBike(userId,
+                            RentalSystemFixture.stationId(random.nextInt(stationCount)));
+                    if (!rented.isSuccess()) {
+                        continue;
+                    }
+                    String bikeId = rented.getRental().getBike().getBikeId();
+                    while (!system.tryReturnBike(bikeId,
+                            RentalSystemFixture.stationId(random.nextInt(stationCount))).isSuccess()) {
+                        Thread.onSpinWait();
+                    }
+                    trips.incrementAndGet();
+                }
+            });
+            writers.add(writer);
+            writer.start();
+        }
+        int maxPending = 0;
+        while (writers.stream().anyMatch(Thread::isAlive)) {
+            for (StationSubscription subscription : subscriptions) {
+                maxPending = Math.max(maxPending, subscription.getPendingCount());
+            }
+            Thread.sleep(100);
+        }
+
+        StationStatusSnapshot last = system.getStationStatus();
+        long settleStart = System.nanoTime();
+        int stale;
+        do {
+            Thread.sleep(50);
+            stale = 0;
+            for (Subscriber subscriber : subscribers) {
+                if (!subscriber.matches(last)) {
+                    stale++;
+                }
+            }
+        } while (stale > 0 && System.nanoTime() - settleStart < 60_000_000_000L);
+        long settleMillis = (System.nanoTime() - settleStart) / 1_000_000;
+
+        long deliveries = 0;
+        long overlaps = 0;
+        long reordered = 0;
+        for (Subscriber subscriber : subscribers) {
+            deliveries += subscriber.deliveries.get();
+            overlaps += subscriber.overlaps.get();
+            reordered += subscriber.reordered.get();
+        }
+        subscriptions.forEach(StationSubscription::close);
+
+        System.out.printf("Przejazdy: %d, zmiany stanu stacji: %d%n", trips.get(), last.getVersion());
+        System.out.printf("Subskrybenci: %d, dostarczenia: %d (%.1f na subskrybenta)%n",
+                subscriberCount, deliveries, (double) deliveries / subscriberCount);
+        System.out.printf("Największa zaległość subskrybenta: %d stacji, dostarczenie zaległości: %d ms%n",
+                maxPending, settleMillis);
+        System.out.printf("Nieaktualni subskrybenci: %d, wywołania równoległe: %d, wersje nie po kolei: %d%n",
+                stale, overlaps, reordered);
+        if (stale > 0 || overlaps > 0 || reordered > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static final class Subscriber implements StationUpdateListener {
+        private final int[] availableBikes;
+        private final int[] freeDocks;
+        private final boolean slow;
+        private final AtomicBoolean inCall = new AtomicBoolean();
+        private final AtomicLong deliveries = new AtomicLong();
+        private final AtomicLong overlaps = new AtomicLong();
+        private final AtomicLong reordered = new AtomicLong();
+        private long lastVersion;
+
+        Subscriber(int stationCount, boolean slow) {
+            this.availableBikes = new int[stationCount];
+            this.freeDocks = new int[stationCount];
+            this.slow = slow;
+        }
+
+        @Override
+        public void stationChanged(StationUpdate update) {
+            if (!inCall.compareAndSet(false, true)) {
+                overlaps.incrementAndGet();
+            }
+            if (update.getVersion() < lastVersion) {
+                reordered.incrementAndGet();
+            }
+            synchronized (this) {
+                lastVersion = update.getVersion();
+                availableBikes[update.getStationHandle()] = update.getAvailableBikes();
+                freeDocks[update.getStationHandle()] = update.getFreeDocks();
+            }
+            deliveries.incrementAndGet();
+            if (slow) {
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            inCall.set(false);
+        }
+
+        synchronized boolean matches(StationStatusSnapshot status) {
+            for (int handle = 0; handle < availableBikes.length; handle++) {
+                if (availableBikes[handle] != status.getAvailableBikes(handle)
+                        || freeDocks[handle] != status.getFreeDocks(handle)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.rental.benchmark;
+
+import com.rental.exception.NoBikesAvailableException;
+import com.rental.exception.StationFullException;
+import com.rental.model.Rental;
+import com.rental.model.Station;
+import com.rental.service.StationStatusSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Porównuje odczyt stanu wszystkich stacji przy trwających wypożyczeniach:
+ * z migawki {@link StationStatusSnapshot} oraz przez kopię listy stacji
+ * i synchronizowane liczniki każdej stacji. W każdej grupie jeden wątek
+ * wypożycza i zwraca rowery, a pozostałe czytają; skalowanie odczytów
+ * z liczbą rdzeni widać po zmianie liczby czytelników, np.
+ * {@code -tg 1,1 -tg 1,3 -tg 1,7}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StationStatusBenchmark {
+
+    @State(Scope.Thread)
+    public static class WriterState {
+        String userId;
+        SplittableRandom random;
+
+        @Setup
+        public void setUp(RentalSystemFixture fixture) {
+            userId = RentalSystemFixture.userId(fixture.claimThreadUser());
+            random = new SplittableRandom(userId.hashCode());
+        }
+    }
+
+    @Benchmark
+    @Group("snapshot")
+    @GroupThreads(1)
+    public Rental snapshotWriter(RentalSystemFixture fixture, WriterState state) throws Exception {
+        return rentAndReturn(fixture, state);
+    }
+
+    /**
+     * Suma rowerów i wolnych miejsc wszystkich stacji z jednej wersji migawki.
+     */
+    @Benchmark
+    @Group("snapshot")
+    @GroupThreads(3)
+    public long snapshotReader(RentalSystemFixture fixture) {
+        StationStatusSnapshot status = fixture.system.getStationStatus();
+        long sum = 0;
+        for (int handle = 0; handle < status.size(); handle++) {
+            sum += status.getAvailableBikes(handle) + status.getFreeDocks(handle);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @Group("locking")
+    @GroupThreads(1)
+    public Rental lockingWriter(RentalSystemFixture fixture, WriterState state) throws Exception {
+        return rentAndReturn(fixture, state);
+    }
+
+    /**
+     * Ta sama suma liczona dotychczasowym sposobem.
+     */
+    @Benchmark
+    @Group("locking")
+    @GroupThreads(3)
+    public long lockingReader(RentalSystemFixture fixture) {
+        long sum = 0;
+        for (Station station : fixture.system.getAllStations()) {
+            sum += station.getAvailableBikeCount() + station.getAvailableSpots();
+        }
+        return sum;
+    }
+
+    private static Rental rentAndReturn(RentalSystemFixture fixture, WriterState state) throws Exception {
+        String from = RentalSystemFixture.stationId(state.random.nextInt(fixture.stationCount));
+        String to = RentalSystemFixture.stationId(state.random.nextInt(fixture.stationCount));
+        Rental rental;
+        try {
+            rental = fixture.system.rentBike(state.userId, from);
+        } catch (NoBikesAvailableException e) {
+            return null;
+        }
+        try {
+            return fixture.system.returnBike(rental.getBike().getBikeId(), to);
+        } catch (StationFullException e) {
+            return fixture.system.returnBike(rental.getBike().getBikeId(), from);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.rental.analytics;
+
+/**
+ * Para stacji początkowej i końcowej wraz z liczbą przejazdów między nimi.
+ */
+public final class OriginDestination {
+    private final String originStationId;
+    private final String destinationStationId;
+    private final int trips;
+
+    public OriginDestination(String originStationId, String destinationStationId, int trips) {
+        this.originStationId = originStationId;
+        this.destinationStationId = destinationStationId;
+        this.trips = trips;
+    }
+
+    public String getOriginStationId() {
+        return originStationId;
+    }
+
+    public String getDestinationStationId() {
+        return destinationStationId;
+    }
+
+    public int getTrips() {
+        return trips;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s -> %s: %d przejazd(ów)", originStationId, destinationStationId, trips);
+    }
+}
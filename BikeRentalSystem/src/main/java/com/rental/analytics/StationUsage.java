@@ -0,0 +1,58 @@
+package com.rental.analytics;
+
+import java.time.Duration;
+
+/**
+ * Statystyki wykorzystania jednej stacji: przejazdy rozpoczęte i zakończone
+ * na stacji, średni czas przejazdów rozpoczętych na stacji oraz liczba
+ * wypożyczeń w każdej godzinie doby.
+ */
+public final class StationUsage {
+    private final String stationId;
+    private final int departures;
+    private final int arrivals;
+    private final long totalDurationSeconds;
+    private final int[] hourlyDepartures;
+
+    StationUsage(String stationId, int departures, int arrivals, long totalDurationSeconds, int[] hourlyDepartures) {
+        this.stationId = stationId;
+        this.departures = departures;
+        this.arrivals = arrivals;
+        this.totalDurationSeconds = totalDurationSeconds;
+        this.hourlyDepartures = hourlyDepartures;
+    }
+
+    public String getStationId() {
+        return stationId;
+    }
+
+    public int getDepartures() {
+        return departures;
+    }
+
+    public int getArrivals() {
+        return arrivals;
+    }
+
+    /**
+     * @return średni czas przejazdów rozpoczętych na stacji (zero, jeśli
+     * żaden się nie rozpoczął)
+     */
+    public Duration getAverageDuration() {
+        return departures == 0 ? Duration.ZERO : Duration.ofSeconds(totalDurationSeconds / departures);
+    }
+
+    /**
+     * @param hour godzina doby (0-23) czasu lokalnego
+     * @return liczba przejazdów rozpoczętych na stacji w tej godzinie
+     */
+    public int getDepartures(int hour) {
+        return hourlyDepartures[hour];
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Stacja %s: wypożyczenia %d, zwroty %d, średni czas %d min",
+                stationId, departures, arrivals, getAverageDuration().toMinutes());
+    }
+}
@@ -0,0 +1,471 @@
+package com.rental.analytics;
+
+import com.rental.model.Rental;
+import com.rental.model.Station;
+import com.rental.model.User;
+import com.rental.util.LongIntHashMap;
+
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Statystyki wykorzystania stacji liczone przyrostowo z zakończonych
+ * przejazdów: liczba wypożyczeń i zwrotów na stacji, łączny czas
+ * przejazdów, rozkład wypożyczeń na godziny doby oraz macierz przejazdów
+ * między parami stacji wraz z listą najczęstszych par.
+ *
+ * <p>Każdy przejazd dopisywany jest do tablic prymitywnych indeksowanych
+ * uchwytem stacji ({@link Station#getHandle()}) i do mapy
+ * {@link LongIntHashMap} par stacji. Liczniki rozdzielone są między
+ * {@link #STRIPES} niezależnie blokowanych segmentów według stacji
+ * początkowej, więc zwroty przejazdów z różnych stacji rzadko na siebie
+ * czekają. Zapytania nie przeglądają historii ani nie scalają segmentów:
+ * wszystko, co dotyczy wypożyczeń ze stacji i par o tej stacji początkowej,
+ * leży w jednym segmencie, a sumy (liczba przejazdów, godziny doby, zwroty
+ * na stacji) dodają po jednej liczbie z każdego segmentu. Każdy segment
+ * utrzymuje przyrostowo listę {@link #TOP_PAIRS} swoich najczęstszych par,
+ * a lista dla wszystkich stacji powstaje ze scalenia tych list.
+ *
+ * <p>{@link #recompute(Collection)} liczy te same statystyki od nowa
+ * z historii użytkowników, równolegle, i służy do sprawdzenia liczników
+ * przyrostowych ({@link #differences}). Przeliczone statystyki można
+ * dalej uzupełniać przyrostowo. Czas przejazdu liczony jest w obu
+ * przypadkach z pełnych sekund, tak jak zapisuje go magazyn historii.
+ *
+ * <p>Klasa jest bezpieczna wątkowo. W wyłączonej instancji
+ * ({@link #disabled()}) dopisanie przejazdu niczego nie robi.
+ */
+public final class UsageAnalytics {
+    public static final int HOURS = 24;
+    public static final int TOP_PAIRS = 20;
+    public static final int STRIPES = 16;
+    private static final int INITIAL_STATIONS = 64;
+    private static final UsageAnalytics DISABLED = new UsageAnalytics(false, new Tally());
+
+    private final boolean enabled;
+    // a trip is counted in the stripe of its origin station, under that stripe's monitor
+    private final Tally[] stripes = new Tally[STRIPES];
+
+    /**
+     * @param recomputed liczniki przeliczone z historii, rozdzielane między segmenty
+     */
+    private UsageAnalytics(boolean enabled, Tally recomputed) {
+        this.enabled = enabled;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Tally();
+        }
+        for (int s = 0; s < recomputed.stationCount; s++) {
+            if (recomputed.stations[s] != null) {
+                stripeOf(s).copyStation(recomputed, s);
+            }
+        }
+        recomputed.pairs.forEach((pair, count) -> {
+            Tally stripe = stripeOf((int) (pair >>> 32));
+            // the destination is named by the stripe's top pairs
+            stripe.register(recomputed.stations[(int) pair]);
+            stripe.pairs.addTo(pair, count);
+        });
+        for (Tally stripe : stripes) {
+            stripe.rebuildTopPairs();
+        }
+    }
+
+    /**
+     * @return wspólna instancja, która niczego nie zlicza
+     */
+    public static UsageAnalytics disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * @return nowa, włączona instancja bez żadnych przejazdów
+     */
+    public static UsageAnalytics create() {
+        return new UsageAnalytics(true, new Tally());
+    }
+
+    /**
+     * Liczy statystyki od nowa z historii podanych użytkowników.
+     * Użytkownicy przetwarzani są równolegle (w {@code ForkJoinPool.commonPool()}),
+     * każdy wątek zlicza do własnych liczników, a częściowe wyniki są na
+     * końcu sumowane.
+     */
+    public static UsageAnalytics recompute(Collection<User> users) {
+        Tally tally = users.parallelStream().collect(Tally::new,
+                (counts, user) -> user.forEachTrip((rentalId, origin, destination, startEpochSecond, seconds, fare)
+                        -> counts.add(origin, destination, hourOf(startEpochSecond), seconds)),
+                Tally::merge);
+        return new UsageAnalytics(true, tally);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Dopisuje zakończone wypożyczenie.
+     */
+    public void record(Rental rental) {
+        if (!enabled) {
+            return;
+        }
+        long start = rental.getStartTime().toEpochSecond(ZoneOffset.UTC);
+        long end = rental.getEndTime().toEpochSecond(ZoneOffset.UTC);
+        Station origin = rental.getStartStation();
+        Tally stripe = stripeOf(origin.getHandle());
+        synchronized (stripe) {
+            int count = stripe.add(origin, rental.getEndStation(), hourOf(start), Math.toIntExact(end - start));
+            stripe.offerTopPair(pairKey(origin.getHandle(), rental.getEndStation().getHandle()), count);
+        }
+    }
+
+    public long getTripCount() {
+        long trips = 0;
+        for (Tally stripe : stripes) {
+            synchronized (stripe) {
+                trips += stripe.trips;
+            }
+        }
+        return trips;
+    }
+
+    /**
+     * @return średni czas wszystkich przejazdów (zero, jeśli nie było żadnego)
+     */
+    public Duration getAverageDuration() {
+        long trips = 0;
+        long seconds = 0;
+        for (Tally stripe : stripes) {
+            synchronized (stripe) {
+                trips += stripe.trips;
+                seconds += stripe.totalDurationSeconds;
+            }
+        }
+        return trips == 0 ? Duration.ZERO : Duration.ofSeconds(seconds / trips);
+    }
+
+    /**
+     * @param hour godzina doby (0-23) czasu lokalnego
+     * @return liczba przejazdów rozpoczętych w tej godzinie na wszystkich stacjach
+     */
+    public long getHourlyDemand(int hour) {
+        long demand = 0;
+        for (Tally stripe : stripes) {
+            synchronized (stripe) {
+                demand += stripe.totalHourly[hour];
+            }
+        }
+        return demand;
+    }
+
+    /**
+     * @return statystyki stacji (zerowe, jeśli na stacji nie rozpoczął
+     * się ani nie zakończył żaden przejazd)
+     */
+    public StationUsage getStationUsage(Station station) {
+        int handle = station.getHandle();
+        if (handle < 0) {
+            return new StationUsage(station.getStationId(), 0, 0, 0, new int[HOURS]);
+        }
+        // trips ending here may have started anywhere, so arrivals are spread over the stripes
+        int arrivals = 0;
+        for (Tally stripe : stripes) {
+            synchronized (stripe) {
+                arrivals += stripe.arrivals(handle);
+            }
+        }
+        Tally own = stripeOf(handle);
+        synchronized (own) {
+            int[] hourly = new int[HOURS];
+            for (int h = 0; h < HOURS; h++) {
+                hourly[h] = own.hourly(handle, h);
+            }
+            return new StationUsage(station.getStationId(), own.departures(handle), arrivals, own.duration(handle),
+                    hourly);
+        }
+    }
+
+    /**
+     * @return liczba przejazdów z {@code origin} do {@code destination}
+     */
+    public int getTripCount(Station origin, Station destination) {
+        if (origin.getHandle() < 0 || destination.getHandle() < 0) {
+            return 0;
+        }
+        Tally stripe = stripeOf(origin.getHandle());
+        synchronized (stripe) {
+            return stripe.pairs.get(pairKey(origin.getHandle(), destination.getHandle()));
+        }
+    }
+
+    /**
+     * @param limit największa liczba par (co najwyżej {@link #TOP_PAIRS})
+     * @return najczęstsze pary stacji, od najczęstszej
+     */
+    public List<OriginDestination> getTopPairs(int limit) {
+        int count = Math.min(limit, TOP_PAIRS);
+        // every pair lives in its origin's stripe, so the global top is among the stripes' tops
+        List<OriginDestination> candidates = new ArrayList<>(STRIPES * TOP_PAIRS);
+        for (Tally stripe : stripes) {
+            synchronized (stripe) {
+                for (int i = 0; i < stripe.topSize; i++) {
+                    long pair = stripe.topPairs[i];
+                    candidates.add(new OriginDestination(stripe.stations[(int) (pair >>> 32)].getStationId(),
+                            stripe.stations[(int) pair].getStationId(), stripe.topCounts[i]));
+                }
+            }
+        }
+        candidates.sort((a, b) -> Integer.compare(b.getTrips(), a.getTrips()));
+        return new ArrayList<>(candidates.subList(0, Math.min(count, candidates.size())));
+    }
+
+    /**
+     * Porównuje statystyki z innymi, np. przeliczonymi przez
+     * {@link #recompute(Collection)}. Pary o równej liczbie przejazdów
+     * mogą zajmować na liście najczęstszych par różne miejsca, więc lista
+     * porównywana jest tylko po liczbach przejazdów. Porównanie scala
+     * wszystkie segmenty, więc służy do kontroli, a nie do zapytań.
+     *
+     * @param limit największa liczba opisanych różnic
+     * @return opisy różnic; pusta lista oznacza zgodność
+     */
+    public List<String> differences(UsageAnalytics expected, int limit) {
+        Tally actual = merged();
+        Tally other = expected.merged();
+        List<String> differences = new ArrayList<>();
+        if (actual.trips != other.trips || actual.totalDurationSeconds != other.totalDurationSeconds) {
+            differences.add(String.format("Przejazdy: %d (%d s), oczekiwano %d (%d s)",
+                    actual.trips, actual.totalDurationSeconds, other.trips, other.totalDurationSeconds));
+        }
+        for (int h = 0; h < HOURS && differences.size() < limit; h++) {
+            if (actual.totalHourly[h] != other.totalHourly[h]) {
+                differences.add(String.format("Godzina %d: %d, oczekiwano %d", h,
+                        actual.totalHourly[h], other.totalHourly[h]));
+            }
+        }
+        int stationLimit = Math.max(actual.stationCount, other.stationCount);
+        for (int s = 0; s < stationLimit && differences.size() < limit; s++) {
+            if (!actual.sameStation(s, other)) {
+                Station station = s < actual.stationCount && actual.stations[s] != null
+                        ? actual.stations[s] : other.stations[s];
+                differences.add(String.format("Stacja %s: %s, oczekiwano %s", station.getStationId(),
+                        actual.usageOf(s), other.usageOf(s)));
+            }
+        }
+        if (actual.pairs.size() != other.pairs.size()) {
+            differences.add(String.format("Pary stacji: %d, oczekiwano %d", actual.pairs.size(), other.pairs.size()));
+        }
+        other.pairs.forEach((pair, count) -> {
+            int found = actual.pairs.get(pair);
+            if (found != count && differences.size() < limit) {
+                differences.add(String.format("Para %s -> %s: %d, oczekiwano %d",
+                        other.stations[(int) (pair >>> 32)].getStationId(),
+                        other.stations[(int) pair].getStationId(), found, count));
+            }
+        });
+        List<Integer> topCounts = topCounts(getTopPairs(TOP_PAIRS));
+        List<Integer> expectedTopCounts = topCounts(expected.getTopPairs(TOP_PAIRS));
+        if (!topCounts.equals(expectedTopCounts)) {
+            differences.add("Najczęstsze pary: " + topCounts + ", oczekiwano " + expectedTopCounts);
+        }
+        return differences.size() > limit ? differences.subList(0, limit) : differences;
+    }
+
+    // Sums all stripes into one tally, for differences only
+    private Tally merged() {
+        Tally tally = new Tally();
+        for (Tally stripe : stripes) {
+            synchronized (stripe) {
+                tally.merge(stripe);
+            }
+        }
+        return tally;
+    }
+
+    private Tally stripeOf(int handle) {
+        return stripes[handle & (STRIPES - 1)];
+    }
+
+    private static List<Integer> topCounts(List<OriginDestination> top) {
+        List<Integer> counts = new ArrayList<>(top.size());
+        for (OriginDestination pair : top) {
+            counts.add(pair.getTrips());
+        }
+        return counts;
+    }
+
+    private static int hourOf(long epochSecond) {
+        return (int) (Math.floorMod(epochSecond, 86_400L) / 3_600);
+    }
+
+    private static long pairKey(int origin, int destination) {
+        return (long) origin << 32 | destination;
+    }
+
+    /**
+     * Liczniki przejazdów w tablicach indeksowanych uchwytem stacji.
+     * Nie jest bezpieczna wątkowo; listę najczęstszych par utrzymuje
+     * {@link #offerTopPair} przy każdym przejeździe albo
+     * {@link #rebuildTopPairs} po wczytaniu liczników w całości.
+     */
+    private static final class Tally {
+        // all per-station arrays are indexed by station handle
+        private Station[] stations = new Station[INITIAL_STATIONS];
+        private int[] departures = new int[INITIAL_STATIONS];
+        private int[] arrivals = new int[INITIAL_STATIONS];
+        private long[] durationSeconds = new long[INITIAL_STATIONS];
+        // station handle * HOURS + hour of day
+        private int[] hourlyDepartures = new int[INITIAL_STATIONS * HOURS];
+        private final long[] totalHourly = new long[HOURS];
+        // (origin handle << 32 | destination handle) -> trips
+        private final LongIntHashMap pairs = new LongIntHashMap(INITIAL_STATIONS, 0);
+        // most frequent pairs, by descending count
+        private final long[] topPairs = new long[TOP_PAIRS];
+        private final int[] topCounts = new int[TOP_PAIRS];
+        private int topSize;
+        private int stationCount;
+        private long trips;
+        private long totalDurationSeconds;
+
+        /**
+         * @return liczba przejazdów między tą parą stacji, łącznie z dopisanym
+         */
+        int add(Station origin, Station destination, int hour, int seconds) {
+            int from = register(origin);
+            int to = register(destination);
+            departures[from]++;
+            arrivals[to]++;
+            durationSeconds[from] += seconds;
+            hourlyDepartures[from * HOURS + hour]++;
+            totalHourly[hour]++;
+            trips++;
+            totalDurationSeconds += seconds;
+            return pairs.addTo(pairKey(from, to), 1);
+        }
+
+        // Takes over one station's counts, the trips that started there included
+        void copyStation(Tally other, int s) {
+            register(other.stations[s]);
+            departures[s] = other.departures[s];
+            arrivals[s] = other.arrivals[s];
+            durationSeconds[s] = other.durationSeconds[s];
+            for (int h = 0; h < HOURS; h++) {
+                int demand = other.hourlyDepartures[s * HOURS + h];
+                hourlyDepartures[s * HOURS + h] = demand;
+                totalHourly[h] += demand;
+            }
+            trips += other.departures[s];
+            totalDurationSeconds += other.durationSeconds[s];
+        }
+
+        // Adds another tally's counts into this one; the top pairs are not merged
+        Tally merge(Tally other) {
+            for (int s = 0; s < other.stationCount; s++) {
+                if (other.stations[s] == null) {
+                    continue;
+                }
+                register(other.stations[s]);
+                departures[s] += other.departures[s];
+                arrivals[s] += other.arrivals[s];
+                durationSeconds[s] += other.durationSeconds[s];
+                for (int h = 0; h < HOURS; h++) {
+                    hourlyDepartures[s * HOURS + h] += other.hourlyDepartures[s * HOURS + h];
+                }
+            }
+            for (int h = 0; h < HOURS; h++) {
+                totalHourly[h] += other.totalHourly[h];
+            }
+            trips += other.trips;
+            totalDurationSeconds += other.totalDurationSeconds;
+            other.pairs.forEach(pairs::addTo);
+            return this;
+        }
+
+        void rebuildTopPairs() {
+            topSize = 0;
+            pairs.forEach(this::offerTopPair);
+        }
+
+        // Moves a pair whose count has just grown to its place in topPairs
+        void offerTopPair(long pair, int count) {
+            int i = 0;
+            while (i < topSize && topPairs[i] != pair) {
+                i++;
+            }
+            if (i == topSize) {
+                if (topSize < TOP_PAIRS) {
+                    topSize++;
+                } else if (count > topCounts[TOP_PAIRS - 1]) {
+                    i = TOP_PAIRS - 1;
+                } else {
+                    return;
+                }
+            }
+            topPairs[i] = pair;
+            topCounts[i] = count;
+            for (; i > 0 && topCounts[i - 1] < topCounts[i]; i--) {
+                long swapPair = topPairs[i];
+                topPairs[i] = topPairs[i - 1];
+                topPairs[i - 1] = swapPair;
+                int swapCount = topCounts[i];
+                topCounts[i] = topCounts[i - 1];
+                topCounts[i - 1] = swapCount;
+            }
+        }
+
+        boolean sameStation(int handle, Tally other) {
+            if (departures(handle) != other.departures(handle) || arrivals(handle) != other.arrivals(handle)
+                    || duration(handle) != other.duration(handle)) {
+                return false;
+            }
+            for (int h = 0; h < HOURS; h++) {
+                if (hourly(handle, h) != other.hourly(handle, h)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        String usageOf(int handle) {
+            return departures(handle) + "/" + arrivals(handle) + "/" + duration(handle) + " s";
+        }
+
+        private int departures(int handle) {
+            return handle < stationCount ? departures[handle] : 0;
+        }
+
+        private int arrivals(int handle) {
+            return handle < stationCount ? arrivals[handle] : 0;
+        }
+
+        private long duration(int handle) {
+            return handle < stationCount ? durationSeconds[handle] : 0;
+        }
+
+        private int hourly(int handle, int hour) {
+            return handle < stationCount ? hourlyDepartures[handle * HOURS + hour] : 0;
+        }
+
+        private int register(Station station) {
+            int handle = station.getHandle();
+            if (handle < 0) {
+                throw new IllegalArgumentException("Stacja " + station.getStationId() + " nie jest zarejestrowana w systemie.");
+            }
+            if (handle >= stations.length) {
+                int capacity = Math.max(stations.length * 2, handle + 1);
+                stations = Arrays.copyOf(stations, capacity);
+                departures = Arrays.copyOf(departures, capacity);
+                arrivals = Arrays.copyOf(arrivals, capacity);
+                durationSeconds = Arrays.copyOf(durationSeconds, capacity);
+                hourlyDepartures = Arrays.copyOf(hourlyDepartures, capacity * HOURS);
+            }
+            stations[handle] = station;
+            stationCount = Math.max(stationCount, handle + 1);
+            return handle;
+        }
+    }
+}
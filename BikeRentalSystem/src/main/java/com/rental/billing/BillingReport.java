@@ -0,0 +1,153 @@
+package com.rental.billing;
+
+import com.rental.model.Rental;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Wynik ponownej wyceny zakończonych wypożyczeń
+ * ({@link FareEngine#reprice}): suma opłat, rozbicie na plany
+ * abonamentowe oraz porównanie z opłatami naliczonymi przy zwrocie.
+ *
+ * <p>Wszystkie wartości są sumami lub minimami, które nie zależą od
+ * kolejności przetwarzania, więc ten sam stan historii zawsze daje ten sam
+ * raport, niezależnie od podziału pracy między wątki.
+ */
+public final class BillingReport {
+    /** Najwięcej identyfikatorów niezgodnych wypożyczeń podawanych w raporcie. */
+    public static final int MISMATCH_SAMPLE = 10;
+
+    private final long rentals;
+    private final long totalCents;
+    private final long[] rentalsByPlan;
+    private final long[] centsByPlan;
+    private final long unpriced;
+    private final long mismatches;
+    private final long[] mismatchSample;
+    private final Duration elapsed;
+
+    private BillingReport(Accumulator totals, Duration elapsed) {
+        this.rentals = totals.rentals;
+        this.totalCents = totals.totalCents;
+        this.rentalsByPlan = totals.rentalsByPlan;
+        this.centsByPlan = totals.centsByPlan;
+        this.unpriced = totals.unpriced;
+        this.mismatches = totals.mismatches;
+        this.mismatchSample = Arrays.copyOf(totals.mismatchSample, totals.sampleSize);
+        this.elapsed = elapsed;
+    }
+
+    /**
+     * @return liczba wycenionych wypożyczeń
+     */
+    public long getRentalCount() {
+        return rentals;
+    }
+
+    /**
+     * @return suma opłat według bieżącej taryfy, w groszach
+     */
+    public long getTotalCents() {
+        return totalCents;
+    }
+
+    public long getRentalCount(SubscriptionPlan plan) {
+        return rentalsByPlan[plan.ordinal()];
+    }
+
+    public long getTotalCents(SubscriptionPlan plan) {
+        return centsByPlan[plan.ordinal()];
+    }
+
+    /**
+     * @return liczba wypożyczeń bez opłaty naliczonej przy zwrocie
+     * (np. wczytanych ze starszej migawki)
+     */
+    public long getUnpricedCount() {
+        return unpriced;
+    }
+
+    /**
+     * @return liczba wypożyczeń, których opłata naliczona przy zwrocie
+     * różni się od ponownej wyceny
+     */
+    public long getMismatchCount() {
+        return mismatches;
+    }
+
+    /**
+     * @return najmniejsze identyfikatory niezgodnych wypożyczeń (najwyżej
+     * {@link #MISMATCH_SAMPLE}), rosnąco
+     */
+    public long[] getMismatchSample() {
+        return mismatchSample.clone();
+    }
+
+    /**
+     * @return czas trwania wyceny
+     */
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * Częściowe sumy zbierane przez jeden wątek wyceny.
+     */
+    static final class Accumulator {
+        private final long[] rentalsByPlan = new long[SubscriptionPlan.values().length];
+        private final long[] centsByPlan = new long[SubscriptionPlan.values().length];
+        private final long[] mismatchSample = new long[MISMATCH_SAMPLE];
+        private int sampleSize;
+        private long rentals;
+        private long totalCents;
+        private long unpriced;
+        private long mismatches;
+
+        void add(SubscriptionPlan plan, long rentalId, long fareCents, long chargedCents) {
+            rentals++;
+            totalCents += fareCents;
+            rentalsByPlan[plan.ordinal()]++;
+            centsByPlan[plan.ordinal()] += fareCents;
+            if (chargedCents == Rental.UNPRICED) {
+                unpriced++;
+            } else if (chargedCents != fareCents) {
+                mismatches++;
+                offerMismatch(rentalId);
+            }
+        }
+
+        void merge(Accumulator other) {
+            rentals += other.rentals;
+            totalCents += other.totalCents;
+            unpriced += other.unpriced;
+            mismatches += other.mismatches;
+            for (int i = 0; i < rentalsByPlan.length; i++) {
+                rentalsByPlan[i] += other.rentalsByPlan[i];
+                centsByPlan[i] += other.centsByPlan[i];
+            }
+            for (int i = 0; i < other.sampleSize; i++) {
+                offerMismatch(other.mismatchSample[i]);
+            }
+        }
+
+        BillingReport toReport(Duration elapsed) {
+            return new BillingReport(this, elapsed);
+        }
+
+        // keeps the smallest ids in ascending order, so the sample does not depend on the split
+        private void offerMismatch(long rentalId) {
+            int position = sampleSize;
+            while (position > 0 && mismatchSample[position - 1] > rentalId) {
+                position--;
+            }
+            if (position == MISMATCH_SAMPLE) {
+                return;
+            }
+            int moved = Math.min(sampleSize, MISMATCH_SAMPLE - 1) - position;
+            System.arraycopy(mismatchSample, position, mismatchSample, position + 1, moved);
+            mismatchSample[position] = rentalId;
+            sampleSize = Math.min(sampleSize + 1, MISMATCH_SAMPLE);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.rental.billing;
+
+import com.rental.model.Rental;
+import com.rental.model.Station;
+import com.rental.model.User;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Wycenia zakończone wypożyczenia według {@link Tariff taryfy}, strefy
+ * stacji i planu abonamentowego użytkownika.
+ *
+ * <p>Wypożyczenie wyceniane jest w chwili zwrotu ({@link #price(Rental)}),
+ * a {@link #reprice} wycenia od nowa całą historię, równolegle,
+ * i porównuje wynik z opłatami naliczonymi przy zwrotach. Obie ścieżki
+ * liczą czas przejazdu z pełnych sekund, tak jak zapisuje go magazyn
+ * historii, i korzystają z tej samej metody {@link Tariff#fare}, więc przy
+ * niezmienionej konfiguracji dają identyczne kwoty.
+ *
+ * <p>Stacja bez przypisanej strefy należy do strefy 0, a użytkownik bez
+ * planu płaci według {@link SubscriptionPlan#PAY_AS_YOU_GO}. Metody są
+ * bezpieczne wątkowo.
+ */
+public final class FareEngine {
+    private final Map<Station, Integer> zones = new ConcurrentHashMap<>();
+    private final Map<User, SubscriptionPlan> plans = new ConcurrentHashMap<>();
+    private volatile Tariff tariff;
+
+    public FareEngine(Tariff tariff) {
+        this.tariff = tariff;
+    }
+
+    public Tariff getTariff() {
+        return tariff;
+    }
+
+    /**
+     * Zmienia taryfę dla kolejnych wycen; opłaty już naliczone nie są zmieniane.
+     */
+    public void setTariff(Tariff tariff) {
+        this.tariff = tariff;
+    }
+
+    /**
+     * @throws IllegalArgumentException jeśli numer strefy jest ujemny
+     */
+    public void setZone(Station station, int zone) {
+        if (zone < 0) {
+            throw new IllegalArgumentException("Numer strefy nie może być ujemny: " + zone);
+        }
+        zones.put(station, zone);
+    }
+
+    public int getZone(Station station) {
+        return zones.getOrDefault(station, 0);
+    }
+
+    public void setPlan(User user, SubscriptionPlan plan) {
+        plans.put(user, plan);
+    }
+
+    public SubscriptionPlan getPlan(User user) {
+        return plans.getOrDefault(user, SubscriptionPlan.PAY_AS_YOU_GO);
+    }
+
+    /**
+     * Wycenia zakończone wypożyczenie według bieżącej taryfy.
+     *
+     * @return opłata w groszach
+     * @throws IllegalArgumentException jeśli wypożyczenie nie zostało zakończone
+     */
+    public long price(Rental rental) {
+        if (rental.getEndTime() == null) {
+            throw new IllegalArgumentException("Wycenić można tylko zakończone wypożyczenie.");
+        }
+        return price(rental, rental.getEndStation(), rental.getEndTime());
+    }
+
+    /**
+     * Wycenia wypożyczenie tak, jakby zakończyło się na podanej stacji
+     * w podanym czasie, np. zanim zwrot zostanie zapisany w dzienniku.
+     *
+     * @return opłata w groszach
+     */
+    public long price(Rental rental, Station endStation, LocalDateTime endTime) {
+        long start = rental.getStartTime().toEpochSecond(ZoneOffset.UTC);
+        long end = endTime.toEpochSecond(ZoneOffset.UTC);
+        return tariff.fare(getPlan(rental.getUser()), getZone(rental.getStartStation()),
+                getZone(endStation), end - start);
+    }
+
+    /**
+     * Wycenia od nowa historię podanych użytkowników według bieżącej taryfy.
+     *
+     * @see #reprice(Collection, Tariff)
+     */
+    public BillingReport reprice(Collection<User> users) {
+        return reprice(users, tariff);
+    }
+
+    /**
+     * Wycenia od nowa historię podanych użytkowników według podanej taryfy,
+     * np. aby sprawdzić skutki zmiany cennika przed jej wprowadzeniem.
+     * Użytkownicy przetwarzani są równolegle (w {@code ForkJoinPool.commonPool()}),
+     * każdy wątek sumuje do własnego akumulatora, a częściowe wyniki są na
+     * końcu łączone. Przejazdy odczytywane są z kolumn magazynu historii,
+     * bez odtwarzania obiektów {@link Rental}.
+     */
+    public BillingReport reprice(Collection<User> users, Tariff tariff) {
+        long start = System.nanoTime();
+        BillingReport.Accumulator totals = users.parallelStream().collect(BillingReport.Accumulator::new,
+                (accumulator, user) -> {
+                    SubscriptionPlan plan = getPlan(user);
+                    user.forEachTrip((rentalId, origin, destination, startEpochSecond, seconds, charged) ->
+                            accumulator.add(plan, rentalId,
+                                    tariff.fare(plan, getZone(origin), getZone(destination), seconds), charged));
+                },
+                BillingReport.Accumulator::merge);
+        return totals.toReport(Duration.ofNanos(System.nanoTime() - start));
+    }
+}
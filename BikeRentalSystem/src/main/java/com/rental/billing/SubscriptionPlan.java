@@ -0,0 +1,21 @@
+package com.rental.billing;
+
+/**
+ * Plan abonamentowy użytkownika, od którego zależą stawki w taryfie.
+ */
+public enum SubscriptionPlan {
+    /** Bez abonamentu - opłata za odblokowanie i każdą rozpoczętą minutę. */
+    PAY_AS_YOU_GO("Bez abonamentu"),
+    MONTHLY("Abonament miesięczny"),
+    ANNUAL("Abonament roczny");
+
+    private final String description;
+
+    SubscriptionPlan(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
@@ -0,0 +1,145 @@
+package com.rental.billing;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Niezmienny cennik przejazdów. Opłata składa się z:
+ * <ul>
+ *     <li>opłaty za odblokowanie roweru i stawki za każdą rozpoczętą minutę
+ *     ponad minuty wliczone w plan abonamentowy,</li>
+ *     <li>dopłaty za każdą strefę dzielącą stację rozpoczęcia i zakończenia,</li>
+ *     <li>kary za każdą rozpoczętą godzinę ponad dozwolony czas wypożyczenia.</li>
+ * </ul>
+ * Wszystkie kwoty są w groszach, a opłata liczona jest wyłącznie
+ * w arytmetyce całkowitej, więc ten sam przejazd zawsze kosztuje tyle samo.
+ */
+public final class Tariff {
+    private static final SubscriptionPlan[] PLANS = SubscriptionPlan.values();
+
+    private final PlanRates[] rates = new PlanRates[PLANS.length];
+    private final long zoneCrossingCents;
+    private final long overtimeAfterSeconds;
+    private final long overtimeCentsPerHour;
+
+    /**
+     * @param rates                stawki każdego planu abonamentowego
+     * @param zoneCrossingCents    dopłata za każdą przekroczoną strefę
+     * @param overtimeAfter        czas wypożyczenia, po którym nalicza się kary
+     * @param overtimeCentsPerHour kara za każdą rozpoczętą godzinę ponad {@code overtimeAfter}
+     * @throws IllegalArgumentException jeśli brakuje stawek planu lub kwota jest ujemna
+     */
+    public Tariff(Map<SubscriptionPlan, PlanRates> rates, long zoneCrossingCents, Duration overtimeAfter,
+            long overtimeCentsPerHour) {
+        for (SubscriptionPlan plan : PLANS) {
+            PlanRates planRates = rates.get(plan);
+            if (planRates == null) {
+                throw new IllegalArgumentException("Brak stawek dla planu: " + plan);
+            }
+            this.rates[plan.ordinal()] = planRates;
+        }
+        if (zoneCrossingCents < 0 || overtimeCentsPerHour < 0) {
+            throw new IllegalArgumentException("Kwoty w taryfie nie mogą być ujemne.");
+        }
+        if (overtimeAfter.isNegative()) {
+            throw new IllegalArgumentException("Czas naliczania kar nie może być ujemny.");
+        }
+        this.zoneCrossingCents = zoneCrossingCents;
+        this.overtimeAfterSeconds = overtimeAfter.getSeconds();
+        this.overtimeCentsPerHour = overtimeCentsPerHour;
+    }
+
+    /**
+     * @return cennik domyślny z karami naliczanymi po 12 godzinach
+     */
+    public static Tariff standard() {
+        return standard(Duration.ofHours(12));
+    }
+
+    /**
+     * @param overtimeAfter czas wypożyczenia, po którym naliczane są kary
+     * @return cennik domyślny: bez abonamentu 2 zł za odblokowanie i 0,50 zł
+     * za minutę, abonament miesięczny 20 minut w cenie i 0,30 zł za minutę,
+     * roczny 30 minut w cenie i 0,20 zł za minutę; 1 zł za strefę, 50 zł
+     * kary za godzinę
+     */
+    public static Tariff standard(Duration overtimeAfter) {
+        Map<SubscriptionPlan, PlanRates> rates = new EnumMap<>(SubscriptionPlan.class);
+        rates.put(SubscriptionPlan.PAY_AS_YOU_GO, new PlanRates(200, 0, 50));
+        rates.put(SubscriptionPlan.MONTHLY, new PlanRates(0, 20, 30));
+        rates.put(SubscriptionPlan.ANNUAL, new PlanRates(0, 30, 20));
+        return new Tariff(rates, 100, overtimeAfter, 5_000);
+    }
+
+    /**
+     * Oblicza opłatę za przejazd.
+     *
+     * @param durationSeconds czas przejazdu w pełnych sekundach
+     * @return opłata w groszach
+     */
+    public long fare(SubscriptionPlan plan, int startZone, int endZone, long durationSeconds) {
+        PlanRates planRates = rates[plan.ordinal()];
+        long seconds = Math.max(0, durationSeconds);
+        long minutes = (seconds + 59) / 60;
+        long fare = planRates.unlockCents
+                + Math.max(0, minutes - planRates.includedMinutes) * planRates.centsPerMinute
+                + Math.abs((long) startZone - endZone) * zoneCrossingCents;
+        if (seconds > overtimeAfterSeconds) {
+            fare += (seconds - overtimeAfterSeconds + 3_599) / 3_600 * overtimeCentsPerHour;
+        }
+        return fare;
+    }
+
+    public PlanRates getRates(SubscriptionPlan plan) {
+        return rates[plan.ordinal()];
+    }
+
+    public long getZoneCrossingCents() {
+        return zoneCrossingCents;
+    }
+
+    public Duration getOvertimeAfter() {
+        return Duration.ofSeconds(overtimeAfterSeconds);
+    }
+
+    public long getOvertimeCentsPerHour() {
+        return overtimeCentsPerHour;
+    }
+
+    /**
+     * Stawki jednego planu abonamentowego.
+     */
+    public static final class PlanRates {
+        private final long unlockCents;
+        private final long includedMinutes;
+        private final long centsPerMinute;
+
+        /**
+         * @param unlockCents     opłata za odblokowanie roweru
+         * @param includedMinutes minuty przejazdu wliczone w plan
+         * @param centsPerMinute  stawka za każdą rozpoczętą minutę ponad wliczone
+         * @throws IllegalArgumentException jeśli któraś wartość jest ujemna
+         */
+        public PlanRates(long unlockCents, long includedMinutes, long centsPerMinute) {
+            if (unlockCents < 0 || includedMinutes < 0 || centsPerMinute < 0) {
+                throw new IllegalArgumentException("Stawki planu nie mogą być ujemne.");
+            }
+            this.unlockCents = unlockCents;
+            this.includedMinutes = includedMinutes;
+            this.centsPerMinute = centsPerMinute;
+        }
+
+        public long getUnlockCents() {
+            return unlockCents;
+        }
+
+        public long getIncludedMinutes() {
+            return includedMinutes;
+        }
+
+        public long getCentsPerMinute() {
+            return centsPerMinute;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.rental.event;
+
+import java.io.PrintStream;
+
+/**
+ * Wypisuje zdarzenia na konsolę, po jednym wierszu na zdarzenie.
+ * Cała partia trafia do strumienia jednym zapisem.
+ */
+public class ConsoleEventSink implements EventSink {
+    private final PrintStream out;
+    private final StringBuilder batch = new StringBuilder();
+
+    public ConsoleEventSink() {
+        this(System.out);
+    }
+
+    public ConsoleEventSink(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void write(OperationEvent event) {
+        event.appendTo(batch);
+        batch.append(System.lineSeparator());
+    }
+
+    @Override
+    public void flush() {
+        if (batch.length() > 0) {
+            out.print(batch);
+            out.flush();
+            batch.setLength(0);
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+    }
+}
@@ -0,0 +1,203 @@
+package com.rental.event;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchroniczny dziennik zdarzeń operacyjnych. Wątki wykonujące operacje
+ * publikują zdarzenia do bezblokadowego bufora pierścieniowego
+ * o stałej pojemności, a osobny wątek konsumenta przekazuje je partiami
+ * do {@link EventSink}. Publikacja nie wykonuje operacji wejścia-wyjścia
+ * ani alokacji; gdy bufor jest pełny, zdarzenie jest odrzucane i zliczane
+ * w {@link #getDroppedCount()}, aby nie wstrzymywać wywołującego.
+ *
+ * <p>Dziennik wyłączony ({@link #disabled()}) odrzuca zdarzenia od razu,
+ * bez żadnych zapisów do pamięci współdzielonej.
+ */
+public final class EventLog implements AutoCloseable {
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private static final EventLog DISABLED = new EventLog();
+    private static final long MAX_IDLE_PARK_NANOS = 1_000_000;
+
+    private final boolean enabled;
+    private final OperationEvent[] slots;
+    // published[i] holds the sequence number of the event last written into slot i
+    private final AtomicLongArray published;
+    private final int mask;
+    private final AtomicLong nextSequence = new AtomicLong();
+    // first sequence not yet handed to the sink; written only by the consumer
+    private final AtomicLong consumed = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+    private final EventSink sink;
+    private final Thread consumer;
+    private volatile boolean running;
+
+    private EventLog() {
+        this.enabled = false;
+        this.slots = null;
+        this.published = null;
+        this.mask = 0;
+        this.sink = null;
+        this.consumer = null;
+    }
+
+    private EventLog(EventSink sink, int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Pojemność bufora zdarzeń musi być potęgą dwójki.");
+        }
+        this.enabled = true;
+        this.sink = sink;
+        this.slots = new OperationEvent[capacity];
+        this.published = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new OperationEvent();
+            published.set(i, -1);
+        }
+        this.running = true;
+        this.consumer = new Thread(this::consume, "event-log");
+        this.consumer.setDaemon(true);
+        this.consumer.start();
+    }
+
+    /**
+     * Zwraca dziennik, który nie zapisuje żadnych zdarzeń.
+     */
+    public static EventLog disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Uruchamia dziennik z buforem o domyślnej pojemności.
+     */
+    public static EventLog start(EventSink sink) {
+        return start(sink, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Uruchamia dziennik przekazujący zdarzenia do podanego odbiorcy.
+     *
+     * @param capacity pojemność bufora, potęga dwójki
+     */
+    public static EventLog start(EventSink sink, int capacity) {
+        return new EventLog(sink, capacity);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Publikuje zdarzenie. Nieużywane przez dany rodzaj pola są ignorowane.
+     */
+    public void publish(EventType type, String first, String second, String third, long value) {
+        if (!enabled) {
+            return;
+        }
+        long sequence;
+        do {
+            sequence = nextSequence.get();
+            if (sequence - consumed.get() >= slots.length) {
+                dropped.increment();
+                return;
+            }
+        } while (!nextSequence.compareAndSet(sequence, sequence + 1));
+
+        int index = (int) sequence & mask;
+        slots[index].set(type, System.currentTimeMillis(), first, second, third, value);
+        published.lazySet(index, sequence);
+    }
+
+    /**
+     * @return liczba zdarzeń odrzuconych z powodu przepełnienia bufora
+     * lub błędu zapisu
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Zatrzymuje konsumenta po przekazaniu odbiorcy wszystkich zdarzeń
+     * opublikowanych przed wywołaniem i zamyka odbiorcę.
+     */
+    @Override
+    public void close() {
+        if (!enabled || !running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            sink.close();
+        } catch (IOException e) {
+            System.err.println("Błąd zamknięcia dziennika zdarzeń: " + e.getMessage());
+        }
+    }
+
+    private void consume() {
+        long idlePark = 1_000;
+        while (true) {
+            boolean stopping = !running;
+            int drained = drainBatch();
+            if (drained > 0) {
+                idlePark = 1_000;
+            } else if (stopping) {
+                return;
+            } else {
+                // producers never signal, so the consumer backs off while the buffer stays empty
+                LockSupport.parkNanos(idlePark);
+                idlePark = Math.min(idlePark * 2, MAX_IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    // Hands every contiguously published event to the sink, then flushes once
+    private int drainBatch() {
+        long next = consumed.get();
+        int count = 0;
+        boolean failed = false;
+        while (count < slots.length) {
+            int index = (int) next & mask;
+            if (published.get(index) != next) {
+                break;
+            }
+            OperationEvent event = slots[index];
+            if (!failed) {
+                try {
+                    sink.write(event);
+                } catch (IOException e) {
+                    failed = reportFailure(e);
+                }
+            }
+            if (failed) {
+                dropped.increment();
+            }
+            event.clear();
+            next++;
+            count++;
+            consumed.lazySet(next);
+        }
+        if (count > 0 && !failed) {
+            try {
+                sink.flush();
+            } catch (IOException e) {
+                reportFailure(e);
+            }
+        }
+        return count;
+    }
+
+    private static boolean reportFailure(IOException e) {
+        System.err.println("Błąd zapisu dziennika zdarzeń: " + e.getMessage());
+        return true;
+    }
+}
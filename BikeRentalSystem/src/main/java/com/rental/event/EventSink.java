@@ -0,0 +1,24 @@
+package com.rental.event;
+
+import java.io.IOException;
+
+/**
+ * Odbiorca zdarzeń operacyjnych. Metody wywoływane są wyłącznie z wątku
+ * konsumenta {@link EventLog}: najpierw {@link #write} dla każdego zdarzenia
+ * z partii, następnie jednokrotnie {@link #flush()}.
+ */
+public interface EventSink {
+
+    /**
+     * Zapisuje zdarzenie. Obiekt zdarzenia jest ponownie wykorzystywany
+     * po powrocie z metody.
+     */
+    void write(OperationEvent event) throws IOException;
+
+    /**
+     * Kończy partię zdarzeń, np. opróżniając bufor wyjściowy.
+     */
+    void flush() throws IOException;
+
+    void close() throws IOException;
+}
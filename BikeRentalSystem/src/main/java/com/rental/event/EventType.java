@@ -0,0 +1,47 @@
+package com.rental.event;
+
+/**
+ * Rodzaje zdarzeń operacyjnych publikowanych przez system wypożyczalni.
+ * Każdy rodzaj określa nazwy pól tekstowych i pola liczbowego zdarzenia
+ * ({@code null} oznacza pole nieużywane).
+ */
+public enum EventType {
+    USER_REGISTERED("userId", "name", null, null),
+    STATION_ADDED("stationId", "location", null, "capacity"),
+    BIKE_ADDED("bikeId", "stationId", null, null),
+    BIKE_RENTED("userId", "bikeId", "stationId", null),
+    BIKE_RETURNED("userId", "bikeId", "stationId", "durationSeconds"),
+    BIKES_TRANSFERRED("fromStationId", "toStationId", null, "count"),
+    BIKE_RESERVED("userId", "stationId", null, "holdSeconds"),
+    RESERVATION_CANCELLED("userId", "stationId", null, null),
+    RESERVATION_EXPIRED("userId", "stationId", null, null),
+    RENTAL_OVERDUE("userId", "bikeId", "stationId", "rentedSeconds");
+
+    private final String firstField;
+    private final String secondField;
+    private final String thirdField;
+    private final String valueField;
+
+    EventType(String firstField, String secondField, String thirdField, String valueField) {
+        this.firstField = firstField;
+        this.secondField = secondField;
+        this.thirdField = thirdField;
+        this.valueField = valueField;
+    }
+
+    public String getFirstField() {
+        return firstField;
+    }
+
+    public String getSecondField() {
+        return secondField;
+    }
+
+    public String getThirdField() {
+        return thirdField;
+    }
+
+    public String getValueField() {
+        return valueField;
+    }
+}
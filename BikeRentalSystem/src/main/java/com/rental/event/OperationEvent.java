@@ -0,0 +1,94 @@
+package com.rental.event;
+
+import java.time.Instant;
+
+/**
+ * Zdarzenie operacyjne o stałym układzie: rodzaj, znacznik czasu, do trzech
+ * pól tekstowych i jedno pole liczbowe. Obiekty są komórkami bufora
+ * {@link EventLog} i są ponownie wykorzystywane - odbiorca nie może
+ * przechowywać referencji poza wywołaniem {@link EventSink#write}.
+ */
+public final class OperationEvent {
+    private EventType type;
+    private long timestampMillis;
+    private String first;
+    private String second;
+    private String third;
+    private long value;
+
+    OperationEvent() {
+    }
+
+    void set(EventType type, long timestampMillis, String first, String second, String third, long value) {
+        this.type = type;
+        this.timestampMillis = timestampMillis;
+        this.first = first;
+        this.second = second;
+        this.third = third;
+        this.value = value;
+    }
+
+    // drops string references so that a consumed slot does not keep them alive
+    void clear() {
+        first = null;
+        second = null;
+        third = null;
+    }
+
+    public EventType getType() {
+        return type;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public String getFirst() {
+        return first;
+    }
+
+    public String getSecond() {
+        return second;
+    }
+
+    public String getThird() {
+        return third;
+    }
+
+    public long getValue() {
+        return value;
+    }
+
+    /**
+     * Dopisuje zdarzenie jako jeden wiersz w postaci
+     * {@code <czas> <RODZAJ> pole=wartość ...}, bez znaku końca wiersza.
+     */
+    public void appendTo(StringBuilder out) {
+        out.append(Instant.ofEpochMilli(timestampMillis)).append(' ').append(type);
+        appendField(out, type.getFirstField(), first);
+        appendField(out, type.getSecondField(), second);
+        appendField(out, type.getThirdField(), third);
+        if (type.getValueField() != null) {
+            out.append(' ').append(type.getValueField()).append('=').append(value);
+        }
+    }
+
+    private static void appendField(StringBuilder out, String name, String fieldValue) {
+        if (name == null) {
+            return;
+        }
+        out.append(' ').append(name).append('=');
+        if (fieldValue != null && fieldValue.indexOf(' ') < 0 && fieldValue.indexOf('"') < 0) {
+            out.append(fieldValue);
+        } else {
+            out.append('"').append(fieldValue == null ? "" : fieldValue.replace("\"", "\\\"")).append('"');
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        appendTo(sb);
+        return sb.toString();
+    }
+}
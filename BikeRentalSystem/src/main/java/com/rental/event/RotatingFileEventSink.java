@@ -0,0 +1,111 @@
+package com.rental.event;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.stream.Stream;
+
+/**
+ * Zapisuje zdarzenia do plików {@code events-NNNNNN.log} we wskazanym
+ * katalogu. Po przekroczeniu zadanego rozmiaru otwierany jest kolejny plik,
+ * a najstarsze pliki ponad zadaną liczbę są usuwane. Każde uruchomienie
+ * zaczyna nowy plik.
+ */
+public class RotatingFileEventSink implements EventSink {
+    public static final long DEFAULT_MAX_FILE_BYTES = 16L * 1024 * 1024;
+    public static final int DEFAULT_MAX_FILES = 8;
+
+    private static final String PREFIX = "events-";
+    private static final String SUFFIX = ".log";
+    private static final byte[] NEWLINE = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+
+    private final Path directory;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    private final Deque<Path> files = new ArrayDeque<>();
+    private final StringBuilder line = new StringBuilder();
+    private OutputStream out;
+    private long fileBytes;
+    private int nextIndex;
+
+    public RotatingFileEventSink(Path directory) throws IOException {
+        this(directory, DEFAULT_MAX_FILE_BYTES, DEFAULT_MAX_FILES);
+    }
+
+    /**
+     * @param directory    katalog plików zdarzeń; tworzony, jeśli nie istnieje
+     * @param maxFileBytes rozmiar, po przekroczeniu którego otwierany jest nowy plik
+     * @param maxFiles     maksymalna liczba przechowywanych plików
+     * @throws IOException jeśli nie można utworzyć katalogu lub pliku
+     */
+    public RotatingFileEventSink(Path directory, long maxFileBytes, int maxFiles) throws IOException {
+        if (maxFileBytes <= 0 || maxFiles < 1) {
+            throw new IllegalArgumentException("Nieprawidłowe parametry rotacji plików zdarzeń.");
+        }
+        this.directory = directory;
+        this.maxFileBytes = maxFileBytes;
+        this.maxFiles = maxFiles;
+        Files.createDirectories(directory);
+        try (Stream<Path> existing = Files.list(directory)) {
+            existing.filter(RotatingFileEventSink::isEventFile).sorted().forEach(files::addLast);
+        }
+        if (!files.isEmpty()) {
+            nextIndex = indexOf(files.peekLast()) + 1;
+        }
+        rotate();
+    }
+
+    @Override
+    public void write(OperationEvent event) throws IOException {
+        line.setLength(0);
+        event.appendTo(line);
+        byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+        if (fileBytes > 0 && fileBytes + bytes.length + NEWLINE.length > maxFileBytes) {
+            rotate();
+        }
+        out.write(bytes);
+        out.write(NEWLINE);
+        fileBytes += bytes.length + NEWLINE.length;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void rotate() throws IOException {
+        if (out != null) {
+            out.close();
+        }
+        Path file = directory.resolve(String.format("%s%06d%s", PREFIX, nextIndex++, SUFFIX));
+        out = new BufferedOutputStream(
+                Files.newOutputStream(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE), 64 * 1024);
+        fileBytes = 0;
+        files.addLast(file);
+        while (files.size() > maxFiles) {
+            Files.deleteIfExists(files.removeFirst());
+        }
+    }
+
+    private static boolean isEventFile(Path file) {
+        String name = file.getFileName().toString();
+        return name.startsWith(PREFIX) && name.endsWith(SUFFIX)
+                && name.length() == PREFIX.length() + 6 + SUFFIX.length();
+    }
+
+    private static int indexOf(Path file) {
+        String name = file.getFileName().toString();
+        return Integer.parseInt(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+}
@@ -0,0 +1,7 @@
+package com.rental.exception;
+
+public class NoReservationException extends Exception {
+    public NoReservationException(String message) {
+        super(message);
+    }
+}
\ No newline at end of file
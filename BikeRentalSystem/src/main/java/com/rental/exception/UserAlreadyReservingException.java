@@ -0,0 +1,7 @@
+package com.rental.exception;
+
+public class UserAlreadyReservingException extends Exception {
+    public UserAlreadyReservingException(String message) {
+        super(message);
+    }
+}
\ No newline at end of file
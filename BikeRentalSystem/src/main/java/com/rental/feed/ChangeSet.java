@@ -0,0 +1,195 @@
+package com.rental.feed;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Zbiór uchwytów zmienionych stacji bez powtórzeń, bez blokad: atomowa
+ * bitmapa do sprawdzania przynależności i stos wpisów odkładanych pętlą
+ * compare-and-set, opróżniany naraz w kolejności dodania. Ponowna zmiana
+ * stacji, która już czeka w zbiorze, niczego nie dodaje, więc zbiór nie
+ * przekracza liczby stacji.
+ *
+ * <p>Dodawać może wiele wątków naraz, opróżnia jeden odbiorca. Bit stacji
+ * gaśnie przy opróżnieniu, zanim odbiorca odczyta jej stan, więc zmiana
+ * pominięta jako powtórzenie zawsze trafia do tego odczytu.
+ *
+ * <p>Zbiór pamięta też, czy jego odbiorca został już powiadomiony
+ * o oczekujących zmianach: powiadomienie należy się dopiero wtedy, gdy
+ * odbiorca po opróżnieniu zbioru stwierdził, że jest pusty.
+ */
+final class ChangeSet {
+    private static final int PAGE_BITS = 12;
+    private static final int PAGE_WORDS = 1 << (PAGE_BITS - 6);
+
+    // pages are only ever added; a grown table shares the existing ones, so no bit is lost
+    private volatile AtomicLongArray[] pages = new AtomicLongArray[0];
+    private final AtomicReference<Node> head = new AtomicReference<>();
+    private final AtomicInteger size = new AtomicInteger();
+    // the consumer has been notified and has not yet found the set empty
+    private final AtomicBoolean notified = new AtomicBoolean();
+    // the consumer parked in await(), if any
+    private volatile Thread waiter;
+
+    /**
+     * @return {@code true} jeśli odbiorcę trzeba powiadomić
+     */
+    boolean add(int handle) {
+        put(handle);
+        return notifyConsumer();
+    }
+
+    /**
+     * Dodaje uchwyty przyjmowane przez filtr ({@code null} - wszystkie).
+     *
+     * @return {@code true} jeśli odbiorcę trzeba powiadomić
+     */
+    boolean addAll(int[] changed, long[] filter) {
+        for (int handle : changed) {
+            if (filter == null || contains(filter, handle)) {
+                put(handle);
+            }
+        }
+        return notifyConsumer();
+    }
+
+    /**
+     * @return liczba oczekujących uchwytów; przy równoczesnych zmianach przybliżona
+     */
+    int size() {
+        return Math.max(size.get(), 0);
+    }
+
+    /**
+     * Opróżnia zbiór, nie zmieniając stanu powiadomienia.
+     */
+    int[] drain() {
+        Node taken = head.getAndSet(null);
+        int count = 0;
+        for (Node node = taken; node != null; node = node.next) {
+            count++;
+        }
+        // the stack holds the newest entry first
+        int[] drained = new int[count];
+        int i = count;
+        for (Node node = taken; node != null; node = node.next) {
+            drained[--i] = node.handle;
+            clear(node.handle);
+        }
+        size.addAndGet(-count);
+        return drained;
+    }
+
+    /**
+     * Kończy obsługę powiadomienia.
+     *
+     * @return {@code true} jeśli w międzyczasie pojawiły się zmiany
+     * i odbiorca musi opróżnić zbiór ponownie
+     */
+    boolean finish() {
+        notified.set(false);
+        // an add that found the flag still raised did not notify, so its entry is picked up here
+        return head.get() != null && notified.compareAndSet(false, true);
+    }
+
+    /**
+     * Czeka na zmiany i opróżnia zbiór. Może czekać tylko jeden wątek naraz.
+     */
+    int[] await() throws InterruptedException {
+        waiter = Thread.currentThread();
+        try {
+            while (true) {
+                int[] drained = drain();
+                if (drained.length > 0) {
+                    return drained;
+                }
+                notified.set(false);
+                // checked after lowering the flag, so the next add either shows up here or wakes us
+                if (head.get() == null) {
+                    LockSupport.park(this);
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        } finally {
+            waiter = null;
+        }
+    }
+
+    private boolean notifyConsumer() {
+        if (head.get() == null || notified.get() || !notified.compareAndSet(false, true)) {
+            return false;
+        }
+        Thread consumer = waiter;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+        }
+        return true;
+    }
+
+    private void put(int handle) {
+        AtomicLongArray page = page(handle >>> PAGE_BITS);
+        int word = (handle >>> 6) & (PAGE_WORDS - 1);
+        long bit = 1L << handle;
+        long bits;
+        do {
+            bits = page.get(word);
+            if ((bits & bit) != 0) {
+                return;
+            }
+        } while (!page.compareAndSet(word, bits, bits | bit));
+        size.incrementAndGet();
+        Node node = new Node(handle);
+        do {
+            node.next = head.get();
+        } while (!head.compareAndSet(node.next, node));
+    }
+
+    private void clear(int handle) {
+        AtomicLongArray page = pages[handle >>> PAGE_BITS];
+        int word = (handle >>> 6) & (PAGE_WORDS - 1);
+        long bit = 1L << handle;
+        long bits;
+        do {
+            bits = page.get(word);
+        } while (!page.compareAndSet(word, bits, bits & ~bit));
+    }
+
+    private AtomicLongArray page(int index) {
+        AtomicLongArray[] table = pages;
+        if (index < table.length) {
+            return table[index];
+        }
+        synchronized (this) {
+            table = pages;
+            if (index >= table.length) {
+                AtomicLongArray[] grown = new AtomicLongArray[index + 1];
+                System.arraycopy(table, 0, grown, 0, table.length);
+                for (int i = table.length; i < grown.length; i++) {
+                    grown[i] = new AtomicLongArray(PAGE_WORDS);
+                }
+                pages = grown;
+                table = grown;
+            }
+            return table[index];
+        }
+    }
+
+    static boolean contains(long[] filter, int handle) {
+        int word = handle >>> 6;
+        return word < filter.length && (filter[word] & (1L << handle)) != 0;
+    }
+
+    private static final class Node {
+        final int handle;
+        Node next;
+
+        Node(int handle) {
+            this.handle = handle;
+        }
+    }
+}
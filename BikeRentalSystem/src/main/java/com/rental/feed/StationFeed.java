@@ -0,0 +1,171 @@
+package com.rental.feed;
+
+import com.rental.service.StationStatusSnapshot;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Rozsyła subskrybentom zmiany stanu stacji.
+ *
+ * <p>Zmiana obsadzenia stacji jedynie oznacza jej uchwyt we wspólnym
+ * zbiorze zmian ({@link #stationChanged(int)}), więc operacja wypożyczenia
+ * czy zwrotu nie czeka na subskrybentów. Osobny wątek rozsyłający
+ * opróżnia ten zbiór i oznacza zmienione stacje w zbiorach poszczególnych
+ * subskrybentów, a dostarczanie zleca wykonawcy. Każdy subskrybent ma
+ * najwyżej jedno zlecone dostarczenie naraz; zmiany, które nadejdą
+ * w trakcie, łączą się w jego zbiorze. Wątek rozsyłający pobiera
+ * {@link StationStatusSnapshot} raz na rundę i przekazuje ją razem ze
+ * zmianami, a dostarczana jest najnowsza przekazana migawka, więc wolny
+ * subskrybent widzi tylko ostatni stan każdej stacji, a zaległości nie
+ * przekraczają liczby stacji.
+ */
+public final class StationFeed implements AutoCloseable {
+    private final Supplier<StationStatusSnapshot> status;
+    private final Executor executor;
+    private final ExecutorService ownedExecutor; // null when the executor belongs to the caller
+    private final ChangeSet changed = new ChangeSet();
+    private final Set<StationSubscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final Thread dispatcher;
+
+    /**
+     * Tworzy rozsyłanie z własną pulą wątków dostarczających, po jednym
+     * na procesor.
+     *
+     * @param status źródło najnowszej migawki stanu stacji
+     */
+    public StationFeed(Supplier<StationStatusSnapshot> status) {
+        this(status, null);
+    }
+
+    /**
+     * @param executor wykonawca dostarczający aktualizacje; jego zamknięcie
+     *                 należy do wywołującego
+     */
+    public StationFeed(Supplier<StationStatusSnapshot> status, Executor executor) {
+        this.status = status;
+        if (executor == null) {
+            AtomicInteger threads = new AtomicInteger();
+            this.ownedExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), task -> {
+                Thread thread = new Thread(task, "station-feed-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.executor = ownedExecutor;
+        } else {
+            this.ownedExecutor = null;
+            this.executor = executor;
+        }
+        this.dispatcher = new Thread(this::dispatch, "station-feed-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    /**
+     * Zgłasza zmianę stanu stacji. Wywoływane pod blokadą stacji, już po
+     * opublikowaniu nowej migawki; kosztuje tyle co wpis do zbioru zmian.
+     */
+    public void stationChanged(int stationHandle) {
+        if (!subscriptions.isEmpty()) {
+            changed.add(stationHandle);
+        }
+    }
+
+    /**
+     * Subskrybuje zmiany stacji. Subskrybent otrzymuje najpierw bieżący
+     * stan subskrybowanych stacji, a potem każdą ich zmianę.
+     *
+     * @param stationHandles uchwyty subskrybowanych stacji; brak uchwytów
+     *                       oznacza wszystkie stacje, także dodane później
+     */
+    public StationSubscription subscribe(StationUpdateListener listener, int... stationHandles) {
+        long[] filter = null;
+        if (stationHandles.length > 0) {
+            filter = new long[1];
+            for (int handle : stationHandles) {
+                int word = handle >>> 6;
+                if (word >= filter.length) {
+                    filter = Arrays.copyOf(filter, word + 1);
+                }
+                filter[word] |= 1L << handle;
+            }
+        }
+        StationSubscription subscription = new StationSubscription(this, listener, filter);
+        subscriptions.add(subscription);
+        // the current state first; changes from now on are marked by the dispatcher
+        StationStatusSnapshot current = status.get();
+        int[] all = stationHandles.length > 0 ? stationHandles.clone() : new int[current.size()];
+        if (stationHandles.length == 0) {
+            for (int handle = 0; handle < all.length; handle++) {
+                all[handle] = handle;
+            }
+        }
+        if (subscription.offer(all, current)) {
+            schedule(subscription);
+        }
+        return subscription;
+    }
+
+    /**
+     * @return liczba aktywnych subskrypcji
+     */
+    public int getSubscriptionCount() {
+        return subscriptions.size();
+    }
+
+    void remove(StationSubscription subscription) {
+        subscriptions.remove(subscription);
+    }
+
+    void schedule(StationSubscription subscription) {
+        try {
+            executor.execute(subscription::deliver);
+        } catch (RejectedExecutionException e) {
+            // the feed or the caller's executor is shutting down
+        }
+    }
+
+    private void dispatch() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                int[] handles = changed.await();
+                // read after the changes were taken, so it already holds all of them
+                StationStatusSnapshot current = status.get();
+                for (StationSubscription subscription : subscriptions) {
+                    if (subscription.offer(handles, current)) {
+                        schedule(subscription);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            // closed
+        }
+    }
+
+    /**
+     * Zamyka wszystkie subskrypcje, zatrzymuje wątek rozsyłający i własną
+     * pulę wątków dostarczających.
+     */
+    @Override
+    public void close() {
+        for (StationSubscription subscription : subscriptions) {
+            subscription.close();
+        }
+        dispatcher.interrupt();
+        try {
+            dispatcher.join(5_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdownNow();
+        }
+    }
+}
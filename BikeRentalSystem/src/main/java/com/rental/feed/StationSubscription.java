@@ -0,0 +1,102 @@
+package com.rental.feed;
+
+import com.rental.model.Station;
+import com.rental.service.StationStatusSnapshot;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Subskrypcja zmian stanu stacji, zwracana przez
+ * {@link StationFeed#subscribe}. Zamknięcie kończy dostarczanie
+ * aktualizacji; aktualizacja dostarczana właśnie w chwili zamknięcia
+ * może jeszcze dotrzeć do subskrybenta.
+ */
+public final class StationSubscription implements AutoCloseable {
+    private final StationFeed feed;
+    private final StationUpdateListener listener;
+    // station handles the subscriber is interested in, null for all
+    private final long[] filter;
+    private final ChangeSet dirty = new ChangeSet();
+    // the newest snapshot handed over with marked changes, null before the first one
+    private final AtomicReference<StationStatusSnapshot> latest = new AtomicReference<>();
+    private volatile long failures;
+    private volatile boolean closed;
+
+    StationSubscription(StationFeed feed, StationUpdateListener listener, long[] filter) {
+        this.feed = feed;
+        this.listener = listener;
+        this.filter = filter;
+    }
+
+    /**
+     * @return liczba stacji ze zmianami oczekującymi na dostarczenie
+     * (najwyżej liczba subskrybowanych stacji)
+     */
+    public int getPendingCount() {
+        return dirty.size();
+    }
+
+    /**
+     * @return liczba aktualizacji, na których subskrybent zgłosił wyjątek;
+     * wyjątek nie wstrzymuje dostarczania kolejnych aktualizacji
+     */
+    public long getFailureCount() {
+        return failures;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        feed.remove(this);
+    }
+
+    /**
+     * Oznacza zmienione stacje; wywoływane przez wątek rozsyłający.
+     *
+     * @param status migawka nie starsza niż oznaczane zmiany, pobrana raz
+     *               na całą rundę rozsyłania
+     * @return {@code true} jeśli trzeba zlecić dostarczenie
+     */
+    boolean offer(int[] changed, StationStatusSnapshot status) {
+        if (closed) {
+            return false;
+        }
+        // the snapshot goes first, so a delivery that drains these changes also sees it
+        StationStatusSnapshot seen = latest.get();
+        while ((seen == null || seen.getVersion() < status.getVersion()) && !latest.compareAndSet(seen, status)) {
+            seen = latest.get();
+        }
+        return dirty.addAll(changed, filter);
+    }
+
+    /**
+     * Dostarcza najnowszy stan oznaczonych stacji; zadanie wykonawcy.
+     */
+    void deliver() {
+        int[] handles = dirty.drain();
+        StationStatusSnapshot status = latest.get();
+        for (int handle : handles) {
+            if (closed) {
+                return;
+            }
+            Station station = status.getStation(handle);
+            if (station == null) {
+                continue;
+            }
+            try {
+                listener.stationChanged(new StationUpdate(station.getStationId(), handle,
+                        status.getAvailableBikes(handle), status.getFreeDocks(handle), status.getVersion()));
+            } catch (RuntimeException e) {
+                // a failing subscriber must not lose the remaining updates; only this thread writes the count
+                failures++;
+            }
+        }
+        if (dirty.finish() && !closed) {
+            feed.schedule(this);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.rental.feed;
+
+/**
+ * Stan stacji dostarczany subskrybentowi po zmianie jej obsadzenia.
+ * Kolejne zmiany tej samej stacji, których subskrybent nie zdążył
+ * odebrać, łączone są w jedną - aktualizacja zawiera zawsze najnowszy
+ * stan z chwili dostarczenia.
+ */
+public final class StationUpdate {
+    private final String stationId;
+    private final int stationHandle;
+    private final int availableBikes;
+    private final int freeDocks;
+    private final long version;
+
+    public StationUpdate(String stationId, int stationHandle, int availableBikes, int freeDocks, long version) {
+        this.stationId = stationId;
+        this.stationHandle = stationHandle;
+        this.availableBikes = availableBikes;
+        this.freeDocks = freeDocks;
+        this.version = version;
+    }
+
+    public String getStationId() {
+        return stationId;
+    }
+
+    public int getStationHandle() {
+        return stationHandle;
+    }
+
+    /**
+     * @return liczba rowerów dostępnych bez rezerwacji
+     */
+    public int getAvailableBikes() {
+        return availableBikes;
+    }
+
+    public int getFreeDocks() {
+        return freeDocks;
+    }
+
+    /**
+     * @return wersja migawki stanu stacji, z której odczytano aktualizację
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public String toString() {
+        return "StationUpdate{" +
+                "stacja:" + stationId +
+                ", dostępne rowery:" + availableBikes +
+                ", wolne miejsca:" + freeDocks +
+                ", wersja:" + version +
+                '}';
+    }
+}
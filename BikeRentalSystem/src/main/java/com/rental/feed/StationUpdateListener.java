@@ -0,0 +1,12 @@
+package com.rental.feed;
+
+/**
+ * Subskrybent zmian stanu stacji. Wywoływany w wątku dostarczającym,
+ * nigdy równolegle dla tego samego subskrybenta. Wolny subskrybent
+ * opóźnia własne aktualizacje, ale dopóki się blokuje, zajmuje jeden
+ * z wątków dostarczających - długie prace powinien przekazywać dalej.
+ */
+@FunctionalInterface
+public interface StationUpdateListener {
+    void stationChanged(StationUpdate update);
+}
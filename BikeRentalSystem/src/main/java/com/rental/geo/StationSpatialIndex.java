@@ -0,0 +1,251 @@
+package com.rental.geo;
+
+import com.rental.model.Station;
+import com.rental.model.StationListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * Indeks przestrzenny stacji oparty na regularnej siatce komórek
+ * w stopniach szerokości i długości geograficznej.
+ *
+ * <p>Wyszukiwanie przegląda komórki pierścieniami wokół punktu zapytania
+ * i kończy się, gdy najbliższy nieodwiedzony pierścień jest dalej niż
+ * k-ty najlepszy kandydat. Każda komórka zlicza stacje niepuste oraz
+ * stacje z wolnym miejscem; liczniki aktualizowane są przyrostowo przez
+ * {@link StationListener}, więc komórki bez kandydatów są pomijane bez
+ * zaglądania do stacji, a indeks nigdy nie wymaga przebudowy.
+ *
+ * <p>Odległości liczone są wzorem haversine. Indeks nie obsługuje
+ * przejścia przez południk 180°.
+ */
+public class StationSpatialIndex implements StationListener {
+    public static final double DEFAULT_CELL_SIZE_DEGREES = 0.01;
+
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+    private static final double KM_PER_DEGREE = Math.PI * EARTH_RADIUS_KM / 180.0;
+
+    private final double cellSize;
+    private final Map<Long, Cell> cells = new ConcurrentHashMap<>();
+    // grid extents in cell coordinates, bounding the ring search
+    private volatile int minRow = Integer.MAX_VALUE;
+    private volatile int maxRow = Integer.MIN_VALUE;
+    private volatile int minCol = Integer.MAX_VALUE;
+    private volatile int maxCol = Integer.MIN_VALUE;
+
+    public StationSpatialIndex() {
+        this(DEFAULT_CELL_SIZE_DEGREES);
+    }
+
+    public StationSpatialIndex(double cellSizeDegrees) {
+        if (!(cellSizeDegrees > 0)) {
+            throw new IllegalArgumentException("Rozmiar komórki musi być dodatni.");
+        }
+        this.cellSize = cellSizeDegrees;
+    }
+
+    /**
+     * Dodaje stację do indeksu. Stacje bez współrzędnych są pomijane.
+     * Aby liczniki komórki pozostały spójne, wywołujący powinien trzymać
+     * blokadę stacji do czasu podpięcia indeksu jako jej odbiorcy zmian.
+     */
+    public synchronized void add(Station station) {
+        if (!station.hasLocation()) {
+            return;
+        }
+        int row = row(station.getLatitude());
+        int col = col(station.getLongitude());
+        Cell cell = cells.computeIfAbsent(key(row, col), k -> new Cell());
+        cell.stations.add(station);
+        if (station.getAvailableBikeCount() > 0) {
+            cell.nonEmpty.incrementAndGet();
+        }
+        if (station.getAvailableSpots() > 0) {
+            cell.withFreeDock.incrementAndGet();
+        }
+        minRow = Math.min(minRow, row);
+        maxRow = Math.max(maxRow, row);
+        minCol = Math.min(minCol, col);
+        maxCol = Math.max(maxCol, col);
+    }
+
+    @Override
+    public void occupancyChanged(Station station, int previousBikeCount, int bikeCount,
+            int previousAvailable, int available) {
+        if (!station.hasLocation()) {
+            return;
+        }
+        Cell cell = cells.get(key(row(station.getLatitude()), col(station.getLongitude())));
+        if (cell == null) {
+            return;
+        }
+        // reserved bikes cannot be rented, but they still take up docks
+        if (previousAvailable == 0 && available > 0) {
+            cell.nonEmpty.incrementAndGet();
+        } else if (previousAvailable > 0 && available == 0) {
+            cell.nonEmpty.decrementAndGet();
+        }
+        int capacity = station.getCapacity();
+        if (previousBikeCount >= capacity && bikeCount < capacity) {
+            cell.withFreeDock.incrementAndGet();
+        } else if (previousBikeCount < capacity && bikeCount >= capacity) {
+            cell.withFreeDock.decrementAndGet();
+        }
+    }
+
+    /**
+     * Wyszukuje {@code k} stacji najbliższych punktowi, na których stoi
+     * co najmniej {@code minBikes} rowerów.
+     *
+     * @return stacje uporządkowane od najbliższej
+     */
+    public List<Station> findNearestWithBikes(double latitude, double longitude, int k, int minBikes) {
+        if (k <= 0) {
+            return Collections.emptyList();
+        }
+        int required = Math.max(minBikes, 0);
+        return search(latitude, longitude, k,
+                station -> station.getAvailableBikeCount() >= required,
+                required == 0 ? cell -> 1 : cell -> cell.nonEmpty.get());
+    }
+
+    /**
+     * Wyszukuje stację najbliższą punktowi, która ma wolne miejsce
+     * do zwrotu roweru.
+     */
+    public Optional<Station> findNearestWithFreeDock(double latitude, double longitude) {
+        List<Station> found = search(latitude, longitude, 1,
+                station -> station.getAvailableSpots() > 0,
+                cell -> cell.withFreeDock.get());
+        return found.isEmpty() ? Optional.empty() : Optional.of(found.get(0));
+    }
+
+    /**
+     * Oblicza odległość między dwoma punktami na kuli ziemskiej.
+     *
+     * @return odległość w kilometrach
+     */
+    public static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+
+    private List<Station> search(double latitude, double longitude, int k,
+            Predicate<Station> accept, ToIntFunction<Cell> candidatesInCell) {
+        if (Double.isNaN(latitude) || Double.isNaN(longitude) || cells.isEmpty()) {
+            return Collections.emptyList();
+        }
+        int centerRow = row(latitude);
+        int centerCol = col(longitude);
+        int rowLow = minRow;
+        int rowHigh = maxRow;
+        int colLow = minCol;
+        int colHigh = maxCol;
+        int maxRing = Math.max(Math.max(centerRow - rowLow, rowHigh - centerRow),
+                Math.max(centerCol - colLow, colHigh - centerCol));
+
+        // max-heap on distance holding the k best candidates so far
+        PriorityQueue<Candidate> best = new PriorityQueue<>(k + 1,
+                Comparator.comparingDouble((Candidate c) -> c.distance).reversed());
+
+        for (int ring = 0; ring <= maxRing; ring++) {
+            if (best.size() == k && ringLowerBoundKm(latitude, ring) > best.peek().distance) {
+                break;
+            }
+            for (int row = centerRow - ring; row <= centerRow + ring; row++) {
+                if (row < rowLow || row > rowHigh) {
+                    continue;
+                }
+                boolean edgeRow = row == centerRow - ring || row == centerRow + ring;
+                // inner rows of the ring only contribute their two edge columns
+                int step = edgeRow ? 1 : Math.max(2 * ring, 1);
+                for (int col = centerCol - ring; col <= centerCol + ring; col += step) {
+                    if (col < colLow || col > colHigh) {
+                        continue;
+                    }
+                    Cell cell = cells.get(key(row, col));
+                    if (cell == null || candidatesInCell.applyAsInt(cell) <= 0) {
+                        continue;
+                    }
+                    for (Station station : cell.stations) {
+                        double distance = distanceKm(latitude, longitude,
+                                station.getLatitude(), station.getLongitude());
+                        if (best.size() == k && distance >= best.peek().distance) {
+                            continue;
+                        }
+                        if (!accept.test(station)) {
+                            continue;
+                        }
+                        best.add(new Candidate(station, distance));
+                        if (best.size() > k) {
+                            best.poll();
+                        }
+                    }
+                }
+            }
+        }
+
+        List<Station> result = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            result.add(best.poll().station);
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    /**
+     * Dolne ograniczenie odległości od punktu do dowolnej stacji
+     * w pierścieniu {@code ring}: różnica współrzędnych przekracza tam
+     * {@code ring - 1} pełnych komórek.
+     */
+    private double ringLowerBoundKm(double latitude, int ring) {
+        if (ring <= 1) {
+            return 0;
+        }
+        double farthestLatitude = Math.min(89.9, Math.abs(latitude) + (ring + 1) * cellSize);
+        return (ring - 1) * cellSize * KM_PER_DEGREE * Math.cos(Math.toRadians(farthestLatitude));
+    }
+
+    private int row(double latitude) {
+        return (int) Math.floor(latitude / cellSize);
+    }
+
+    private int col(double longitude) {
+        return (int) Math.floor(longitude / cellSize);
+    }
+
+    private static long key(int row, int col) {
+        return ((long) row << 32) | (col & 0xFFFFFFFFL);
+    }
+
+    private static class Cell {
+        final List<Station> stations = new CopyOnWriteArrayList<>();
+        final AtomicInteger nonEmpty = new AtomicInteger();
+        final AtomicInteger withFreeDock = new AtomicInteger();
+    }
+
+    private static class Candidate {
+        final Station station;
+        final double distance;
+
+        Candidate(Station station, double distance) {
+            this.station = station;
+            this.distance = distance;
+        }
+    }
+}
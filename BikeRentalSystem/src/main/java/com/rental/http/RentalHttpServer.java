@@ -0,0 +1,483 @@
+package com.rental.http;
+
+import com.rental.exception.BikeNotFoundException;
+import com.rental.exception.NoBikesAvailableException;
+import com.rental.exception.NotRentingException;
+import com.rental.exception.StationFullException;
+import com.rental.exception.StationNotFoundException;
+import com.rental.exception.UserAlreadyRentingException;
+import com.rental.exception.UserNotFoundException;
+import com.rental.metrics.PrometheusWriter;
+import com.rental.model.Bike;
+import com.rental.model.HistoryPage;
+import com.rental.model.HistoryQuery;
+import com.rental.model.Rental;
+import com.rental.model.Station;
+import com.rental.model.User;
+import com.rental.service.BikeRentalSystem;
+import com.rental.service.StationStatusSnapshot;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * API HTTP/JSON systemu wypożyczalni oparte na wbudowanym w JDK
+ * {@link HttpServer}.
+ *
+ * <p>Żądania obsługiwane są na wątkach wirtualnych, jeśli środowisko
+ * uruchomieniowe je udostępnia (Java 21+), a w przeciwnym razie na
+ * puli wątków tworzonych na żądanie. Wyjątki systemu zamieniane są
+ * na kody statusu:
+ * <ul>
+ *     <li>404 - nie znaleziono użytkownika, stacji lub roweru,</li>
+ *     <li>409 - użytkownik już wypożycza, brak rowerów, pełna stacja,
+ *     rower nie jest wypożyczony, użytkownik już istnieje,</li>
+ *     <li>400 - niepoprawne żądanie (JSON, brakujące pola),</li>
+ *     <li>404/405 - nieznana ścieżka lub metoda.</li>
+ * </ul>
+ * Błąd zwracany jest jako {@code {"error": "komunikat"}}.
+ *
+ * <p>Punkty końcowe:
+ * <ul>
+ *     <li>{@code POST /users} {@code {"userId", "name"}} - rejestracja (201)</li>
+ *     <li>{@code GET /users/{userId}/history} - historia wypożyczeń; parametry
+ *     {@code limit}, {@code from}, {@code to} (ISO, czas rozpoczęcia), {@code stationId}
+ *     i {@code cursor} zwracają jedną stronę od najnowszego wypożyczenia, a kursor
+ *     następnej strony w nagłówku {@code X-Next-Cursor}</li>
+ *     <li>{@code GET /stations} - lista stacji</li>
+ *     <li>{@code GET /stations/{stationId}/bikes} - dostępne rowery na stacji</li>
+ *     <li>{@code POST /rentals} {@code {"userId", "stationId"}} - wypożyczenie (201)</li>
+ *     <li>{@code POST /returns} {@code {"bikeId", "stationId"}} - zwrot roweru; z kluczem
+ *     idempotencji także {@code "userId"} zwracającego</li>
+ *     <li>{@code GET /metrics} - metryki w formacie tekstowym Prometheusa</li>
+ * </ul>
+ * Wypożyczenie i zwrot przyjmują opcjonalny nagłówek {@code Idempotency-Key};
+ * ponowione żądanie tego samego użytkownika z tym samym kluczem otrzymuje
+ * pierwotną odpowiedź.
+ * 64-bitowe identyfikatory wypożyczeń przesyłane są jako napisy.
+ */
+public class RentalHttpServer {
+    // the kernel clamps this to its own limit (somaxconn)
+    private static final int BACKLOG = 16384;
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+
+    private final BikeRentalSystem system;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+
+    private RentalHttpServer(BikeRentalSystem system, InetSocketAddress address) throws IOException {
+        this.system = system;
+        this.server = HttpServer.create(address, BACKLOG);
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.executor = virtual != null ? virtual : Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "http-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/users", this::handleUsers);
+        server.createContext("/stations", this::handleStations);
+        server.createContext("/rentals", this::handleRentals);
+        server.createContext("/returns", this::handleReturns);
+        server.createContext("/metrics", this::handleMetrics);
+        server.createContext("/", exchange -> sendError(exchange, 404, "Nieznana ścieżka: " + exchange.getRequestURI().getPath()));
+    }
+
+    /**
+     * Uruchamia serwer na podanym adresie (port 0 oznacza dowolny wolny port).
+     */
+    public static RentalHttpServer start(BikeRentalSystem system, InetSocketAddress address) throws IOException {
+        RentalHttpServer httpServer = new RentalHttpServer(system, address);
+        httpServer.server.start();
+        return httpServer;
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * @return {@code true}, jeśli żądania obsługiwane są na wątkach wirtualnych
+     */
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Zatrzymuje serwer, czekając do sekundy na dokończenie trwających żądań.
+     */
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor exists from Java 21 on; the build targets 17
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    // --- Handlers ---
+
+    private void handleUsers(HttpExchange exchange) throws IOException {
+        String[] path = segments(exchange, "/users");
+        try {
+            if (path.length == 0) {
+                requireMethod(exchange, "POST");
+                Map<String, Object> body = readBody(exchange);
+                String userId = requireField(body, "userId");
+                String name = requireField(body, "name");
+                User user;
+                try {
+                    user = system.registerUser(userId, name);
+                } catch (IllegalArgumentException e) {
+                    // the request itself is valid, the id is taken
+                    sendError(exchange, 409, e.getMessage());
+                    return;
+                }
+                StringBuilder json = new StringBuilder();
+                writeUser(json, user);
+                send(exchange, 201, json);
+            } else if (path.length == 2 && path[1].equals("history")) {
+                requireMethod(exchange, "GET");
+                Map<String, String> parameters = queryParameters(exchange);
+                List<Rental> history;
+                if (parameters.isEmpty()) {
+                    history = system.getUserHistory(path[0]);
+                } else {
+                    HistoryPage page = system.getUserHistory(path[0], historyQuery(parameters));
+                    history = page.getRentals();
+                    if (page.hasNext()) {
+                        exchange.getResponseHeaders().set("X-Next-Cursor", page.getNextCursor());
+                    }
+                }
+                StringBuilder json = new StringBuilder(64 + history.size() * 192).append('[');
+                for (int i = 0; i < history.size(); i++) {
+                    if (i > 0) {
+                        json.append(',');
+                    }
+                    writeRental(json, history.get(i));
+                }
+                send(exchange, 200, json.append(']'));
+            } else {
+                sendError(exchange, 404, "Nieznana ścieżka: " + exchange.getRequestURI().getPath());
+            }
+        } catch (Exception e) {
+            sendError(exchange, e);
+        }
+    }
+
+    private void handleStations(HttpExchange exchange) throws IOException {
+        String[] path = segments(exchange, "/stations");
+        try {
+            if (path.length == 0) {
+                requireMethod(exchange, "GET");
+                // one consistent version of all stations, read without locking any of them
+                StationStatusSnapshot status = system.getStationStatus();
+                StringBuilder json = new StringBuilder(64 + status.size() * 160).append('[');
+                for (int handle = 0; handle < status.size(); handle++) {
+                    Station station = status.getStation(handle);
+                    if (station == null) {
+                        continue;
+                    }
+                    if (json.length() > 1) {
+                        json.append(',');
+                    }
+                    writeStation(json, station, status.getAvailableBikes(handle), status.getFreeDocks(handle));
+                }
+                send(exchange, 200, json.append(']'));
+            } else if (path.length == 2 && path[1].equals("bikes")) {
+                requireMethod(exchange, "GET");
+                // copied under the station lock; bikes held for reservations are left out
+                List<Bike> bikes = system.getAvailableBikesAtStation(path[0]);
+                StringBuilder json = new StringBuilder(64 + bikes.size() * 24).append('[');
+                for (Bike bike : bikes) {
+                    if (json.length() > 1) {
+                        json.append(',');
+                    }
+                    json.append("{\"bikeId\":");
+                    Json.quote(json, bike.getBikeId()).append('}');
+                }
+                send(exchange, 200, json.append(']'));
+            } else {
+                sendError(exchange, 404, "Nieznana ścieżka: " + exchange.getRequestURI().getPath());
+            }
+        } catch (Exception e) {
+            sendError(exchange, e);
+        }
+    }
+
+    private void handleRentals(HttpExchange exchange) throws IOException {
+        try {
+            requireRoot(exchange, "/rentals");
+            requireMethod(exchange, "POST");
+            Map<String, Object> body = readBody(exchange);
+            Rental rental = system.rentBike(requireField(body, "userId"), requireField(body, "stationId"),
+                    idempotencyKey(exchange));
+            StringBuilder json = new StringBuilder(192);
+            writeRental(json, rental);
+            send(exchange, 201, json);
+        } catch (Exception e) {
+            sendError(exchange, e);
+        }
+    }
+
+    private void handleReturns(HttpExchange exchange) throws IOException {
+        try {
+            requireRoot(exchange, "/returns");
+            requireMethod(exchange, "POST");
+            Map<String, Object> body = readBody(exchange);
+            String key = idempotencyKey(exchange);
+            // a key belongs to a user, so a keyed return names the user returning the bike
+            Rental rental = key == null
+                    ? system.returnBike(requireField(body, "bikeId"), requireField(body, "stationId"))
+                    : system.returnBike(requireField(body, "userId"), requireField(body, "bikeId"),
+                            requireField(body, "stationId"), key);
+            StringBuilder json = new StringBuilder(256);
+            writeRental(json, rental);
+            send(exchange, 200, json);
+        } catch (Exception e) {
+            sendError(exchange, e);
+        }
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        try {
+            requireRoot(exchange, "/metrics");
+            requireMethod(exchange, "GET");
+            byte[] bytes = system.exportMetrics().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", PrometheusWriter.CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } catch (Exception e) {
+            sendError(exchange, e);
+        }
+    }
+
+    // --- Errors ---
+
+    /**
+     * Zgłaszany, gdy żądanie nie pasuje do punktu końcowego; niesie kod statusu.
+     */
+    private static final class HttpError extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        HttpError(int status, String message) {
+            super(message, null, false, false);
+            this.status = status;
+        }
+    }
+
+    /**
+     * Kod statusu HTTP odpowiadający wyjątkowi zgłoszonemu przez system.
+     */
+    static int statusOf(Exception e) {
+        if (e instanceof HttpError) {
+            return ((HttpError) e).status;
+        }
+        if (e instanceof UserNotFoundException || e instanceof StationNotFoundException
+                || e instanceof BikeNotFoundException) {
+            return 404;
+        }
+        if (e instanceof UserAlreadyRentingException || e instanceof NoBikesAvailableException
+                || e instanceof StationFullException || e instanceof NotRentingException) {
+            return 409;
+        }
+        if (e instanceof IllegalArgumentException) {
+            return 400;
+        }
+        return 500;
+    }
+
+    private static void sendError(HttpExchange exchange, Exception e) throws IOException {
+        int status = statusOf(e);
+        sendError(exchange, status, status == 500 ? "Błąd serwera: " + e : e.getMessage());
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        StringBuilder json = new StringBuilder("{\"error\":");
+        Json.quote(json, message).append('}');
+        send(exchange, status, json);
+    }
+
+    // --- Request parsing ---
+
+    private static String[] segments(HttpExchange exchange, String root) {
+        String path = exchange.getRequestURI().getRawPath().substring(root.length());
+        if (path.startsWith("/")) {
+            path = path.substring(1);
+        }
+        if (path.isEmpty()) {
+            return new String[0];
+        }
+        String[] parts = path.split("/", -1);
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = URLDecoder.decode(parts[i], StandardCharsets.UTF_8);
+        }
+        return parts;
+    }
+
+    private static Map<String, String> queryParameters(HttpExchange exchange) {
+        String query = exchange.getRequestURI().getRawQuery();
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            parameters.put(name, value);
+        }
+        return parameters;
+    }
+
+    private static HistoryQuery historyQuery(Map<String, String> parameters) throws HttpError {
+        try {
+            String limit = parameters.get("limit");
+            HistoryQuery query = HistoryQuery.latest(limit == null ? HistoryQuery.DEFAULT_LIMIT : Integer.parseInt(limit));
+            String from = parameters.get("from");
+            String to = parameters.get("to");
+            if (from != null || to != null) {
+                query = query.between(from == null ? null : LocalDateTime.parse(from),
+                        to == null ? null : LocalDateTime.parse(to));
+            }
+            if (parameters.containsKey("stationId")) {
+                query = query.atStation(parameters.get("stationId"));
+            }
+            if (parameters.containsKey("cursor")) {
+                query = query.after(parameters.get("cursor"));
+            }
+            return query;
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new HttpError(400, "Nieprawidłowy parametr zapytania: " + e.getMessage());
+        }
+    }
+
+    private static void requireRoot(HttpExchange exchange, String root) throws HttpError {
+        if (segments(exchange, root).length != 0) {
+            throw new HttpError(404, "Nieznana ścieżka: " + exchange.getRequestURI().getPath());
+        }
+    }
+
+    private static void requireMethod(HttpExchange exchange, String method) throws HttpError {
+        if (!exchange.getRequestMethod().equals(method)) {
+            exchange.getResponseHeaders().set("Allow", method);
+            throw new HttpError(405, "Metoda " + exchange.getRequestMethod() + " nie jest obsługiwana.");
+        }
+    }
+
+    private static Map<String, Object> readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (body.length > MAX_BODY_BYTES) {
+                throw new IllegalArgumentException("Treść żądania jest zbyt duża.");
+            }
+            return Json.parseObject(new String(body, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static String requireField(Map<String, Object> body, String field) {
+        Object value = body.get(field);
+        if (!(value instanceof String) || ((String) value).isBlank()) {
+            throw new IllegalArgumentException("Brak wymaganego pola: " + field);
+        }
+        return (String) value;
+    }
+
+    /**
+     * @return klucz z nagłówka {@code Idempotency-Key} lub {@code null}, jeśli go nie podano
+     */
+    private static String idempotencyKey(HttpExchange exchange) {
+        String key = exchange.getRequestHeaders().getFirst("Idempotency-Key");
+        if (key == null || key.isBlank()) {
+            return null;
+        }
+        if (key.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            throw new IllegalArgumentException("Klucz idempotencji może mieć najwyżej "
+                    + MAX_IDEMPOTENCY_KEY_LENGTH + " znaków.");
+        }
+        return key;
+    }
+
+    // --- Responses ---
+
+    private static void send(HttpExchange exchange, int status, CharSequence json) throws IOException {
+        byte[] bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void writeUser(StringBuilder json, User user) {
+        json.append("{\"userId\":");
+        Json.quote(json, user.getUserId()).append(",\"name\":");
+        Json.quote(json, user.getName()).append('}');
+    }
+
+    private static void writeStation(StringBuilder json, Station station, int availableBikes, int availableSpots) {
+        json.append("{\"stationId\":");
+        Json.quote(json, station.getStationId()).append(",\"locationName\":");
+        Json.quote(json, station.getLocationName())
+                .append(",\"capacity\":").append(station.getCapacity())
+                .append(",\"availableBikes\":").append(availableBikes)
+                .append(",\"availableSpots\":").append(availableSpots);
+        if (station.hasLocation()) {
+            json.append(",\"latitude\":").append(station.getLatitude())
+                    .append(",\"longitude\":").append(station.getLongitude());
+        }
+        json.append('}');
+    }
+
+    private static void writeRental(StringBuilder json, Rental rental) {
+        // 64-bit ids exceed the exact integer range of JavaScript numbers, so they travel as strings
+        json.append("{\"rentalId\":\"").append(rental.getRentalId()).append("\",\"userId\":");
+        Json.quote(json, rental.getUser().getUserId()).append(",\"bikeId\":");
+        Json.quote(json, rental.getBike().getBikeId()).append(",\"startStationId\":");
+        Json.quote(json, rental.getStartStation().getStationId()).append(",\"startTime\":");
+        Json.quote(json, rental.getStartTime().toString());
+        if (rental.getEndTime() != null) {
+            json.append(",\"endStationId\":");
+            Json.quote(json, rental.getEndStation().getStationId()).append(",\"endTime\":");
+            Json.quote(json, rental.getEndTime().toString())
+                    .append(",\"durationSeconds\":").append(rental.getDuration().getSeconds());
+            if (rental.getFareCents() != Rental.UNPRICED) {
+                json.append(",\"fareCents\":").append(rental.getFareCents());
+            }
+        }
+        json.append('}');
+    }
+}
@@ -0,0 +1,334 @@
+package com.rental.importer;
+
+import com.rental.model.Bike;
+import com.rental.model.Station;
+import com.rental.model.User;
+import com.rental.service.BikeRentalSystem;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * Zbiorczy import stacji, rowerów i użytkowników z plików CSV.
+ *
+ * <p>Pliki czytane są strumieniowo, porcjami o stałej liczbie wierszy,
+ * a każda porcja parsowana jest równolegle na wszystkich rdzeniach.
+ * Duplikaty i pojemność stacji sprawdzane są w osobnym przebiegu
+ * walidacji, po czym poprawne encje - także rowery dla stacji już
+ * działających - trafiają do systemu jednym niepodzielnym wywołaniem
+ * {@link BikeRentalSystem#bulkLoad}. Błędne wiersze są pomijane
+ * i raportowane w {@link ImportReport}, nie przerywając importu.
+ *
+ * <p>Oczekiwane formaty (pierwszy wiersz może być nagłówkiem):
+ * <ul>
+ *     <li>stacje: {@code stationId,locationName,capacity[,latitude,longitude]}</li>
+ *     <li>rowery: {@code bikeId,stationId}</li>
+ *     <li>użytkownicy: {@code userId,name}</li>
+ * </ul>
+ */
+public class BulkImporter {
+    public static final int DEFAULT_CHUNK_SIZE = 8192;
+
+    private final BikeRentalSystem system;
+    private final int chunkSize;
+
+    public BulkImporter(BikeRentalSystem system) {
+        this(system, DEFAULT_CHUNK_SIZE);
+    }
+
+    public BulkImporter(BikeRentalSystem system, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Rozmiar porcji musi być dodatni.");
+        }
+        this.system = system;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Importuje dane z podanych plików. Każdy z plików jest opcjonalny
+     * ({@code null} oznacza brak pliku). Rowery mogą trafiać zarówno na
+     * importowane, jak i na istniejące już stacje.
+     *
+     * @return raport z importu
+     * @throws IOException jeśli odczyt któregoś z plików się nie powiódł
+     * @throws IllegalArgumentException jeśli w trakcie importu ktoś inny zarejestrował
+     *                                  importowany identyfikator lub zajął miejsca na stacji,
+     *                                  na którą trafiają rowery; nic nie zostaje wtedy wczytane
+     */
+    public ImportReport importFiles(Path stationsFile, Path bikesFile, Path usersFile) throws IOException {
+        long start = System.nanoTime();
+        ImportReport report = new ImportReport();
+
+        Map<String, Station> existingStations = new HashMap<>();
+        for (Station station : system.getAllStations()) {
+            existingStations.put(station.getStationId(), station);
+        }
+        Set<String> existingBikes = new HashSet<>();
+        for (Bike bike : system.getAllBikes()) {
+            existingBikes.add(bike.getBikeId());
+        }
+        Set<String> existingUsers = new HashSet<>();
+        for (User user : system.getAllUsers()) {
+            existingUsers.add(user.getUserId());
+        }
+
+        // --- Stations ---
+        Map<String, Station> newStations = new LinkedHashMap<>();
+        if (stationsFile != null) {
+            readCsv(stationsFile, "stationId", BulkImporter::parseStation, report, (line, station) -> {
+                String id = station.getStationId();
+                if (existingStations.containsKey(id) || newStations.containsKey(id)) {
+                    report.addError(fileName(stationsFile), line, "Stacja o ID " + id + " już istnieje.");
+                } else {
+                    newStations.put(id, station);
+                }
+            });
+        }
+
+        // --- Bikes ---
+        List<Bike> newBikes = new ArrayList<>();
+        Map<Station, List<Bike>> bikesForExistingStations = new LinkedHashMap<>();
+        if (bikesFile != null) {
+            Set<String> seenBikes = new HashSet<>();
+            Map<Station, Integer> freeSpots = new IdentityHashMap<>();
+            readCsv(bikesFile, "bikeId", BulkImporter::parseBike, report, (line, fields) -> {
+                String bikeId = fields[0];
+                String stationId = fields[1];
+                if (existingBikes.contains(bikeId) || !seenBikes.add(bikeId)) {
+                    report.addError(fileName(bikesFile), line, "Rower o ID " + bikeId + " już istnieje.");
+                    return;
+                }
+                Station station = newStations.get(stationId);
+                boolean existing = station == null;
+                if (existing) {
+                    station = existingStations.get(stationId);
+                }
+                if (station == null) {
+                    report.addError(fileName(bikesFile), line, "Nie znaleziono stacji o ID: " + stationId);
+                    return;
+                }
+                int free = freeSpots.computeIfAbsent(station, Station::getAvailableSpots);
+                if (free <= 0) {
+                    report.addError(fileName(bikesFile), line,
+                            "Nie można dodać roweru, stacja " + stationId + " jest pełna.");
+                    return;
+                }
+                freeSpots.put(station, free - 1);
+                Bike bike = new Bike(bikeId);
+                if (existing) {
+                    // live stations are docked by bulkLoad, under their locks
+                    bikesForExistingStations.computeIfAbsent(station, s -> new ArrayList<>()).add(bike);
+                } else {
+                    newBikes.add(bike);
+                    // new stations are not visible yet, so docking needs no coordination
+                    station.dockBike(bike);
+                }
+            });
+        }
+
+        // --- Users ---
+        List<User> newUsers = new ArrayList<>();
+        if (usersFile != null) {
+            Set<String> seenUsers = new HashSet<>();
+            readCsv(usersFile, "userId", BulkImporter::parseUser, report, (line, user) -> {
+                String id = user.getUserId();
+                if (existingUsers.contains(id) || !seenUsers.add(id)) {
+                    report.addError(fileName(usersFile), line, "Użytkownik o ID " + id + " już istnieje.");
+                } else {
+                    newUsers.add(user);
+                }
+            });
+        }
+
+        // --- Commit ---
+        system.bulkLoad(newStations.values(), newBikes, newUsers, bikesForExistingStations);
+        int bikesImported = newBikes.size();
+        for (List<Bike> added : bikesForExistingStations.values()) {
+            bikesImported += added.size();
+        }
+
+        report.setImported(newStations.size(), bikesImported, newUsers.size());
+        report.setElapsedNanos(System.nanoTime() - start);
+        return report;
+    }
+
+    // --- Parsing ---
+
+    private static Station parseStation(String[] fields) {
+        if (fields.length != 3 && fields.length != 5) {
+            throw new IllegalArgumentException("Oczekiwano 3 lub 5 kolumn, znaleziono " + fields.length + ".");
+        }
+        int capacity;
+        try {
+            capacity = Integer.parseInt(fields[2].trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Nieprawidłowa pojemność stacji: " + fields[2]);
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Pojemność stacji musi być dodatnia: " + capacity);
+        }
+        double latitude = Double.NaN;
+        double longitude = Double.NaN;
+        if (fields.length == 5) {
+            try {
+                latitude = Double.parseDouble(fields[3].trim());
+                longitude = Double.parseDouble(fields[4].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Nieprawidłowe współrzędne stacji: " + fields[3] + ", " + fields[4]);
+            }
+            if (Math.abs(latitude) > 90 || Math.abs(longitude) > 180) {
+                throw new IllegalArgumentException("Współrzędne stacji poza zakresem: " + latitude + ", " + longitude);
+            }
+        }
+        return new Station(requireId(fields[0]), fields[1].trim(), capacity, latitude, longitude);
+    }
+
+    private static String[] parseBike(String[] fields) {
+        requireFields(fields, 2);
+        return new String[]{requireId(fields[0]), Station.normalizeId(requireId(fields[1]))};
+    }
+
+    private static User parseUser(String[] fields) {
+        requireFields(fields, 2);
+        return new User(requireId(fields[0]), fields[1].trim());
+    }
+
+    private static void requireFields(String[] fields, int expected) {
+        if (fields.length != expected) {
+            throw new IllegalArgumentException(
+                    "Oczekiwano " + expected + " kolumn, znaleziono " + fields.length + ".");
+        }
+    }
+
+    private static String requireId(String field) {
+        String id = field.trim();
+        if (id.isEmpty()) {
+            throw new IllegalArgumentException("Pusty identyfikator.");
+        }
+        return id;
+    }
+
+    /**
+     * Dzieli wiersz CSV na pola. Obsługuje pola w cudzysłowach,
+     * zawierające przecinki oraz podwojone cudzysłowy.
+     */
+    static String[] splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Niezamknięty cudzysłów.");
+        }
+        fields.add(field.toString());
+        return fields.toArray(new String[0]);
+    }
+
+    // --- Streaming ---
+
+    private interface RowConsumer<T> {
+        void accept(long lineNumber, T value);
+    }
+
+    /**
+     * Czyta plik porcjami po {@code chunkSize} wierszy, parsuje każdą
+     * porcję równolegle, a wyniki przekazuje dalej w kolejności wierszy,
+     * dzięki czemu o duplikatach decyduje pierwsze wystąpienie.
+     */
+    private <T> void readCsv(Path file, String headerColumn, Function<String[], T> parser,
+            ImportReport report, RowConsumer<T> consumer) throws IOException {
+        String name = fileName(file);
+        String[] lines = new String[chunkSize];
+        long[] lineNumbers = new long[chunkSize];
+        Object[] values = new Object[chunkSize];
+        String[] errors = new String[chunkSize];
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            long lineNumber = 0;
+            boolean first = true;
+            while (true) {
+                int count = 0;
+                String line;
+                while (count < chunkSize && (line = reader.readLine()) != null) {
+                    lineNumber++;
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    if (first) {
+                        first = false;
+                        if (line.regionMatches(true, 0, headerColumn, 0, headerColumn.length())) {
+                            continue;
+                        }
+                    }
+                    lines[count] = line;
+                    lineNumbers[count] = lineNumber;
+                    count++;
+                }
+                if (count == 0) {
+                    break;
+                }
+
+                IntStream.range(0, count).parallel().forEach(i -> {
+                    try {
+                        values[i] = parser.apply(splitCsv(lines[i]));
+                        errors[i] = null;
+                    } catch (IllegalArgumentException e) {
+                        values[i] = null;
+                        errors[i] = e.getMessage();
+                    }
+                });
+
+                for (int i = 0; i < count; i++) {
+                    if (errors[i] != null) {
+                        report.addError(name, lineNumbers[i], errors[i]);
+                    } else {
+                        @SuppressWarnings("unchecked")
+                        T value = (T) values[i];
+                        consumer.accept(lineNumbers[i], value);
+                    }
+                    lines[i] = null;
+                    values[i] = null;
+                }
+                report.addRowsRead(count);
+            }
+        }
+    }
+
+    private static String fileName(Path file) {
+        return file.getFileName().toString();
+    }
+}
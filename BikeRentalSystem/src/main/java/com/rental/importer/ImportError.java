@@ -0,0 +1,33 @@
+package com.rental.importer;
+
+/**
+ * Błąd pojedynczego wiersza importowanego pliku CSV.
+ */
+public class ImportError {
+    private final String fileName;
+    private final long lineNumber;
+    private final String message;
+
+    public ImportError(String fileName, long lineNumber, String message) {
+        this.fileName = fileName;
+        this.lineNumber = lineNumber;
+        this.message = message;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return fileName + ":" + lineNumber + ": " + message;
+    }
+}
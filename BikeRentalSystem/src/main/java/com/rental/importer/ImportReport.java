@@ -0,0 +1,87 @@
+package com.rental.importer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Podsumowanie importu zbiorczego: liczba wczytanych encji, błędy
+ * poszczególnych wierszy oraz przepustowość. Przechowywanych jest
+ * co najwyżej {@link #MAX_STORED_ERRORS} pierwszych błędów, ale
+ * zliczane są wszystkie.
+ */
+public class ImportReport {
+    public static final int MAX_STORED_ERRORS = 1000;
+
+    private final List<ImportError> errors = new ArrayList<>();
+    private long errorCount;
+    private long rowsRead;
+    private int stationsImported;
+    private int bikesImported;
+    private int usersImported;
+    private long elapsedNanos;
+
+    void addError(String fileName, long lineNumber, String message) {
+        errorCount++;
+        if (errors.size() < MAX_STORED_ERRORS) {
+            errors.add(new ImportError(fileName, lineNumber, message));
+        }
+    }
+
+    void addRowsRead(long rows) {
+        rowsRead += rows;
+    }
+
+    void setImported(int stations, int bikes, int users) {
+        this.stationsImported = stations;
+        this.bikesImported = bikes;
+        this.usersImported = users;
+    }
+
+    void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public List<ImportError> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    public int getStationsImported() {
+        return stationsImported;
+    }
+
+    public int getBikesImported() {
+        return bikesImported;
+    }
+
+    public int getUsersImported() {
+        return usersImported;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Zwraca przepustowość importu w wierszach na sekundę.
+     */
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rowsRead * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Import: wierszy %d, stacji %d, rowerów %d, użytkowników %d, błędów %d; "
+                        + "czas %.1f ms (%.0f wierszy/s)",
+                rowsRead, stationsImported, bikesImported, usersImported, errorCount,
+                elapsedNanos / 1_000_000.0, getRowsPerSecond());
+    }
+}
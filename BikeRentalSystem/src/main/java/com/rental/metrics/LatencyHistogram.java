@@ -0,0 +1,141 @@
+package com.rental.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram czasów w nanosekundach o stałej względnej dokładności
+ * (w stylu HdrHistogram): przedziały rosną wykładniczo, a każdy z nich
+ * dzieli się na 32 równe części, więc błąd odczytu percentyla nie
+ * przekracza ok. 3%. Wartości od 0 do ok. 68 s, większe zliczane są
+ * w ostatnim przedziale.
+ *
+ * <p>Zapis nie alokuje pamięci i nie zakłada blokad. Liczniki są
+ * podzielone na pasy wybierane po identyfikatorze wątku, aby wątki
+ * na różnych rdzeniach nie rywalizowały o te same linie pamięci
+ * podręcznej; odczyt sumuje pasy.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_VALUE_BITS = 36; // 2^36 ns, about 68 s
+    private static final long MAX_VALUE = (1L << MAX_VALUE_BITS) - 1;
+    static final int BUCKETS = bucketIndex(MAX_VALUE) + 1;
+    // the slot after the buckets holds the sum of recorded values
+    private static final int SUM_SLOT = BUCKETS;
+    private static final int MAX_STRIPES = 8;
+
+    private final AtomicLongArray[] stripes;
+    private final int stripeMask;
+
+    public LatencyHistogram() {
+        int stripeCount = Integer.highestOneBit(Math.min(MAX_STRIPES, Runtime.getRuntime().availableProcessors()));
+        stripes = new AtomicLongArray[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new AtomicLongArray(BUCKETS + 1);
+        }
+        stripeMask = stripeCount - 1;
+    }
+
+    /**
+     * Zapisuje jedną wartość (ujemne traktowane są jak zero).
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, Math.min(nanos, MAX_VALUE));
+        AtomicLongArray stripe = stripes[(int) Thread.currentThread().getId() & stripeMask];
+        stripe.getAndIncrement(bucketIndex(value));
+        stripe.getAndAdd(SUM_SLOT, value);
+    }
+
+    /**
+     * Zwraca spójny w przybliżeniu obraz histogramu (zapisy wykonywane
+     * w trakcie odczytu mogą zostać uwzględnione częściowo).
+     */
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        long sum = 0;
+        for (AtomicLongArray stripe : stripes) {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] += stripe.get(i);
+            }
+            sum += stripe.get(SUM_SLOT);
+        }
+        return new Snapshot(counts, sum);
+    }
+
+    // values below 2 * SUB_BUCKETS map one to one, above that each power of two gets SUB_BUCKETS slots
+    static int bucketIndex(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return ((shift + 1) << SUB_BUCKET_BITS) + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    // the largest value that falls into the given bucket
+    static long bucketUpperBound(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        long subBucket = (index & (SUB_BUCKETS - 1)) + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * Niezmienny obraz histogramu w chwili odczytu.
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long sum;
+        private final long count;
+
+        Snapshot(long[] counts, long sum) {
+            this.counts = counts;
+            this.sum = sum;
+            long total = 0;
+            for (long c : counts) {
+                total += c;
+            }
+            this.count = total;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return suma zapisanych wartości w nanosekundach
+         */
+        public long getSum() {
+            return sum;
+        }
+
+        /**
+         * @return wartość, poniżej której (włącznie) leży podany ułamek
+         * zapisów, np. {@code 0.99} dla p99; 0 dla pustego histogramu
+         */
+        public long valueAtQuantile(double quantile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return bucketUpperBound(i);
+                }
+            }
+            return bucketUpperBound(counts.length - 1);
+        }
+
+        public long getMax() {
+            for (int i = counts.length - 1; i >= 0; i--) {
+                if (counts[i] > 0) {
+                    return bucketUpperBound(i);
+                }
+            }
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.rental.metrics;
+
+import com.rental.service.RentalFailure;
+import com.rental.service.RentalOutcome;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metryki operacji systemu: histogram czasu wykonania każdej
+ * {@link Operation} oraz liczniki odmów według przyczyny.
+ *
+ * <p>Wywołujący mierzy operację parą {@link #start()} i
+ * {@link #record(Operation, long)}. W wyłączonej instancji
+ * ({@link #disabled()}) obie metody sprowadzają się do sprawdzenia
+ * stałego pola, bez odczytu zegara, więc instrumentacja kosztuje
+ * tyle co nieużywany warunek.
+ */
+public final class Metrics {
+    static final String DURATION = "bike_rental_operation_duration_seconds";
+    static final String FAILURES = "bike_rental_operation_failures_total";
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final int FAILURE_KINDS = RentalFailure.values().length;
+    private static final Metrics DISABLED = new Metrics(false);
+
+    private final boolean enabled;
+    private final LatencyHistogram[] latencies;
+    // indexed by operation ordinal * FAILURE_KINDS + failure ordinal
+    private final LongAdder[] failures;
+
+    private Metrics(boolean enabled) {
+        this.enabled = enabled;
+        int operations = Operation.values().length;
+        latencies = new LatencyHistogram[enabled ? operations : 0];
+        failures = new LongAdder[enabled ? operations * FAILURE_KINDS : 0];
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+        for (int i = 0; i < failures.length; i++) {
+            failures[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @return wspólna instancja, która niczego nie mierzy
+     */
+    public static Metrics disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * @return nowa, włączona instancja z wyzerowanymi licznikami
+     */
+    public static Metrics create() {
+        return new Metrics(true);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return znacznik początku operacji przekazywany do {@code record}
+     * (0, gdy metryki są wyłączone)
+     */
+    public long start() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Zapisuje czas operacji rozpoczętej w chwili {@code start}.
+     */
+    public void record(Operation operation, long start) {
+        if (enabled) {
+            latencies[operation.ordinal()].record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Zapisuje czas operacji zakończonej odmową i zlicza jej przyczynę.
+     */
+    public void recordFailure(Operation operation, long start, RentalFailure failure) {
+        if (enabled) {
+            latencies[operation.ordinal()].record(System.nanoTime() - start);
+            failures[operation.ordinal() * FAILURE_KINDS + failure.ordinal()].increment();
+        }
+    }
+
+    /**
+     * Zapisuje czas wypożyczenia lub zwrotu i - przy odmowie - jej przyczynę.
+     */
+    public void record(Operation operation, long start, RentalOutcome outcome) {
+        if (enabled) {
+            if (outcome.isSuccess()) {
+                record(operation, start);
+            } else {
+                recordFailure(operation, start, outcome.getFailure());
+            }
+        }
+    }
+
+    /**
+     * @return obraz histogramu czasów operacji (pusty, gdy metryki są wyłączone)
+     */
+    public LatencyHistogram.Snapshot latency(Operation operation) {
+        return enabled ? latencies[operation.ordinal()].snapshot() : new LatencyHistogram().snapshot();
+    }
+
+    public long failureCount(Operation operation, RentalFailure failure) {
+        return enabled ? failures[operation.ordinal() * FAILURE_KINDS + failure.ordinal()].sum() : 0;
+    }
+
+    /**
+     * Dopisuje czasy operacji (jako {@code summary} z percentylami w
+     * sekundach) i liczniki odmów. Pomija operacje, które nie zostały
+     * ani razu wykonane; wyłączona instancja niczego nie zapisuje.
+     */
+    public void writeTo(PrometheusWriter out) {
+        if (!enabled) {
+            return;
+        }
+        out.family(DURATION, "summary", "Czas wykonania operacji systemu w sekundach.");
+        for (Operation operation : Operation.values()) {
+            LatencyHistogram.Snapshot snapshot = latencies[operation.ordinal()].snapshot();
+            if (snapshot.getCount() == 0) {
+                continue;
+            }
+            for (double quantile : QUANTILES) {
+                out.sample(DURATION, "operation", operation.label(), "quantile", Double.toString(quantile),
+                        snapshot.valueAtQuantile(quantile) / 1e9);
+            }
+            out.sample(DURATION + "_sum", "operation", operation.label(), snapshot.getSum() / 1e9);
+            out.sample(DURATION + "_count", "operation", operation.label(), snapshot.getCount());
+        }
+
+        out.family(FAILURES, "counter", "Liczba operacji zakończonych odmową, według przyczyny.");
+        for (Operation operation : Operation.values()) {
+            for (RentalFailure failure : RentalFailure.values()) {
+                long count = failures[operation.ordinal() * FAILURE_KINDS + failure.ordinal()].sum();
+                if (count > 0) {
+                    out.sample(FAILURES, "operation", operation.label(),
+                            "reason", failure.name().toLowerCase(Locale.ROOT), count);
+                }
+            }
+        }
+    }
+}
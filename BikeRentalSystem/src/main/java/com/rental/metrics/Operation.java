@@ -0,0 +1,35 @@
+package com.rental.metrics;
+
+import java.util.Locale;
+
+/**
+ * Operacje systemu, dla których mierzone są czasy wykonania i odmowy.
+ */
+public enum Operation {
+    REGISTER_USER,
+    FIND_USER,
+    GET_USER_HISTORY,
+    ADD_STATION,
+    FIND_STATION,
+    FIND_NEAREST_STATIONS,
+    ADD_BIKE,
+    FIND_BIKE,
+    GET_AVAILABLE_BIKES,
+    TRANSFER_BIKES,
+    RESERVE_BIKE,
+    CANCEL_RESERVATION,
+    RENT_BIKE,
+    RETURN_BIKE,
+    FIND_ACTIVE_RENTAL,
+    FIND_RENTAL,
+    FIND_OVERDUE_RENTALS;
+
+    private final String label = name().toLowerCase(Locale.ROOT);
+
+    /**
+     * @return nazwa operacji używana jako wartość etykiety w eksporcie
+     */
+    public String label() {
+        return label;
+    }
+}
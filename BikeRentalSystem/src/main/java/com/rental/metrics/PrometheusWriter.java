@@ -0,0 +1,89 @@
+package com.rental.metrics;
+
+/**
+ * Zapisuje metryki w tekstowym formacie ekspozycji Prometheusa
+ * (wersja 0.0.4): nagłówki {@code # HELP} i {@code # TYPE}, po nich
+ * próbki {@code nazwa{etykieta="wartość"} liczba}.
+ */
+public final class PrometheusWriter {
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final StringBuilder out;
+
+    public PrometheusWriter(StringBuilder out) {
+        this.out = out;
+    }
+
+    /**
+     * Rozpoczyna rodzinę metryk; typ to {@code counter}, {@code gauge} lub {@code summary}.
+     */
+    public PrometheusWriter family(String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ');
+        for (int i = 0; i < help.length(); i++) {
+            char c = help.charAt(i);
+            if (c == '\\') {
+                out.append("\\\\");
+            } else if (c == '\n') {
+                out.append("\\n");
+            } else {
+                out.append(c);
+            }
+        }
+        out.append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        return this;
+    }
+
+    public PrometheusWriter sample(String name, long value) {
+        out.append(name).append(' ').append(value).append('\n');
+        return this;
+    }
+
+    public PrometheusWriter sample(String name, double value) {
+        out.append(name).append(' ').append(value).append('\n');
+        return this;
+    }
+
+    public PrometheusWriter sample(String name, String label, String labelValue, long value) {
+        labels(name, label, labelValue).append("} ").append(value).append('\n');
+        return this;
+    }
+
+    public PrometheusWriter sample(String name, String label, String labelValue, double value) {
+        labels(name, label, labelValue).append("} ").append(value).append('\n');
+        return this;
+    }
+
+    public PrometheusWriter sample(String name, String label, String labelValue,
+            String secondLabel, String secondValue, long value) {
+        labels(name, label, labelValue).append(',');
+        label(secondLabel, secondValue).append("} ").append(value).append('\n');
+        return this;
+    }
+
+    public PrometheusWriter sample(String name, String label, String labelValue,
+            String secondLabel, String secondValue, double value) {
+        labels(name, label, labelValue).append(',');
+        label(secondLabel, secondValue).append("} ").append(value).append('\n');
+        return this;
+    }
+
+    private StringBuilder labels(String name, String label, String labelValue) {
+        out.append(name).append('{');
+        return label(label, labelValue);
+    }
+
+    private StringBuilder label(String label, String value) {
+        out.append(label).append("=\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> out.append("\\\\");
+                case '"' -> out.append("\\\"");
+                case '\n' -> out.append("\\n");
+                default -> out.append(c);
+            }
+        }
+        return out.append('"');
+    }
+}
@@ -9,8 +9,9 @@ import java.util.Objects;
  */
 public class Bike {
     private String bikeId;
-    private boolean isAvailable;
-    private Station currentStation; // null if rented
+    private volatile boolean isAvailable;
+    private volatile Station currentStation; // null if rented
+    private int handle = -1;
 
     public Bike(String bikeId) {
         this.bikeId = bikeId;
@@ -22,6 +23,18 @@ public class Bike {
         return bikeId;
     }
 
+    /**
+     * Zwraca uchwyt nadany przez system przy rejestracji - zwarty indeks
+     * w tablicach systemu - lub {@code -1}, jeśli rower nie jest zarejestrowany.
+     */
+    public int getHandle() {
+        return handle;
+    }
+
+    public void setHandle(int handle) {
+        this.handle = handle;
+    }
+
     public boolean isAvailable() {
         return isAvailable;
     }
@@ -48,7 +61,7 @@ public class Bike {
 
     @Override
     public int hashCode() {
-        return Objects.hash(bikeId);
+        return bikeId.hashCode();
     }
 
     @Override
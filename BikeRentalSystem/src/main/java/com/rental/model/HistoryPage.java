@@ -0,0 +1,35 @@
+package com.rental.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Strona historii wypożyczeń zwrócona dla {@link HistoryQuery}:
+ * niemodyfikowalna lista wypożyczeń (od najnowszego) oraz kursor
+ * następnej strony.
+ */
+public final class HistoryPage {
+    private final List<Rental> rentals;
+    private final String nextCursor;
+
+    HistoryPage(List<Rental> rentals, String nextCursor) {
+        this.rentals = Collections.unmodifiableList(rentals);
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Rental> getRentals() {
+        return rentals;
+    }
+
+    /**
+     * @return kursor do przekazania w {@link HistoryQuery#after(String)}
+     * lub {@code null}, jeśli to ostatnia strona
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
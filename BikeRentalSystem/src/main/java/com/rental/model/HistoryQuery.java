@@ -0,0 +1,94 @@
+package com.rental.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Zapytanie o stronę historii wypożyczeń użytkownika. Wypożyczenia
+ * zwracane są od najnowszego; zapytanie można zawęzić do przedziału
+ * czasu rozpoczęcia i do stacji, a kolejną stronę pobiera się,
+ * przekazując kursor z poprzedniej ({@link #after(String)}).
+ *
+ * <p>Obiekt jest niezmienny - każda metoda zwraca nowe zapytanie.
+ */
+public final class HistoryQuery {
+    public static final int DEFAULT_LIMIT = 20;
+    public static final int MAX_LIMIT = 1000;
+
+    private final int limit;
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+    private final String stationId;
+    private final String cursor;
+
+    private HistoryQuery(int limit, LocalDateTime from, LocalDateTime to, String stationId, String cursor) {
+        if (limit <= 0 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("Rozmiar strony musi leżeć w przedziale 1-" + MAX_LIMIT + ": " + limit);
+        }
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new IllegalArgumentException("Początek przedziału musi poprzedzać jego koniec: " + from + " - " + to);
+        }
+        this.limit = limit;
+        this.from = from;
+        this.to = to;
+        this.stationId = stationId;
+        this.cursor = cursor;
+    }
+
+    /**
+     * @return zapytanie o {@link #DEFAULT_LIMIT} najnowszych wypożyczeń
+     */
+    public static HistoryQuery latest() {
+        return latest(DEFAULT_LIMIT);
+    }
+
+    /**
+     * @param limit największa liczba wypożyczeń na stronie (1-{@link #MAX_LIMIT})
+     */
+    public static HistoryQuery latest(int limit) {
+        return new HistoryQuery(limit, null, null, null, null);
+    }
+
+    /**
+     * Zawęża zapytanie do wypożyczeń rozpoczętych w przedziale
+     * {@code [from, to)}; {@code null} oznacza brak ograniczenia.
+     */
+    public HistoryQuery between(LocalDateTime from, LocalDateTime to) {
+        return new HistoryQuery(limit, from, to, stationId, cursor);
+    }
+
+    /**
+     * Zawęża zapytanie do wypożyczeń rozpoczętych lub zakończonych na stacji.
+     */
+    public HistoryQuery atStation(String stationId) {
+        return new HistoryQuery(limit, from, to, stationId, cursor);
+    }
+
+    /**
+     * Kontynuuje zapytanie od miejsca, w którym skończyła się poprzednia strona.
+     *
+     * @param cursor kursor z {@link HistoryPage#getNextCursor()}
+     */
+    public HistoryQuery after(String cursor) {
+        return new HistoryQuery(limit, from, to, stationId, cursor);
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public LocalDateTime getFrom() {
+        return from;
+    }
+
+    public LocalDateTime getTo() {
+        return to;
+    }
+
+    public String getStationId() {
+        return stationId;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+}
@@ -1,9 +1,10 @@
 package com.rental.model;
 
+import com.rental.util.Money;
+
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.UUID;
 
 /**
  * Reprezentuje proces wypożyczenia roweru przez użytkownika,
@@ -11,7 +12,10 @@ import java.util.UUID;
  * oraz czasie trwania wypożyczenia.
  */
 public class Rental {
-    private String rentalId;
+    /** Wartość opłaty wypożyczenia, które nie zostało wycenione. */
+    public static final long UNPRICED = -1;
+
+    private long rentalId;
     private User user;
     private Bike bike;
     private Station startStation;
@@ -19,14 +23,19 @@ public class Rental {
     private LocalDateTime startTime;
     private LocalDateTime endTime;
     private Duration duration;
+    private long fareCents = UNPRICED;
 
-
-    public Rental(User user, Bike bike, Station startStation) {
-        this.rentalId = UUID.randomUUID().toString(); // simplified unique ID
+    /**
+     * Tworzy wypożyczenie o podanym identyfikatorze i czasie rozpoczęcia.
+     * Czas pochodzi z zegara systemu wypożyczalni (także symulowanego)
+     * albo z dziennika lub migawki.
+     */
+    public Rental(long rentalId, User user, Bike bike, Station startStation, LocalDateTime startTime) {
+        this.rentalId = rentalId;
         this.user = user;
         this.bike = bike;
         this.startStation = startStation;
-        this.startTime = LocalDateTime.now();
+        this.startTime = startTime;
 
         // null until return/endRetail
         this.endStation = null;
@@ -35,23 +44,24 @@ public class Rental {
     }
 
     /**
-     * Kończy bieżące wypożyczenie, ustawia stację zwrotu,
-     * czas zakończenia oraz oblicza jego czas trwania.
+     * Kończy bieżące wypożyczenie w podanym czasie, ustawia stację zwrotu
+     * oraz oblicza jego czas trwania.
      *
      * @param endStation stacja, na której rower jest zwracany
+     * @param endTime    czas zakończenia wypożyczenia
      * @throws IllegalStateException jeśli wypożyczenie zostało
      *                               już wcześniej zakończone
      */
-    public void endRental(Station endStation) {
+    public void endRental(Station endStation, LocalDateTime endTime) {
         if (this.endTime != null) {
             throw new IllegalStateException("To wypożyczenie zostało już zakończone.");
         }
         this.endStation = endStation;
-        this.endTime = LocalDateTime.now();
+        this.endTime = endTime;
         this.duration = Duration.between(this.startTime, this.endTime);
     }
 
-    public String getRentalId() {
+    public long getRentalId() {
         return rentalId;
     }
 
@@ -83,9 +93,22 @@ public class Rental {
         return duration;
     }
 
+    /**
+     * @return opłata w groszach lub {@link #UNPRICED}, jeśli wypożyczenie
+     * nie zostało (jeszcze) wycenione
+     */
+    public long getFareCents() {
+        return fareCents;
+    }
+
+    public void setFareCents(long fareCents) {
+        this.fareCents = fareCents;
+    }
+
     @Override
     public String toString() {
         return "Rental{" +
+                "Id:" + rentalId +
                 ", Id Użytkownika:" + user.getUserId() +
                 ", rower:" + bike.getBikeId() +
                 ", stacja początkowa:" + startStation.getStationId() +
@@ -93,6 +116,7 @@ public class Rental {
                 (endTime != null ? ", stacja końcowa:" + endStation.getStationId() + ", koniec wyporzyczenia=" + endTime.format(
                         DateTimeFormatter.ofPattern(
                                 "yyyy-MM-dd HH:mm")) + ", czas trwania wyporyczenia=" + duration.toMinutes() + " minut" : ", status: Aktywne") +
+                (fareCents != UNPRICED ? ", opłata=" + Money.format(fareCents) : "") +
                 '}';
     }
 }
\ No newline at end of file
@@ -0,0 +1,348 @@
+package com.rental.model;
+
+import com.rental.util.LongIntHashMap;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Kolumnowy magazyn zakończonych wypożyczeń.
+ *
+ * <p>Zamiast pełnych obiektów {@link Rental} przechowuje każdy wiersz
+ * w tablicach prymitywnych: numery użytkownika, roweru i stacji (kodowanie
+ * słownikowe), czas rozpoczęcia w sekundach od {@link #BASE_EPOCH_SECOND},
+ * czas trwania w sekundach, opłatę w groszach oraz 64-bitowy identyfikator
+ * wypożyczenia. Wiersz zajmuje 40 bajtów zamiast kilkuset bajtów grafu obiektów,
+ * a tablice prymitywne nie są przeglądane przez GC. Tablice rosną dwukrotnie,
+ * więc zarezerwowane miejsce może sięgać drugich 40 bajtów na wiersz. Indeks
+ * identyfikatorów ({@link LongIntHashMap}) dodaje od 16 do 32 bajtów na wiersz,
+ * zależnie od wypełnienia.
+ *
+ * <p>Obiekty {@link Rental} są odtwarzane dopiero przy odczycie, z dokładnością
+ * do pełnych sekund. Magazyn może być współdzielony przez wielu użytkowników:
+ * wiersze rozdzielone są między {@link #STRIPES} niezależnie blokowanych
+ * segmentów według użytkownika, więc zwroty różnych użytkowników rzadko na
+ * siebie czekają. Wszystkie wiersze jednego użytkownika leżą w jednym
+ * segmencie, a numer wiersza wskazuje segment.
+ */
+public class RentalHistoryStore {
+    // 2020-01-01T00:00:00; int second offsets from here reach past 2088
+    public static final long BASE_EPOCH_SECOND = 1_577_836_800L;
+    public static final int STRIPES = 16;
+
+    private static final int STRIPE_BITS = Integer.numberOfTrailingZeros(STRIPES);
+    private static final int MAX_SEGMENT_ROWS = Integer.MAX_VALUE >>> STRIPE_BITS;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Segment[] segments = new Segment[STRIPES];
+
+    public RentalHistoryStore() {
+        for (int i = 0; i < STRIPES; i++) {
+            segments[i] = new Segment(i);
+        }
+    }
+
+    /**
+     * Dopisuje zakończone wypożyczenie do magazynu.
+     *
+     * @param rental zakończone wypożyczenie
+     * @return numer wiersza w magazynie
+     * @throws IllegalArgumentException jeśli wypożyczenie nie zostało zakończone
+     */
+    public int append(Rental rental) {
+        if (rental.getEndTime() == null) {
+            throw new IllegalArgumentException("Do historii można dodać tylko zakończone wypożyczenie.");
+        }
+        int hash = rental.getUser().getUserId().hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (STRIPES - 1)].append(rental);
+    }
+
+    /**
+     * Odtwarza obiekt wypożyczenia zapisany w podanym wierszu.
+     *
+     * @param row  numer wiersza zwrócony przez {@link #append(Rental)}
+     * @param user użytkownik, do którego należy wypożyczenie
+     */
+    public Rental materialize(int row, User user) {
+        Segment segment = segmentOf(row);
+        synchronized (segment) {
+            return segment.materialize(row >>> STRIPE_BITS, user);
+        }
+    }
+
+    /**
+     * Wyszukuje zakończone wypożyczenie po identyfikatorze.
+     *
+     * @return odtworzone wypożyczenie lub {@code null}, jeśli magazyn go nie zawiera
+     */
+    public Rental findRental(long rentalId) {
+        for (Segment segment : segments) {
+            Rental rental = segment.findRental(rentalId);
+            if (rental != null) {
+                return rental;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Przekazuje odbiorcy przejazdy zapisane w podanych wierszach, bez
+     * odtwarzania obiektów {@link Rental}.
+     *
+     * @param rows  numery wierszy jednego użytkownika, zwrócone przez {@link #append(Rental)}
+     * @param count liczba wierszy do odczytania z początku tablicy
+     */
+    public void forEachTrip(int[] rows, int count, TripVisitor visitor) {
+        if (count == 0) {
+            return;
+        }
+        Segment segment = segmentOf(rows[0]);
+        synchronized (segment) {
+            for (int i = 0; i < count; i++) {
+                int row = rows[i] >>> STRIPE_BITS;
+                visitor.visit(segment.rentalIds[row], segment.stations.get(segment.startStationRefs[row]),
+                        segment.stations.get(segment.endStationRefs[row]),
+                        BASE_EPOCH_SECOND + segment.startSeconds[row], segment.durationSeconds[row],
+                        segment.fareCents[row]);
+            }
+        }
+    }
+
+    /**
+     * Wyszukuje binarnie pierwszą pozycję w wierszach jednego użytkownika,
+     * na której wypożyczenie rozpoczęło się nie wcześniej niż {@code time}.
+     * Wypożyczenia użytkownika nie nakładają się, więc jego wiersze
+     * uporządkowane są zarazem według czasu rozpoczęcia.
+     *
+     * @param rows  wiersze użytkownika, od najstarszego
+     * @param count liczba wierszy na początku tablicy
+     * @return pozycja z przedziału {@code 0..count}
+     */
+    public int lowerBound(int[] rows, int count, LocalDateTime time) {
+        if (count == 0) {
+            return 0;
+        }
+        // stored times are whole seconds, so a bound with a fraction rounds up
+        long second = time.toEpochSecond(ZoneOffset.UTC) + (time.getNano() > 0 ? 1 : 0) - BASE_EPOCH_SECOND;
+        Segment segment = segmentOf(rows[0]);
+        synchronized (segment) {
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (segment.startSeconds[rows[mid] >>> STRIPE_BITS] < second) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * Odtwarza wypożyczenia z pozycji {@code [begin, end)}, od najnowszego,
+     * aż do zebrania {@code limit} wypożyczeń. Wiersze niepasujące do
+     * stacji pomijane są bez odtwarzania obiektów.
+     *
+     * @param rows    wiersze użytkownika, od najstarszego
+     * @param station stacja rozpoczęcia lub zakończenia albo {@code null} - dowolna
+     * @param page    lista, do której trafiają odtworzone wypożyczenia
+     * @return pozycja, na której kończy się następna strona ({@code begin},
+     * jeśli przejrzano cały przedział)
+     */
+    public int readNewestFirst(int[] rows, int begin, int end, Station station, int limit,
+            User user, List<Rental> page) {
+        if (begin >= end) {
+            return begin;
+        }
+        Segment segment = segmentOf(rows[begin]);
+        synchronized (segment) {
+            int stationRef = -1;
+            if (station != null) {
+                stationRef = segment.stations.find(station);
+                if (stationRef < 0) {
+                    return begin;
+                }
+            }
+            int position = end;
+            while (position > begin && page.size() < limit) {
+                int row = rows[--position] >>> STRIPE_BITS;
+                if (stationRef < 0 || segment.startStationRefs[row] == stationRef
+                        || segment.endStationRefs[row] == stationRef) {
+                    page.add(segment.materialize(row, user));
+                }
+            }
+            return position;
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Szacuje liczbę bajtów zajmowanych przez kolumny magazynu i indeks
+     * identyfikatorów (bez słowników, które rosną z liczbą encji, a nie wypożyczeń).
+     */
+    public long columnBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                bytes += segment.columnBytes();
+            }
+        }
+        return bytes;
+    }
+
+    private Segment segmentOf(int row) {
+        if (row < 0) {
+            throw new IndexOutOfBoundsException("Wiersz: " + row);
+        }
+        return segments[row & (STRIPES - 1)];
+    }
+
+    private static LocalDateTime toTime(int secondOffset) {
+        return LocalDateTime.ofEpochSecond(BASE_EPOCH_SECOND + secondOffset, 0, ZoneOffset.UTC);
+    }
+
+    /**
+     * Segment magazynu z własnymi kolumnami, słownikami i indeksem,
+     * chroniony własnym monitorem. Kolumny przydzielane są przy pierwszym
+     * wierszu, więc prywatny magazyn jednego użytkownika zajmuje jeden segment.
+     */
+    private static final class Segment {
+        private final int stripe;
+        private final Dictionary<User> users = new Dictionary<>();
+        private final Dictionary<Bike> bikes = new Dictionary<>();
+        private final Dictionary<Station> stations = new Dictionary<>();
+        // rental id -> row within the segment; created with the first row
+        private LongIntHashMap rowsById;
+
+        private int[] userRefs = new int[0];
+        private int[] bikeRefs = new int[0];
+        private int[] startStationRefs = new int[0];
+        private int[] endStationRefs = new int[0];
+        private int[] startSeconds = new int[0];
+        private int[] durationSeconds = new int[0];
+        private long[] fareCents = new long[0];
+        private long[] rentalIds = new long[0];
+        private int size;
+
+        Segment(int stripe) {
+            this.stripe = stripe;
+        }
+
+        synchronized int append(Rental rental) {
+            if (size == bikeRefs.length) {
+                grow();
+            }
+            int row = size;
+            userRefs[row] = users.ref(rental.getUser());
+            bikeRefs[row] = bikes.ref(rental.getBike());
+            startStationRefs[row] = stations.ref(rental.getStartStation());
+            endStationRefs[row] = stations.ref(rental.getEndStation());
+            long start = rental.getStartTime().toEpochSecond(ZoneOffset.UTC);
+            long end = rental.getEndTime().toEpochSecond(ZoneOffset.UTC);
+            startSeconds[row] = Math.toIntExact(start - BASE_EPOCH_SECOND);
+            durationSeconds[row] = Math.toIntExact(end - start);
+            fareCents[row] = rental.getFareCents();
+            rentalIds[row] = rental.getRentalId();
+            rowsById.put(rental.getRentalId(), row);
+            size++;
+            return row << STRIPE_BITS | stripe;
+        }
+
+        // guarded by the segment monitor, held by the caller
+        Rental materialize(int row, User user) {
+            if (row >= size) {
+                throw new IndexOutOfBoundsException("Wiersz: " + (row << STRIPE_BITS | stripe) + ", rozmiar segmentu: " + size);
+            }
+            LocalDateTime startTime = toTime(startSeconds[row]);
+            Rental rental = new Rental(rentalIds[row], user, bikes.get(bikeRefs[row]),
+                    stations.get(startStationRefs[row]), startTime);
+            rental.endRental(stations.get(endStationRefs[row]), startTime.plusSeconds(durationSeconds[row]));
+            rental.setFareCents(fareCents[row]);
+            return rental;
+        }
+
+        synchronized Rental findRental(long rentalId) {
+            int row = rowsById == null ? -1 : rowsById.get(rentalId);
+            return row < 0 ? null : materialize(row, users.get(userRefs[row]));
+        }
+
+        // guarded by the segment monitor, held by the caller
+        long columnBytes() {
+            long bytes = (long) bikeRefs.length * (6L * Integer.BYTES + 2L * Long.BYTES);
+            return rowsById == null ? bytes : bytes + rowsById.memoryBytes();
+        }
+
+        private void grow() {
+            if (rowsById == null) {
+                rowsById = new LongIntHashMap(INITIAL_CAPACITY, -1);
+            }
+            if (size == MAX_SEGMENT_ROWS) {
+                throw new IllegalStateException("Segment historii jest pełny.");
+            }
+            int capacity = (int) Math.min(Math.max(INITIAL_CAPACITY, bikeRefs.length * 2L), MAX_SEGMENT_ROWS);
+            userRefs = Arrays.copyOf(userRefs, capacity);
+            bikeRefs = Arrays.copyOf(bikeRefs, capacity);
+            startStationRefs = Arrays.copyOf(startStationRefs, capacity);
+            endStationRefs = Arrays.copyOf(endStationRefs, capacity);
+            startSeconds = Arrays.copyOf(startSeconds, capacity);
+            durationSeconds = Arrays.copyOf(durationSeconds, capacity);
+            fareCents = Arrays.copyOf(fareCents, capacity);
+            rentalIds = Arrays.copyOf(rentalIds, capacity);
+        }
+    }
+
+    /**
+     * Odbiorca przejazdów odczytywanych z magazynu. Czas rozpoczęcia
+     * podawany jest w sekundach epoki czasu lokalnego (jak
+     * {@link LocalDateTime#toEpochSecond} z przesunięciem UTC), a opłata
+     * w groszach albo jako {@link Rental#UNPRICED}.
+     */
+    @FunctionalInterface
+    public interface TripVisitor {
+        void visit(long rentalId, Station startStation, Station endStation, long startEpochSecond,
+                int durationSeconds, long fareCents);
+    }
+
+    /**
+     * Słownik przypisujący obiektom kolejne numery całkowite.
+     */
+    private static class Dictionary<T> {
+        private final Map<T, Integer> refs = new IdentityHashMap<>();
+        private final List<T> values = new ArrayList<>();
+
+        int ref(T value) {
+            Integer ref = refs.get(value);
+            if (ref == null) {
+                ref = values.size();
+                refs.put(value, ref);
+                values.add(value);
+            }
+            return ref;
+        }
+
+        int find(T value) {
+            Integer ref = refs.get(value);
+            return ref == null ? -1 : ref;
+        }
+
+        T get(int ref) {
+            return values.get(ref);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.rental.model;
+
+import java.util.UUID;
+
+/**
+ * Źródło identyfikatorów wypożyczeń. Identyfikatory muszą być unikalne
+ * w obrębie systemu; implementacja musi być bezpieczna wątkowo.
+ *
+ * @see TimeOrderedRentalIdGenerator
+ */
+@FunctionalInterface
+public interface RentalIdGenerator {
+
+    long nextId();
+
+    /**
+     * Informuje generator o identyfikatorze odtworzonym z dziennika lub
+     * migawki; kolejne identyfikatory nie mogą go powtórzyć. Domyślnie
+     * nic nie robi - wystarcza to generatorom, które nie mogą wydać
+     * identyfikatora sprzed ponownego uruchomienia.
+     */
+    default void advancePast(long rentalId) {
+    }
+
+    /**
+     * Zamienia identyfikator tekstowy z dawnych wersji dziennika i migawki
+     * (UUID lub dowolny napis) na identyfikator liczbowy. UUID jest składany
+     * do 64 bitów operacją XOR, inne napisy są haszowane (FNV-1a).
+     */
+    static long fromLegacyId(String rentalId) {
+        try {
+            UUID uuid = UUID.fromString(rentalId);
+            // fromString is lenient, so only accept the canonical form
+            if (uuid.toString().equals(rentalId)) {
+                return uuid.getMostSignificantBits() ^ uuid.getLeastSignificantBits();
+            }
+        } catch (IllegalArgumentException e) {
+            // hashed below
+        }
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < rentalId.length(); i++) {
+            hash = (hash ^ rentalId.charAt(i)) * 0x100000001B3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,62 @@
+package com.rental.model;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Rezerwacja roweru na stacji: jeden z rowerów stacji jest odłożony dla
+ * użytkownika do chwili {@link #getExpiresAt()}. Rezerwacja kończy się
+ * wypożyczeniem, anulowaniem albo wygaśnięciem.
+ */
+public class Reservation {
+    private final long reservationId;
+    private final User user;
+    private final Station station;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime expiresAt;
+
+    public Reservation(long reservationId, User user, Station station, LocalDateTime createdAt, LocalDateTime expiresAt) {
+        this.reservationId = reservationId;
+        this.user = user;
+        this.station = station;
+        this.createdAt = createdAt;
+        this.expiresAt = expiresAt;
+    }
+
+    public long getReservationId() {
+        return reservationId;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public Station getStation() {
+        return station;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    /**
+     * Sprawdza, czy rezerwacja wygasła w podanej chwili.
+     */
+    public boolean isExpiredAt(LocalDateTime time) {
+        return !time.isBefore(expiresAt);
+    }
+
+    @Override
+    public String toString() {
+        return "Rezerwacja{" +
+                "Id:" + reservationId +
+                ", Id Użytkownika:" + user.getUserId() +
+                ", stacja:" + station.getStationId() +
+                ", ważna do:" + expiresAt.format(DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss")) +
+                '}';
+    }
+}
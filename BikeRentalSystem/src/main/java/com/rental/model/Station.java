@@ -1,7 +1,10 @@
 package com.rental.model;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.RandomAccess;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -9,24 +12,79 @@ import java.util.Optional;
  * Reprezentuje stację rowerową o określonym identyfikatorze,
  * nazwie lokalizacji oraz pojemności. Umożliwia zadokowanie
  * i wypożyczenie rowerów.
+ *
+ * <p>Stan stacji chroniony jest monitorem samej stacji, dzięki czemu
+ * operacje na różnych stacjach nie blokują się wzajemnie. Sekwencje
+ * typu "sprawdź, a potem zadokuj" należy wykonywać w bloku
+ * {@code synchronized (station)}.
+ *
+ * <p>Część zadokowanych rowerów może być zarezerwowana. Rezerwacja nie
+ * wskazuje konkretnego roweru, tylko odkłada jeden z rowerów stacji dla
+ * rezerwującego: rowery zarezerwowane nadal zajmują miejsca w stacji,
+ * ale nie są liczone jako dostępne i nie można ich wypożyczyć bez
+ * rezerwacji.
  */
 public class Station {
     private String stationId;
     private String locationName;
     private int capacity;
-    private List<Bike> dockedBikes;
+    private final double latitude;
+    private final double longitude;
+    // fixed-size ring buffer, oldest docked bike at head
+    private final Bike[] dock;
+    private int head;
+    private int count;
+    // docked bikes held for reservations, always <= count
+    private int reserved;
+    private final List<Bike> dockedBikesView = new DockedBikesView();
+    private volatile StationListener listener;
+    private int handle = -1;
 
     public Station(String stationId, String locationName, int capacity) {
-        this.stationId = stationId.toUpperCase();
+        this(stationId, locationName, capacity, Double.NaN, Double.NaN);
+    }
+
+    /**
+     * Tworzy stację o znanym położeniu geograficznym.
+     *
+     * @param latitude  szerokość geograficzna w stopniach
+     *                  ({@code NaN} gdy nieznana)
+     * @param longitude długość geograficzna w stopniach
+     *                  ({@code NaN} gdy nieznana)
+     */
+    public Station(String stationId, String locationName, int capacity, double latitude, double longitude) {
+        this.stationId = normalizeId(stationId);
         this.locationName = locationName;
         this.capacity = capacity;
-        this.dockedBikes = new ArrayList<>();
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.dock = new Bike[Math.max(capacity, 0)];
+    }
+
+    /**
+     * Sprowadza identyfikator stacji do postaci kanonicznej (wielkie litery),
+     * w której stacje są przechowywane i wyszukiwane.
+     */
+    public static String normalizeId(String stationId) {
+        return stationId.toUpperCase(Locale.ROOT);
     }
 
     public String getStationId() {
         return stationId;
     }
 
+    /**
+     * Zwraca uchwyt nadany przez system przy rejestracji - zwarty indeks
+     * w tablicach systemu - lub {@code -1}, jeśli stacja nie jest zarejestrowana.
+     */
+    public int getHandle() {
+        return handle;
+    }
+
+    public void setHandle(int handle) {
+        this.handle = handle;
+    }
+
     public String getLocationName() {
         return locationName;
     }
@@ -35,16 +93,83 @@ public class Station {
         return capacity;
     }
 
-    public List<Bike> getDockedBikes() {
-        return new ArrayList<>(dockedBikes);
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    /**
+     * Sprawdza, czy stacja ma określone współrzędne geograficzne.
+     */
+    public boolean hasLocation() {
+        return !Double.isNaN(latitude) && !Double.isNaN(longitude);
+    }
+
+    /**
+     * Ustawia odbiorcę zmian obsadzenia stacji (zastępuje poprzedniego).
+     */
+    public void setListener(StationListener listener) {
+        this.listener = listener;
+    }
+
+    public synchronized List<Bike> getDockedBikes() {
+        List<Bike> copy = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            copy.add(bikeAt(i));
+        }
+        return copy;
+    }
+
+    /**
+     * Zwraca kopię listy rowerów, które można wypożyczyć bez rezerwacji,
+     * wykonaną pod blokadą stacji. Rezerwacja nie wskazuje konkretnego
+     * roweru, a rowery wydawane są od najdawniej zadokowanego, więc
+     * lista obejmuje najdawniej zadokowane rowery w liczbie
+     * {@link #getAvailableBikeCount()}.
+     */
+    public synchronized List<Bike> getAvailableBikes() {
+        List<Bike> copy = new ArrayList<>(count - reserved);
+        for (int i = 0; i < count - reserved; i++) {
+            copy.add(bikeAt(i));
+        }
+        return copy;
+    }
+
+    /**
+     * Zwraca niemodyfikowalny widok rowerów zadokowanych na stacji,
+     * bez kopiowania. Widok odzwierciedla bieżący stan stacji, więc
+     * jego zawartość może się zmieniać w trakcie iteracji.
+     *
+     * @return widok listy zadokowanych rowerów, od najdawniej zadokowanego
+     */
+    public List<Bike> getDockedBikesView() {
+        return dockedBikesView;
+    }
+
+    /**
+     * @return liczba rowerów zadokowanych na stacji, także zarezerwowanych
+     */
+    public synchronized int getDockedBikeCount() {
+        return count;
+    }
+
+    /**
+     * @return liczba rowerów, które można wypożyczyć bez rezerwacji
+     * (zadokowane minus zarezerwowane)
+     */
+    public synchronized int getAvailableBikeCount() {
+        return count - reserved;
     }
 
-    public int getAvailableBikeCount() {
-        return dockedBikes.size();
+    public synchronized int getReservedBikeCount() {
+        return reserved;
     }
 
-    public int getAvailableSpots() {
-        return capacity - dockedBikes.size();
+    public synchronized int getAvailableSpots() {
+        return capacity - count;
     }
 
     /**
@@ -52,12 +177,26 @@ public class Station {
      *
      * @return {@code true} jeśli liczba rowerów ≥ pojemność
      */
-    public boolean isFull() {
-        return dockedBikes.size() >= capacity;
+    public synchronized boolean isFull() {
+        return count >= capacity;
     }
 
-    public boolean isEmpty() {
-        return dockedBikes.isEmpty();
+    /**
+     * Sprawdza, czy na stacji nie ma roweru do wypożyczenia bez rezerwacji.
+     */
+    public synchronized boolean isEmpty() {
+        return count == reserved;
+    }
+
+    /**
+     * Sprawdza w stałym czasie, czy rower jest zadokowany na tej stacji.
+     *
+     * @param bike sprawdzany rower
+     * @return {@code true} jeśli rower stoi na tej stacji
+     */
+    public boolean isDocked(Bike bike) {
+        // currentStation is set exactly while the bike sits in this station's dock
+        return bike.getCurrentStation() == this;
     }
 
     /**
@@ -67,35 +206,130 @@ public class Station {
      * @throws IllegalStateException jeśli stacja jest pełna
      *                               lub rower jest już zadokowany w innej stacji
      */
-    public void dockBike(Bike bike) {
+    public synchronized void dockBike(Bike bike) {
         if (isFull()) {
             throw new IllegalStateException("Stacja " + stationId + " jest pełna.");
         }
         if (bike.getCurrentStation() != null && !bike.getCurrentStation().equals(this)) {
             throw new IllegalStateException("Rower " + bike.getBikeId() + " jest zadokowany na innej stacji.");
         }
-        if (!dockedBikes.contains(bike)) {
-            dockedBikes.add(bike);
+        if (!isDocked(bike)) {
+            dock[(head + count) % dock.length] = bike;
+            count++;
             bike.setCurrentStation(this);
             bike.setAvailable(true);
+            notifyListener(count - 1, count - 1 - reserved);
         }
     }
 
+    /**
+     * Zwraca rower, który jako następny opuści stację - przy wypożyczeniu
+     * z rezerwacją albo bez niej - bez usuwania go ze stacji.
+     *
+     * @return najdłużej zadokowany rower lub {@code null}, jeśli stacja nie ma rowerów
+     */
+    public synchronized Bike getNextBike() {
+        return count == 0 ? null : dock[head];
+    }
+
     /**
      * Usuwa pierwszy dostępny rower ze stacji i zwraca go.
      *
      * @return {@code Optional} z usuniętym rowerem lub pusty
-     * jeśli na stacji nie ma rowerów
+     * jeśli na stacji nie ma rowerów dostępnych bez rezerwacji
      */
-    public Optional<Bike> undockBike() {
+    public synchronized Optional<Bike> undockBike() {
         if (isEmpty()) {
             return Optional.empty();
         }
-        // first for the list bike
-        Bike bikeToRemove = dockedBikes.remove(0);
+        Bike bikeToRemove = removeOldest();
+        notifyListener(count + 1, count + 1 - reserved);
+        return Optional.of(bikeToRemove);
+    }
+
+    /**
+     * Odkłada jeden z dostępnych rowerów dla rezerwacji.
+     *
+     * @return {@code false} jeśli na stacji nie ma dostępnego roweru
+     */
+    public synchronized boolean reserveBike() {
+        if (isEmpty()) {
+            return false;
+        }
+        reserved++;
+        notifyListener(count, count - reserved + 1);
+        return true;
+    }
+
+    /**
+     * Zwalnia rower odłożony dla rezerwacji (anulowanej lub wygasłej).
+     *
+     * @throws IllegalStateException jeśli na stacji nie ma rezerwacji
+     */
+    public synchronized void releaseReservation() {
+        if (reserved == 0) {
+            throw new IllegalStateException("Na stacji " + stationId + " nie ma zarezerwowanych rowerów.");
+        }
+        reserved--;
+        notifyListener(count, count - reserved - 1);
+    }
+
+    /**
+     * Wydaje rower odłożony dla rezerwacji; liczba dostępnych rowerów
+     * się nie zmienia.
+     *
+     * @return usunięty ze stacji rower
+     * @throws IllegalStateException jeśli na stacji nie ma rezerwacji
+     */
+    public synchronized Bike undockReservedBike() {
+        if (reserved == 0) {
+            throw new IllegalStateException("Na stacji " + stationId + " nie ma zarezerwowanych rowerów.");
+        }
+        reserved--;
+        Bike bikeToRemove = removeOldest();
+        notifyListener(count + 1, count - reserved);
+        return bikeToRemove;
+    }
+
+    private Bike removeOldest() {
+        // oldest docked bike leaves first, whether it goes to a reservation or not
+        Bike bikeToRemove = dock[head];
+        dock[head] = null;
+        head = (head + 1) % dock.length;
+        count--;
         bikeToRemove.setCurrentStation(null);
         bikeToRemove.setAvailable(false); // marking as rented
-        return Optional.of(bikeToRemove);
+        return bikeToRemove;
+    }
+
+    private void notifyListener(int previousCount, int previousAvailable) {
+        StationListener current = listener;
+        if (current != null) {
+            current.occupancyChanged(this, previousCount, count, previousAvailable, count - reserved);
+        }
+    }
+
+    private Bike bikeAt(int index) {
+        return dock[(head + index) % dock.length];
+    }
+
+    private class DockedBikesView extends AbstractList<Bike> implements RandomAccess {
+        @Override
+        public Bike get(int index) {
+            synchronized (Station.this) {
+                if (index < 0 || index >= count) {
+                    throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+                }
+                return bikeAt(index);
+            }
+        }
+
+        @Override
+        public int size() {
+            synchronized (Station.this) {
+                return count;
+            }
+        }
     }
 
     @Override
@@ -108,7 +342,7 @@ public class Station {
 
     @Override
     public int hashCode() {
-        return Objects.hash(stationId);
+        return stationId.hashCode();
     }
 
     @Override
@@ -0,0 +1,19 @@
+package com.rental.model;
+
+/**
+ * Odbiorca zmian obsadzenia stacji. Wywoływany przy każdym zadokowaniu
+ * i oddokowaniu roweru oraz przy rezerwacji roweru i jej zwolnieniu,
+ * pod blokadą stacji, dlatego implementacje muszą działać szybko
+ * i nie mogą blokować się na innych stacjach.
+ */
+public interface StationListener {
+
+    /**
+     * @param station           stacja, której obsadzenie się zmieniło
+     * @param previousBikeCount liczba zadokowanych rowerów przed zmianą
+     * @param bikeCount         liczba zadokowanych rowerów po zmianie
+     * @param previousAvailable liczba rowerów dostępnych bez rezerwacji przed zmianą
+     * @param available         liczba rowerów dostępnych bez rezerwacji po zmianie
+     */
+    void occupancyChanged(Station station, int previousBikeCount, int bikeCount, int previousAvailable, int available);
+}
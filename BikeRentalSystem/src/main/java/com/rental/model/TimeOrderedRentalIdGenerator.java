@@ -0,0 +1,106 @@
+package com.rental.model;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Generator 64-bitowych identyfikatorów uporządkowanych w czasie.
+ * Identyfikator składa się z pól (od najstarszego bitu):
+ * <pre>
+ *   41 bitów - milisekundy od 2020-01-01 UTC (wystarcza do 2089 r.)
+ *    6 bitów - numer węzła
+ *    6 bitów - numer pasa (wybierany z identyfikatora wątku)
+ *   10 bitów - numer kolejny w obrębie milisekundy
+ * </pre>
+ * Każdy pas przechowuje parę (milisekunda, numer kolejny) w jednej liczbie
+ * {@code long} aktualizowanej przez CAS, a pasy leżą w osobnych liniach
+ * pamięci podręcznej - wątki z różnych pasów nie rywalizują ze sobą.
+ * Generowanie nie alokuje obiektów. Po wyczerpaniu numerów kolejnych pas
+ * "pożycza" następną milisekundę, więc identyfikatory pasa rosną ściśle
+ * także przy cofnięciu zegara.
+ *
+ * <p>Stan pasów jest tylko w pamięci, a pożyczone milisekundy mogą
+ * wyprzedzać zegar, dlatego po ponownym uruchomieniu pasy trzeba
+ * ustawić za odtworzonymi identyfikatorami ({@link #advancePast(long)}).
+ */
+public final class TimeOrderedRentalIdGenerator implements RentalIdGenerator {
+    public static final long EPOCH_MILLIS = RentalHistoryStore.BASE_EPOCH_SECOND * 1000;
+    public static final int MAX_NODE = 63;
+
+    private static final int SEQUENCE_BITS = 10;
+    private static final int STRIPE_BITS = 6;
+    private static final int NODE_BITS = 6;
+    private static final int TIME_SHIFT = SEQUENCE_BITS + STRIPE_BITS + NODE_BITS;
+    private static final long NODE_MASK = (long) MAX_NODE << (SEQUENCE_BITS + STRIPE_BITS);
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final int STRIPES = 1 << STRIPE_BITS;
+    // 16 longs = 128 bytes between stripes, past adjacent-line prefetching
+    private static final int STRIDE = 16;
+    // borrowing runs a lane ahead of the clock by far less than this
+    private static final long MAX_LEAD_MILLIS = 60_000;
+
+    private final long nodeBits;
+    private final AtomicLongArray stripes = new AtomicLongArray(STRIPES * STRIDE);
+
+    public TimeOrderedRentalIdGenerator() {
+        this(0);
+    }
+
+    /**
+     * @param node numer węzła (0-63), odróżniający identyfikatory z kilku
+     *             instancji systemu działających jednocześnie
+     */
+    public TimeOrderedRentalIdGenerator(int node) {
+        if (node < 0 || node > MAX_NODE) {
+            throw new IllegalArgumentException("Numer węzła musi być z zakresu 0-" + MAX_NODE + ": " + node);
+        }
+        this.nodeBits = (long) node << (SEQUENCE_BITS + STRIPE_BITS);
+    }
+
+    @Override
+    public long nextId() {
+        int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+        int slot = stripe * STRIDE;
+        long now = System.currentTimeMillis() - EPOCH_MILLIS;
+        while (true) {
+            long current = stripes.get(slot);
+            long millis = current >>> SEQUENCE_BITS;
+            long next;
+            if (now > millis) {
+                next = now << SEQUENCE_BITS;
+            } else if ((current & SEQUENCE_MASK) < SEQUENCE_MASK) {
+                next = current + 1;
+            } else {
+                next = (millis + 1) << SEQUENCE_BITS;
+            }
+            if (stripes.compareAndSet(slot, current, next)) {
+                return (next >>> SEQUENCE_BITS) << TIME_SHIFT | nodeBits
+                        | (long) stripe << SEQUENCE_BITS | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    /**
+     * Ustawia pas, z którego pochodzi identyfikator, za nim. Identyfikatory
+     * innych węzłów nie mogą się powtórzyć i są pomijane, podobnie jak
+     * identyfikatory z dawnych wersji dziennika, których czas wykracza
+     * ponad minutę poza bieżący zegar.
+     */
+    @Override
+    public void advancePast(long rentalId) {
+        long millis = rentalId >>> TIME_SHIFT;
+        if ((rentalId & NODE_MASK) != nodeBits
+                || millis > System.currentTimeMillis() - EPOCH_MILLIS + MAX_LEAD_MILLIS) {
+            return;
+        }
+        int stripe = (int) (rentalId >>> SEQUENCE_BITS) & (STRIPES - 1);
+        stripes.accumulateAndGet(stripe * STRIDE, millis << SEQUENCE_BITS | (rentalId & SEQUENCE_MASK), Math::max);
+    }
+
+    /**
+     * Odczytuje z identyfikatora czas jego wygenerowania w milisekundach
+     * od epoki Uniksa.
+     */
+    public static long timestampMillis(long rentalId) {
+        return (rentalId >>> TIME_SHIFT) + EPOCH_MILLIS;
+    }
+}
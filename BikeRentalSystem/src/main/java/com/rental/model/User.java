@@ -1,8 +1,11 @@
 package com.rental.model;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
+import java.util.RandomAccess;
 
 /**
  * Reprezentuje użytkownika systemu wypożyczalni rowerów,
@@ -12,13 +15,27 @@ import java.util.Objects;
 public class User {
     private String userId;
     private String name;
-    private List<Rental> rentalHistory;
-    private Rental currentRental;
+    private RentalHistoryStore historyStore; // created on first use when not shared
+    // rows of this user's completed rentals in historyStore, oldest first
+    private int[] historyRows = new int[0];
+    private int historySize;
+    private final List<Rental> rentalHistory = new RentalHistoryView();
+    private volatile Rental currentRental;
+    private int handle = -1;
 
     public User(String userId, String name) {
+        this(userId, name, null);
+    }
+
+    /**
+     * Tworzy użytkownika, którego historia trafia do wspólnego magazynu.
+     *
+     * @param historyStore magazyn historii współdzielony z innymi użytkownikami
+     */
+    public User(String userId, String name, RentalHistoryStore historyStore) {
         this.userId = userId;
         this.name = name;
-        this.rentalHistory = new ArrayList<>();
+        this.historyStore = historyStore;
         this.currentRental = null; // null because no renting
     }
 
@@ -30,10 +47,95 @@ public class User {
         return name;
     }
 
+    /**
+     * Zwraca uchwyt nadany przez system przy rejestracji - zwarty indeks
+     * w tablicach systemu - lub {@code -1}, jeśli użytkownik nie jest zarejestrowany.
+     */
+    public int getHandle() {
+        return handle;
+    }
+
+    public void setHandle(int handle) {
+        this.handle = handle;
+    }
+
+    /**
+     * Zwraca niemodyfikowalny widok historii wypożyczeń. Obiekty
+     * {@link Rental} odtwarzane są z magazynu przy każdym odczycie.
+     */
     public List<Rental> getRentalHistory() {
         return rentalHistory;
     }
 
+    /**
+     * Zwraca stronę historii wypożyczeń. Przedział czasu wyznaczany jest
+     * wyszukiwaniem binarnym, a odtwarzane są tylko wypożyczenia ze strony,
+     * więc koszt zależy od rozmiaru strony, a nie od długości historii
+     * (filtr stacji przegląda dodatkowo pomijane wiersze przedziału).
+     * Historia tylko przybywa, więc kursor pozostaje ważny mimo nowych
+     * wypożyczeń.
+     *
+     * @param station stacja z zapytania, już odszukana, lub {@code null}
+     * @throws IllegalArgumentException jeśli kursor jest nieprawidłowy
+     */
+    public synchronized HistoryPage queryHistory(HistoryQuery query, Station station) {
+        int end = historySize;
+        if (query.getCursor() != null) {
+            end = Math.min(end, parseCursor(query.getCursor()));
+        }
+        List<Rental> rentals = new ArrayList<>(Math.min(query.getLimit(), end));
+        if (end == 0) {
+            return new HistoryPage(rentals, null);
+        }
+        int begin = 0;
+        if (query.getTo() != null) {
+            end = Math.min(end, historyStore.lowerBound(historyRows, historySize, query.getTo()));
+        }
+        if (query.getFrom() != null) {
+            begin = historyStore.lowerBound(historyRows, historySize, query.getFrom());
+        }
+        if (begin >= end) {
+            return new HistoryPage(rentals, null);
+        }
+        int next = historyStore.readNewestFirst(historyRows, begin, end, station, query.getLimit(), this, rentals);
+        return new HistoryPage(rentals, next > begin ? Integer.toString(next) : null);
+    }
+
+    private static int parseCursor(String cursor) {
+        try {
+            int position = Integer.parseInt(cursor);
+            if (position >= 0) {
+                return position;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("Nieprawidłowy kursor historii: " + cursor);
+    }
+
+    /**
+     * Przekazuje odbiorcy zakończone przejazdy użytkownika, od najstarszego,
+     * bez odtwarzania obiektów {@link Rental}.
+     */
+    public synchronized void forEachTrip(RentalHistoryStore.TripVisitor visitor) {
+        if (historySize > 0) {
+            historyStore.forEachTrip(historyRows, historySize, visitor);
+        }
+    }
+
+    /**
+     * Przenosi użytkownika do wspólnego magazynu historii.
+     *
+     * @throws IllegalStateException jeśli użytkownik ma już historię
+     *                               zapisaną w innym magazynie
+     */
+    public synchronized void setHistoryStore(RentalHistoryStore store) {
+        if (historyStore != store && historySize > 0) {
+            throw new IllegalStateException("Historia użytkownika " + userId + " jest zapisana w innym magazynie.");
+        }
+        this.historyStore = store;
+    }
+
     public Rental getCurrentRental() {
         return currentRental;
     }
@@ -72,10 +174,40 @@ public class User {
         if (!isRenting()) {
             throw new IllegalStateException("Użytkownik nie ma aktywnego wypożyczenia.");
         }
-        this.rentalHistory.add(this.currentRental);
+        appendHistory(this.currentRental);
         this.currentRental = null;
     }
 
+    private synchronized void appendHistory(Rental rental) {
+        if (historyStore == null) {
+            historyStore = new RentalHistoryStore();
+        }
+        int row = historyStore.append(rental);
+        if (historySize == historyRows.length) {
+            historyRows = Arrays.copyOf(historyRows, Math.max(4, historySize * 2));
+        }
+        historyRows[historySize++] = row;
+    }
+
+    private class RentalHistoryView extends AbstractList<Rental> implements RandomAccess {
+        @Override
+        public Rental get(int index) {
+            synchronized (User.this) {
+                if (index < 0 || index >= historySize) {
+                    throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + historySize);
+                }
+                return historyStore.materialize(historyRows[index], User.this);
+            }
+        }
+
+        @Override
+        public int size() {
+            synchronized (User.this) {
+                return historySize;
+            }
+        }
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -86,7 +218,7 @@ public class User {
 
     @Override
     public int hashCode() {
-        return Objects.hash(userId);
+        return userId.hashCode();
     }
 
     @Override
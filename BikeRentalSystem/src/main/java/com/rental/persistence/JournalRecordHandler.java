@@ -0,0 +1,26 @@
+package com.rental.persistence;
+
+import java.time.LocalDateTime;
+
+/**
+ * Odbiorca rekordów odczytywanych z dziennika podczas odtwarzania stanu.
+ * Rekordy dostarczane są w kolejności, w jakiej zostały zapisane.
+ */
+public interface JournalRecordHandler {
+
+    void userRegistered(String userId, String name);
+
+    void stationAdded(String stationId, String locationName, int capacity, double latitude, double longitude);
+
+    void bikeAdded(String bikeId, String stationId);
+
+    void bikeRented(long rentalId, String userId, String bikeId, String stationId, LocalDateTime startTime);
+
+    /**
+     * @param fareCents opłata naliczona przy zwrocie lub {@link com.rental.model.Rental#UNPRICED}
+     *                  dla rekordów zapisanych, zanim dziennik zapisywał opłaty
+     */
+    void bikeReturned(String bikeId, String stationId, LocalDateTime endTime, long fareCents);
+
+    void bikesTransferred(String fromStationId, String toStationId, int count);
+}
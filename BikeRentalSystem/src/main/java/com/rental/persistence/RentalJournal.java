@@ -0,0 +1,566 @@
+package com.rental.persistence;
+
+import com.rental.model.Rental;
+import com.rental.model.RentalIdGenerator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Dziennik zapisu z wyprzedzeniem (write-ahead log) dla systemu wypożyczalni.
+ *
+ * <p>Każda operacja zmieniająca stan zapisywana jest jako zwarty rekord binarny
+ * {@code [długość][typ][dane][CRC32]} do prealokowanych segmentów mapowanych
+ * w pamięć, zanim operacja zmieni stan systemu. Zapis rekordu to wyłącznie
+ * kopiowanie do pamięci, bez wywołania systemowego i bez blokad: wątek
+ * koduje rekord we własnym buforze, rezerwuje dla niego miejsce operacją CAS
+ * na pozycji zapisu segmentu i kopiuje go równolegle z innymi wątkami. Dane
+ * przeżywają awarię procesu, bo trafiają do pamięci podręcznej systemu
+ * plików. Wątek w tle okresowo wymusza zapis zmian na dysk (group commit),
+ * co chroni także przed awarią systemu operacyjnego.
+ *
+ * <p>Kolejność rekordów to kolejność rezerwacji. Operacje od siebie zależne
+ * (np. wypożyczenie i zwrot tego samego roweru) zapisują rekordy pod
+ * blokadami stacji i użytkownika, więc rekord późniejszej z nich zawsze
+ * leży za rekordem wcześniejszej.
+ *
+ * <p>Rekord przerwany w trakcie zapisu (np. po zabiciu procesu) jest
+ * wykrywany przy odtwarzaniu dzięki sumie kontrolnej, a rekord zarezerwowany,
+ * lecz niezapisany - jako luka, za którą leżą dalsze dane. Odtwarzanie kończy
+ * się na ostatnim poprawnym rekordzie przed takim miejscem, a dalsze dane są
+ * odrzucane.
+ */
+public class RentalJournal implements Closeable {
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 10;
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private static final byte USER_REGISTERED = 1;
+    private static final byte STATION_ADDED = 2;
+    private static final byte BIKE_ADDED = 3;
+    private static final byte BIKE_RENTED = 4;
+    private static final byte BIKE_RETURNED = 5;
+    private static final byte STATION_ADDED_AT = 6;
+    private static final byte BIKE_RENTED_ID64 = 7;
+    private static final byte BIKES_TRANSFERRED = 8;
+    private static final byte BIKE_RETURNED_FARE = 9;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final ScheduledExecutorService flusher;
+    private final ThreadLocal<Encoder> encoders = ThreadLocal.withInitial(Encoder::new);
+    // segments left behind by a roll, forced once every record reserved in them is written
+    private final Queue<Segment> retired = new ConcurrentLinkedQueue<>();
+    private final Object rollLock = new Object();
+    private final Object flushLock = new Object();
+
+    private volatile Segment segment;
+    private volatile boolean replayed;
+    private volatile boolean closed;
+
+    private RentalJournal(Path directory, int segmentSize, long flushIntervalMillis) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "rental-journal-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Otwiera (lub tworzy) dziennik w podanym katalogu z domyślnymi ustawieniami.
+     */
+    public static RentalJournal open(Path directory) throws IOException {
+        return open(directory, DEFAULT_SEGMENT_SIZE, DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Otwiera (lub tworzy) dziennik w podanym katalogu.
+     *
+     * @param directory           katalog z plikami segmentów
+     * @param segmentSize         rozmiar prealokowanego segmentu w bajtach
+     * @param flushIntervalMillis odstęp między wymuszeniami zapisu na dysk
+     */
+    public static RentalJournal open(Path directory, int segmentSize, long flushIntervalMillis) throws IOException {
+        if (segmentSize < 1024) {
+            throw new IllegalArgumentException("Rozmiar segmentu musi wynosić co najmniej 1024 bajty.");
+        }
+        Files.createDirectories(directory);
+        return new RentalJournal(directory, segmentSize, flushIntervalMillis);
+    }
+
+    /**
+     * Odtwarza wszystkie poprawne rekordy dziennika i ustawia pozycję
+     * zapisu za ostatnim z nich. Musi zostać wywołana dokładnie raz,
+     * przed pierwszym zapisem.
+     *
+     * @param handler odbiorca odtwarzanych rekordów
+     * @return liczba odtworzonych rekordów
+     */
+    public synchronized long replay(JournalRecordHandler handler) throws IOException {
+        if (replayed) {
+            throw new IllegalStateException("Dziennik został już odtworzony.");
+        }
+        List<Path> segments = listSegments();
+        CRC32 crc = new CRC32();
+        long records = 0;
+        boolean torn = false;
+        int number = 0;
+        MappedByteBuffer buffer = null;
+        for (int i = 0; i < segments.size(); i++) {
+            Path file = segments.get(i);
+            if (torn) {
+                // everything after a torn record is unreachable history
+                Files.delete(file);
+                continue;
+            }
+            number = segmentNumber(file);
+            buffer = map(file);
+            while (true) {
+                int position = buffer.position();
+                int status = readRecord(buffer, crc, handler);
+                if (status > 0) {
+                    records++;
+                    continue;
+                }
+                if (status < 0) {
+                    torn = true;
+                    // wipe the torn tail so that new records never mix with it
+                    for (int p = position; p < buffer.limit(); p++) {
+                        buffer.put(p, (byte) 0);
+                    }
+                    buffer.force();
+                }
+                buffer.position(position);
+                break;
+            }
+        }
+        if (buffer == null) {
+            number = 1;
+            buffer = map(segmentPath(number));
+        }
+        segment = new Segment(number, buffer, buffer.position());
+        replayed = true;
+        return records;
+    }
+
+    public void logUserRegistered(String userId, String name) {
+        Encoder record = begin(USER_REGISTERED);
+        record.putString(userId);
+        record.putString(name);
+        append(record);
+    }
+
+    public void logStationAdded(String stationId, String locationName, int capacity,
+            double latitude, double longitude) {
+        Encoder record = begin(STATION_ADDED_AT);
+        record.putString(stationId);
+        record.putString(locationName);
+        record.putInt(capacity);
+        record.putDouble(latitude);
+        record.putDouble(longitude);
+        append(record);
+    }
+
+    public void logBikeAdded(String bikeId, String stationId) {
+        Encoder record = begin(BIKE_ADDED);
+        record.putString(bikeId);
+        record.putString(stationId);
+        append(record);
+    }
+
+    public void logBikeRented(long rentalId, String userId, String bikeId, String stationId, LocalDateTime startTime) {
+        Encoder record = begin(BIKE_RENTED_ID64);
+        record.putLong(rentalId);
+        record.putString(userId);
+        record.putString(bikeId);
+        record.putString(stationId);
+        record.putTime(startTime);
+        append(record);
+    }
+
+    /**
+     * Zapisuje zwrot roweru razem z naliczoną opłatą, aby odtworzenie nie
+     * wyceniało przejazdu ponownie według taryfy obowiązującej w chwili restartu.
+     */
+    public void logBikeReturned(String bikeId, String stationId, LocalDateTime endTime, long fareCents) {
+        Encoder record = begin(BIKE_RETURNED_FARE);
+        record.putString(bikeId);
+        record.putString(stationId);
+        record.putTime(endTime);
+        record.putLong(fareCents);
+        append(record);
+    }
+
+    /**
+     * Zapisuje przeniesienie rowerów między stacjami. Rekord nie wymienia
+     * rowerów: przy odtwarzaniu zdejmowane są kolejne rowery z czoła
+     * stacji źródłowej, tak jak przy samym przeniesieniu.
+     */
+    public void logBikesTransferred(String fromStationId, String toStationId, int count) {
+        Encoder record = begin(BIKES_TRANSFERRED);
+        record.putString(fromStationId);
+        record.putString(toStationId);
+        record.putInt(count);
+        append(record);
+    }
+
+    /**
+     * Natychmiast wymusza zapis wszystkich dotychczasowych rekordów na dysk.
+     */
+    public void flush() {
+        // appends never take this lock, so msync does not block them
+        synchronized (flushLock) {
+            if (closed) {
+                return;
+            }
+            forceAll();
+        }
+    }
+
+    @Override
+    public void close() {
+        flusher.shutdown();
+        synchronized (flushLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            // appends that passed the closed check before it was set are let finish
+            while (!appendsComplete()) {
+                Thread.onSpinWait();
+            }
+            forceAll();
+        }
+    }
+
+    // --- Encoding ---
+
+    private Encoder begin(byte type) {
+        if (!replayed) {
+            throw new IllegalStateException("Dziennik musi zostać odtworzony przed pierwszym zapisem.");
+        }
+        if (closed) {
+            throw new IllegalStateException("Dziennik został zamknięty.");
+        }
+        Encoder record = encoders.get();
+        record.begin(type);
+        return record;
+    }
+
+    private void append(Encoder record) {
+        ByteBuffer framed = record.finish();
+        int size = framed.remaining();
+        if (size > segmentSize) {
+            throw new IllegalArgumentException("Rekord dziennika jest większy niż segment.");
+        }
+        while (true) {
+            Segment current = segment;
+            int offset = current.reserve(size);
+            if (offset >= 0) {
+                current.write(offset, framed);
+                return;
+            }
+            roll(current);
+        }
+    }
+
+    /**
+     * Bufor, w którym wątek koduje swój rekord razem z nagłówkiem i sumą
+     * kontrolną, zanim zarezerwuje dla niego miejsce w segmencie.
+     */
+    private static final class Encoder {
+        private final CRC32 crc = new CRC32();
+        private ByteBuffer scratch = ByteBuffer.allocate(1024);
+
+        void begin(byte type) {
+            scratch.clear();
+            // room for the length, written once the payload is complete
+            scratch.position(Integer.BYTES);
+            scratch.put(type);
+        }
+
+        ByteBuffer finish() {
+            int length = scratch.position() - Integer.BYTES;
+            ensureCapacity(Integer.BYTES);
+            crc.reset();
+            crc.update(scratch.array(), Integer.BYTES, length);
+            scratch.putInt((int) crc.getValue());
+            scratch.putInt(0, length);
+            return scratch.flip();
+        }
+
+        void putString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > 0xFFFF) {
+                throw new IllegalArgumentException("Wartość jest zbyt długa, by zapisać ją w dzienniku.");
+            }
+            ensureCapacity(Short.BYTES + bytes.length);
+            scratch.putShort((short) bytes.length);
+            scratch.put(bytes);
+        }
+
+        void putInt(int value) {
+            ensureCapacity(Integer.BYTES);
+            scratch.putInt(value);
+        }
+
+        void putLong(long value) {
+            ensureCapacity(Long.BYTES);
+            scratch.putLong(value);
+        }
+
+        void putDouble(double value) {
+            ensureCapacity(Double.BYTES);
+            scratch.putDouble(value);
+        }
+
+        void putTime(LocalDateTime time) {
+            ensureCapacity(Long.BYTES + Integer.BYTES);
+            scratch.putLong(time.toEpochSecond(ZoneOffset.UTC));
+            scratch.putInt(time.getNano());
+        }
+
+        private void ensureCapacity(int extra) {
+            if (scratch.remaining() < extra) {
+                ByteBuffer bigger = ByteBuffer.allocate(Math.max(scratch.capacity() * 2, scratch.position() + extra));
+                scratch.flip();
+                bigger.put(scratch);
+                scratch = bigger;
+            }
+        }
+    }
+
+    // --- Decoding ---
+
+    /**
+     * Odczytuje rekord z bieżącej pozycji segmentu.
+     *
+     * @return 1 dla poprawnego rekordu, 0 na końcu zapisanych danych,
+     * -1 dla rekordu uszkodzonego lub niepełnego
+     */
+    private static int readRecord(MappedByteBuffer segment, CRC32 crc, JournalRecordHandler handler) {
+        if (segment.remaining() < Integer.BYTES) {
+            return 0;
+        }
+        int length = segment.getInt();
+        if (length == 0) {
+            // a record reserved but never written leaves a gap; records written after it are torn history
+            return isZero(segment, segment.position()) ? 0 : -1;
+        }
+        if (length < 0 || length > segment.remaining() - Integer.BYTES) {
+            return -1;
+        }
+        ByteBuffer body = segment.slice();
+        body.limit(length);
+        crc.reset();
+        crc.update(body.duplicate());
+        segment.position(segment.position() + length);
+        if ((int) crc.getValue() != segment.getInt()) {
+            return -1;
+        }
+        byte type = body.get();
+        switch (type) {
+            case USER_REGISTERED -> handler.userRegistered(getString(body), getString(body));
+            // records written before stations had coordinates
+            case STATION_ADDED -> handler.stationAdded(getString(body), getString(body), body.getInt(),
+                    Double.NaN, Double.NaN);
+            case STATION_ADDED_AT -> handler.stationAdded(getString(body), getString(body), body.getInt(),
+                    body.getDouble(), body.getDouble());
+            case BIKE_ADDED -> handler.bikeAdded(getString(body), getString(body));
+            // records written while rental ids were UUID strings
+            case BIKE_RENTED -> handler.bikeRented(RentalIdGenerator.fromLegacyId(getString(body)), getString(body),
+                    getString(body), getString(body), getTime(body));
+            case BIKE_RENTED_ID64 -> handler.bikeRented(body.getLong(), getString(body), getString(body),
+                    getString(body), getTime(body));
+            // records written before fares were journaled
+            case BIKE_RETURNED -> handler.bikeReturned(getString(body), getString(body), getTime(body),
+                    Rental.UNPRICED);
+            case BIKE_RETURNED_FARE -> handler.bikeReturned(getString(body), getString(body), getTime(body),
+                    body.getLong());
+            case BIKES_TRANSFERRED -> handler.bikesTransferred(getString(body), getString(body), body.getInt());
+            default -> {
+                return -1;
+            }
+        }
+        return 1;
+    }
+
+    private static boolean isZero(MappedByteBuffer segment, int from) {
+        for (int p = from; p < segment.limit(); p++) {
+            if (segment.get(p) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String getString(ByteBuffer body) {
+        byte[] bytes = new byte[Short.toUnsignedInt(body.getShort())];
+        body.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static LocalDateTime getTime(ByteBuffer body) {
+        long seconds = body.getLong();
+        int nanos = body.getInt();
+        return LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+    }
+
+    // --- Segments ---
+
+    /**
+     * Segment mapowany w pamięć. Pozycja zapisu przesuwana jest operacją CAS
+     * o długość rezerwowanego rekordu, a po skopiowaniu rekordu jego długość
+     * dodawana jest do licznika zapisanych bajtów; segment jest kompletny,
+     * gdy oba liczniki są równe.
+     */
+    private static final class Segment {
+        final int number;
+        final MappedByteBuffer buffer;
+        final AtomicInteger reserved;
+        final AtomicInteger written;
+        // bytes written when the segment was last forced; guarded by flushLock
+        int forced;
+
+        Segment(int number, MappedByteBuffer buffer, int position) {
+            this.number = number;
+            this.buffer = buffer;
+            this.reserved = new AtomicInteger(position);
+            this.written = new AtomicInteger(position);
+            this.forced = position;
+        }
+
+        /**
+         * @return początek zarezerwowanego miejsca lub -1, jeśli rekord się nie mieści
+         */
+        int reserve(int size) {
+            while (true) {
+                int position = reserved.get();
+                if (position + size > buffer.capacity()) {
+                    return -1;
+                }
+                if (reserved.compareAndSet(position, position + size)) {
+                    return position;
+                }
+            }
+        }
+
+        void write(int offset, ByteBuffer framed) {
+            int size = framed.remaining();
+            buffer.put(offset + Integer.BYTES, framed, Integer.BYTES, size - Integer.BYTES);
+            // the length goes last, so a reader never mistakes a half-copied record for the end of data
+            buffer.putInt(offset, framed.getInt(0));
+            written.addAndGet(size);
+        }
+
+        boolean isComplete() {
+            return written.get() == reserved.get();
+        }
+
+        void force() {
+            int bytes = written.get();
+            if (bytes != forced) {
+                buffer.force();
+                forced = bytes;
+            }
+        }
+    }
+
+    private void roll(Segment full) {
+        synchronized (rollLock) {
+            if (segment != full) {
+                // another thread has already rolled past this segment
+                return;
+            }
+            Segment next;
+            try {
+                next = new Segment(full.number + 1, map(segmentPath(full.number + 1)), 0);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Nie można utworzyć segmentu dziennika.", e);
+            }
+            retired.add(full);
+            segment = next;
+        }
+    }
+
+    private boolean appendsComplete() {
+        for (Segment old : retired) {
+            if (!old.isComplete()) {
+                return false;
+            }
+        }
+        Segment current = segment;
+        return current == null || current.isComplete();
+    }
+
+    // Called under flushLock
+    private void forceAll() {
+        for (Iterator<Segment> it = retired.iterator(); it.hasNext(); ) {
+            Segment old = it.next();
+            // an append may still be copying into a retired segment
+            boolean complete = old.isComplete();
+            old.force();
+            if (complete) {
+                it.remove();
+            }
+        }
+        Segment current = segment;
+        if (current != null) {
+            current.force();
+        }
+    }
+
+    private MappedByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // mapping past the end preallocates the segment with zeros
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(segmentSize, channel.size()));
+        }
+    }
+
+    private List<Path> listSegments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(f -> f.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                 .filter(f -> f.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                 .sorted()
+                 .forEach(segments::add);
+        }
+        return segments;
+    }
+
+    private Path segmentPath(int number) {
+        return directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    private static int segmentNumber(Path file) {
+        String name = file.getFileName().toString();
+        return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
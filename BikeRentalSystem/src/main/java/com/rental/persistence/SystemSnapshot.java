@@ -0,0 +1,242 @@
+package com.rental.persistence;
+
+import com.rental.billing.FareEngine;
+import com.rental.billing.SubscriptionPlan;
+import com.rental.model.Bike;
+import com.rental.model.Rental;
+import com.rental.model.RentalIdGenerator;
+import com.rental.model.Station;
+import com.rental.model.User;
+import com.rental.service.BikeRentalSystem;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Zwarty, wersjonowany obraz binarny całego systemu: stacji, rowerów,
+ * użytkowników (wraz z planami abonamentowymi), aktywnych wypożyczeń
+ * i historii wraz z naliczonymi opłatami. Wypożyczenia z migawek sprzed
+ * wersji 4 pozostają niewycenione ({@link Rental#UNPRICED}).
+ *
+ * <p>Encje odwołują się do siebie przez numery porządkowe zamiast
+ * identyfikatorów tekstowych, a wczytywanie buduje obiekty modelu
+ * hurtowo i przekazuje je do {@link BikeRentalSystem#bulkLoad}, bez
+ * walidacji i komunikatów wykonywanych przez pojedyncze operacje.
+ * Plik odczytywany jest przez mapowanie w pamięć, a napisy dekodowane
+ * wprost z bufora jako UTF-8.
+ *
+ * <p>Zapis migawki nie blokuje systemu; aby obraz był spójny, w trakcie
+ * zapisu nie należy wykonywać operacji zmieniających stan.
+ */
+public final class SystemSnapshot {
+    private static final int MAGIC = 0x42525353; // "BRSS"
+    // version 2 added station coordinates, version 3 replaced UUID rental ids with 64-bit ids,
+    // version 4 added fares and subscription plans
+    private static final int VERSION = 4;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final SubscriptionPlan[] PLANS = SubscriptionPlan.values();
+
+    private SystemSnapshot() {
+    }
+
+    /**
+     * Zapisuje migawkę systemu do pliku. Plik jest podmieniany atomowo,
+     * więc przerwany zapis nie niszczy poprzedniej migawki.
+     */
+    public static void save(BikeRentalSystem system, Path file) throws IOException {
+        List<Station> stations = system.getAllStations();
+        List<Bike> bikes = system.getAllBikes();
+        List<User> users = system.getAllUsers();
+        FareEngine fares = system.getFareEngine();
+
+        Map<Station, Integer> stationIndex = new IdentityHashMap<>(stations.size() * 2);
+        Map<Bike, Integer> bikeIndex = new IdentityHashMap<>(bikes.size() * 2);
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temp), BUFFER_SIZE))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            out.writeInt(stations.size());
+            for (Station station : stations) {
+                stationIndex.put(station, stationIndex.size());
+                writeString(out, station.getStationId());
+                writeString(out, station.getLocationName());
+                out.writeInt(station.getCapacity());
+                out.writeDouble(station.getLatitude());
+                out.writeDouble(station.getLongitude());
+            }
+
+            out.writeInt(bikes.size());
+            for (Bike bike : bikes) {
+                bikeIndex.put(bike, bikeIndex.size());
+                writeString(out, bike.getBikeId());
+            }
+
+            // docks in FIFO order so that the next undock picks the same bike
+            for (Station station : stations) {
+                List<Bike> docked = station.getDockedBikes();
+                out.writeInt(docked.size());
+                for (Bike bike : docked) {
+                    out.writeInt(bikeIndex.get(bike));
+                }
+            }
+
+            out.writeInt(users.size());
+            for (User user : users) {
+                writeString(out, user.getUserId());
+                writeString(out, user.getName());
+                out.writeByte(fares.getPlan(user).ordinal());
+                List<Rental> history = user.getRentalHistory();
+                out.writeInt(history.size());
+                for (Rental rental : history) {
+                    writeRental(out, rental, stationIndex, bikeIndex);
+                    out.writeInt(stationIndex.get(rental.getEndStation()));
+                    writeTime(out, rental.getEndTime());
+                    out.writeLong(rental.getFareCents());
+                }
+                Rental current = user.getCurrentRental();
+                out.writeBoolean(current != null);
+                if (current != null) {
+                    writeRental(out, current, stationIndex, bikeIndex);
+                }
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Wczytuje migawkę i buduje z niej nowy system (bez dziennika).
+     *
+     * @throws IOException jeśli plik jest nieczytelny, uszkodzony lub
+     *                     zapisany w nieobsługiwanej wersji formatu
+     */
+    public static BikeRentalSystem load(Path file) throws IOException {
+        ByteBuffer in;
+        try (FileChannel channel = FileChannel.open(file)) {
+            in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            return read(in, file);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Migawka " + file + " jest uszkodzona.", e);
+        }
+    }
+
+    private static BikeRentalSystem read(ByteBuffer in, Path file) throws IOException {
+        if (in.getInt() != MAGIC) {
+            throw new IOException("Plik " + file + " nie jest migawką systemu.");
+        }
+        int version = in.getInt();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Nieobsługiwana wersja migawki: " + version);
+        }
+
+        Station[] stations = new Station[in.getInt()];
+        for (int i = 0; i < stations.length; i++) {
+            String stationId = readString(in);
+            String locationName = readString(in);
+            int capacity = in.getInt();
+            double latitude = version >= 2 ? in.getDouble() : Double.NaN;
+            double longitude = version >= 2 ? in.getDouble() : Double.NaN;
+            stations[i] = new Station(stationId, locationName, capacity, latitude, longitude);
+        }
+
+        Bike[] bikes = new Bike[in.getInt()];
+        for (int i = 0; i < bikes.length; i++) {
+            Bike bike = new Bike(readString(in));
+            // bikes that are not docked below are out on a rental
+            bike.setAvailable(false);
+            bikes[i] = bike;
+        }
+
+        for (Station station : stations) {
+            int docked = in.getInt();
+            for (int i = 0; i < docked; i++) {
+                station.dockBike(bikes[in.getInt()]);
+            }
+        }
+
+        BikeRentalSystem system = new BikeRentalSystem();
+        User[] users = new User[in.getInt()];
+        for (int i = 0; i < users.length; i++) {
+            User user = new User(readString(in), readString(in), system.getHistoryStore());
+            if (version >= 4) {
+                system.getFareEngine().setPlan(user, PLANS[in.get()]);
+            }
+            int history = in.getInt();
+            for (int h = 0; h < history; h++) {
+                Rental rental = readRental(in, version, user, stations, bikes);
+                rental.endRental(stations[in.getInt()], readTime(in));
+                if (version >= 4) {
+                    rental.setFareCents(in.getLong());
+                }
+                user.startRental(rental);
+                user.endRental();
+            }
+            if (in.get() != 0) {
+                user.startRental(readRental(in, version, user, stations, bikes));
+            }
+            users[i] = user;
+        }
+
+        system.bulkLoad(Arrays.asList(stations), Arrays.asList(bikes), Arrays.asList(users));
+        return system;
+    }
+
+    private static void writeRental(DataOutputStream out, Rental rental,
+            Map<Station, Integer> stationIndex, Map<Bike, Integer> bikeIndex) throws IOException {
+        out.writeLong(rental.getRentalId());
+        out.writeInt(bikeIndex.get(rental.getBike()));
+        out.writeInt(stationIndex.get(rental.getStartStation()));
+        writeTime(out, rental.getStartTime());
+    }
+
+    private static Rental readRental(ByteBuffer in, int version, User user, Station[] stations, Bike[] bikes) {
+        long rentalId = version >= 3 ? in.getLong() : RentalIdGenerator.fromLegacyId(readString(in));
+        Bike bike = bikes[in.getInt()];
+        Station startStation = stations[in.getInt()];
+        return new Rental(rentalId, user, bike, startStation, readTime(in));
+    }
+
+    private static void writeTime(DataOutputStream out, LocalDateTime time) throws IOException {
+        out.writeLong(time.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(time.getNano());
+    }
+
+    private static LocalDateTime readTime(ByteBuffer in) {
+        long seconds = in.getLong();
+        int nanos = in.getInt();
+        return LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IOException("Wartość jest zbyt długa, by zapisać ją w migawce.");
+        }
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[Short.toUnsignedInt(in.getShort())];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,79 @@
+package com.rental.rebalancing;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Wynik planowania: lista kursów przywracających docelowe zapełnienie
+ * stacji oraz podsumowanie planu.
+ */
+public final class RebalancingPlan {
+    private final List<Transfer> transfers;
+    private final int stationCount;
+    private final int bikesMoved;
+    private final double distanceKm;
+    private final int unmetSurplus;
+    private final int unmetDeficit;
+    private final long elapsedNanos;
+
+    RebalancingPlan(List<Transfer> transfers, int stationCount, int unmetSurplus, int unmetDeficit, long elapsedNanos) {
+        this.transfers = Collections.unmodifiableList(transfers);
+        this.stationCount = stationCount;
+        int moved = 0;
+        double distance = 0;
+        for (Transfer transfer : transfers) {
+            moved += transfer.getBikes();
+            distance += transfer.getDistanceKm();
+        }
+        this.bikesMoved = moved;
+        this.distanceKm = distance;
+        this.unmetSurplus = unmetSurplus;
+        this.unmetDeficit = unmetDeficit;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public List<Transfer> getTransfers() {
+        return transfers;
+    }
+
+    public int getStationCount() {
+        return stationCount;
+    }
+
+    public int getBikesMoved() {
+        return bikesMoved;
+    }
+
+    /**
+     * @return suma odległości wszystkich kursów
+     */
+    public double getDistanceKm() {
+        return distanceKm;
+    }
+
+    /**
+     * @return rowery ponad cel, dla których zabrakło stacji z niedoborem
+     */
+    public int getUnmetSurplus() {
+        return unmetSurplus;
+    }
+
+    /**
+     * @return brakujące do celu rowery, dla których zabrakło stacji z nadmiarem
+     */
+    public int getUnmetDeficit() {
+        return unmetDeficit;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Plan: %d stacji, %d kursów, %d rowerów, %.1f km; "
+                        + "niezagospodarowany nadmiar %d, niepokryty niedobór %d; czas %.1f ms",
+                stationCount, transfers.size(), bikesMoved, distanceKm, unmetSurplus, unmetDeficit,
+                elapsedNanos / 1_000_000.0);
+    }
+}
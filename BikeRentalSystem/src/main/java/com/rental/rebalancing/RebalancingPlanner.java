@@ -0,0 +1,311 @@
+package com.rental.rebalancing;
+
+import com.rental.exception.NoBikesAvailableException;
+import com.rental.exception.StationFullException;
+import com.rental.exception.StationNotFoundException;
+import com.rental.model.Station;
+import com.rental.service.BikeRentalSystem;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Planuje przewozy rowerów przywracające stacjom docelowe zapełnienie.
+ *
+ * <p>Planer odczytuje liczbę rowerów i pojemność każdej stacji, wylicza
+ * nadmiar lub niedobór względem celu ({@code targetFill} pojemności)
+ * i dopasowuje stacje z nadmiarem do najbliższych stacji z niedoborem.
+ * Stacje dzielone są rekurencyjnie na coraz mniejsze obszary (podział
+ * wzdłuż dłuższego boku, jak w drzewie k-d); obszary rozwiązywane są
+ * równolegle w {@link ForkJoinPool}, a nadmiary i niedobory, których
+ * nie dało się wyrównać wewnątrz obszaru, dopasowywane są dopiero
+ * przy łączeniu z sąsiednim obszarem. Rowery przewożone są więc
+ * przede wszystkim na krótkich dystansach. Każdy kurs przewozi
+ * najwyżej {@code truckCapacity} rowerów.
+ *
+ * <p>Dopasowanie jest zachłanne, więc plan nie jest optymalny, ale dla
+ * tysięcy stacji liczy się w ułamku sekundy. Stacje bez współrzędnych
+ * traktowane są jak leżące w jednym punkcie.
+ */
+public class RebalancingPlanner {
+    public static final double DEFAULT_TARGET_FILL = 0.5;
+    public static final int DEFAULT_TRUCK_CAPACITY = 20;
+    // areas at most this large are matched directly instead of being split further
+    static final int LEAF_SIZE = 256;
+    private static final double KM_PER_DEGREE = 111.195;
+
+    private final double targetFill;
+    private final int truckCapacity;
+    private final ForkJoinPool pool;
+
+    public RebalancingPlanner() {
+        this(DEFAULT_TARGET_FILL, DEFAULT_TRUCK_CAPACITY);
+    }
+
+    /**
+     * @param targetFill    docelowe zapełnienie stacji jako ułamek pojemności (0-1)
+     * @param truckCapacity największa liczba rowerów w jednym kursie
+     */
+    public RebalancingPlanner(double targetFill, int truckCapacity) {
+        this(targetFill, truckCapacity, ForkJoinPool.commonPool());
+    }
+
+    public RebalancingPlanner(double targetFill, int truckCapacity, ForkJoinPool pool) {
+        if (!(targetFill >= 0 && targetFill <= 1)) {
+            throw new IllegalArgumentException("Docelowe zapełnienie musi leżeć w przedziale 0-1: " + targetFill);
+        }
+        if (truckCapacity <= 0) {
+            throw new IllegalArgumentException("Pojemność samochodu musi być dodatnia: " + truckCapacity);
+        }
+        this.targetFill = targetFill;
+        this.truckCapacity = truckCapacity;
+        this.pool = pool;
+    }
+
+    /**
+     * Wylicza plan dla podanych stacji na podstawie ich bieżącego stanu.
+     */
+    public RebalancingPlan plan(List<Station> stations) {
+        long start = System.nanoTime();
+        Area area = new Area(stations, targetFill);
+        int[] order = new int[stations.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Result result = pool.invoke(new PlanTask(area, order, 0, order.length));
+
+        int unmetSurplus = 0;
+        int unmetDeficit = 0;
+        for (int i = 0; i < area.excess.length; i++) {
+            if (area.excess[i] > 0) {
+                unmetSurplus += area.excess[i];
+            } else {
+                unmetDeficit -= area.excess[i];
+            }
+        }
+        return new RebalancingPlan(result.transfers, stations.size(), unmetSurplus, unmetDeficit,
+                System.nanoTime() - start);
+    }
+
+    /**
+     * Wykonuje plan przez {@link BikeRentalSystem#transferBikes}. Stan
+     * stacji mógł się zmienić od planowania, więc każdy kurs jest
+     * przycinany do liczby rowerów i wolnych miejsc dostępnych w chwili
+     * wykonania, a kursy niemożliwe do wykonania są pomijane.
+     *
+     * @return liczba faktycznie przeniesionych rowerów
+     */
+    public static int apply(BikeRentalSystem system, RebalancingPlan plan) {
+        int moved = 0;
+        for (Transfer transfer : plan.getTransfers()) {
+            try {
+                Station from = system.findStation(transfer.getFromStationId());
+                Station to = system.findStation(transfer.getToStationId());
+                int count = Math.min(transfer.getBikes(),
+                        Math.min(from.getAvailableBikeCount(), to.getAvailableSpots()));
+                if (count > 0) {
+                    moved += system.transferBikes(from.getStationId(), to.getStationId(), count).size();
+                }
+            } catch (StationNotFoundException | NoBikesAvailableException | StationFullException e) {
+                // a rental or return got in between the check and the transfer; the next plan will catch up
+            }
+        }
+        return moved;
+    }
+
+    /**
+     * Stan stacji odczytany raz na początku planowania. Każde zadanie
+     * zmienia wyłącznie wpisy stacji ze swojego zakresu, a wyniki
+     * podzadań odczytuje dopiero po ich zakończeniu.
+     */
+    private static final class Area {
+        final String[] ids;
+        final double[] x;
+        final double[] y;
+        final int[] excess;
+
+        Area(List<Station> stations, double targetFill) {
+            int n = stations.size();
+            ids = new String[n];
+            x = new double[n];
+            y = new double[n];
+            excess = new int[n];
+            for (int i = 0; i < n; i++) {
+                Station station = stations.get(i);
+                ids[i] = station.getStationId();
+                if (station.hasLocation()) {
+                    // equirectangular projection: plenty accurate at city scale
+                    y[i] = station.getLatitude() * KM_PER_DEGREE;
+                    x[i] = station.getLongitude() * KM_PER_DEGREE * Math.cos(Math.toRadians(station.getLatitude()));
+                }
+                int target = (int) Math.round(targetFill * station.getCapacity());
+                excess[i] = station.getAvailableBikeCount() - target;
+            }
+        }
+
+        double distance(int a, int b) {
+            return Math.hypot(x[a] - x[b], y[a] - y[b]);
+        }
+    }
+
+    /**
+     * Kursy zaplanowane w obszarze oraz stacje, których nadmiaru lub
+     * niedoboru nie udało się w nim wyrównać.
+     */
+    private static final class Result {
+        final List<Transfer> transfers;
+        final int[] open;
+        final int openCount;
+
+        Result(List<Transfer> transfers, int[] open, int openCount) {
+            this.transfers = transfers;
+            this.open = open;
+            this.openCount = openCount;
+        }
+    }
+
+    private final class PlanTask extends RecursiveTask<Result> {
+        private static final long serialVersionUID = 1L;
+
+        private final Area area;
+        private final int[] order;
+        private final int from;
+        private final int to;
+
+        PlanTask(Area area, int[] order, int from, int to) {
+            this.area = area;
+            this.order = order;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Result compute() {
+            if (to - from <= LEAF_SIZE) {
+                int[] open = new int[to - from];
+                int count = 0;
+                for (int i = from; i < to; i++) {
+                    if (area.excess[order[i]] != 0) {
+                        open[count++] = order[i];
+                    }
+                }
+                return match(open, count, new ArrayList<>());
+            }
+            int mid = (from + to) >>> 1;
+            splitAt(mid);
+            PlanTask left = new PlanTask(area, order, from, mid);
+            PlanTask right = new PlanTask(area, order, mid, to);
+            left.fork();
+            Result rightResult = right.compute();
+            Result leftResult = left.join();
+
+            List<Transfer> transfers = leftResult.transfers;
+            transfers.addAll(rightResult.transfers);
+            int[] open = new int[leftResult.openCount + rightResult.openCount];
+            System.arraycopy(leftResult.open, 0, open, 0, leftResult.openCount);
+            System.arraycopy(rightResult.open, 0, open, leftResult.openCount, rightResult.openCount);
+            return match(open, open.length, transfers);
+        }
+
+        /**
+         * Dopasowuje zachłannie każdą stację z nadmiarem do najbliższych
+         * stacji z niedoborem; zwraca stacje, które pozostały niewyrównane.
+         */
+        private Result match(int[] open, int count, List<Transfer> transfers) {
+            int[] surplus = new int[count];
+            int[] deficit = new int[count];
+            int surplusCount = 0;
+            int deficitCount = 0;
+            for (int i = 0; i < count; i++) {
+                if (area.excess[open[i]] > 0) {
+                    surplus[surplusCount++] = open[i];
+                } else {
+                    deficit[deficitCount++] = open[i];
+                }
+            }
+
+            for (int s = 0; s < surplusCount && deficitCount > 0; s++) {
+                int source = surplus[s];
+                while (area.excess[source] > 0 && deficitCount > 0) {
+                    int best = 0;
+                    double bestDistance = area.distance(source, deficit[0]);
+                    for (int d = 1; d < deficitCount; d++) {
+                        double distance = area.distance(source, deficit[d]);
+                        if (distance < bestDistance) {
+                            best = d;
+                            bestDistance = distance;
+                        }
+                    }
+                    int target = deficit[best];
+                    int bikes = Math.min(area.excess[source], -area.excess[target]);
+                    area.excess[source] -= bikes;
+                    area.excess[target] += bikes;
+                    for (int left = bikes; left > 0; left -= truckCapacity) {
+                        transfers.add(new Transfer(area.ids[source], area.ids[target],
+                                Math.min(left, truckCapacity), bestDistance));
+                    }
+                    if (area.excess[target] == 0) {
+                        deficit[best] = deficit[--deficitCount];
+                    }
+                }
+            }
+
+            int[] remaining = new int[count];
+            int remainingCount = 0;
+            for (int i = 0; i < count; i++) {
+                if (area.excess[open[i]] != 0) {
+                    remaining[remainingCount++] = open[i];
+                }
+            }
+            return new Result(transfers, remaining, remainingCount);
+        }
+
+        // Partitions order[from, to) around mid along the wider axis of the area (quickselect)
+        private void splitAt(int mid) {
+            double minX = Double.MAX_VALUE;
+            double maxX = -Double.MAX_VALUE;
+            double minY = Double.MAX_VALUE;
+            double maxY = -Double.MAX_VALUE;
+            for (int i = from; i < to; i++) {
+                int station = order[i];
+                minX = Math.min(minX, area.x[station]);
+                maxX = Math.max(maxX, area.x[station]);
+                minY = Math.min(minY, area.y[station]);
+                maxY = Math.max(maxY, area.y[station]);
+            }
+            double[] key = maxX - minX >= maxY - minY ? area.x : area.y;
+
+            int low = from;
+            int high = to - 1;
+            while (low < high) {
+                double pivot = key[order[(low + high) >>> 1]];
+                int i = low;
+                int j = high;
+                while (i <= j) {
+                    while (key[order[i]] < pivot) {
+                        i++;
+                    }
+                    while (key[order[j]] > pivot) {
+                        j--;
+                    }
+                    if (i <= j) {
+                        int swap = order[i];
+                        order[i] = order[j];
+                        order[j] = swap;
+                        i++;
+                        j--;
+                    }
+                }
+                if (mid <= j) {
+                    high = j;
+                } else if (mid >= i) {
+                    low = i;
+                } else {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.rental.rebalancing;
+
+/**
+ * Pojedynczy kurs samochodu serwisowego: przewiezienie rowerów
+ * z jednej stacji na drugą.
+ */
+public final class Transfer {
+    private final String fromStationId;
+    private final String toStationId;
+    private final int bikes;
+    private final double distanceKm;
+
+    public Transfer(String fromStationId, String toStationId, int bikes, double distanceKm) {
+        this.fromStationId = fromStationId;
+        this.toStationId = toStationId;
+        this.bikes = bikes;
+        this.distanceKm = distanceKm;
+    }
+
+    public String getFromStationId() {
+        return fromStationId;
+    }
+
+    public String getToStationId() {
+        return toStationId;
+    }
+
+    public int getBikes() {
+        return bikes;
+    }
+
+    /**
+     * @return odległość między stacjami w linii prostej (0, jeśli
+     * któraś ze stacji nie ma współrzędnych)
+     */
+    public double getDistanceKm() {
+        return distanceKm;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s -> %s: %d rower(ów), %.2f km", fromStationId, toStationId, bikes, distanceKm);
+    }
+}
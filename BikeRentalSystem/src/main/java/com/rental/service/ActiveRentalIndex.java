@@ -0,0 +1,63 @@
+package com.rental.service;
+
+import com.rental.util.LongIntHashMap;
+
+/**
+ * Indeks aktywnych wypożyczeń: identyfikator wypożyczenia -> uchwyt roweru.
+ * Podzielony na pasy z osobnymi blokadami, aby równoległe wypożyczenia
+ * i zwroty rzadko na siebie czekały.
+ */
+final class ActiveRentalIndex {
+    private static final int STRIPES = 16;
+
+    private final LongIntHashMap[] stripes = new LongIntHashMap[STRIPES];
+
+    ActiveRentalIndex() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new LongIntHashMap(64, -1);
+        }
+    }
+
+    void put(long rentalId, int bikeHandle) {
+        LongIntHashMap stripe = stripeFor(rentalId);
+        synchronized (stripe) {
+            stripe.put(rentalId, bikeHandle);
+        }
+    }
+
+    void remove(long rentalId) {
+        LongIntHashMap stripe = stripeFor(rentalId);
+        synchronized (stripe) {
+            stripe.remove(rentalId);
+        }
+    }
+
+    /**
+     * @return uchwyt roweru lub {@code -1}
+     */
+    int bikeHandle(long rentalId) {
+        LongIntHashMap stripe = stripeFor(rentalId);
+        synchronized (stripe) {
+            return stripe.get(rentalId);
+        }
+    }
+
+    /**
+     * @return liczba aktywnych wypożyczeń (pasy liczone po kolei, więc
+     * przy równoległych zmianach wynik jest przybliżony)
+     */
+    int size() {
+        int size = 0;
+        for (LongIntHashMap stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    private LongIntHashMap stripeFor(long rentalId) {
+        long hash = rentalId * 0x9E3779B97F4A7C15L;
+        return stripes[(int) (hash >>> 60)];
+    }
+}
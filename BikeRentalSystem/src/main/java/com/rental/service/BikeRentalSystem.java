@@ -1,34 +1,271 @@
 package com.rental.service;
 
+import com.rental.analytics.UsageAnalytics;
+import com.rental.billing.FareEngine;
+import com.rental.billing.Tariff;
+import com.rental.event.EventLog;
+import com.rental.event.EventType;
 import com.rental.exception.*;
+import com.rental.feed.StationFeed;
+import com.rental.feed.StationSubscription;
+import com.rental.feed.StationUpdateListener;
+import com.rental.geo.StationSpatialIndex;
+import com.rental.metrics.Metrics;
+import com.rental.metrics.Operation;
+import com.rental.metrics.PrometheusWriter;
 import com.rental.model.Bike;
+import com.rental.model.HistoryPage;
+import com.rental.model.HistoryQuery;
 import com.rental.model.Rental;
+import com.rental.model.RentalHistoryStore;
+import com.rental.model.RentalIdGenerator;
+import com.rental.model.Reservation;
 import com.rental.model.Station;
+import com.rental.model.StationListener;
+import com.rental.model.TimeOrderedRentalIdGenerator;
 import com.rental.model.User;
+import com.rental.persistence.JournalRecordHandler;
+import com.rental.persistence.RentalJournal;
+import com.rental.util.TimingWheel;
 
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.logging.Logger;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
 
 /**
  * Reprezentuje system wypożyczalni rowerów,
  * zarządza użytkownikami, stacjami, rowerami
  * oraz procesami wypożyczeń i zwrotów.
+ *
+ * <p>Klasa jest bezpieczna wątkowo. Operacje dotyczące różnych stacji
+ * i użytkowników wykonują się równolegle; operacje na tej samej stacji
+ * lub tym samym użytkowniku są serializowane na monitorze danego obiektu.
+ * Blokady zawsze zakładane są w kolejności: użytkownik, potem stacja;
+ * dwie stacje blokowane są w kolejności rosnących uchwytów.
+ *
+ * <p>System może być powiązany z dziennikiem {@link RentalJournal}; każda
+ * zmiana stanu zapisywana jest wtedy pod tą samą blokadą co sama zmiana,
+ * dzięki czemu kolejność rekordów w dzienniku odpowiada kolejności zmian.
+ * Rekord zapisywany jest przed zmianą, więc nieudany zapis pozostawia
+ * system bez zmian.
+ *
+ * <p>Identyfikatory użytkowników, stacji i rowerów zamieniane są przy
+ * rejestracji na zwarte uchwyty liczbowe ({@link User#getHandle()} itd.).
+ * Metody przyjmujące uchwyty odnajdują obiekty indeksem w tablicy, bez
+ * haszowania napisów; metody przyjmujące identyfikatory są nakładką na nie.
+ * Identyfikatory stacji nie rozróżniają wielkości liter.
+ *
+ * <p>Wykonane operacje publikowane są jako zdarzenia do {@link EventLog}
+ * (domyślnie wyłączonego); system sam niczego nie wypisuje na konsolę.
+ * Czasy wykonania i odmowy operacji zbierane są w {@link Metrics}
+ * (domyślnie wyłączonych), a {@link #exportMetrics()} zwraca je wraz
+ * ze stanem stacji i wypożyczeń w formacie tekstowym Prometheusa.
+ *
+ * <p>Wypożyczenie i zwrot mogą nieść klucz idempotencji podany przez
+ * klienta; ponowienie żądania tego samego użytkownika z tym samym kluczem
+ * otrzymuje wynik zapamiętany w {@link IdempotencyCache}, zamiast wykonać
+ * operację drugi raz.
+ *
+ * <p>Użytkownik może zarezerwować rower na stacji na czas
+ * {@link #getReservationHold()}; rezerwacje nie są zapisywane w dzienniku.
+ * Terminy rezerwacji odmierza hierarchiczne koło czasowe, a wygasłe
+ * rezerwacje zwalnia {@link #expireReservations()}, wywoływane
+ * cyklicznie przez {@link MaintenanceScheduler}.
+ *
+ * <p>Wypożyczenie trwające dłużej niż {@link #getMaxRentalDuration()}
+ * jest po terminie. Aktywne wypożyczenia indeksowane są według czasu
+ * rozpoczęcia, więc wypożyczenia po terminie
+ * ({@link #findOverdueRentals(Duration)}) odczytuje się bez przeglądania
+ * pozostałych, a {@link #reportOverdueRentals()} publikuje dla każdego
+ * z nich jedno zdarzenie {@link EventType#RENTAL_OVERDUE}.
  */
-public class BikeRentalSystem {
-    private Logger logger = Logger.getLogger(BikeRentalSystem.class.getName());
+public class BikeRentalSystem implements AutoCloseable {
+    public static final Duration DEFAULT_RESERVATION_HOLD = Duration.ofMinutes(10);
+    public static final Duration DEFAULT_MAX_RENTAL_DURATION = Duration.ofHours(12);
+    private static final long RESERVATION_TICK_MILLIS = 1000;
 
-    {
-        //Disable logger
-        logger.setLevel(java.util.logging.Level.OFF);
+    private final IdRegistry<User> users = new IdRegistry<>(UnaryOperator.identity(), User::getHandle, User::setHandle);
+    private final IdRegistry<Station> stations = new IdRegistry<>(Station::normalizeId, Station::getHandle, Station::setHandle);
+    private final IdRegistry<Bike> bikes = new IdRegistry<>(UnaryOperator.identity(), Bike::getHandle, Bike::setHandle);
+    // bike handle -> active rental, kept in sync by rentBike/returnBike
+    private final HandleTable<Rental> activeRentals = new HandleTable<>();
+    private final ActiveRentalIndex activeRentalIds = new ActiveRentalIndex();
+    private final OverdueIndex overdueRentals = new OverdueIndex();
+    // user handle -> pending expiry of the user's reservation, changed under the user lock
+    private final HandleTable<TimingWheel.Timeout<Reservation>> reservations = new HandleTable<>();
+    // guarded by its own monitor, which is taken last and never held while waiting for another lock
+    private final TimingWheel<Reservation> reservationExpiry = new TimingWheel<>(RESERVATION_TICK_MILLIS);
+    private final AtomicLong reservationIds = new AtomicLong();
+    private final RentalJournal journal; // null when running without persistence
+    private final RentalHistoryStore historyStore = new RentalHistoryStore();
+    private final StationSpatialIndex spatialIndex = new StationSpatialIndex();
+    private final StationListener occupancyListener = new OccupancyDispatcher();
+    private final StationStatusBoard stationStatus = new StationStatusBoard();
+    private volatile StationFeed stationFeed; // started by the first subscription
+    private boolean closed; // guarded by this; no new station feed once set
+    private volatile EventLog events = EventLog.disabled();
+    private volatile RentalIdGenerator rentalIds = new TimeOrderedRentalIdGenerator();
+    private volatile Clock clock = Clock.systemDefaultZone();
+    private volatile Metrics metrics = Metrics.disabled();
+    private volatile UsageAnalytics analytics = UsageAnalytics.disabled();
+    private volatile FareEngine fares = new FareEngine(Tariff.standard());
+    private volatile IdempotencyCache idempotency = IdempotencyCache.create();
+    private volatile Duration reservationHold = DEFAULT_RESERVATION_HOLD;
+    private volatile Duration maxRentalDuration = DEFAULT_MAX_RENTAL_DURATION;
+
+    public BikeRentalSystem() {
+        this.journal = null;
+    }
+
+    /**
+     * Tworzy system trwale zapisujący zmiany w dzienniku. Stan zapisany
+     * wcześniej w dzienniku jest odtwarzany przed zwróceniem obiektu.
+     *
+     * @param journal otwarty dziennik, jeszcze nieodtworzony
+     * @throws IOException jeśli odczyt dziennika się nie powiódł
+     */
+    public BikeRentalSystem(RentalJournal journal) throws IOException {
+        journal.replay(new JournalReplayer());
+        this.journal = journal;
+    }
+
+    /**
+     * Ustawia dziennik, do którego publikowane są zdarzenia operacyjne.
+     * Zamknięcie dziennika należy do wywołującego.
+     */
+    public void setEventLog(EventLog eventLog) {
+        this.events = eventLog;
+    }
+
+    public EventLog getEventLog() {
+        return events;
+    }
+
+    /**
+     * Ustawia zegar, z którego odczytywane są czasy rozpoczęcia i zakończenia
+     * wypożyczeń (domyślnie zegar systemowy w domyślnej strefie czasowej).
+     * Pozwala np. symulacji przesuwać czas szybciej niż w rzeczywistości.
+     */
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    public Clock getClock() {
+        return clock;
+    }
+
+    /**
+     * Ustawia metryki, w których zapisywane są czasy i odmowy operacji
+     * (domyślnie {@link Metrics#disabled()}).
+     */
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Ustawia statystyki wykorzystania stacji, do których dopisywane są
+     * zakończone wypożyczenia (domyślnie {@link UsageAnalytics#disabled()}).
+     * Wypożyczenia zakończone wcześniej można uwzględnić, przekazując
+     * statystyki przeliczone z historii przez {@link UsageAnalytics#recompute}.
+     */
+    public void setUsageAnalytics(UsageAnalytics analytics) {
+        this.analytics = analytics;
     }
 
-    ;
-    private Map<String, User> users = new HashMap<>();
-    private Map<String, Station> stations = new HashMap<>();
-    private Map<String, Bike> bikes = new HashMap<>();
+    public UsageAnalytics getUsageAnalytics() {
+        return analytics;
+    }
+
+    /**
+     * Ustawia silnik, który wycenia wypożyczenia w chwili zwrotu (domyślnie
+     * z taryfą {@link Tariff#standard()}). Opłaty naliczone wcześniej
+     * nie są zmieniane.
+     */
+    public void setFareEngine(FareEngine fares) {
+        this.fares = fares;
+    }
+
+    public FareEngine getFareEngine() {
+        return fares;
+    }
+
+    /**
+     * Ustawia pamięć wyników operacji wykonanych z kluczem idempotencji
+     * (domyślnie {@link IdempotencyCache#create()}).
+     */
+    public void setIdempotencyCache(IdempotencyCache idempotency) {
+        this.idempotency = idempotency;
+    }
+
+    public IdempotencyCache getIdempotencyCache() {
+        return idempotency;
+    }
+
+    /**
+     * Ustawia czas, na jaki rezerwowany jest rower (domyślnie
+     * {@link #DEFAULT_RESERVATION_HOLD}); dotyczy nowych rezerwacji.
+     */
+    public void setReservationHold(Duration hold) {
+        if (hold.isNegative() || hold.isZero()) {
+            throw new IllegalArgumentException("Czas rezerwacji musi być dodatni: " + hold);
+        }
+        this.reservationHold = hold;
+    }
+
+    public Duration getReservationHold() {
+        return reservationHold;
+    }
+
+    /**
+     * Ustawia najdłuższy dozwolony czas wypożyczenia (domyślnie
+     * {@link #DEFAULT_MAX_RENTAL_DURATION}); zmiana dotyczy także
+     * trwających wypożyczeń.
+     */
+    public void setMaxRentalDuration(Duration duration) {
+        if (duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException("Czas wypożyczenia musi być dodatni: " + duration);
+        }
+        this.maxRentalDuration = duration;
+    }
+
+    public Duration getMaxRentalDuration() {
+        return maxRentalDuration;
+    }
+
+    /**
+     * Ustawia generator identyfikatorów nowych wypożyczeń
+     * (domyślnie {@link TimeOrderedRentalIdGenerator}). Generator poznaje
+     * identyfikatory wypożyczeń już zapisanych w systemie, więc ich nie powtórzy.
+     */
+    public void setRentalIdGenerator(RentalIdGenerator generator) {
+        for (User user : users.values()) {
+            advancePast(generator, user);
+        }
+        this.rentalIds = generator;
+    }
+
+    private static void advancePast(RentalIdGenerator generator, User user) {
+        user.forEachTrip((rentalId, startStation, endStation, startEpochSecond, durationSeconds, fareCents) ->
+                generator.advancePast(rentalId));
+        Rental current = user.getCurrentRental();
+        if (current != null) {
+            generator.advancePast(current.getRentalId());
+        }
+    }
 
     // --- User Management ---
 
@@ -41,12 +278,20 @@ public class BikeRentalSystem {
      * @throws IllegalArgumentException jeśli użytkownik o podanym ID już istnieje
      */
     public User registerUser(String userId, String name) {
-        if (users.containsKey(userId)) {
+        Metrics metrics = this.metrics;
+        long start = metrics.start();
+        User newUser = new User(userId, name, historyStore);
+        // the record goes first, so a failed append registers nothing
+        if (!users.register(userId, newUser, () -> {
+            if (journal != null) {
+                journal.logUserRegistered(userId, name);
+            }
+        })) {
+            metrics.recordFailure(Operation.REGISTER_USER, start, RentalFailure.DUPLICATE_ID);
             throw new IllegalArgumentException("Użytkownik o ID " + userId + " już istnieje.");
         }
-        User newUser = new User(userId, name);
-        users.put(userId, newUser);
-        System.out.println("Zarejestrowano użytkownika: " + newUser);
+        events.publish(EventType.USER_REGISTERED, userId, name, null, 0);
+        metrics.record(Operation.REGISTER_USER, start);
         return newUser;
     }
 
@@ -58,13 +303,36 @@ public class BikeRentalSystem {
      * @throws UserNotFoundException jeśli nie znaleziono użytkownika
      */
     public User findUser(String userId) throws UserNotFoundException {
+        Metrics metrics = this.metrics;
+        long start = metrics.start();
         User user = users.get(userId);
         if (user == null) {
+            metrics.recordFailure(Operation.FIND_USER, start, RentalFailure.USER_NOT_FOUND);
             throw new UserNotFoundException("Nie znaleziono użytkownika o ID: " + userId);
         }
+        metrics.record(Operation.FIND_USER, start);
         return user;
     }
 
+    public List<User> getAllUsers() {
+        return new ArrayList<>(users.values());
+    }
+
+    /**
+     * @return uchwyt użytkownika lub {@code -1}, jeśli użytkownik nie istnieje
+     */
+    public int userHandle(String userId) {
+        User user = users.get(userId);
+        return user == null ? -1 : user.getHandle();
+    }
+
+    /**
+     * @return użytkownik o podanym uchwycie lub {@code null}
+     */
+    public User getUser(int userHandle) {
+        return users.get(userHandle);
+    }
+
     // --- Station Management ---
 
     /**
@@ -77,20 +345,48 @@ public class BikeRentalSystem {
      * @throws IllegalArgumentException jeśli stacja o podanym ID już istnieje
      */
     public Station addStation(String stationId, String locationName, int capacity) {
-        if (stations.containsKey(stationId)) {
-            throw new IllegalArgumentException("Stacja o ID " + stationId + " już istnieje.");
+        return addStation(stationId, locationName, capacity, Double.NaN, Double.NaN);
+    }
+
+    /**
+     * Dodaje nową stację o znanym położeniu; stacja trafia do indeksu
+     * przestrzennego używanego przy wyszukiwaniu najbliższych stacji.
+     *
+     * @param latitude  szerokość geograficzna w stopniach
+     * @param longitude długość geograficzna w stopniach
+     * @see #addStation(String, String, int)
+     */
+    public Station addStation(String stationId, String locationName, int capacity,
+            double latitude, double longitude) {
+        Metrics metrics = this.metrics;
+        long start = metrics.start();
+        Station newStation = new Station(stationId, locationName, capacity, latitude, longitude);
+        synchronized (newStation) {
+            // the record goes first, so a failed append registers nothing
+            if (!stations.register(stationId, newStation, () -> {
+                if (journal != null) {
+                    journal.logStationAdded(newStation.getStationId(), locationName, capacity, latitude, longitude);
+                }
+            })) {
+                metrics.recordFailure(Operation.ADD_STATION, start, RentalFailure.DUPLICATE_ID);
+                throw new IllegalArgumentException("Stacja o ID " + newStation.getStationId() + " już istnieje.");
+            }
+            attachStation(newStation);
         }
-        Station newStation = new Station(stationId, locationName, capacity);
-        stations.put(stationId, newStation);
-        System.out.println("Dodano stację: " + newStation);
+        events.publish(EventType.STATION_ADDED, newStation.getStationId(), locationName, null, capacity);
+        metrics.record(Operation.ADD_STATION, start);
         return newStation;
     }
 
     public Station findStation(String stationId) throws StationNotFoundException {
+        Metrics metrics = this.metrics;
+        long start = metrics.start();
         Station station = stations.get(stationId);
         if (station == null) {
+            metrics.recordFailure(Operation.FIND_STATION, start, RentalFailure.STATION_NOT_FOUND);
             throw new StationNotFoundException("Nie znaleziono stacji o ID: " + stationId);
         }
+        metrics.record(Operation.FIND_STATION, start);
         return station;
     }
 
@@ -98,6 +394,138 @@ public class BikeRentalSystem {
         return new ArrayList<>(stations.values());
     }
 
+    /**
+     * Zwraca najnowszą migawkę stanu stacji. Migawka jest niezmienna
+     * i publikowana w całości po każdej zmianie obsadzenia, więc odczyt
+     * to jedno odczytanie odwołania, bez blokowania stacji i bez
+     * kopiowania, a wszystkie liczby migawki pochodzą z jednej chwili.
+     */
+    public StationStatusSnapshot getStationStatus() {
+        return stationStatus.current();
+    }
+
+    /**
+     * Subskrybuje zmiany liczby rowerów i wolnych miejsc na wszystkich
+     * stacjach. Aktualizacje dostarczane są w tle, poza wątkiem operacji;
+     * zmiany, których subskrybent nie zdążył odebrać, łączone są tak, że
+     * otrzymuje on najnowszy stan każdej stacji. Subskrypcję kończy
+     * {@link StationSubscription#close()}.
+     *
+     * @throws IllegalStateException jeśli system został zamknięty ({@link #close()})
+     */
+    public StationSubscription subscribeToStations(StationUpdateListener listener) {
+        return stationFeed().subscribe(listener);
+    }
+
+    /**
+     * Subskrybuje zmiany podanych stacji.
+     *
+     * @throws StationNotFoundException jeśli któraś ze stacji nie istnieje
+     * @see #subscribeToStations(StationUpdateListener)
+     */
+    public StationSubscription subscribeToStations(StationUpdateListener listener, Collection<String> stationIds)
+            throws StationNotFoundException {
+        if (stationIds.isEmpty()) {
+            throw new IllegalArgumentException("Lista subskrybowanych stacji jest pusta.");
+        }
+        int[] handles = new int[stationIds.size()];
+        int i = 0;
+        for (String stationId : stationIds) {
+            Station station = stations.get(stationId);
+            if (station == null) {
+                throw new StationNotFoundException("Nie znaleziono stacji o ID: " + stationId);
+            }
+            handles[i++] = station.getHandle();
+        }
+        return stationFeed().subscribe(listener, handles);
+    }
+
+    private StationFeed stationFeed() {
+        StationFeed feed = stationFeed;
+        return feed != null ? feed : startStationFeed();
+    }
+
+    private synchronized StationFeed startStationFeed() {
+        if (closed) {
+            throw new IllegalStateException("System został zamknięty.");
+        }
+        if (stationFeed == null) {
+            stationFeed = new StationFeed(stationStatus::current);
+        }
+        return stationFeed;
+    }
+
+    /**
+     * Zatrzymuje wątki pracujące w tle dla systemu: kończy subskrypcje
+     * zmian stacji i zamyka ich rozsyłanie. Dziennik, dziennik zdarzeń
+     * i harmonogram zadań należą do wywołującego i nie są zamykane.
+     * Nowe subskrypcje są potem odrzucane; pozostałe operacje działają dalej.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        StationFeed feed = stationFeed;
+        if (feed != null) {
+            stationFeed = null;
+            feed.close();
+        }
+    }
+
+    /**
+     * @return uchwyt stacji lub {@code -1}, jeśli stacja nie istnieje
+     */
+    public int stationHandle(String stationId) {
+        Station station = stations.get(stationId);
+        return station == null ? -1 : station.getHandle();
+    }
+
+    /**
+     * @return stacja o podanym uchwycie lub {@code null}
+     */
+    public Station getStation(int stationHandle) {
+        return stations.get(stationHandle);
+    }
+
+    /**
+     * Wyszukuje {@code k} stacji najbliższych podanemu punktowi, na których
+     * stoi co najmniej {@code minBikes} rowerów. Pomija stacje bez współrzędnych.
+     *
+     * @return stacje uporządkowane od najbliższej (mniej niż {@code k},
+     * jeśli w systemie brak wystarczającej liczby pasujących stacji)
+     */
+    public List<Station> findNearestStationsWithBikes(double latitude, double longitude, int k, int minBikes) {
+        Metrics metrics = this.metrics;
+        long start = metrics.start();
+        List<Station> nearest = spatialIndex.findNearestWithBikes(latitude, longitude, k, minBikes);
+        metrics.record(Operation.FIND_NEAREST_STATIONS, start);
+        return nearest;
+    }
+
+    /**
+     * Wyszukuje stację najbliższą podanemu punktowi, która ma wolne miejsce.
+     */
+    public Optional<Station> findNearestStationWithFreeDock(double latitude, double longitude) {
+        Metrics metrics = this.metrics;
+        long start = metrics.start();
+        Optional<Station> nearest = spatialIndex.findNearestWithFreeDock(latitude, longitude);
+        metrics.record(Operation.FIND_NEAREST_STATIONS, start);
+        return nearest;
+    }
+
+    // Hooks a station into occupancy tracking; its lock keeps the index counts in step
+    private void attachStation(Station station) {
+        synchronized (station) {
+            spatialIndex.add(station);
+            stationStatus.publish(station, station.getDockedBikeCount(), station.getAvailableBikeCount(),
+                    station.getAvailableSpots());
+            station.setListener(occupancyListener);
+            StationFeed feed = stationFeed;
+            if (feed != null) {
+                feed.stationChanged(station.getHandle());
+            }
+        }
+    }
+
     // --- Bike Management ---
 
     /**
@@ -111,32 +539,157 @@ public class BikeRentalSystem {
      * @throws IllegalArgumentException jeśli rower o podanym ID już istnieje
      */
     public Bike addBike(String bikeId, String initialStationId) throws StationNotFoundException, StationFullException {
-        if (bikes.containsKey(bikeId)) {
+        Metrics metrics = this.metrics;
+        long start = metrics.start();
+        if (bikes.contains(bikeId)) {
+            metrics.recordFailure(Operation.ADD_BIKE, start, RentalFailure.DUPLICATE_ID);
             throw new IllegalArgumentException("Rower o ID " + bikeId + " już istnieje.");
         }
-        Station station = findStation(initialStationId);
-        if (station.isFull()) {
-            throw new StationFullException("Nie można dodać roweru, stacja " + initialStationId + " jest pełna.");
+        Station station = stations.get(initialStationId);
+        if (station == null) {
+            metrics.recordFailure(Operation.ADD_BIKE, start, RentalFailure.STATION_NOT_FOUND);
+            throw new StationNotFoundException("Nie znaleziono stacji o ID: " + initialStationId);
         }
 
         Bike newBike = new Bike(bikeId);
-        bikes.put(bikeId, newBike);
-        station.dockBike(newBike); // dockBike ustawi też currentStation w rowerze
-        System.out.println("Dodano rower: " + newBike + " do stacji " + station.getStationId());
+        synchronized (station) {
+            if (station.isFull()) {
+                metrics.recordFailure(Operation.ADD_BIKE, start, RentalFailure.STATION_FULL);
+                throw new StationFullException("Nie można dodać roweru, stacja " + initialStationId + " jest pełna.");
+            }
+            // the record goes first, so a failed append registers nothing
+            if (!bikes.register(bikeId, newBike, () -> {
+                if (journal != null) {
+                    journal.logBikeAdded(bikeId, station.getStationId());
+                }
+            })) {
+                metrics.recordFailure(Operation.ADD_BIKE, start, RentalFailure.DUPLICATE_ID);
+                throw new IllegalArgumentException("Rower o ID " + bikeId + " już istnieje.");
+            }
+            station.dockBike(newBike); // dockBike ustawi też currentStation w rowerze
+        }
+        events.publish(EventType.BIKE_ADDED, bikeId, station.getStationId(), null, 0);
+        metrics.record(Operation.ADD_BIKE, start);
         return newBike;
     }
 
     public Bike findBike(String bikeId) throws BikeNotFoundException {
+        Metrics metrics = this.metrics;
+        long start = metrics.start();
         Bike bike = bikes.get(bikeId);
         if (bike == null) {
+            metrics.recordFailure(Operation.FIND_BIKE, start, RentalFailure.BIKE_NOT_FOUND);
             throw new BikeNotFoundException("Nie znaleziono roweru o ID: " + bikeId);
         }
+        metrics.record(Operation.FIND_BIKE, start);
         return bike;
     }
 
+    public List<Bike> getAllBikes() {
+        return new ArrayList<>(bikes.values());
+    }
+
+    /**
+     * @return uchwyt roweru lub {@code -1}, jeśli rower nie istnieje
+     */
+    public int bikeHandle(String bikeId) {
+        Bike bike = bikes.get(bikeId);
+        return bike == null ? -1 : bike.getHandle();
+    }
+
+    /**
+     * @return rower o podanym uchwycie lub {@code null}
+     */
+    public Bike getBike(int bikeHandle) {
+        return bikes.get(bikeHandle);
+    }
+
+    /**
+     * Zwraca rowery, które można wypożyczyć na stacji bez rezerwacji -
+     * rowery odłożone dla rezerwacji są pominięte. Lista jest kopią
+     * wykonaną pod blokadą stacji, więc nie zmienia się przy późniejszych
+     * wypożyczeniach i zwrotach.
+     *
+     * @throws StationNotFoundException jeśli stacja nie istnieje
+     * @see Station#getAvailableBikes()
+     */
     public List<Bike> getAvailableBikesAtStation(String stationId) throws StationNotFoundException {
-        Station station = findStation(stationId);
-        return station.getDockedBikes(); // Zwraca kopię listy rowerów na stacji
+        Metrics metrics = this.metrics;
+        long start = metrics.start();
+        Station station = stations.get(stationId);
+        if (station == null) {
+            metrics.recordFailure(Operation.GET_AVAILABLE_BIKES, start, RentalFailure.STATION_NOT_FOUND);
+            throw new StationNotFoundException("Nie znaleziono stacji o ID: " + stationId);
+        }
+        List<Bike> available = station.getAvailableBikes();
+        metrics.record(Operation.GET_AVAILABLE_BIKES, start);
+        return available;
+    }
+
+    /**
+     * Przenosi atomowo rowery z jednej stacji na drugą (np. przy
+     * równoważeniu floty), bez cyklu wypożyczenie-zwrot. Przenoszone są
+     * rowery z czoła kolejki stacji źródłowej. Obie stacje są blokowane
+     * na czas całej operacji, więc nikt nie zobaczy stanu pośredniego,
+     * a operacja wykonuje się w całości albo wcale.
+     *
+     * @param fromStationId stacja, z której zabierane są rowery
+     * @param toStationId   stacja, na którą trafiają rowery
+     * @param count         liczba przenoszonych rowerów
+     * @return przeniesione rowery
+     * @throws StationNotFoundException  jeśli nie istnieje któraś ze stacji
+     * @throws NoBikesAvailableException jeśli na stacji źródłowej stoi mniej niż {@code count} rowerów
+     * @throws StationFullException      jeśli na stacji docelowej jest mniej niż {@code count} wolnych miejsc
+     * @throws IllegalArgumentException  jeśli {@code count} nie jest dodatnie lub obie stacje są tą samą stacją
+     */
+    public List<Bike> transferBikes(String fromStationId, String toStationId,
+            int count) throws StationNotFoundException, NoBikesAvailableException, StationFullException {
+        Metrics metrics = this.metrics;
+        long start = metrics.start();
+        Station from = stations.get(fromStationId);
+        Station to = stations.get(toStationId);
+        if (from == null || to == null) {
+            metrics.recordFailure(Operation.TRANSFER_BIKES, start, RentalFailure.STATION_NOT_FOUND);
+            throw new StationNotFoundException("Nie znaleziono stacji o ID: " + (from == null ? fromStationId : toStationId));
+        }
+        if (count <= 0) {
+            metrics.recordFailure(Operation.TRANSFER_BIKES, start, RentalFailure.INVALID_ARGUMENT);
+            throw new IllegalArgumentException("Liczba przenoszonych rowerów musi być dodatnia: " + count);
+        }
+        if (from == to) {
+            metrics.recordFailure(Operation.TRANSFER_BIKES, start, RentalFailure.INVALID_ARGUMENT);
+            throw new IllegalArgumentException("Stacja źródłowa i docelowa muszą być różne.");
+        }
+
+        List<Bike> moved = new ArrayList<>(count);
+        Station first = from.getHandle() < to.getHandle() ? from : to;
+        Station second = first == from ? to : from;
+        synchronized (first) {
+            synchronized (second) {
+                if (from.getAvailableBikeCount() < count) {
+                    metrics.recordFailure(Operation.TRANSFER_BIKES, start, RentalFailure.NO_BIKES_AVAILABLE);
+                    throw new NoBikesAvailableException("Na stacji " + from.getStationId() + " stoi mniej niż "
+                            + count + " rowerów.");
+                }
+                if (to.getAvailableSpots() < count) {
+                    metrics.recordFailure(Operation.TRANSFER_BIKES, start, RentalFailure.STATION_FULL);
+                    throw new StationFullException("Na stacji " + to.getStationId() + " jest mniej niż "
+                            + count + " wolnych miejsc.");
+                }
+                // the record goes first, so a failed append moves nothing
+                if (journal != null) {
+                    journal.logBikesTransferred(from.getStationId(), to.getStationId(), count);
+                }
+                for (int i = 0; i < count; i++) {
+                    Bike bike = from.undockBike().orElseThrow();
+                    to.dockBike(bike);
+                    moved.add(bike);
+                }
+            }
+        }
+        events.publish(EventType.BIKES_TRANSFERRED, from.getStationId(), to.getStationId(), null, count);
+        metrics.record(Operation.TRANSFER_BIKES, start);
+        return moved;
     }
 
     // --- Rental Management ---
@@ -151,32 +704,353 @@ public class BikeRentalSystem {
      * @throws StationNotFoundException    jeśli nie znaleziono stacji
      * @throws UserAlreadyRentingException jeśli użytkownik już ma aktywne wypożyczenie
      * @throws NoBikesAvailableException   jeśli na stacji brak dostępnych rowerów
+     * @see #tryRentBike(String, String)
      */
     public Rental rentBike(String userId,
             String stationId) throws UserNotFoundException, StationNotFoundException, NoBikesAvailableException, UserAlreadyRentingException {
-        User user = findUser(userId);
-        Station station = findStation(stationId);
+        return rentBike(userId, stationId, null);
+    }
 
-        if (user.isRenting()) {
-            throw new UserAlreadyRentingException("Użytkownik " + userId + " już wypożycza rower.");
+    /**
+     * Wypożycza rower z kluczem idempotencji: ponowienie żądania z tym
+     * samym kluczem, np. po przekroczeniu czasu odpowiedzi, zwraca to samo
+     * wypożyczenie zamiast zgłaszać {@link UserAlreadyRentingException}.
+     *
+     * @param idempotencyKey klucz podany przez klienta lub {@code null} - bez idempotencji
+     * @throws IllegalArgumentException jeśli klucz użyto już dla innego żądania
+     * @see #tryRentBike(String, String, String)
+     */
+    public Rental rentBike(String userId, String stationId,
+            String idempotencyKey) throws UserNotFoundException, StationNotFoundException, NoBikesAvailableException, UserAlreadyRentingException {
+        RentalOutcome outcome = tryRentBike(userId, stationId, idempotencyKey);
+        if (outcome.isSuccess()) {
+            return outcome.getRental();
+        }
+        switch (outcome.getFailure()) {
+            case USER_NOT_FOUND -> throw new UserNotFoundException("Nie znaleziono użytkownika o ID: " + userId);
+            case STATION_NOT_FOUND -> throw new StationNotFoundException("Nie znaleziono stacji o ID: " + stationId);
+            case USER_ALREADY_RENTING -> throw new UserAlreadyRentingException("Użytkownik " + userId + " już wypożycza rower.");
+            case NO_BIKES_AVAILABLE -> throw new NoBikesAvailableException("Brak dostępnych rowerów na stacji " + stationId);
+            case IDEMPOTENCY_KEY_REUSED -> throw keyReused(idempotencyKey);
+            default -> throw new IllegalStateException("Nieoczekiwany wynik wypożyczenia: " + outcome.getFailure());
+        }
+    }
+
+    /**
+     * Wypożycza rower użytkownikowi ze wskazanej stacji, zgłaszając
+     * niepowodzenie kodem zamiast wyjątku. Przeznaczona dla ścieżek,
+     * na których odmowy są częste i koszt budowy wyjątku jest istotny.
+     * Jeśli użytkownik ma rezerwację na tej stacji, wypożycza
+     * zarezerwowany rower; rezerwacja na innej stacji jest anulowana.
+     *
+     * @param userId    identyfikator użytkownika
+     * @param stationId identyfikator stacji, z której pobierany jest rower
+     * @return wynik z wypożyczeniem albo z kodem {@link RentalFailure#USER_NOT_FOUND},
+     * {@link RentalFailure#STATION_NOT_FOUND}, {@link RentalFailure#USER_ALREADY_RENTING}
+     * lub {@link RentalFailure#NO_BIKES_AVAILABLE}
+     */
+    public RentalOutcome tryRentBike(String userId, String stationId) {
+        return rent(users.get(userId), stations.get(stationId));
+    }
+
+    /**
+     * Wypożycza rower z kluczem idempotencji. Udane wypożyczenie jest
+     * zapamiętywane w {@link IdempotencyCache} pod kluczem użytkownika,
+     * a jego żądanie z tym samym kluczem i tą samą stacją otrzymuje je
+     * ponownie, bez wykonywania operacji.
+     *
+     * @param idempotencyKey klucz podany przez klienta lub {@code null} - bez idempotencji
+     * @return wynik jak z {@link #tryRentBike(String, String)} albo kod
+     * {@link RentalFailure#IDEMPOTENCY_KEY_REUSED}
+     */
+    public RentalOutcome tryRentBike(String userId, String stationId, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return tryRentBike(userId, stationId);
+        }
+        User user = users.get(userId);
+        Station station = stations.get(stationId);
+        if (user == null || station == null) {
+            // a refusal is not remembered anyway
+            return rent(user, station);
+        }
+        // resolved handles, so differently spelled ids of one station make the same request
+        return idempotency.execute(user.getUserId(), idempotencyKey, "rent\0" + station.getHandle(),
+                () -> rent(user, station));
+    }
+
+    /**
+     * Wypożycza rower, wskazując użytkownika i stację uchwytami.
+     *
+     * @param userHandle    uchwyt użytkownika ({@link #userHandle(String)})
+     * @param stationHandle uchwyt stacji ({@link #stationHandle(String)})
+     * @see #tryRentBike(String, String)
+     */
+    public RentalOutcome tryRentBike(int userHandle, int stationHandle) {
+        return rent(users.get(userHandle), stations.get(stationHandle));
+    }
+
+    private RentalOutcome rent(User user, Station station, boolean reservedOnly) {
+        Metrics metrics = this.metrics;
+        long start = metrics.start();
+        RentalOutcome outcome = rentUnmeasured(user, station, reservedOnly);
+        metrics.record(Operation.RENT_BIKE, start, outcome);
+        return outcome;
+    }
+
+    private RentalOutcome rent(User user, Station station) {
+        return rent(user, station, false);
+    }
+
+    private RentalOutcome rentUnmeasured(User user, Station station, boolean reservedOnly) {
+        if (user == null) {
+            return RentalOutcome.failure(RentalFailure.USER_NOT_FOUND);
         }
-        if (station.isEmpty()) {
-            throw new NoBikesAvailableException("Brak dostępnych rowerów na stacji " + stationId);
+        if (station == null) {
+            return RentalOutcome.failure(RentalFailure.STATION_NOT_FOUND);
         }
 
-        // Take bike from station
-        // Optional for safety
-        Bike bikeToRent = station.undockBike()
-                                 .orElseThrow(() -> new NoBikesAvailableException(
-                                         "Wystąpił nieoczekiwany błąd - brak rowerów mimo wcześniejszego sprawdzenia."));
+        Bike bikeToRent;
+        Rental newRental;
+        Reservation reservation;
+        boolean usesReservation;
+        synchronized (user) {
+            if (user.isRenting()) {
+                return RentalOutcome.failure(RentalFailure.USER_ALREADY_RENTING);
+            }
+            TimingWheel.Timeout<Reservation> held = reservations.get(user.getHandle());
+            reservation = held == null ? null : held.getValue();
+            LocalDateTime now = LocalDateTime.now(clock);
+            // the expiry sweep may lag behind the clock, so the deadline is checked here as well
+            usesReservation = reservation != null && reservation.getStation() == station && !reservation.isExpiredAt(now);
+            if (reservedOnly && !usesReservation) {
+                if (reservation != null && reservation.isExpiredAt(now)) {
+                    endReservation(reservation, held, EventType.RESERVATION_EXPIRED);
+                }
+                return RentalOutcome.failure(RentalFailure.NO_RESERVATION);
+            }
 
-        Rental newRental = new Rental(user, bikeToRent, station);
+            synchronized (station) {
+                // a held bike is always docked; any other needs a bike free of reservations
+                if (!usesReservation && station.isEmpty()) {
+                    return RentalOutcome.failure(RentalFailure.NO_BIKES_AVAILABLE);
+                }
+                // both undock paths take the oldest bike, so the record can name it before it leaves
+                bikeToRent = station.getNextBike();
+                newRental = new Rental(rentalIds.nextId(), user, bikeToRent, station, now);
+                // the record goes first, so a failed append leaves the bike on its dock
+                if (journal != null) {
+                    journal.logBikeRented(newRental.getRentalId(), user.getUserId(), bikeToRent.getBikeId(),
+                            station.getStationId(), newRental.getStartTime());
+                }
+                if (usesReservation) {
+                    station.undockReservedBike();
+                } else {
+                    station.undockBike();
+                }
+            }
 
-        // new state
-        user.startRental(newRental);
-        logger.info("Użytkownik " + userId + " wypożyczył rower "
-                + bikeToRent.getBikeId() + " ze stacji " + stationId);
-        return newRental;
+            // new state
+            user.startRental(newRental);
+            activeRentals.set(bikeToRent.getHandle(), newRental);
+            activeRentalIds.put(newRental.getRentalId(), bikeToRent.getHandle());
+            overdueRentals.add(bikeToRent.getHandle(), newRental, epochMillis(now));
+            if (usesReservation) {
+                cancelExpiry(user, held);
+            } else if (reservation != null) {
+                // a rider who took a bike elsewhere no longer needs the held one
+                endReservation(reservation, held,
+                        reservation.isExpiredAt(now) ? EventType.RESERVATION_EXPIRED : EventType.RESERVATION_CANCELLED);
+            }
+        }
+        events.publish(EventType.BIKE_RENTED, user.getUserId(), bikeToRent.getBikeId(), station.getStationId(), 0);
+        return RentalOutcome.success(newRental);
+    }
+
+    // --- Reservations ---
+
+    /**
+     * Rezerwuje dla użytkownika jeden z rowerów dostępnych na stacji na
+     * czas {@link #getReservationHold()}. Zarezerwowany rower nie jest
+     * liczony jako dostępny; wypożycza go tylko rezerwujący - przez
+     * {@link #rentReservedBike(String)} lub zwykłe wypożyczenie na tej
+     * stacji. Wypożyczenie na innej stacji anuluje rezerwację.
+     *
+     * @return utworzona rezerwacja
+     * @throws UserNotFoundException         jeśli nie znaleziono użytkownika
+     * @throws StationNotFoundException      jeśli nie znaleziono stacji
+     * @throws UserAlreadyRentingException   jeśli użytkownik ma aktywne wypożyczenie
+     * @throws UserAlreadyReservingException jeśli użytkownik ma już rezerwację
+     * @throws NoBikesAvailableException     jeśli na stacji brak dostępnych rowerów
+     */
+    public Reservation reserveBike(String userId, String stationId) throws UserNotFoundException,
+            StationNotFoundException, UserAlreadyRentingException, UserAlreadyReservingException, NoBikesAvailableException {
+        Metrics metrics = this.metrics;
+        long start = metrics.start();
+        User user = users.get(userId);
+        if (user == null) {
+            metrics.recordFailure(Operation.RESERVE_BIKE, start, RentalFailure.USER_NOT_FOUND);
+            throw new UserNotFoundException("Nie znaleziono użytkownika o ID: " + userId);
+        }
+        Station station = stations.get(stationId);
+        if (station == null) {
+            metrics.recordFailure(Operation.RESERVE_BIKE, start, RentalFailure.STATION_NOT_FOUND);
+            throw new StationNotFoundException("Nie znaleziono stacji o ID: " + stationId);
+        }
+
+        Duration hold = reservationHold;
+        Reservation reservation;
+        synchronized (user) {
+            if (user.isRenting()) {
+                metrics.recordFailure(Operation.RESERVE_BIKE, start, RentalFailure.USER_ALREADY_RENTING);
+                throw new UserAlreadyRentingException("Użytkownik " + userId + " już wypożycza rower.");
+            }
+            Instant now = clock.instant();
+            LocalDateTime createdAt = LocalDateTime.ofInstant(now, clock.getZone());
+            TimingWheel.Timeout<Reservation> held = reservations.get(user.getHandle());
+            if (held != null) {
+                if (!held.getValue().isExpiredAt(createdAt)) {
+                    metrics.recordFailure(Operation.RESERVE_BIKE, start, RentalFailure.ALREADY_RESERVED);
+                    throw new UserAlreadyReservingException("Użytkownik " + userId + " ma już rezerwację.");
+                }
+                endReservation(held.getValue(), held, EventType.RESERVATION_EXPIRED);
+            }
+            synchronized (station) {
+                if (!station.reserveBike()) {
+                    metrics.recordFailure(Operation.RESERVE_BIKE, start, RentalFailure.NO_BIKES_AVAILABLE);
+                    throw new NoBikesAvailableException("Brak dostępnych rowerów na stacji " + stationId);
+                }
+            }
+            reservation = new Reservation(reservationIds.incrementAndGet(), user, station, createdAt, createdAt.plus(hold));
+            synchronized (reservationExpiry) {
+                held = reservationExpiry.schedule(reservation, now.plus(hold).toEpochMilli(), now.toEpochMilli());
+            }
+            reservations.set(user.getHandle(), held);
+        }
+        events.publish(EventType.BIKE_RESERVED, userId, station.getStationId(), null, hold.getSeconds());
+        metrics.record(Operation.RESERVE_BIKE, start);
+        return reservation;
+    }
+
+    /**
+     * Wypożycza użytkownikowi rower zarezerwowany dla niego na stacji
+     * rezerwacji.
+     *
+     * @return utworzone wypożyczenie
+     * @throws UserNotFoundException  jeśli nie znaleziono użytkownika
+     * @throws NoReservationException jeśli użytkownik nie ma rezerwacji
+     *                                albo rezerwacja już wygasła
+     */
+    public Rental rentReservedBike(String userId) throws UserNotFoundException, NoReservationException {
+        Metrics metrics = this.metrics;
+        long start = metrics.start();
+        User user = users.get(userId);
+        if (user == null) {
+            metrics.recordFailure(Operation.RENT_BIKE, start, RentalFailure.USER_NOT_FOUND);
+            throw new UserNotFoundException("Nie znaleziono użytkownika o ID: " + userId);
+        }
+        TimingWheel.Timeout<Reservation> held = reservations.get(user.getHandle());
+        if (held == null) {
+            metrics.recordFailure(Operation.RENT_BIKE, start, RentalFailure.NO_RESERVATION);
+            throw new NoReservationException("Użytkownik " + userId + " nie ma aktywnej rezerwacji.");
+        }
+        // measured by rent(), like every other rental
+        RentalOutcome outcome = rent(user, held.getValue().getStation(), true);
+        if (outcome.isSuccess()) {
+            return outcome.getRental();
+        }
+        switch (outcome.getFailure()) {
+            case NO_RESERVATION -> throw new NoReservationException("Rezerwacja użytkownika " + userId + " wygasła lub została anulowana.");
+            default -> throw new IllegalStateException("Nieoczekiwany wynik wypożyczenia: " + outcome.getFailure());
+        }
+    }
+
+    /**
+     * Anuluje rezerwację użytkownika; zarezerwowany rower znów jest dostępny.
+     *
+     * @throws UserNotFoundException  jeśli nie znaleziono użytkownika
+     * @throws NoReservationException jeśli użytkownik nie ma rezerwacji
+     */
+    public void cancelReservation(String userId) throws UserNotFoundException, NoReservationException {
+        Metrics metrics = this.metrics;
+        long start = metrics.start();
+        User user = users.get(userId);
+        if (user == null) {
+            metrics.recordFailure(Operation.CANCEL_RESERVATION, start, RentalFailure.USER_NOT_FOUND);
+            throw new UserNotFoundException("Nie znaleziono użytkownika o ID: " + userId);
+        }
+        synchronized (user) {
+            TimingWheel.Timeout<Reservation> held = reservations.get(user.getHandle());
+            if (held == null) {
+                metrics.recordFailure(Operation.CANCEL_RESERVATION, start, RentalFailure.NO_RESERVATION);
+                throw new NoReservationException("Użytkownik " + userId + " nie ma aktywnej rezerwacji.");
+            }
+            endReservation(held.getValue(), held, EventType.RESERVATION_CANCELLED);
+        }
+        metrics.record(Operation.CANCEL_RESERVATION, start);
+    }
+
+    /**
+     * @return bieżąca rezerwacja użytkownika, jeśli ją ma
+     */
+    public Optional<Reservation> findReservation(String userId) {
+        User user = users.get(userId);
+        TimingWheel.Timeout<Reservation> held = user == null ? null : reservations.get(user.getHandle());
+        return held == null ? Optional.empty() : Optional.of(held.getValue());
+    }
+
+    /**
+     * Zwalnia rowery rezerwacji, których termin minął według zegara
+     * systemu. Koszt nie zależy od liczby trwających rezerwacji - koło
+     * czasowe zwraca tylko te, które właśnie wygasły.
+     *
+     * @return liczba wygaszonych rezerwacji
+     */
+    public int expireReservations() {
+        List<Reservation> due = new ArrayList<>();
+        synchronized (reservationExpiry) {
+            reservationExpiry.advance(clock.millis(), due::add);
+        }
+        int expired = 0;
+        for (Reservation reservation : due) {
+            User user = reservation.getUser();
+            synchronized (user) {
+                TimingWheel.Timeout<Reservation> held = reservations.get(user.getHandle());
+                // the rider may have picked the bike up after the wheel released the entry
+                if (held == null || held.getValue() != reservation) {
+                    continue;
+                }
+                endReservation(reservation, held, EventType.RESERVATION_EXPIRED);
+            }
+            expired++;
+        }
+        return expired;
+    }
+
+    /**
+     * @return liczba trwających rezerwacji
+     */
+    public int getReservationCount() {
+        synchronized (reservationExpiry) {
+            return reservationExpiry.size();
+        }
+    }
+
+    // Drops a reservation and gives its bike back to the station; the caller holds the user lock
+    private void endReservation(Reservation reservation, TimingWheel.Timeout<Reservation> held, EventType type) {
+        User user = reservation.getUser();
+        Station station = reservation.getStation();
+        synchronized (station) {
+            station.releaseReservation();
+        }
+        cancelExpiry(user, held);
+        events.publish(type, user.getUserId(), station.getStationId(), null, 0);
+    }
+
+    private void cancelExpiry(User user, TimingWheel.Timeout<Reservation> held) {
+        reservations.set(user.getHandle(), null);
+        synchronized (reservationExpiry) {
+            reservationExpiry.cancel(held);
+        }
     }
 
     /**
@@ -189,59 +1063,646 @@ public class BikeRentalSystem {
      * @throws StationNotFoundException jeśli nie znaleziono stacji
      * @throws StationFullException     jeśli stacja jest pełna
      * @throws NotRentingException      jeśli rower nie był wypożyczony
+     * @see #tryReturnBike(String, String)
      */
     public Rental returnBike(String bikeId,
             String stationId) throws BikeNotFoundException, StationNotFoundException, StationFullException, NotRentingException {
+        RentalOutcome outcome = tryReturnBike(bikeId, stationId);
+        if (outcome.isSuccess()) {
+            return outcome.getRental();
+        }
+        switch (outcome.getFailure()) {
+            case BIKE_NOT_FOUND -> throw new BikeNotFoundException("Nie znaleziono roweru o ID: " + bikeId);
+            case NOT_RENTING -> throw new NotRentingException("Rower " + bikeId + " nie jest aktualnie wypożyczony.");
+            case STATION_NOT_FOUND -> throw new StationNotFoundException("Nie znaleziono stacji o ID: " + stationId);
+            case STATION_FULL -> throw new StationFullException("Stacja " + stationId + " jest pełna. Nie można zwrócić roweru.");
+            default -> throw new IllegalStateException("Nieoczekiwany wynik zwrotu: " + outcome.getFailure());
+        }
+    }
+
+    /**
+     * Zwraca rower wypożyczony przez wskazanego użytkownika, z kluczem
+     * idempotencji: ponowienie żądania z tym samym kluczem zwraca to samo
+     * zakończone wypożyczenie zamiast zgłaszać {@link NotRentingException}.
+     *
+     * @param userId         identyfikator użytkownika zwracającego rower
+     * @param idempotencyKey klucz podany przez klienta lub {@code null} - bez idempotencji
+     * @throws UserNotFoundException    jeśli nie znaleziono użytkownika
+     * @throws NotRentingException      jeśli użytkownik nie wypożycza tego roweru
+     * @throws IllegalArgumentException jeśli klucz użyto już dla innego żądania
+     * @see #tryReturnBike(String, String, String, String)
+     */
+    public Rental returnBike(String userId, String bikeId, String stationId, String idempotencyKey)
+            throws UserNotFoundException, BikeNotFoundException, StationNotFoundException, StationFullException, NotRentingException {
+        RentalOutcome outcome = tryReturnBike(userId, bikeId, stationId, idempotencyKey);
+        if (outcome.isSuccess()) {
+            return outcome.getRental();
+        }
+        switch (outcome.getFailure()) {
+            case USER_NOT_FOUND -> throw new UserNotFoundException("Nie znaleziono użytkownika o ID: " + userId);
+            case BIKE_NOT_FOUND -> throw new BikeNotFoundException("Nie znaleziono roweru o ID: " + bikeId);
+            case NOT_RENTING -> throw new NotRentingException("Użytkownik " + userId + " nie wypożycza roweru " + bikeId + ".");
+            case STATION_NOT_FOUND -> throw new StationNotFoundException("Nie znaleziono stacji o ID: " + stationId);
+            case STATION_FULL -> throw new StationFullException("Stacja " + stationId + " jest pełna. Nie można zwrócić roweru.");
+            case IDEMPOTENCY_KEY_REUSED -> throw keyReused(idempotencyKey);
+            default -> throw new IllegalStateException("Nieoczekiwany wynik zwrotu: " + outcome.getFailure());
+        }
+    }
+
+    /**
+     * Zwraca rower na wskazaną stację, zgłaszając niepowodzenie kodem
+     * zamiast wyjątku.
+     *
+     * @param bikeId    identyfikator zwracanego roweru
+     * @param stationId identyfikator stacji, na którą zwracany jest rower
+     * @return wynik z zakończonym wypożyczeniem albo z kodem
+     * {@link RentalFailure#BIKE_NOT_FOUND}, {@link RentalFailure#NOT_RENTING},
+     * {@link RentalFailure#STATION_NOT_FOUND} lub {@link RentalFailure#STATION_FULL}
+     */
+    public RentalOutcome tryReturnBike(String bikeId, String stationId) {
+        return returnTo(bikes.get(bikeId), stations.get(stationId));
+    }
+
+    /**
+     * Zwraca rower wypożyczony przez wskazanego użytkownika, z kluczem
+     * idempotencji. Klucz należy do tego użytkownika: udany zwrot jest
+     * zapamiętywany w {@link IdempotencyCache}, a jego żądanie z tym samym
+     * kluczem, rowerem i stacją otrzymuje go ponownie, bez wykonywania operacji.
+     *
+     * @param userId         identyfikator użytkownika zwracającego rower
+     * @param idempotencyKey klucz podany przez klienta lub {@code null} - bez idempotencji
+     * @return wynik jak z {@link #tryReturnBike(String, String)}, kod
+     * {@link RentalFailure#USER_NOT_FOUND}, {@link RentalFailure#NOT_RENTING}
+     * także dla roweru wypożyczonego przez kogoś innego, albo
+     * {@link RentalFailure#IDEMPOTENCY_KEY_REUSED}
+     */
+    public RentalOutcome tryReturnBike(String userId, String bikeId, String stationId, String idempotencyKey) {
+        User user = users.get(userId);
+        if (user == null) {
+            Metrics metrics = this.metrics;
+            long start = metrics.start();
+            metrics.recordFailure(Operation.RETURN_BIKE, start, RentalFailure.USER_NOT_FOUND);
+            return RentalOutcome.failure(RentalFailure.USER_NOT_FOUND);
+        }
+        Bike bike = bikes.get(bikeId);
+        Station station = stations.get(stationId);
+        if (idempotencyKey == null || bike == null || station == null) {
+            return returnTo(bike, station, user);
+        }
+        return idempotency.execute(user.getUserId(), idempotencyKey,
+                "return\0" + bike.getHandle() + "\0" + station.getHandle(), () -> returnTo(bike, station, user));
+    }
+
+    private static IllegalArgumentException keyReused(String idempotencyKey) {
+        return new IllegalArgumentException("Klucz idempotencji " + idempotencyKey + " został już użyty dla innego żądania.");
+    }
+
+    /**
+     * Zwraca rower, wskazując rower i stację uchwytami.
+     *
+     * @param bikeHandle    uchwyt roweru ({@link #bikeHandle(String)})
+     * @param stationHandle uchwyt stacji ({@link #stationHandle(String)})
+     * @see #tryReturnBike(String, String)
+     */
+    public RentalOutcome tryReturnBike(int bikeHandle, int stationHandle) {
+        return returnTo(bikes.get(bikeHandle), stations.get(stationHandle));
+    }
 
-        Bike bike = findBike(bikeId); // check if exists
+    private RentalOutcome returnTo(Bike bike, Station endStation) {
+        return returnTo(bike, endStation, null);
+    }
+
+    /**
+     * @param renter użytkownik, który musi wypożyczać rower, lub {@code null} - dowolny
+     */
+    private RentalOutcome returnTo(Bike bike, Station endStation, User renter) {
+        Metrics metrics = this.metrics;
+        long start = metrics.start();
+        RentalOutcome outcome = returnToUnmeasured(bike, endStation, renter);
+        metrics.record(Operation.RETURN_BIKE, start, outcome);
+        return outcome;
+    }
+
+    private RentalOutcome returnToUnmeasured(Bike bike, Station endStation, User renter) {
+        if (bike == null) {
+            return RentalOutcome.failure(RentalFailure.BIKE_NOT_FOUND);
+        }
 
         // checks if really rented
         if (bike.isAvailable() || bike.getCurrentStation() != null) {
-            throw new NotRentingException("Rower " + bikeId + " nie jest aktualnie wypożyczony.");
+            return RentalOutcome.failure(RentalFailure.NOT_RENTING);
         }
 
-        User rentingUser = findUserRentingBike(bikeId);
+        Rental rentalToEnd = activeRentals.get(bike.getHandle());
+        if (rentalToEnd == null) {
+            return RentalOutcome.failure(RentalFailure.NOT_RENTING);
+        }
+        User rentingUser = rentalToEnd.getUser();
+        if (renter != null && rentingUser != renter) {
+            // rented by someone else; the rental is confirmed as current under the user lock below
+            return RentalOutcome.failure(RentalFailure.NOT_RENTING);
+        }
 
         // Ending station
-        Station endStation = findStation(stationId);
+        if (endStation == null) {
+            return RentalOutcome.failure(RentalFailure.STATION_NOT_FOUND);
+        }
 
-        if (endStation.isFull()) {
-            throw new StationFullException("Stacja " + stationId + " jest pełna. Nie można zwrócić roweru.");
+        synchronized (rentingUser) {
+            // a concurrent return of the same bike may have won the race
+            if (rentingUser.getCurrentRental() != rentalToEnd) {
+                return RentalOutcome.failure(RentalFailure.NOT_RENTING);
+            }
+            if (!rentalToEnd.getBike().equals(bike)) {
+                throw new IllegalStateException("Niespójność danych - użytkownik nie wypożycza tego roweru.");
+            }
+
+            synchronized (endStation) {
+                if (endStation.isFull()) {
+                    return RentalOutcome.failure(RentalFailure.STATION_FULL);
+                }
+                LocalDateTime endTime = LocalDateTime.now(clock);
+                // priced before journaling, so that replay restores the fare actually charged
+                long fareCents = fares.price(rentalToEnd, endStation, endTime);
+                // the record goes first, so a failed append leaves the rental open
+                if (journal != null) {
+                    journal.logBikeReturned(bike.getBikeId(), endStation.getStationId(), endTime, fareCents);
+                }
+                // before docking: once docked, the bike may start a new rental at any moment
+                overdueRentals.remove(bike.getHandle(), rentalToEnd);
+                // Zakończ wypożyczenie w obiekcie Rental
+                rentalToEnd.endRental(endStation, endTime);
+                rentalToEnd.setFareCents(fareCents);
+
+                // update bike state (dock in new station)
+                endStation.dockBike(bike);
+            }
+
+            // update userstate (end rental)
+            rentingUser.endRental();
+            // the bike is back on a dock, so someone may have rented it again already
+            activeRentals.compareAndSet(bike.getHandle(), rentalToEnd, null);
+            activeRentalIds.remove(rentalToEnd.getRentalId());
         }
 
-        // Zakończ wypożyczenie w obiekcie Rental
-        Rental rentalToEnd = rentingUser.getCurrentRental();
-        if (rentalToEnd == null || !rentalToEnd.getBike().equals(bike)) {
-            throw new IllegalStateException("Niespójność danych - użytkownik nie wypożycza tego roweru.");
+        analytics.record(rentalToEnd);
+        EventLog events = this.events;
+        if (events.isEnabled()) { // the duration is computed only for a live log
+            events.publish(EventType.BIKE_RETURNED, rentingUser.getUserId(), bike.getBikeId(), endStation.getStationId(),
+                    rentalToEnd.getDuration().getSeconds());
         }
-        rentalToEnd.endRental(endStation);
 
-        // update bike state (dock in new station)
-        endStation.dockBike(bike);
+        return RentalOutcome.success(rentalToEnd);
+    }
 
-        // update userstate (end rental)
-        rentingUser.endRental();
+    /**
+     * Wyszukuje aktywne wypożyczenie danego roweru w stałym czasie,
+     * niezależnie od liczby zarejestrowanych użytkowników.
+     *
+     * @param bikeId identyfikator roweru
+     * @return aktywne wypożyczenie roweru
+     * @throws NotRentingException jeśli rower nie jest aktualnie wypożyczony
+     */
+    public Rental findActiveRental(String bikeId) throws NotRentingException {
+        Metrics metrics = this.metrics;
+        long start = metrics.start();
+        Bike bike = bikes.get(bikeId);
+        Rental rental = bike == null ? null : activeRentals.get(bike.getHandle());
+        if (rental == null) {
+            metrics.recordFailure(Operation.FIND_ACTIVE_RENTAL, start, RentalFailure.NOT_RENTING);
+            throw new NotRentingException("Nie znaleziono użytkownika aktualnie wypożyczającego rower o ID: " + bikeId);
+        }
+        metrics.record(Operation.FIND_ACTIVE_RENTAL, start);
+        return rental;
+    }
 
-        logger.info(
-                "Rower " + bikeId + " zwrócony na stację " + stationId + " przez użytkownika " + rentingUser.getUserId());
-        System.out.println("Czas wypożyczenia: " + rentalToEnd.getDuration().toMinutes() + " minut.");
+    /**
+     * Wyszukuje wypożyczenie - aktywne lub zakończone - po identyfikatorze.
+     *
+     * @param rentalId identyfikator wypożyczenia ({@link Rental#getRentalId()})
+     * @return wypożyczenie; zakończone jest odtwarzane z magazynu historii
+     */
+    public Optional<Rental> findRental(long rentalId) {
+        Metrics metrics = this.metrics;
+        long start = metrics.start();
+        Rental rental = activeRentals.get(activeRentalIds.bikeHandle(rentalId));
+        if (rental == null || rental.getRentalId() != rentalId) {
+            // a return may complete between the two lookups; history appends before the index drops the id
+            rental = historyStore.findRental(rentalId);
+        }
+        metrics.record(Operation.FIND_RENTAL, start);
+        return Optional.ofNullable(rental);
+    }
 
-        return rentalToEnd;
+    /**
+     * Wyszukuje wypożyczenia trwające dłużej niż dozwolony czas
+     * o więcej niż {@code overdueBy}. Koszt zależy tylko od liczby
+     * znalezionych wypożyczeń, nie od liczby wszystkich aktywnych.
+     *
+     * @param overdueBy o ile co najmniej przekroczony jest termin zwrotu
+     *                  ({@link Duration#ZERO} - wszystkie po terminie)
+     * @return wypożyczenia od najdawniej przeterminowanego
+     */
+    public List<Rental> findOverdueRentals(Duration overdueBy) {
+        Metrics metrics = this.metrics;
+        long start = metrics.start();
+        long cutoff = clock.millis() - maxRentalDuration.toMillis() - overdueBy.toMillis();
+        List<Rental> overdue = overdueRentals.startedBefore(cutoff);
+        metrics.record(Operation.FIND_OVERDUE_RENTALS, start);
+        return overdue;
     }
 
-    // Find user renting a specific bike
-    private User findUserRentingBike(String bikeId) throws NotRentingException {
-        for (User user : users.values()) {
-            if (user.isRenting() && user.getCurrentRental().getBike().getBikeId().equals(bikeId)) {
-                return user;
+    /**
+     * Publikuje zdarzenie {@link EventType#RENTAL_OVERDUE} dla każdego
+     * wypożyczenia, którego termin zwrotu minął od poprzedniego wywołania.
+     * Każde wypożyczenie zgłaszane jest raz, także po zmianie
+     * dozwolonego czasu wypożyczenia.
+     * Wywoływana cyklicznie przez {@link MaintenanceScheduler}.
+     *
+     * @return liczba nowo przeterminowanych wypożyczeń
+     */
+    public int reportOverdueRentals() {
+        LocalDateTime now = LocalDateTime.now(clock);
+        EventLog events = this.events;
+        long cutoff = clock.millis() - maxRentalDuration.toMillis();
+        return overdueRentals.reportStartedBefore(cutoff, rental ->
+                events.publish(EventType.RENTAL_OVERDUE, rental.getUser().getUserId(), rental.getBike().getBikeId(),
+                        rental.getStartStation().getStationId(),
+                        Duration.between(rental.getStartTime(), now).getSeconds()));
+    }
+
+    private long epochMillis(LocalDateTime time) {
+        return time.atZone(clock.getZone()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Zwraca użytkownika, który aktualnie wypożycza wskazany rower.
+     *
+     * @param bikeId identyfikator roweru
+     * @return użytkownik wypożyczający rower
+     * @throws NotRentingException jeśli rower nie jest aktualnie wypożyczony
+     */
+    public User findUserRentingBike(String bikeId) throws NotRentingException {
+        return findActiveRental(bikeId).getUser();
+    }
+
+    // --- Bulk Loading ---
+
+    /**
+     * Wczytuje do systemu gotowe, powiązane ze sobą obiekty modelu
+     * (np. odczytane z migawki) z pominięciem walidacji pojedynczych
+     * operacji i bez publikowania zdarzeń. Aktywne wypożyczenia są
+     * odtwarzane na podstawie {@link User#getCurrentRental()}.
+     *
+     * @see #bulkLoad(Collection, Collection, Collection, Map)
+     */
+    public void bulkLoad(Collection<Station> newStations, Collection<Bike> newBikes, Collection<User> newUsers) {
+        bulkLoad(newStations, newBikes, newUsers, Map.of());
+    }
+
+    /**
+     * Wczytuje do systemu gotowe, powiązane ze sobą obiekty modelu
+     * (np. odczytane z migawki lub z importu) z pominięciem walidacji
+     * pojedynczych operacji i bez publikowania zdarzeń. Aktywne
+     * wypożyczenia są odtwarzane na podstawie {@link User#getCurrentRental()}.
+     * Nowe rowery mogą też trafić na stacje już działające w systemie.
+     *
+     * <p>Metoda nie sprawdza spójności nowych obiektów - odpowiada za nią
+     * wywołujący. Wczytanie jest jedną niepodzielną zmianą: działające
+     * stacje, na które trafiają rowery, są zablokowane na cały jej czas,
+     * a całość jest odrzucana, jeśli którykolwiek identyfikator jest już
+     * zajęty albo na którejś ze stacji zabrakło miejsc. Przy włączonym
+     * dzienniku rejestracje, stacje i rowery trafiają do niego, zanim staną
+     * się widoczne w systemie; wczytywanie wypożyczeń i historii nie jest
+     * wtedy obsługiwane.
+     *
+     * @param newStations             stacje z zadokowanymi rowerami
+     * @param newBikes                rowery nowych stacji, także wypożyczone
+     * @param newUsers                użytkownicy wraz z bieżącymi wypożyczeniami
+     *                                i historią; historia musi być zapisana
+     *                                w {@link #getHistoryStore()}
+     * @param bikesForExistingStations nowe rowery dokowane na stacjach już
+     *                                należących do systemu, w kolejności dokowania
+     * @throws IllegalArgumentException jeśli identyfikator stacji, roweru lub
+     *                                  użytkownika jest zajęty albo się powtarza,
+     *                                  stacja nie należy do systemu lub ma za mało
+     *                                  wolnych miejsc
+     * @throws IllegalStateException jeśli przy włączonym dzienniku
+     *                               wczytywane są wypożyczenia lub historia
+     *                               użytkownika leży w innym magazynie
+     */
+    public void bulkLoad(Collection<Station> newStations, Collection<Bike> newBikes, Collection<User> newUsers,
+            Map<Station, List<Bike>> bikesForExistingStations) {
+        if (journal != null) {
+            for (User user : newUsers) {
+                if (user.isRenting() || !user.getRentalHistory().isEmpty()) {
+                    throw new IllegalStateException("Wczytywanie wypożyczeń nie jest obsługiwane przy włączonym dzienniku.");
+                }
             }
         }
-        throw new NotRentingException("Nie znaleziono użytkownika aktualnie wypożyczającego rower o ID: " + bikeId);
+        // new stations are not visible yet, so nobody else can hold their monitors here
+        Map<Station, List<Bike>> docked = new IdentityHashMap<>(newStations.size() * 2);
+        for (Station station : newStations) {
+            docked.put(station, station.getDockedBikes());
+        }
+        List<Bike> allBikes = new ArrayList<>(newBikes);
+        for (List<Bike> added : bikesForExistingStations.values()) {
+            allBikes.addAll(added);
+        }
+        // live stations are locked in handle order, like transfers, and before the registries
+        List<Station> live = new ArrayList<>(bikesForExistingStations.keySet());
+        live.sort((a, b) -> Integer.compare(a.getHandle(), b.getHandle()));
+        underStationLocks(live, 0, () -> {
+            for (Map.Entry<Station, List<Bike>> entry : bikesForExistingStations.entrySet()) {
+                Station station = entry.getKey();
+                if (stations.get(station.getHandle()) != station) {
+                    throw new IllegalArgumentException("Stacja " + station.getStationId() + " nie należy do systemu.");
+                }
+                if (station.getAvailableSpots() < entry.getValue().size()) {
+                    throw new IllegalArgumentException("Na stacji " + station.getStationId() + " jest mniej niż "
+                            + entry.getValue().size() + " wolnych miejsc.");
+                }
+            }
+            // registrations wait until the whole load is journaled and published
+            synchronized (stations) {
+                synchronized (bikes) {
+                    synchronized (users) {
+                        stations.requireAbsent(newStations, Station::getStationId);
+                        bikes.requireAbsent(allBikes, Bike::getBikeId);
+                        users.requireAbsent(newUsers, User::getUserId);
+                        if (journal != null) {
+                            // records go first, so no operation on a new entity can be journaled before it
+                            for (Station station : newStations) {
+                                journal.logStationAdded(station.getStationId(), station.getLocationName(),
+                                        station.getCapacity(), station.getLatitude(), station.getLongitude());
+                                // dock order matters for replay, so bikes are logged per station
+                                for (Bike bike : docked.get(station)) {
+                                    journal.logBikeAdded(bike.getBikeId(), station.getStationId());
+                                }
+                            }
+                            for (Map.Entry<Station, List<Bike>> entry : bikesForExistingStations.entrySet()) {
+                                for (Bike bike : entry.getValue()) {
+                                    journal.logBikeAdded(bike.getBikeId(), entry.getKey().getStationId());
+                                }
+                            }
+                            for (User user : newUsers) {
+                                journal.logUserRegistered(user.getUserId(), user.getName());
+                            }
+                        }
+                        // the live stations stay locked, so nobody rents these bikes before they are registered
+                        for (Map.Entry<Station, List<Bike>> entry : bikesForExistingStations.entrySet()) {
+                            for (Bike bike : entry.getValue()) {
+                                entry.getKey().dockBike(bike);
+                            }
+                        }
+                        stations.registerAll(newStations, Station::getStationId, this::attachStation);
+                        bikes.registerAll(allBikes, Bike::getBikeId, bike -> { });
+                        users.registerAll(newUsers, User::getUserId, this::attachUser);
+                    }
+                }
+            }
+        });
+    }
+
+    // Holds the monitors of stations[index..] while the body runs
+    private static void underStationLocks(List<Station> locked, int index, Runnable body) {
+        if (index == locked.size()) {
+            body.run();
+            return;
+        }
+        synchronized (locked.get(index)) {
+            underStationLocks(locked, index + 1, body);
+        }
+    }
+
+    private void attachUser(User user) {
+        user.setHistoryStore(historyStore);
+        // loaded ids were issued before a restart, possibly from milliseconds the clock has not reached yet
+        advancePast(rentalIds, user);
+        if (user.isRenting()) {
+            Rental current = user.getCurrentRental();
+            activeRentals.set(current.getBike().getHandle(), current);
+            activeRentalIds.put(current.getRentalId(), current.getBike().getHandle());
+            overdueRentals.add(current.getBike().getHandle(), current, epochMillis(current.getStartTime()));
+        }
     }
 
     // --- History ---
+
+    /**
+     * Zwraca kolumnowy magazyn zakończonych wypożyczeń współdzielony
+     * przez wszystkich użytkowników systemu.
+     */
+    public RentalHistoryStore getHistoryStore() {
+        return historyStore;
+    }
+
+    /**
+     * Zwraca niemodyfikowalny widok całej historii wypożyczeń użytkownika.
+     * Przy długiej historii lepiej pobierać ją stronami
+     * ({@link #getUserHistory(String, HistoryQuery)}).
+     */
     public List<Rental> getUserHistory(String userId) throws UserNotFoundException {
-        User user = findUser(userId);
-        return user.getRentalHistory();
+        Metrics metrics = this.metrics;
+        long start = metrics.start();
+        User user = users.get(userId);
+        if (user == null) {
+            metrics.recordFailure(Operation.GET_USER_HISTORY, start, RentalFailure.USER_NOT_FOUND);
+            throw new UserNotFoundException("Nie znaleziono użytkownika o ID: " + userId);
+        }
+        List<Rental> history = user.getRentalHistory();
+        metrics.record(Operation.GET_USER_HISTORY, start);
+        return history;
+    }
+
+    /**
+     * Zwraca stronę historii wypożyczeń użytkownika, od najnowszego
+     * wypożyczenia, zawężoną do przedziału czasu i stacji z zapytania.
+     *
+     * @throws UserNotFoundException    jeśli użytkownik nie istnieje
+     * @throws StationNotFoundException jeśli stacja z zapytania nie istnieje
+     * @throws IllegalArgumentException jeśli kursor z zapytania jest nieprawidłowy
+     * @see User#queryHistory(HistoryQuery, Station)
+     */
+    public HistoryPage getUserHistory(String userId, HistoryQuery query)
+            throws UserNotFoundException, StationNotFoundException {
+        Metrics metrics = this.metrics;
+        long start = metrics.start();
+        User user = users.get(userId);
+        if (user == null) {
+            metrics.recordFailure(Operation.GET_USER_HISTORY, start, RentalFailure.USER_NOT_FOUND);
+            throw new UserNotFoundException("Nie znaleziono użytkownika o ID: " + userId);
+        }
+        Station station = null;
+        if (query.getStationId() != null) {
+            station = stations.get(query.getStationId());
+            if (station == null) {
+                metrics.recordFailure(Operation.GET_USER_HISTORY, start, RentalFailure.STATION_NOT_FOUND);
+                throw new StationNotFoundException("Nie znaleziono stacji o ID: " + query.getStationId());
+            }
+        }
+        HistoryPage page = user.queryHistory(query, station);
+        metrics.record(Operation.GET_USER_HISTORY, start);
+        return page;
+    }
+
+    // --- Metrics ---
+
+    /**
+     * Zwraca metryki w tekstowym formacie ekspozycji Prometheusa: czasy
+     * i odmowy operacji (gdy {@link Metrics} są włączone) oraz wskaźniki
+     * bieżącego stanu - liczby encji, aktywnych wypożyczeń i rowerów
+     * na każdej stacji. Wskaźniki liczone są w chwili wywołania, więc
+     * nie obciążają samych operacji.
+     */
+    public String exportMetrics() {
+        StationStatusSnapshot status = stationStatus.current();
+        StringBuilder text = new StringBuilder(1024 + status.size() * 96);
+        PrometheusWriter out = new PrometheusWriter(text);
+        metrics.writeTo(out);
+
+        out.family("bike_rental_users", "gauge", "Liczba zarejestrowanych użytkowników.")
+           .sample("bike_rental_users", users.size());
+        out.family("bike_rental_bikes", "gauge", "Liczba rowerów w systemie.")
+           .sample("bike_rental_bikes", bikes.size());
+        out.family("bike_rental_active_rentals", "gauge", "Liczba trwających wypożyczeń.")
+           .sample("bike_rental_active_rentals", activeRentalIds.size());
+        out.family("bike_rental_completed_rentals", "gauge", "Liczba zakończonych wypożyczeń w historii.")
+           .sample("bike_rental_completed_rentals", historyStore.size());
+
+        long docked = 0;
+        long capacity = 0;
+        out.family("bike_rental_station_bikes", "gauge", "Liczba rowerów zadokowanych na stacji.");
+        for (int handle = 0; handle < status.size(); handle++) {
+            Station station = status.getStation(handle);
+            if (station != null) {
+                int bikesAtStation = status.getDockedBikes(handle);
+                docked += bikesAtStation;
+                capacity += station.getCapacity();
+                out.sample("bike_rental_station_bikes", "station", station.getStationId(), bikesAtStation);
+            }
+        }
+        out.family("bike_rental_station_available_bikes", "gauge", "Liczba rowerów na stacji dostępnych bez rezerwacji.");
+        for (int handle = 0; handle < status.size(); handle++) {
+            Station station = status.getStation(handle);
+            if (station != null) {
+                out.sample("bike_rental_station_available_bikes", "station", station.getStationId(),
+                        status.getAvailableBikes(handle));
+            }
+        }
+        out.family("bike_rental_station_capacity", "gauge", "Pojemność stacji.");
+        for (int handle = 0; handle < status.size(); handle++) {
+            Station station = status.getStation(handle);
+            if (station != null) {
+                out.sample("bike_rental_station_capacity", "station", station.getStationId(), station.getCapacity());
+            }
+        }
+        out.family("bike_rental_docked_bikes", "gauge", "Łączna liczba rowerów zadokowanych na stacjach.")
+           .sample("bike_rental_docked_bikes", docked);
+        out.family("bike_rental_dock_occupancy_ratio", "gauge", "Zajęta część wszystkich miejsc na stacjach.")
+           .sample("bike_rental_dock_occupancy_ratio", capacity == 0 ? 0.0 : (double) docked / capacity);
+
+        IdempotencyCache idempotency = this.idempotency;
+        out.family("bike_rental_idempotency_hits_total", "counter", "Powtórzone żądania obsłużone zapamiętanym wynikiem.")
+           .sample("bike_rental_idempotency_hits_total", idempotency.getHitCount());
+        out.family("bike_rental_idempotency_misses_total", "counter", "Żądania z kluczem idempotencji, dla których wykonano operację.")
+           .sample("bike_rental_idempotency_misses_total", idempotency.getMissCount());
+        out.family("bike_rental_idempotency_evictions_total", "counter", "Wpisy pamięci idempotencji usunięte po wygaśnięciu lub z braku miejsca.")
+           .sample("bike_rental_idempotency_evictions_total", idempotency.getEvictionCount());
+        out.family("bike_rental_idempotency_keys", "gauge", "Liczba zapamiętanych kluczy idempotencji.")
+           .sample("bike_rental_idempotency_keys", idempotency.size());
+
+        EventLog events = this.events;
+        if (events.isEnabled()) {
+            out.family("bike_rental_events_dropped_total", "counter", "Zdarzenia odrzucone przy pełnym buforze.")
+               .sample("bike_rental_events_dropped_total", events.getDroppedCount());
+        }
+        return text.toString();
+    }
+
+    /**
+     * Odtwarza stan systemu z rekordów dziennika, z pominięciem walidacji
+     * wykonywanej przy zwykłych operacjach i bez publikowania zdarzeń.
+     */
+    private class JournalReplayer implements JournalRecordHandler {
+        @Override
+        public void userRegistered(String userId, String name) {
+            users.put(userId, new User(userId, name, historyStore));
+        }
+
+        @Override
+        public void stationAdded(String stationId, String locationName, int capacity,
+                double latitude, double longitude) {
+            Station station = new Station(stationId, locationName, capacity, latitude, longitude);
+            stations.put(stationId, station);
+            attachStation(station);
+        }
+
+        @Override
+        public void bikeAdded(String bikeId, String stationId) {
+            Bike bike = new Bike(bikeId);
+            bikes.put(bikeId, bike);
+            stations.get(stationId).dockBike(bike);
+        }
+
+        @Override
+        public void bikeRented(long rentalId, String userId, String bikeId, String stationId,
+                LocalDateTime startTime) {
+            User user = users.get(userId);
+            Station station = stations.get(stationId);
+            // docks are FIFO and records were written under the station lock,
+            // so replay undocks exactly the bike that was originally rented
+            Bike bike = station.undockBike()
+                               .filter(b -> b.getBikeId().equals(bikeId))
+                               .orElseThrow(() -> new IllegalStateException(
+                                       "Niespójność dziennika - rower " + bikeId + " nie stoi na czele stacji " + stationId));
+            Rental rental = new Rental(rentalId, user, bike, station, startTime);
+            rentalIds.advancePast(rentalId);
+            user.startRental(rental);
+            activeRentals.set(bike.getHandle(), rental);
+            activeRentalIds.put(rentalId, bike.getHandle());
+            overdueRentals.add(bike.getHandle(), rental, epochMillis(startTime));
+        }
+
+        @Override
+        public void bikesTransferred(String fromStationId, String toStationId, int count) {
+            Station from = stations.get(fromStationId);
+            Station to = stations.get(toStationId);
+            for (int i = 0; i < count; i++) {
+                to.dockBike(from.undockBike().orElseThrow(() -> new IllegalStateException(
+                        "Niespójność dziennika - na stacji " + fromStationId + " brakuje rowerów do przeniesienia")));
+            }
+        }
+
+        @Override
+        public void bikeReturned(String bikeId, String stationId, LocalDateTime endTime, long fareCents) {
+            Bike bike = bikes.get(bikeId);
+            Rental rental = activeRentals.get(bike.getHandle());
+            activeRentals.set(bike.getHandle(), null);
+            activeRentalIds.remove(rental.getRentalId());
+            overdueRentals.remove(bike.getHandle(), rental);
+            Station station = stations.get(stationId);
+            rental.endRental(station, endTime);
+            station.dockBike(rental.getBike());
+            // only records written before fares were journaled are priced again, by the current tariff
+            rental.setFareCents(fareCents != Rental.UNPRICED ? fareCents : fares.price(rental));
+            rental.getUser().endRental();
+        }
+    }
+
+    /**
+     * Rozsyła zmiany obsadzenia stacji do komponentów, które je śledzą.
+     */
+    private class OccupancyDispatcher implements StationListener {
+        @Override
+        public void occupancyChanged(Station station, int previousBikeCount, int bikeCount,
+                int previousAvailable, int available) {
+            spatialIndex.occupancyChanged(station, previousBikeCount, bikeCount, previousAvailable, available);
+            stationStatus.publish(station, bikeCount, available, station.getCapacity() - bikeCount);
+            StationFeed feed = stationFeed;
+            if (feed != null) {
+                feed.stationChanged(station.getHandle());
+            }
+        }
     }
 }
@@ -0,0 +1,70 @@
+package com.rental.service;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Tablica obiektów indeksowana zwartymi uchwytami, rosnąca kawałkami
+ * o stałym rozmiarze. Odczyt to dwa odwołania do tablic, bez haszowania;
+ * odczyty i zapisy mają semantykę zmiennych volatile.
+ */
+final class HandleTable<T> {
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private volatile AtomicReferenceArray<T>[] chunks = newChunks(0);
+
+    /**
+     * @return obiekt zapisany pod uchwytem lub {@code null}
+     */
+    T get(int handle) {
+        AtomicReferenceArray<T>[] current = chunks;
+        int chunk = handle >>> CHUNK_BITS;
+        if (handle < 0 || chunk >= current.length) {
+            return null;
+        }
+        return current[chunk].get(handle & CHUNK_MASK);
+    }
+
+    void set(int handle, T value) {
+        chunkFor(handle).set(handle & CHUNK_MASK, value);
+    }
+
+    boolean compareAndSet(int handle, T expected, T value) {
+        return chunkFor(handle).compareAndSet(handle & CHUNK_MASK, expected, value);
+    }
+
+    /**
+     * Zapis bez pełnej bariery pamięci; widoczność dla innych wątków musi
+     * zapewnić późniejsza publikacja (np. wpis w mapie współbieżnej).
+     */
+    void lazySet(int handle, T value) {
+        chunkFor(handle).lazySet(handle & CHUNK_MASK, value);
+    }
+
+    private AtomicReferenceArray<T> chunkFor(int handle) {
+        int chunk = handle >>> CHUNK_BITS;
+        AtomicReferenceArray<T>[] current = chunks;
+        if (chunk < current.length) {
+            return current[chunk];
+        }
+        synchronized (this) {
+            current = chunks;
+            if (chunk >= current.length) {
+                AtomicReferenceArray<T>[] grown = newChunks(Math.max(chunk + 1, current.length * 2));
+                System.arraycopy(current, 0, grown, 0, current.length);
+                for (int i = current.length; i < grown.length; i++) {
+                    grown[i] = new AtomicReferenceArray<>(CHUNK_SIZE);
+                }
+                chunks = grown;
+                current = grown;
+            }
+            return current[chunk];
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> AtomicReferenceArray<T>[] newChunks(int length) {
+        return (AtomicReferenceArray<T>[]) new AtomicReferenceArray<?>[length];
+    }
+}
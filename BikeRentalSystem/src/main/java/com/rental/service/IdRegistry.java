@@ -0,0 +1,150 @@
+package com.rental.service;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ToIntFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * Rejestr encji jednego rodzaju (użytkowników, stacji lub rowerów).
+ * Zewnętrzny identyfikator tekstowy jest przy rejestracji zamieniany
+ * jednorazowo na zwarty uchwyt liczbowy (0, 1, 2, ...), pod którym encja
+ * jest dostępna bez haszowania napisów.
+ *
+ * <p>Rejestracje są serializowane na monitorze rejestru; odczyty
+ * nie zakładają blokad.
+ */
+final class IdRegistry<T> {
+    private final Map<String, T> byId = new ConcurrentHashMap<>();
+    private final HandleTable<T> byHandle = new HandleTable<>();
+    private final UnaryOperator<String> normalizer;
+    private final ToIntFunction<T> handleReader;
+    private final ObjIntConsumer<T> handleAssigner;
+    private int nextHandle;
+
+    /**
+     * @param normalizer     sprowadza identyfikator do postaci kanonicznej
+     * @param handleReader   odczytuje uchwyt zapisany w encji
+     * @param handleAssigner zapisuje nadany uchwyt w encji
+     */
+    IdRegistry(UnaryOperator<String> normalizer, ToIntFunction<T> handleReader, ObjIntConsumer<T> handleAssigner) {
+        this.normalizer = normalizer;
+        this.handleReader = handleReader;
+        this.handleAssigner = handleAssigner;
+    }
+
+    String normalize(String id) {
+        return normalizer.apply(id);
+    }
+
+    T get(String id) {
+        return byId.get(normalizer.apply(id));
+    }
+
+    T get(int handle) {
+        return byHandle.get(handle);
+    }
+
+    boolean contains(String id) {
+        return byId.containsKey(normalizer.apply(id));
+    }
+
+    /**
+     * Rejestruje encję, o ile identyfikator jest jeszcze wolny.
+     *
+     * @return {@code false} jeśli encja o tym identyfikatorze już istnieje
+     */
+    synchronized boolean register(String id, T entity) {
+        return register(id, entity, () -> { });
+    }
+
+    /**
+     * Rejestruje encję, o ile identyfikator jest jeszcze wolny.
+     *
+     * @param beforeRegister wywoływane pod monitorem rejestru, gdy identyfikator
+     *                       jest wolny, zanim encja zostanie zarejestrowana
+     *                       (np. zapis do dziennika); wyjątek przerywa rejestrację
+     * @return {@code false} jeśli encja o tym identyfikatorze już istnieje
+     */
+    synchronized boolean register(String id, T entity, Runnable beforeRegister) {
+        String key = normalizer.apply(id);
+        if (byId.containsKey(key)) {
+            return false;
+        }
+        beforeRegister.run();
+        assign(key, entity, nextHandle++);
+        return true;
+    }
+
+    /**
+     * Rejestruje encję bez sprawdzania duplikatów (odtwarzanie dziennika,
+     * zanim system stanie się dostępny).
+     * Encja zastępuje poprzednią o tym samym identyfikatorze i przejmuje jej uchwyt.
+     */
+    synchronized void put(String id, T entity) {
+        String key = normalizer.apply(id);
+        T previous = byId.get(key);
+        assign(key, entity, previous != null ? handleReader.applyAsInt(previous) : nextHandle++);
+    }
+
+    /**
+     * Sprawdza, czy identyfikatory encji są wolne i nie powtarzają się
+     * wśród samych encji. Wywołujący, który chce potem zarejestrować te
+     * encje bez wyścigu, trzyma przez cały czas monitor rejestru.
+     *
+     * @throws IllegalArgumentException z pierwszym powtórzonym identyfikatorem
+     */
+    synchronized void requireAbsent(Collection<? extends T> entities, Function<? super T, String> idOf) {
+        Set<String> batch = new HashSet<>(entities.size() * 2);
+        for (T entity : entities) {
+            String key = normalizer.apply(idOf.apply(entity));
+            if (byId.containsKey(key) || !batch.add(key)) {
+                throw new IllegalArgumentException("Identyfikator " + idOf.apply(entity) + " już istnieje.");
+            }
+        }
+    }
+
+    /**
+     * Rejestruje wiele encji naraz, pod jedną blokadą. Jeśli któryś
+     * identyfikator jest zajęty, nie rejestruje żadnej.
+     *
+     * @param beforePublish wywoływane dla każdej encji po nadaniu jej uchwytu,
+     *                      zanim którakolwiek stanie się dostępna pod identyfikatorem
+     * @throws IllegalArgumentException jeśli identyfikator jest zajęty lub się powtarza
+     */
+    synchronized void registerAll(Collection<? extends T> entities, Function<? super T, String> idOf,
+            Consumer<? super T> beforePublish) {
+        requireAbsent(entities, idOf);
+        for (T entity : entities) {
+            int handle = nextHandle++;
+            handleAssigner.accept(entity, handle);
+            byHandle.lazySet(handle, entity);
+            beforePublish.accept(entity);
+        }
+        for (T entity : entities) {
+            byId.put(normalizer.apply(idOf.apply(entity)), entity);
+        }
+    }
+
+    int size() {
+        return byId.size();
+    }
+
+    Collection<T> values() {
+        return byId.values();
+    }
+
+    private void assign(String key, T entity, int handle) {
+        handleAssigner.accept(entity, handle);
+        // the table entry is written before the map entry, so any thread that
+        // learned the handle through a lookup also sees the entity under it
+        byHandle.lazySet(handle, entity);
+        byId.put(key, entity);
+    }
+}
@@ -0,0 +1,275 @@
+package com.rental.service;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Pamięć wyników wypożyczeń i zwrotów wykonanych z kluczem idempotencji
+ * podanym przez klienta. Powtórzone żądanie z tym samym kluczem
+ * otrzymuje wynik pierwszego wykonania w czasie O(1), zamiast wykonać
+ * operację ponownie i odebrać odmowę (np. {@link RentalFailure#USER_ALREADY_RENTING}
+ * po ponowieniu wypożyczenia, które już się udało).
+ *
+ * <p>Klucze są osobne dla każdego użytkownika, więc klucz jednego
+ * użytkownika nie zwróci wyniku ani nie zablokuje żądania innego.
+ * Zapamiętywane są tylko udane operacje: nieudana niczego nie zmienia,
+ * więc jej ponowienie można bezpiecznie wykonać jeszcze raz. Żądanie
+ * z kluczem, którego operacja jeszcze trwa, czeka na jej wynik, a jeśli
+ * operacja zgłosi wyjątek - otrzymuje ten sam wyjątek. Klucz użyty
+ * ponownie dla innego żądania daje {@link RentalFailure#IDEMPOTENCY_KEY_REUSED}.
+ *
+ * <p>Pamięć jest ograniczona: wpisy wygasają po czasie {@link #getTtl()}
+ * od zakończenia operacji, a po przekroczeniu pojemności usuwane są
+ * najstarsze zakończone. Trwające operacje nigdy nie są usuwane - segment
+ * może wtedy chwilowo przekroczyć pojemność, dopóki się nie zakończą.
+ * Klucze rozdzielone są między {@link #STRIPES} niezależnie blokowanych
+ * segmentów, więc żądania z różnymi kluczami rzadko na siebie czekają;
+ * liczniki trafień, chybień i usunięć są typu {@link LongAdder}.
+ */
+public final class IdempotencyCache {
+    public static final int STRIPES = 16;
+    public static final int DEFAULT_CAPACITY = 100_000;
+    public static final Duration DEFAULT_TTL = Duration.ofHours(1);
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final long ttlNanos;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param capacity największa liczba zapamiętanych kluczy
+     * @param ttl      czas, przez który pamiętany jest wynik operacji
+     * @throws IllegalArgumentException jeśli pojemność lub czas nie są dodatnie
+     */
+    public IdempotencyCache(int capacity, Duration ttl) {
+        if (capacity < STRIPES) {
+            throw new IllegalArgumentException("Pojemność pamięci idempotencji musi wynosić co najmniej " + STRIPES);
+        }
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("Czas pamiętania wyników musi być dodatni.");
+        }
+        this.ttlNanos = ttl.toNanos();
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe((capacity + STRIPES - 1) / STRIPES);
+        }
+    }
+
+    /**
+     * @return pamięć o domyślnej pojemności i czasie pamiętania wyników
+     */
+    public static IdempotencyCache create() {
+        return new IdempotencyCache(DEFAULT_CAPACITY, DEFAULT_TTL);
+    }
+
+    /**
+     * Wykonuje operację, chyba że operacja z tym samym kluczem już się udała
+     * lub właśnie trwa - wtedy zwraca jej wynik.
+     *
+     * @param userId    identyfikator użytkownika, do którego należy klucz
+     * @param key       klucz idempotencji podany przez klienta
+     * @param request   opis żądania (operacja i argumenty wskazane uchwytami),
+     *                  z którym porównywane jest żądanie zapamiętane pod tym kluczem
+     * @param operation operacja wykonywana przy pierwszym użyciu klucza
+     */
+    RentalOutcome execute(String userId, String key, String request, Supplier<RentalOutcome> operation) {
+        Key scoped = new Key(userId, key);
+        Stripe stripe = stripes[spread(scoped.hashCode()) & (STRIPES - 1)];
+        Entry entry;
+        boolean owner = false;
+        synchronized (stripe) {
+            entry = stripe.find(scoped, System.nanoTime());
+            if (entry == null) {
+                entry = new Entry(request);
+                stripe.put(scoped, entry);
+                owner = true;
+            }
+        }
+        if (!owner) {
+            if (!entry.request.equals(request)) {
+                return RentalOutcome.failure(RentalFailure.IDEMPOTENCY_KEY_REUSED);
+            }
+            hits.increment();
+            return await(entry);
+        }
+
+        misses.increment();
+        RentalOutcome outcome;
+        try {
+            outcome = operation.get();
+        } catch (RuntimeException | Error e) {
+            synchronized (stripe) {
+                stripe.remove(scoped, entry);
+            }
+            entry.result.completeExceptionally(e);
+            throw e;
+        }
+        synchronized (stripe) {
+            if (outcome.isSuccess()) {
+                entry.expiresAt = System.nanoTime() + ttlNanos;
+                entry.completed = true;
+            } else {
+                // nothing changed, so a retry may run the operation again
+                stripe.remove(scoped, entry);
+            }
+        }
+        // requests that waited for this one get the same outcome
+        entry.result.complete(outcome);
+        return outcome;
+    }
+
+    /**
+     * @return liczba powtórzonych żądań obsłużonych wynikiem zapamiętanej
+     * lub trwającej operacji
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return liczba żądań z kluczem, dla których operacja została wykonana
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return liczba wpisów usuniętych po wygaśnięciu lub przy przekroczeniu pojemności
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return liczba zapamiętanych kluczy, łącznie z trwającymi operacjami
+     * i wpisami wygasłymi, których jeszcze nie usunięto
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    public Duration getTtl() {
+        return Duration.ofNanos(ttlNanos);
+    }
+
+    /**
+     * Czeka na wynik operacji innego żądania; wyjątek tej operacji
+     * zgłaszany jest bez opakowania.
+     */
+    private static RentalOutcome await(Entry entry) {
+        try {
+            return entry.result.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static final class Key {
+        final String userId;
+        final String key;
+
+        Key(String userId, String key) {
+            this.userId = userId;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key other = (Key) o;
+            return userId.equals(other.userId) && key.equals(other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * userId.hashCode() + key.hashCode();
+        }
+    }
+
+    private static final class Entry {
+        final String request;
+        final CompletableFuture<RentalOutcome> result = new CompletableFuture<>();
+        // guarded by the stripe monitor
+        boolean completed;
+        long expiresAt;
+
+        Entry(String request) {
+            this.request = request;
+        }
+
+        boolean isExpired(long now) {
+            return completed && now - expiresAt >= 0;
+        }
+    }
+
+    /**
+     * Segment pamięci w kolejności wstawiania, która jest zarazem
+     * przybliżoną kolejnością wygasania; chroniony własnym monitorem.
+     */
+    private final class Stripe extends LinkedHashMap<Key, Entry> {
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        Stripe(int capacity) {
+            super(16, 0.75f, false);
+            this.capacity = capacity;
+        }
+
+        /**
+         * @return wpis klucza lub {@code null}, jeśli klucza nie ma albo wygasł
+         */
+        Entry find(Key key, long now) {
+            // expired entries at the head go first; an operation still in flight stops the sweep
+            Iterator<Entry> oldest = values().iterator();
+            while (oldest.hasNext() && oldest.next().isExpired(now)) {
+                oldest.remove();
+                evictions.increment();
+            }
+            Entry entry = get(key);
+            if (entry != null && entry.isExpired(now)) {
+                remove(key);
+                evictions.increment();
+                return null;
+            }
+            return entry;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            // the oldest completed entries go; an operation in flight keeps its entry until it ends
+            Iterator<Entry> oldest = values().iterator();
+            while (size() > capacity && oldest.hasNext()) {
+                if (oldest.next().completed) {
+                    oldest.remove();
+                    evictions.increment();
+                }
+            }
+            return false;
+        }
+    }
+}
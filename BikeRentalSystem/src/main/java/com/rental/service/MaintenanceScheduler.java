@@ -0,0 +1,77 @@
+package com.rental.service;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wątek w tle wykonujący cyklicznie prace porządkowe systemu -
+ * wygaszanie rezerwacji ({@link BikeRentalSystem#expireReservations()})
+ * i zgłaszanie wypożyczeń po terminie zwrotu
+ * ({@link BikeRentalSystem#reportOverdueRentals()}).
+ * Zamknięcie harmonogramu należy do tego, kto go uruchomił.
+ */
+public final class MaintenanceScheduler implements AutoCloseable {
+    public static final Duration DEFAULT_PERIOD = Duration.ofSeconds(1);
+
+    private final BikeRentalSystem system;
+    private final ScheduledExecutorService executor;
+
+    private MaintenanceScheduler(BikeRentalSystem system, Duration period) {
+        this.system = system;
+        this.executor = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = period.toMillis();
+        executor.scheduleWithFixedDelay(this::runOnce, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Uruchamia harmonogram z domyślnym okresem {@link #DEFAULT_PERIOD}.
+     */
+    public static MaintenanceScheduler start(BikeRentalSystem system) {
+        return start(system, DEFAULT_PERIOD);
+    }
+
+    /**
+     * @param period odstęp między kolejnymi przebiegami; wyznacza zarazem,
+     *               o ile najwyżej spóźnia się wygaśnięcie rezerwacji
+     *               i zgłoszenie przeterminowanego wypożyczenia
+     */
+    public static MaintenanceScheduler start(BikeRentalSystem system, Duration period) {
+        if (period.toMillis() <= 0) {
+            throw new IllegalArgumentException("Okres musi wynosić co najmniej 1 ms: " + period);
+        }
+        return new MaintenanceScheduler(system, period);
+    }
+
+    private void runOnce() {
+        // a failed run must not cancel the schedule
+        try {
+            system.expireReservations();
+        } catch (RuntimeException e) {
+            System.err.println("Błąd wygaszania rezerwacji: " + e.getMessage());
+        }
+        try {
+            system.reportOverdueRentals();
+        } catch (RuntimeException e) {
+            System.err.println("Błąd zgłaszania przeterminowanych wypożyczeń: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Zatrzymuje harmonogram, czekając na zakończenie bieżącego przebiegu.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.rental.service;
+
+import com.rental.model.Rental;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Consumer;
+
+/**
+ * Indeks aktywnych wypożyczeń uporządkowany według czasu rozpoczęcia.
+ * Dozwolony czas wypożyczenia jest wspólny dla wszystkich wypożyczeń,
+ * więc kolejność rozpoczęć jest zarazem kolejnością terminów zwrotu;
+ * wypożyczenia po terminie leżą na początku indeksu i odczytywane są
+ * bez przeglądania pozostałych. Dodanie i usunięcie kosztują O(log n).
+ */
+final class OverdueIndex {
+    private final ConcurrentSkipListSet<Entry> byStart = new ConcurrentSkipListSet<>();
+    // bike handle -> entry of the bike's active rental, to find the entry again on return
+    private final HandleTable<Entry> byBike = new HandleTable<>();
+    // entries ordered up to and including this one have already been reported as overdue
+    private Entry reported = new Entry(Long.MIN_VALUE, Long.MIN_VALUE, null);
+
+    /**
+     * Wywoływane pod blokadą użytkownika, zanim rower opuści stację.
+     */
+    void add(int bikeHandle, Rental rental, long startMillis) {
+        Entry entry = new Entry(startMillis, rental.getRentalId(), rental);
+        byBike.set(bikeHandle, entry);
+        byStart.add(entry);
+    }
+
+    /**
+     * Wywoływane pod blokadą użytkownika, zanim rower wróci na stację -
+     * później ten sam rower może już należeć do nowego wypożyczenia.
+     */
+    void remove(int bikeHandle, Rental rental) {
+        Entry entry = byBike.get(bikeHandle);
+        if (entry != null && entry.rental == rental) {
+            byBike.set(bikeHandle, null);
+            byStart.remove(entry);
+        }
+    }
+
+    /**
+     * @return wypożyczenia rozpoczęte przed {@code cutoffMillis},
+     * od najdawniej rozpoczętego
+     */
+    List<Rental> startedBefore(long cutoffMillis) {
+        List<Rental> due = new ArrayList<>();
+        for (Entry entry : byStart.headSet(new Entry(cutoffMillis, Long.MIN_VALUE, null))) {
+            due.add(entry.rental);
+        }
+        return due;
+    }
+
+    /**
+     * Przekazuje odbiorcy wypożyczenia rozpoczęte przed {@code cutoffMillis},
+     * które nie zostały jeszcze zgłoszone; każde wypożyczenie zgłaszane
+     * jest najwyżej raz.
+     *
+     * @return liczba zgłoszonych wypożyczeń
+     */
+    synchronized int reportStartedBefore(long cutoffMillis, Consumer<Rental> overdue) {
+        Entry bound = new Entry(cutoffMillis, Long.MIN_VALUE, null);
+        if (reported.compareTo(bound) >= 0) {
+            return 0;
+        }
+        int count = 0;
+        for (Entry entry : byStart.subSet(reported, false, bound, false)) {
+            overdue.accept(entry.rental);
+            reported = entry;
+            count++;
+        }
+        return count;
+    }
+
+    private static final class Entry implements Comparable<Entry> {
+        final long startMillis;
+        final long rentalId;
+        final Rental rental;
+
+        Entry(long startMillis, long rentalId, Rental rental) {
+            this.startMillis = startMillis;
+            this.rentalId = rentalId;
+            this.rental = rental;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int byTime = Long.compare(startMillis, other.startMillis);
+            return byTime != 0 ? byTime : Long.compare(rentalId, other.rentalId);
+        }
+    }
+}
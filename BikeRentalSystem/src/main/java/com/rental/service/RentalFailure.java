@@ -0,0 +1,26 @@
+package com.rental.service;
+
+/**
+ * Przyczyna niepowodzenia wypożyczenia lub zwrotu roweru,
+ * zwracana przez {@link BikeRentalSystem#tryRentBike} oraz
+ * {@link BikeRentalSystem#tryReturnBike} zamiast wyjątku; rodzaje
+ * odmów zliczane są też dla rezerwacji oraz dla rejestracji, dodawania
+ * i przenoszenia odrzuconych wyjątkiem {@link IllegalArgumentException}.
+ */
+public enum RentalFailure {
+    USER_NOT_FOUND,
+    STATION_NOT_FOUND,
+    BIKE_NOT_FOUND,
+    USER_ALREADY_RENTING,
+    NO_BIKES_AVAILABLE,
+    STATION_FULL,
+    NOT_RENTING,
+    ALREADY_RESERVED,
+    NO_RESERVATION,
+    /** Klucz idempotencji użyty już wcześniej dla innego żądania. */
+    IDEMPOTENCY_KEY_REUSED,
+    /** Identyfikator nowego użytkownika, stacji lub roweru jest już zajęty. */
+    DUPLICATE_ID,
+    /** Niepoprawne argumenty operacji, np. niedodatnia liczba przenoszonych rowerów. */
+    INVALID_ARGUMENT
+}
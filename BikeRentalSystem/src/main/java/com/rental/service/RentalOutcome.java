@@ -0,0 +1,58 @@
+package com.rental.service;
+
+import com.rental.model.Rental;
+
+/**
+ * Wynik operacji wypożyczenia lub zwrotu: wypożyczenie w przypadku
+ * powodzenia albo kod {@link RentalFailure}. Wyniki niepowodzeń są
+ * współdzielonymi, niezmiennymi obiektami, więc zgłoszenie błędu
+ * niczego nie alokuje.
+ */
+public final class RentalOutcome {
+    private static final RentalOutcome[] FAILURES = new RentalOutcome[RentalFailure.values().length];
+
+    static {
+        for (RentalFailure failure : RentalFailure.values()) {
+            FAILURES[failure.ordinal()] = new RentalOutcome(null, failure);
+        }
+    }
+
+    private final Rental rental;
+    private final RentalFailure failure;
+
+    private RentalOutcome(Rental rental, RentalFailure failure) {
+        this.rental = rental;
+        this.failure = failure;
+    }
+
+    public static RentalOutcome success(Rental rental) {
+        return new RentalOutcome(rental, null);
+    }
+
+    public static RentalOutcome failure(RentalFailure failure) {
+        return FAILURES[failure.ordinal()];
+    }
+
+    public boolean isSuccess() {
+        return failure == null;
+    }
+
+    /**
+     * @return wypożyczenie lub {@code null}, jeśli operacja się nie powiodła
+     */
+    public Rental getRental() {
+        return rental;
+    }
+
+    /**
+     * @return przyczyna niepowodzenia lub {@code null} w przypadku sukcesu
+     */
+    public RentalFailure getFailure() {
+        return failure;
+    }
+
+    @Override
+    public String toString() {
+        return isSuccess() ? "RentalOutcome{sukces, " + rental + '}' : "RentalOutcome{" + failure + '}';
+    }
+}
@@ -0,0 +1,37 @@
+package com.rental.service;
+
+import com.rental.model.Station;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Publikuje stan stacji po każdej zmianie. Cały stan to jedna niezmienna
+ * migawka podmieniana operacją compare-and-set: zmiana kopiuje tablicę
+ * odwołań do porcji i porcję zmienionej stacji, a odczyt to jedno
+ * odczytanie odwołania, bez kopiowania i bez alokacji.
+ * Piszący wywołują metody pod blokadą zmienianej stacji, więc zmiany
+ * jednej stacji publikowane są w kolejności, w jakiej zaszły.
+ */
+final class StationStatusBoard {
+    private final AtomicReference<StationStatusSnapshot> current =
+            new AtomicReference<>(StationStatusSnapshot.EMPTY);
+
+    /**
+     * @return najnowsza migawka; zawiera każdą zmianę opublikowaną przed
+     * jej podmianą i żadnej późniejszej
+     */
+    StationStatusSnapshot current() {
+        return current.get();
+    }
+
+    /**
+     * Wywoływane pod blokadą stacji: przy jej dołączeniu do systemu
+     * i przy każdej zmianie obsadzenia.
+     */
+    void publish(Station station, int dockedBikes, int availableBikes, int freeDocks) {
+        StationStatusSnapshot previous;
+        do {
+            previous = current.get();
+        } while (!current.compareAndSet(previous, previous.with(station, dockedBikes, availableBikes, freeDocks)));
+    }
+}
@@ -0,0 +1,165 @@
+package com.rental.service;
+
+import com.rental.model.Station;
+
+import java.util.Arrays;
+
+/**
+ * Niezmienna, wersjonowana migawka stanu wszystkich stacji: liczby
+ * rowerów zadokowanych, dostępnych do wypożyczenia i wolnych miejsc,
+ * indeksowane uchwytem stacji ({@link Station#getHandle()}).
+ *
+ * <p>Każda zmiana obsadzenia publikuje nową migawkę, więc wszystkie
+ * wartości jednej migawki, także sumy i numer wersji, pochodzą z jednej
+ * chwili. Stan dzielony jest na niezmienne porcje po {@link #CHUNK_SIZE}
+ * stacji: nowa migawka kopiuje tylko tablicę odwołań do porcji i porcję
+ * zmienionej stacji, a pozostałe porcje współdzieli z poprzednią.
+ * Odczyt wartości z migawki niczego nie alokuje.
+ *
+ * @see BikeRentalSystem#getStationStatus()
+ */
+public final class StationStatusSnapshot {
+    static final int CHUNK_BITS = 6;
+    public static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    static final StationStatusSnapshot EMPTY = new StationStatusSnapshot(0, 0, new Chunk[0], 0, 0, 0);
+
+    private final long version;
+    private final int size;
+    private final Chunk[] chunks;
+    private final long totalDockedBikes;
+    private final long totalAvailableBikes;
+    private final long totalFreeDocks;
+
+    private StationStatusSnapshot(long version, int size, Chunk[] chunks, long totalDockedBikes,
+            long totalAvailableBikes, long totalFreeDocks) {
+        this.version = version;
+        this.size = size;
+        this.chunks = chunks;
+        this.totalDockedBikes = totalDockedBikes;
+        this.totalAvailableBikes = totalAvailableBikes;
+        this.totalFreeDocks = totalFreeDocks;
+    }
+
+    /**
+     * Tworzy następną wersję migawki, w której stacja ma podany stan.
+     */
+    StationStatusSnapshot with(Station station, int dockedBikes, int availableBikes, int freeDocks) {
+        int handle = station.getHandle();
+        int index = handle >>> CHUNK_BITS;
+        Chunk[] nextChunks = Arrays.copyOf(chunks, Math.max(chunks.length, index + 1));
+        Arrays.fill(nextChunks, chunks.length, nextChunks.length, Chunk.EMPTY);
+        Chunk previous = nextChunks[index];
+        Chunk next = previous.with(station, dockedBikes, availableBikes, freeDocks);
+        nextChunks[index] = next;
+        return new StationStatusSnapshot(version + 1, Math.max(size, handle + 1), nextChunks,
+                totalDockedBikes - previous.dockedBikes + next.dockedBikes,
+                totalAvailableBikes - previous.availableBikes + next.availableBikes,
+                totalFreeDocks - previous.freeDocks + next.freeDocks);
+    }
+
+    /**
+     * @return numer wersji: liczba zmian opublikowanych do chwili
+     * migawki; rośnie o jeden z każdą zmianą
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return granica uchwytów stacji: wszystkie stacje w migawce mają
+     * uchwyty mniejsze od tej wartości
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return stacja o podanym uchwycie lub {@code null}, jeśli migawka jej nie zawiera
+     */
+    public Station getStation(int handle) {
+        return handle >= 0 && handle < size ? chunks[handle >>> CHUNK_BITS].stations[handle & CHUNK_MASK] : null;
+    }
+
+    /**
+     * @return liczba rowerów zadokowanych na stacji, także zarezerwowanych
+     * (0 dla stacji spoza migawki)
+     */
+    public int getDockedBikes(int handle) {
+        return count(handle, 0);
+    }
+
+    /**
+     * @return liczba rowerów dostępnych bez rezerwacji (0 dla stacji spoza migawki)
+     */
+    public int getAvailableBikes(int handle) {
+        return count(handle, 1);
+    }
+
+    /**
+     * @return liczba wolnych miejsc (0 dla stacji spoza migawki)
+     */
+    public int getFreeDocks(int handle) {
+        return count(handle, 2);
+    }
+
+    public long getTotalDockedBikes() {
+        return totalDockedBikes;
+    }
+
+    public long getTotalAvailableBikes() {
+        return totalAvailableBikes;
+    }
+
+    public long getTotalFreeDocks() {
+        return totalFreeDocks;
+    }
+
+    private int count(int handle, int field) {
+        return handle >= 0 && handle < size ? chunks[handle >>> CHUNK_BITS].counts[3 * (handle & CHUNK_MASK) + field] : 0;
+    }
+
+    /**
+     * Niezmienny stan jednej porcji stacji wraz z sumami porcji.
+     */
+    private static final class Chunk {
+        static final Chunk EMPTY = new Chunk(new Station[CHUNK_SIZE], new int[3 * CHUNK_SIZE], 0, 0, 0);
+
+        final Station[] stations;
+        // per station: docked bikes at 3 * offset, available bikes at 3 * offset + 1, free docks at 3 * offset + 2
+        final int[] counts;
+        final long dockedBikes;
+        final long availableBikes;
+        final long freeDocks;
+
+        private Chunk(Station[] stations, int[] counts, long dockedBikes, long availableBikes, long freeDocks) {
+            this.stations = stations;
+            this.counts = counts;
+            this.dockedBikes = dockedBikes;
+            this.availableBikes = availableBikes;
+            this.freeDocks = freeDocks;
+        }
+
+        /**
+         * Tworzy następną wersję porcji, w której stacja ma podany stan.
+         */
+        Chunk with(Station station, int dockedBikes, int availableBikes, int freeDocks) {
+            int offset = station.getHandle() & CHUNK_MASK;
+            int[] nextCounts = counts.clone();
+            int at = 3 * offset;
+            nextCounts[at] = dockedBikes;
+            nextCounts[at + 1] = availableBikes;
+            nextCounts[at + 2] = freeDocks;
+            Station[] nextStations = stations;
+            if (stations[offset] != station) {
+                // a new station: the references change only here, otherwise they stay shared
+                nextStations = stations.clone();
+                nextStations[offset] = station;
+            }
+            return new Chunk(nextStations, nextCounts,
+                    this.dockedBikes - counts[at] + dockedBikes,
+                    this.availableBikes - counts[at + 1] + availableBikes,
+                    this.freeDocks - counts[at + 2] + freeDocks);
+        }
+    }
+}
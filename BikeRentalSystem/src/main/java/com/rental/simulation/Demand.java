@@ -0,0 +1,146 @@
+package com.rental.simulation;
+
+import com.rental.model.Station;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Zapotrzebowanie na przejazdy w symulowanym okresie: lista podróży
+ * uporządkowana według czasu wyjazdu. Może zostać wygenerowane
+ * syntetycznie albo wczytane z zapisu rzeczywistego ruchu.
+ */
+public final class Demand {
+    public static final int SECONDS_PER_DAY = 24 * 60 * 60;
+
+    // relative departures per hour of day: night lull, morning and evening peaks
+    private static final double[] HOURLY_PROFILE = {
+            0.2, 0.1, 0.1, 0.1, 0.2, 0.6, 1.5, 3.5, 4.5, 2.5, 1.6, 1.6,
+            2.0, 2.0, 1.8, 2.2, 3.2, 4.5, 3.8, 2.5, 1.6, 1.1, 0.7, 0.4
+    };
+    private static final int MEAN_TRIP_SECONDS = 15 * 60;
+    private static final int MIN_TRIP_SECONDS = 2 * 60;
+    private static final int MAX_TRIP_SECONDS = 2 * 60 * 60;
+
+    private final List<Trip> trips;
+
+    public Demand(List<Trip> trips) {
+        List<Trip> sorted = new ArrayList<>(trips);
+        sorted.sort(Comparator.comparingInt(Trip::getDepartureSecond));
+        this.trips = Collections.unmodifiableList(sorted);
+    }
+
+    public List<Trip> getTrips() {
+        return trips;
+    }
+
+    public int size() {
+        return trips.size();
+    }
+
+    /**
+     * Generuje syntetyczną dobę ruchu. Godziny wyjazdów mają dwa szczyty
+     * (poranny i popołudniowy), stacje początkowe losowane są proporcjonalnie
+     * do pojemności, docelowe - równomiernie spośród pozostałych, a czasy
+     * przejazdu z rozkładu wykładniczego o średniej 15 minut (2-120 minut).
+     *
+     * @param stations    stacje, między którymi odbywają się podróże (co najmniej dwie)
+     * @param tripsPerDay liczba podróży w ciągu doby
+     * @param seed        ziarno generatora liczb losowych
+     */
+    public static Demand synthetic(List<Station> stations, int tripsPerDay, long seed) {
+        if (stations.size() < 2) {
+            throw new IllegalArgumentException("Symulacja wymaga co najmniej dwóch stacji.");
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        double[] hourWeights = cumulative(HOURLY_PROFILE);
+        double[] stationWeights = new double[stations.size()];
+        for (int i = 0; i < stations.size(); i++) {
+            stationWeights[i] = stations.get(i).getCapacity();
+        }
+        stationWeights = cumulative(stationWeights);
+
+        List<Trip> trips = new ArrayList<>(tripsPerDay);
+        for (int i = 0; i < tripsPerDay; i++) {
+            int hour = pick(hourWeights, random.nextDouble());
+            int departure = hour * 3600 + random.nextInt(3600);
+            int origin = pick(stationWeights, random.nextDouble());
+            int destination = random.nextInt(stations.size() - 1);
+            if (destination >= origin) {
+                destination++;
+            }
+            double exponential = -Math.log(1 - random.nextDouble()) * MEAN_TRIP_SECONDS;
+            int duration = (int) Math.max(MIN_TRIP_SECONDS, Math.min(MAX_TRIP_SECONDS, exponential));
+            trips.add(new Trip(departure, stations.get(origin).getStationId(),
+                    stations.get(destination).getStationId(), duration));
+        }
+        return new Demand(trips);
+    }
+
+    /**
+     * Wczytuje zapisane zapotrzebowanie z pliku CSV o kolumnach
+     * {@code departureSecond,originStationId,destinationStationId,durationSeconds}
+     * (wiersz nagłówka jest opcjonalny, puste wiersze są pomijane).
+     *
+     * @throws IOException jeśli pliku nie można odczytać lub wiersz jest niepoprawny
+     */
+    public static Demand fromCsv(Path file) throws IOException {
+        List<Trip> trips = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || (lineNumber == 1 && line.startsWith("departureSecond"))) {
+                    continue;
+                }
+                String[] fields = line.split(",");
+                try {
+                    if (fields.length != 4) {
+                        throw new IllegalArgumentException("Oczekiwano 4 kolumn, znaleziono " + fields.length + ".");
+                    }
+                    trips.add(new Trip(Integer.parseInt(fields[0].trim()), fields[1].trim(), fields[2].trim(),
+                            Integer.parseInt(fields[3].trim())));
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Błędny wiersz " + lineNumber + " w pliku " + file + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        return new Demand(trips);
+    }
+
+    private static double[] cumulative(double[] weights) {
+        double[] sums = new double[weights.length];
+        double total = 0;
+        for (int i = 0; i < weights.length; i++) {
+            total += weights[i];
+            sums[i] = total;
+        }
+        for (int i = 0; i < sums.length; i++) {
+            sums[i] /= total;
+        }
+        return sums;
+    }
+
+    private static int pick(double[] cumulative, double value) {
+        int low = 0;
+        int high = cumulative.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulative[mid] <= value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,55 @@
+package com.rental.simulation;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Zegar symulacji: wskazuje czas ustawiony przez silnik zdarzeń,
+ * a nie czas rzeczywisty. Domyślna strefa czasowa to UTC; zegar
+ * w innej strefie ({@link #withZone(ZoneId)}) jest widokiem tego samego
+ * czasu i przesuwa się razem z nim.
+ */
+public final class SimulationClock extends Clock {
+    // shared by every zone view of this clock
+    private final AtomicLong millis;
+    private final ZoneId zone;
+
+    public SimulationClock(Instant start) {
+        this(new AtomicLong(start.toEpochMilli()), ZoneOffset.UTC);
+    }
+
+    private SimulationClock(AtomicLong millis, ZoneId zone) {
+        this.millis = millis;
+        this.zone = zone;
+    }
+
+    /**
+     * Przesuwa zegar do podanej chwili; zegar nigdy nie cofa się.
+     */
+    public void advanceTo(long epochMillis) {
+        millis.accumulateAndGet(epochMillis, Math::max);
+    }
+
+    @Override
+    public long millis() {
+        return millis.get();
+    }
+
+    @Override
+    public Instant instant() {
+        return Instant.ofEpochMilli(millis.get());
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return zone.equals(this.zone) ? this : new SimulationClock(millis, zone);
+    }
+}
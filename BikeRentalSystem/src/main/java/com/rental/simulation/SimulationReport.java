@@ -0,0 +1,143 @@
+package com.rental.simulation;
+
+import com.rental.service.RentalFailure;
+
+/**
+ * Wynik przebiegu symulacji: liczba obsłużonych i nieudanych wypożyczeń,
+ * zwroty na pełne stacje, przepustowość i przyspieszenie względem
+ * czasu rzeczywistego.
+ */
+public class SimulationReport {
+    private final long[] rentFailures = new long[RentalFailure.values().length];
+    private long tripsRequested;
+    private long tripsSkipped;
+    private long rentsSucceeded;
+    private long returnsSucceeded;
+    private long fullStationReturns;
+    private long returnsAbandoned;
+    private long simulatedSeconds;
+    private long elapsedNanos;
+
+    void tripRequested() {
+        tripsRequested++;
+    }
+
+    void tripSkipped() {
+        tripsSkipped++;
+    }
+
+    void rentSucceeded() {
+        rentsSucceeded++;
+    }
+
+    void rentFailed(RentalFailure failure) {
+        rentFailures[failure.ordinal()]++;
+    }
+
+    void returnSucceeded() {
+        returnsSucceeded++;
+    }
+
+    void fullStationReturn() {
+        fullStationReturns++;
+    }
+
+    void returnAbandoned() {
+        returnsAbandoned++;
+    }
+
+    void finish(long simulatedSeconds, long elapsedNanos) {
+        this.simulatedSeconds = simulatedSeconds;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getTripsRequested() {
+        return tripsRequested;
+    }
+
+    /**
+     * @return podróże pominięte, bo odwoływały się do nieistniejących stacji
+     */
+    public long getTripsSkipped() {
+        return tripsSkipped;
+    }
+
+    public long getRentsSucceeded() {
+        return rentsSucceeded;
+    }
+
+    public long getRentFailures(RentalFailure failure) {
+        return rentFailures[failure.ordinal()];
+    }
+
+    public long getFailedRents() {
+        long total = 0;
+        for (long count : rentFailures) {
+            total += count;
+        }
+        return total;
+    }
+
+    public long getReturnsSucceeded() {
+        return returnsSucceeded;
+    }
+
+    /**
+     * @return próby zwrotu zakończone odmową z powodu pełnej stacji
+     * (rowerzysta jedzie wtedy do innej stacji)
+     */
+    public long getFullStationReturns() {
+        return fullStationReturns;
+    }
+
+    /**
+     * @return rowery, których nie udało się zwrócić przed końcem symulacji
+     */
+    public long getReturnsAbandoned() {
+        return returnsAbandoned;
+    }
+
+    public long getSimulatedSeconds() {
+        return simulatedSeconds;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return liczba operacji (wypożyczeń i zwrotów, także nieudanych) na sekundę czasu rzeczywistego
+     */
+    public double getOperationsPerSecond() {
+        long operations = rentsSucceeded + getFailedRents() + returnsSucceeded + fullStationReturns;
+        return elapsedNanos == 0 ? 0 : operations * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    /**
+     * @return ile razy szybciej od czasu rzeczywistego przebiegła symulacja
+     */
+    public double getSpeedup() {
+        return elapsedNanos == 0 ? 0 : simulatedSeconds * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Symulacja: %d podróży (%d pominiętych), czas symulowany %.1f h, "
+                        + "czas rzeczywisty %.1f ms (x%.0f)%n",
+                tripsRequested, tripsSkipped, simulatedSeconds / 3600.0, elapsedNanos / 1_000_000.0, getSpeedup()));
+        sb.append(String.format("Wypożyczenia: udane %d, nieudane %d", rentsSucceeded, getFailedRents()));
+        String separator = " (";
+        for (RentalFailure failure : RentalFailure.values()) {
+            if (rentFailures[failure.ordinal()] > 0) {
+                sb.append(separator).append(failure).append(": ").append(rentFailures[failure.ordinal()]);
+                separator = ", ";
+            }
+        }
+        sb.append(separator.equals(", ") ? ")" : "").append(String.format("%n"));
+        sb.append(String.format("Zwroty: udane %d, odmowy na pełnych stacjach %d, niezwrócone %d%n",
+                returnsSucceeded, fullStationReturns, returnsAbandoned));
+        sb.append(String.format("Przepustowość: %.0f operacji/s", getOperationsPerSecond()));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,239 @@
+package com.rental.simulation;
+
+import com.rental.model.Station;
+import com.rental.service.BikeRentalSystem;
+import com.rental.service.RentalFailure;
+import com.rental.service.RentalOutcome;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Symulator zdarzeń dyskretnych: odtwarza zapotrzebowanie na przejazdy
+ * na żywym {@link BikeRentalSystem}, sterując jego zegarem.
+ *
+ * <p>Zdarzenia (wyjazd i przyjazd) trzymane są w kolejce priorytetowej
+ * uporządkowanej według czasu symulacji. Przed wykonaniem każdego
+ * zdarzenia zegar systemu przesuwany jest do jego chwili, dzięki czemu
+ * czasy wypożyczeń w historii odpowiadają czasom symulowanym. Doba ruchu
+ * przelicza się w ułamku sekundy; opcjonalne tempo spowalnia symulację
+ * do zadanej krotności czasu rzeczywistego.
+ *
+ * <p>Podróżni to tymczasowi użytkownicy {@code SIM-U<n>}, rejestrowani
+ * w miarę potrzeby i ponownie wykorzystywani po oddaniu roweru. Gdy
+ * stacja docelowa jest pełna, podróżny jedzie do najbliższej stacji
+ * z wolnym miejscem (lub losowej, jeśli stacje nie mają współrzędnych).
+ *
+ * <p>Symulator jest jednowątkowy; w trakcie przebiegu nie należy
+ * wykonywać na systemie innych operacji.
+ */
+public class Simulator {
+    static final String USER_PREFIX = "SIM-U";
+    // cap on consecutive full-station redirects, so a saturated network cannot loop forever
+    private static final int MAX_REDIRECTS = 20;
+    private static final int MIN_REDIRECT_SECONDS = 2 * 60;
+    private static final int MAX_REDIRECT_SECONDS = 5 * 60;
+
+    private final BikeRentalSystem system;
+    private final double speedup;
+    private final SimulationClock clock;
+    private final SplittableRandom random;
+    private final PriorityQueue<Event> queue = new PriorityQueue<>();
+    private final Deque<Integer> idleUsers = new ArrayDeque<>();
+    private long sequence;
+    private int usersCreated;
+
+    /**
+     * Tworzy symulator przeliczający zdarzenia bez opóźnień.
+     */
+    public Simulator(BikeRentalSystem system, LocalDateTime start, long seed) {
+        this(system, start, seed, 0);
+    }
+
+    /**
+     * @param system  system, na którym odtwarzany jest ruch; jego zegar
+     *                zostaje zastąpiony zegarem symulacji
+     * @param start   chwila odpowiadająca sekundzie 0 zapotrzebowania (UTC)
+     * @param seed    ziarno dla losowych wyborów (opóźnienia i objazdy)
+     * @param speedup krotność czasu rzeczywistego; 0 oznacza symulację bez opóźnień
+     */
+    public Simulator(BikeRentalSystem system, LocalDateTime start, long seed, double speedup) {
+        if (speedup < 0) {
+            throw new IllegalArgumentException("Tempo symulacji nie może być ujemne.");
+        }
+        this.system = system;
+        this.speedup = speedup;
+        this.clock = new SimulationClock(start.toInstant(ZoneOffset.UTC));
+        this.random = new SplittableRandom(seed);
+        system.setClock(clock);
+    }
+
+    public SimulationClock getClock() {
+        return clock;
+    }
+
+    /**
+     * Odtwarza całe zapotrzebowanie i zwraca raport z przebiegu.
+     */
+    public SimulationReport run(Demand demand) {
+        SimulationReport report = new SimulationReport();
+        for (Trip trip : demand.getTrips()) {
+            report.tripRequested();
+            int origin = system.stationHandle(trip.getOriginStationId());
+            int destination = system.stationHandle(trip.getDestinationStationId());
+            if (origin < 0 || destination < 0) {
+                report.tripSkipped();
+                continue;
+            }
+            schedule(new Event(trip.getDepartureSecond(), sequence++, origin, destination, trip.getDurationSeconds()));
+        }
+
+        long startMillis = clock.millis();
+        long wallStart = System.nanoTime();
+        long lastSecond = 0;
+        Event event;
+        while ((event = queue.poll()) != null) {
+            pace(event.second, wallStart);
+            clock.advanceTo(startMillis + event.second * 1000L);
+            lastSecond = event.second;
+            if (event.bikeHandle < 0) {
+                depart(event, report);
+            } else {
+                arrive(event, report);
+            }
+        }
+        report.finish(lastSecond, System.nanoTime() - wallStart);
+        return report;
+    }
+
+    private void depart(Event event, SimulationReport report) {
+        int user = borrowUser();
+        RentalOutcome outcome = system.tryRentBike(user, event.stationHandle);
+        if (!outcome.isSuccess()) {
+            report.rentFailed(outcome.getFailure());
+            idleUsers.push(user);
+            return;
+        }
+        report.rentSucceeded();
+        int bike = outcome.getRental().getBike().getHandle();
+        schedule(new Event(event.second + event.durationSeconds, sequence++, event.destinationHandle, user, bike, 0));
+    }
+
+    private void arrive(Event event, SimulationReport report) {
+        RentalOutcome outcome = system.tryReturnBike(event.bikeHandle, event.stationHandle);
+        if (outcome.isSuccess()) {
+            report.returnSucceeded();
+            idleUsers.push(event.userHandle);
+            return;
+        }
+        if (outcome.getFailure() != RentalFailure.STATION_FULL) {
+            throw new IllegalStateException("Nieoczekiwany wynik zwrotu w symulacji: " + outcome.getFailure());
+        }
+        report.fullStationReturn();
+        if (event.redirects >= MAX_REDIRECTS) {
+            report.returnAbandoned();
+            return;
+        }
+        int detour = MIN_REDIRECT_SECONDS + random.nextInt(MAX_REDIRECT_SECONDS - MIN_REDIRECT_SECONDS + 1);
+        schedule(new Event(event.second + detour, sequence++, redirectTarget(event.stationHandle),
+                event.userHandle, event.bikeHandle, event.redirects + 1));
+    }
+
+    private int redirectTarget(int fullStationHandle) {
+        Station full = system.getStation(fullStationHandle);
+        if (full.hasLocation()) {
+            Optional<Station> nearest = system.findNearestStationWithFreeDock(full.getLatitude(), full.getLongitude());
+            if (nearest.isPresent()) {
+                return nearest.get().getHandle();
+            }
+        }
+        List<Station> stations = system.getAllStations();
+        Station other = stations.get(random.nextInt(stations.size()));
+        return other.getHandle();
+    }
+
+    private int borrowUser() {
+        Integer idle = idleUsers.poll();
+        if (idle != null) {
+            return idle;
+        }
+        while (true) {
+            String userId = USER_PREFIX + (++usersCreated);
+            if (system.userHandle(userId) < 0) {
+                return system.registerUser(userId, "Podróżny symulacji " + usersCreated).getHandle();
+            }
+        }
+    }
+
+    private void schedule(Event event) {
+        queue.add(event);
+    }
+
+    // Sleeps until wall time catches up with the simulated second at the requested speedup
+    private void pace(long second, long wallStart) {
+        if (speedup == 0) {
+            return;
+        }
+        long dueNanos = wallStart + (long) (second * 1_000_000_000.0 / speedup);
+        long waitNanos = dueNanos - System.nanoTime();
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Zdarzenie w kolejce: wyjazd (bez roweru) albo przyjazd z rowerem
+     * na stację. Remisy czasowe rozstrzyga kolejność zaplanowania.
+     */
+    private static final class Event implements Comparable<Event> {
+        final long second;
+        final long sequence;
+        final int stationHandle;
+        final int destinationHandle;
+        final int durationSeconds;
+        final int userHandle;
+        final int bikeHandle;
+        final int redirects;
+
+        // departure
+        Event(long second, long sequence, int originHandle, int destinationHandle, int durationSeconds) {
+            this.second = second;
+            this.sequence = sequence;
+            this.stationHandle = originHandle;
+            this.destinationHandle = destinationHandle;
+            this.durationSeconds = durationSeconds;
+            this.userHandle = -1;
+            this.bikeHandle = -1;
+            this.redirects = 0;
+        }
+
+        // arrival
+        Event(long second, long sequence, int stationHandle, int userHandle, int bikeHandle, int redirects) {
+            this.second = second;
+            this.sequence = sequence;
+            this.stationHandle = stationHandle;
+            this.destinationHandle = -1;
+            this.durationSeconds = 0;
+            this.userHandle = userHandle;
+            this.bikeHandle = bikeHandle;
+            this.redirects = redirects;
+        }
+
+        @Override
+        public int compareTo(Event other) {
+            int bySecond = Long.compare(second, other.second);
+            return bySecond != 0 ? bySecond : Long.compare(sequence, other.sequence);
+        }
+    }
+}
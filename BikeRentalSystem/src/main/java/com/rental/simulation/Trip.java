@@ -0,0 +1,50 @@
+package com.rental.simulation;
+
+/**
+ * Pojedyncza podróż w zapotrzebowaniu: wyjazd ze stacji początkowej
+ * w danej sekundzie symulacji i przejazd do stacji docelowej.
+ */
+public final class Trip {
+    private final int departureSecond;
+    private final String originStationId;
+    private final String destinationStationId;
+    private final int durationSeconds;
+
+    /**
+     * @param departureSecond      sekunda wyjazdu liczona od początku symulacji
+     * @param originStationId      stacja, z której wypożyczany jest rower
+     * @param destinationStationId stacja, na którą rower jest zwracany
+     * @param durationSeconds      czas przejazdu w sekundach
+     */
+    public Trip(int departureSecond, String originStationId, String destinationStationId, int durationSeconds) {
+        if (departureSecond < 0 || durationSeconds < 0) {
+            throw new IllegalArgumentException("Czas wyjazdu i przejazdu nie mogą być ujemne.");
+        }
+        this.departureSecond = departureSecond;
+        this.originStationId = originStationId;
+        this.destinationStationId = destinationStationId;
+        this.durationSeconds = durationSeconds;
+    }
+
+    public int getDepartureSecond() {
+        return departureSecond;
+    }
+
+    public String getOriginStationId() {
+        return originStationId;
+    }
+
+    public String getDestinationStationId() {
+        return destinationStationId;
+    }
+
+    public int getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    @Override
+    public String toString() {
+        return "Trip{" + departureSecond + "s, " + originStationId + " -> " + destinationStationId
+                + ", " + durationSeconds + "s}";
+    }
+}
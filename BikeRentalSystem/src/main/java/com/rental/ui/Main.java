@@ -1,24 +1,165 @@
 
 package com.rental.ui;
 
+import com.rental.analytics.OriginDestination;
+import com.rental.analytics.StationUsage;
+import com.rental.analytics.UsageAnalytics;
+import com.rental.billing.BillingReport;
+import com.rental.billing.FareEngine;
+import com.rental.billing.SubscriptionPlan;
+import com.rental.event.ConsoleEventSink;
+import com.rental.event.EventLog;
+import com.rental.event.EventSink;
+import com.rental.event.RotatingFileEventSink;
 import com.rental.exception.*;
+import com.rental.http.RentalHttpServer;
+import com.rental.importer.BulkImporter;
+import com.rental.importer.ImportError;
+import com.rental.importer.ImportReport;
 import com.rental.model.Bike;
+import com.rental.model.HistoryPage;
+import com.rental.model.HistoryQuery;
 import com.rental.model.Rental;
+import com.rental.model.Reservation;
 import com.rental.model.Station;
+import com.rental.metrics.Metrics;
 import com.rental.model.User;
+import com.rental.persistence.RentalJournal;
+import com.rental.persistence.SystemSnapshot;
+import com.rental.rebalancing.RebalancingPlan;
+import com.rental.rebalancing.RebalancingPlanner;
 import com.rental.service.BikeRentalSystem;
+import com.rental.service.MaintenanceScheduler;
+import com.rental.service.StationStatusSnapshot;
+import com.rental.simulation.Demand;
+import com.rental.simulation.SimulationReport;
+import com.rental.simulation.Simulator;
+import com.rental.util.Money;
 
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Scanner;
 
 public class Main {
-    private static final BikeRentalSystem system = new BikeRentalSystem();
+    private static BikeRentalSystem system;
+    private static RentalJournal journal;
+    private static Path snapshotFile;
+    private static EventLog eventLog = EventLog.disabled();
+    private static MaintenanceScheduler maintenance;
     private static final Scanner scanner = new Scanner(System.in);
+    private static final int DEFAULT_SIMULATED_TRIPS = 10_000;
+    private static final int HISTORY_PAGE_SIZE = 10;
 
     public static void main(String[] args) {
-        initializeSystem();
+        Path journalDir = null;
+        Path importDir = null;
+        String eventsTarget = null;
+        String simulationSource = null;
+        int simulatedTrips = DEFAULT_SIMULATED_TRIPS;
+        int httpPort = -1;
+        boolean metricsEnabled = true;
+        Duration maxRental = BikeRentalSystem.DEFAULT_MAX_RENTAL_DURATION;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--journal" -> journalDir = Path.of(args[i + 1]);
+                case "--snapshot" -> snapshotFile = Path.of(args[i + 1]);
+                case "--import" -> importDir = Path.of(args[i + 1]);
+                case "--events" -> eventsTarget = args[i + 1];
+                case "--simulate" -> simulationSource = args[i + 1];
+                case "--trips" -> {
+                    try {
+                        simulatedTrips = Integer.parseInt(args[i + 1]);
+                    } catch (NumberFormatException e) {
+                        System.err.println("Nieprawidłowa liczba podróży: " + args[i + 1]);
+                        return;
+                    }
+                }
+                case "--metrics" -> metricsEnabled = !args[i + 1].equals("off");
+                case "--max-rental" -> {
+                    try {
+                        maxRental = Duration.ofMinutes(Integer.parseInt(args[i + 1]));
+                    } catch (NumberFormatException e) {
+                        System.err.println("Nieprawidłowy czas wypożyczenia: " + args[i + 1]);
+                        return;
+                    }
+                }
+                case "--http" -> {
+                    try {
+                        httpPort = Integer.parseInt(args[i + 1]);
+                    } catch (NumberFormatException e) {
+                        System.err.println("Nieprawidłowy numer portu: " + args[i + 1]);
+                        return;
+                    }
+                }
+                default -> {
+                    System.err.println("Nieznana opcja: " + args[i]);
+                    return;
+                }
+            }
+        }
+
+        if (journalDir != null) {
+            snapshotFile = null;
+            try {
+                journal = RentalJournal.open(journalDir);
+                system = new BikeRentalSystem(journal);
+            } catch (IOException e) {
+                System.err.println("Błąd odczytu dziennika: " + e.getMessage());
+                return;
+            }
+        } else if (snapshotFile != null) {
+            try {
+                system = Files.exists(snapshotFile) ? SystemSnapshot.load(snapshotFile) : new BikeRentalSystem();
+            } catch (IOException e) {
+                System.err.println("Błąd odczytu migawki: " + e.getMessage());
+                return;
+            }
+        } else if (importDir != null) {
+            system = new BikeRentalSystem();
+            if (!importData(importDir)) {
+                return;
+            }
+        } else {
+            system = new BikeRentalSystem();
+        }
+        if (eventsTarget != null && !startEventLog(eventsTarget)) {
+            return;
+        }
+        if (metricsEnabled) {
+            system.setMetrics(Metrics.create());
+        }
+        try {
+            system.setMaxRentalDuration(maxRental);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return;
+        }
+        // a recovered system already holds its stations
+        if (system.getAllStations().isEmpty()) {
+            initializeSystem();
+        } else if (journal != null || snapshotFile != null) {
+            System.out.println("\nOdtworzono zapisany stan systemu.\n");
+        }
+        // rentals recovered from the journal or snapshot are counted from history, new ones as they end
+        system.setUsageAnalytics(UsageAnalytics.recompute(system.getAllUsers()));
+        maintenance = MaintenanceScheduler.start(system);
 
         boolean exit = false;
+        if (simulationSource != null) {
+            runSimulation(simulationSource, simulatedTrips);
+            exit = true;
+        } else if (httpPort >= 0) {
+            serveHttp(httpPort);
+            exit = true;
+        }
         while (!exit) {
             printMenu();
             int choice = getUserChoice();
@@ -31,6 +172,13 @@ public class Main {
                     case 4 -> rentBike();
                     case 5 -> returnBike();
                     case 6 -> viewUserHistory();
+                    case 7 -> viewMetrics();
+                    case 8 -> rebalanceStations();
+                    case 9 -> reserveBike();
+                    case 10 -> cancelReservation();
+                    case 11 -> viewOverdueRentals();
+                    case 12 -> viewUsageAnalytics();
+                    case 13 -> viewBilling();
                     case 0 -> exit = true;
                     default -> System.out.println("Nieprawidłowy wybór.");
                 }
@@ -41,6 +189,27 @@ public class Main {
         }
         System.out.println("Do widzenia!");
         scanner.close();
+        shutdown();
+    }
+
+    /**
+     * Zamyka system, dziennik i dziennik zdarzeń oraz zapisuje migawkę,
+     * jeśli system został z niej wczytany.
+     */
+    private static void shutdown() {
+        maintenance.close();
+        system.close();
+        if (journal != null) {
+            journal.close();
+        }
+        eventLog.close();
+        if (snapshotFile != null) {
+            try {
+                SystemSnapshot.save(system, snapshotFile);
+            } catch (IOException e) {
+                System.err.println("Błąd zapisu migawki: " + e.getMessage());
+            }
+        }
     }
 
     private static void initializeSystem() {
@@ -64,6 +233,107 @@ public class Main {
         System.out.println("\nSystem zainicjalizowany.\n");
     }
 
+    /**
+     * Importuje pliki stations.csv, bikes.csv i users.csv z podanego
+     * katalogu (brakujące pliki są pomijane) i wypisuje raport.
+     *
+     * @return {@code false} jeśli import nie mógł zostać wykonany
+     */
+    private static boolean importData(Path directory) {
+        try {
+            ImportReport report = new BulkImporter(system).importFiles(
+                    existing(directory.resolve("stations.csv")),
+                    existing(directory.resolve("bikes.csv")),
+                    existing(directory.resolve("users.csv")));
+            for (ImportError error : report.getErrors()) {
+                System.err.println("Błąd importu: " + error);
+            }
+            if (report.getErrorCount() > report.getErrors().size()) {
+                System.err.println("... oraz " + (report.getErrorCount() - report.getErrors().size()) + " kolejnych błędów.");
+            }
+            System.out.println(report);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Błąd odczytu plików importu: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Włącza dziennik zdarzeń operacyjnych: na konsolę dla celu
+     * {@code console}, w przeciwnym razie do rotowanych plików
+     * we wskazanym katalogu.
+     *
+     * @return {@code false} jeśli nie udało się utworzyć dziennika
+     */
+    private static boolean startEventLog(String target) {
+        try {
+            EventSink sink = target.equals("console") ? new ConsoleEventSink() : new RotatingFileEventSink(Path.of(target));
+            eventLog = EventLog.start(sink);
+            system.setEventLog(eventLog);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Błąd utworzenia dziennika zdarzeń: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Odtwarza na systemie dobę ruchu - syntetyczną ({@code synthetic})
+     * albo zapisaną w pliku CSV - i wypisuje raport z symulacji.
+     */
+    private static void runSimulation(String source, int trips) {
+        try {
+            Demand demand = source.equals("synthetic")
+                    ? Demand.synthetic(system.getAllStations(), trips, System.nanoTime())
+                    : Demand.fromCsv(Path.of(source));
+            Simulator simulator = new Simulator(system, LocalDate.now().atStartOfDay(), System.nanoTime());
+            SimulationReport report = simulator.run(demand);
+            System.out.println(report);
+        } catch (IOException e) {
+            System.err.println("Błąd odczytu zapotrzebowania: " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Błąd symulacji: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Udostępnia system przez API HTTP na podanym porcie. Serwer działa do
+     * naciśnięcia Enter, a bez konsoli (np. w kontenerze) - do zatrzymania
+     * procesu, przy którym stan jest zamykany i zapisywany tak jak przy
+     * wyjściu z menu.
+     */
+    private static void serveHttp(int port) {
+        RentalHttpServer server;
+        try {
+            server = RentalHttpServer.start(system, new InetSocketAddress(port));
+        } catch (IOException e) {
+            System.err.println("Błąd uruchomienia serwera HTTP: " + e.getMessage());
+            return;
+        }
+        System.out.println("Serwer HTTP nasłuchuje na porcie " + server.getPort()
+                + (server.usesVirtualThreads() ? " (wątki wirtualne)." : " (pula wątków)."));
+        System.out.println("Naciśnij Enter, aby zatrzymać serwer.");
+        if (scanner.hasNextLine()) {
+            scanner.nextLine();
+            server.stop();
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            shutdown();
+        }));
+        try {
+            Thread.currentThread().join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Path existing(Path file) {
+        return Files.exists(file) ? file : null;
+    }
+
     private static void printMenu() {
         System.out.println("===== MENU WYPOŻYCZALNI ROWERÓW =====");
         System.out.println("1. Zarejestruj nowego użytkownika");
@@ -72,6 +342,13 @@ public class Main {
         System.out.println("4. Wypożycz rower");
         System.out.println("5. Zwróć rower");
         System.out.println("6. Wyświetl historię wypożyczeń użytkownika");
+        System.out.println("7. Wyświetl metryki systemu (administrator)");
+        System.out.println("8. Zrównoważ rozmieszczenie rowerów (administrator)");
+        System.out.println("9. Zarezerwuj rower");
+        System.out.println("10. Anuluj rezerwację");
+        System.out.println("11. Wyświetl przeterminowane wypożyczenia (administrator)");
+        System.out.println("12. Wyświetl statystyki wykorzystania stacji (administrator)");
+        System.out.println("13. Rozliczenia i plany abonamentowe (administrator)");
         System.out.println("0. Wyjdź");
         System.out.print("Wybierz opcję: ");
     }
@@ -95,7 +372,8 @@ public class Main {
         System.out.print("Podaj imię i nazwisko: ");
         String name = scanner.nextLine();
         try {
-            system.registerUser(userId, name);
+            User user = system.registerUser(userId, name);
+            System.out.println("Zarejestrowano użytkownika: " + user);
         } catch (IllegalArgumentException e) {
             System.err.println("Błąd rejestracji: " + e.getMessage());
         }
@@ -103,22 +381,25 @@ public class Main {
 
     private static void viewStations() {
         System.out.println("\n--- Lista Stacji ---");
-        List<Station> stations = system.getAllStations();
-        if (stations.isEmpty()) {
+        StationStatusSnapshot status = system.getStationStatus();
+        if (status.size() == 0) {
             System.out.println("Brak stacji w systemie.");
         } else {
-            stations.forEach(station ->
+            for (int handle = 0; handle < status.size(); handle++) {
+                Station station = status.getStation(handle);
+                if (station != null) {
                     System.out.printf("ID: %s, Nazwa: %s, Dostępne rowery: %d, Wolne miejsca: %d / %d%n",
                             station.getStationId(), station.getLocationName(),
-                            station.getAvailableBikeCount(), station.getAvailableSpots(), station.getCapacity())
-            );
+                            status.getAvailableBikes(handle), status.getFreeDocks(handle), station.getCapacity());
+                }
+            }
         }
     }
 
     private static void viewAvailableBikes() throws StationNotFoundException {
         System.out.print("Podaj ID stacji: ");
         String stationId = scanner.nextLine();
-        List<Bike> bikes = system.getAvailableBikesAtStation(stationId.toUpperCase());
+        List<Bike> bikes = system.getAvailableBikesAtStation(stationId);
         System.out.println("\n--- Dostępne rowery na stacji " + stationId + " ---");
         if (bikes.isEmpty()) {
             System.out.println("Brak dostępnych rowerów.");
@@ -132,34 +413,209 @@ public class Main {
         String userId = scanner.nextLine();
         System.out.print("Podaj ID stacji, z której chcesz wypożyczyć rower: ");
         String stationId = scanner.nextLine();
-        var temp = system.rentBike(userId, stationId.toUpperCase());
+        var temp = system.rentBike(userId, stationId);
         System.out.println("Wypożyczono rower(" + temp.getBike().getBikeId() + ")! ");
     }
 
+    private static void reserveBike() throws UserNotFoundException, StationNotFoundException,
+            UserAlreadyRentingException, UserAlreadyReservingException, NoBikesAvailableException {
+        System.out.print("Podaj swoje ID użytkownika: ");
+        String userId = scanner.nextLine();
+        System.out.print("Podaj ID stacji, na której chcesz zarezerwować rower: ");
+        String stationId = scanner.nextLine();
+        Reservation reservation = system.reserveBike(userId, stationId);
+        System.out.println("Zarezerwowano rower: " + reservation);
+        System.out.println("Aby go odebrać, wypożycz rower na stacji " + reservation.getStation().getStationId()
+                + " przed upływem " + system.getReservationHold().toMinutes() + " minut.");
+    }
+
+    private static void cancelReservation() throws UserNotFoundException, NoReservationException {
+        System.out.print("Podaj swoje ID użytkownika: ");
+        String userId = scanner.nextLine();
+        system.cancelReservation(userId);
+        System.out.println("Rezerwacja anulowana.");
+    }
+
     private static void returnBike() throws BikeNotFoundException, StationNotFoundException, StationFullException, NotRentingException {
         System.out.print("Podaj ID roweru, który zwracasz: ");
         String bikeId = scanner.nextLine();
         System.out.print("Podaj ID stacji, na którą zwracasz rower: ");
         String stationId = scanner.nextLine();
-        Rental completedRental = system.returnBike(bikeId, stationId.toUpperCase());
+        Rental completedRental = system.returnBike(bikeId, stationId);
         System.out.println("Rower zwrócony pomyślnie.");
+        System.out.println("Czas wypożyczenia: " + completedRental.getDuration().toMinutes() + " minut.");
+        System.out.println("Opłata: " + Money.format(completedRental.getFareCents()));
         System.out.println("Podsumowanie wypożyczenia: " + completedRental);
     }
 
-    private static void viewUserHistory() throws UserNotFoundException {
+    private static void viewUserHistory() throws UserNotFoundException, StationNotFoundException {
         System.out.print("Podaj ID użytkownika, którego historię chcesz zobaczyć: ");
         String userId = scanner.nextLine();
-        List<Rental> history = system.getUserHistory(userId);
-        System.out.println("\n--- Historia wypożyczeń użytkownika " + userId + " ---");
-        if (history.isEmpty()) {
+        System.out.print("Podaj miesiąc (RRRR-MM) lub naciśnij Enter, aby zobaczyć całą historię: ");
+        String month = scanner.nextLine().trim();
+        HistoryQuery query = HistoryQuery.latest(HISTORY_PAGE_SIZE);
+        if (!month.isEmpty()) {
+            try {
+                YearMonth yearMonth = YearMonth.parse(month);
+                query = query.between(yearMonth.atDay(1).atStartOfDay(), yearMonth.plusMonths(1).atDay(1).atStartOfDay());
+            } catch (DateTimeParseException e) {
+                System.out.println("Nieprawidłowy miesiąc: " + month);
+                return;
+            }
+        }
+        HistoryPage page = system.getUserHistory(userId, query);
+        System.out.println("\n--- Historia wypożyczeń użytkownika " + userId + " (od najnowszych) ---");
+        if (page.getRentals().isEmpty()) {
             System.out.println("Brak historii wypożyczeń.");
-        } else {
-            history.forEach(System.out::println);
+        }
+        page.getRentals().forEach(System.out::println);
+        while (page.hasNext()) {
+            System.out.print("Enter - następna strona, q - koniec: ");
+            if (scanner.nextLine().trim().equalsIgnoreCase("q")) {
+                break;
+            }
+            page = system.getUserHistory(userId, query.after(page.getNextCursor()));
+            page.getRentals().forEach(System.out::println);
         }
 
         User user = system.findUser(userId);
         if (user.isRenting()) {
             System.out.println("Aktywne wypożyczenie: " + user.getCurrentRental());
         }
+        system.findReservation(userId).ifPresent(reservation ->
+                System.out.println("Aktywna rezerwacja: " + reservation));
+    }
+
+    private static void viewMetrics() {
+        System.out.println("\n--- Metryki systemu ---");
+        if (!system.getMetrics().isEnabled()) {
+            System.out.println("Pomiar czasów operacji jest wyłączony (--metrics off).");
+        }
+        System.out.print(system.exportMetrics());
+    }
+
+    private static void rebalanceStations() {
+        RebalancingPlan plan = new RebalancingPlanner().plan(system.getAllStations());
+        System.out.println("\n--- Plan równoważenia stacji ---");
+        System.out.println(plan);
+        if (plan.getTransfers().isEmpty()) {
+            System.out.println("Stacje są zrównoważone, nie ma czego przewozić.");
+            return;
+        }
+        plan.getTransfers().stream().limit(20).forEach(System.out::println);
+        if (plan.getTransfers().size() > 20) {
+            System.out.println("... i " + (plan.getTransfers().size() - 20) + " kolejnych kursów");
+        }
+        System.out.print("Zastosować plan? (t/n): ");
+        if (!scanner.nextLine().trim().equalsIgnoreCase("t")) {
+            System.out.println("Plan odrzucony.");
+            return;
+        }
+        int moved = RebalancingPlanner.apply(system, plan);
+        System.out.println("Przeniesiono rowerów: " + moved + " z " + plan.getBikesMoved() + " zaplanowanych.");
+    }
+
+    private static void viewOverdueRentals() {
+        System.out.print("Pokaż wypożyczenia przekraczające termin o co najmniej (minut): ");
+        int minutes;
+        try {
+            minutes = Integer.parseInt(scanner.nextLine().trim());
+        } catch (NumberFormatException e) {
+            System.out.println("Nieprawidłowa liczba minut.");
+            return;
+        }
+        List<Rental> overdue = system.findOverdueRentals(Duration.ofMinutes(minutes));
+        System.out.println("\n--- Wypożyczenia po terminie (dozwolony czas: "
+                + system.getMaxRentalDuration().toMinutes() + " minut) ---");
+        if (overdue.isEmpty()) {
+            System.out.println("Brak przeterminowanych wypożyczeń.");
+        } else {
+            overdue.forEach(System.out::println);
+        }
+    }
+
+    private static void viewUsageAnalytics() throws StationNotFoundException {
+        UsageAnalytics analytics = system.getUsageAnalytics();
+        System.out.println("\n--- Statystyki wykorzystania stacji ---");
+        System.out.printf("Zakończone przejazdy: %d, średni czas: %d minut%n",
+                analytics.getTripCount(), analytics.getAverageDuration().toMinutes());
+        System.out.println("Wypożyczenia według godziny:");
+        for (int hour = 0; hour < UsageAnalytics.HOURS; hour++) {
+            System.out.printf("  %02d:00 %d%n", hour, analytics.getHourlyDemand(hour));
+        }
+        List<OriginDestination> top = analytics.getTopPairs(10);
+        if (!top.isEmpty()) {
+            System.out.println("Najczęstsze trasy:");
+            top.forEach(pair -> System.out.println("  " + pair));
+        }
+
+        System.out.print("Podaj ID stacji do szczegółów (Enter - pomiń): ");
+        String stationId = scanner.nextLine().trim();
+        if (!stationId.isEmpty()) {
+            StationUsage usage = analytics.getStationUsage(system.findStation(stationId));
+            System.out.println(usage);
+            int busiest = 0;
+            for (int hour = 1; hour < UsageAnalytics.HOURS; hour++) {
+                if (usage.getDepartures(hour) > usage.getDepartures(busiest)) {
+                    busiest = hour;
+                }
+            }
+            if (usage.getDepartures() > 0) {
+                System.out.printf("Najwięcej wypożyczeń o %02d:00 (%d)%n", busiest, usage.getDepartures(busiest));
+            }
+        }
+
+        long start = System.nanoTime();
+        List<String> differences = analytics.differences(UsageAnalytics.recompute(system.getAllUsers()), 10);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        if (differences.isEmpty()) {
+            System.out.println("Weryfikacja z historią: zgodne (" + millis + " ms).");
+        } else {
+            // returns completed during the recomputation also show up here
+            System.out.println("Weryfikacja z historią: niezgodne (" + millis + " ms):");
+            differences.forEach(difference -> System.out.println("  " + difference));
+        }
+    }
+
+    private static void viewBilling() throws UserNotFoundException {
+        FareEngine fares = system.getFareEngine();
+        System.out.println("\n--- Rozliczenia ---");
+        BillingReport report = fares.reprice(system.getAllUsers());
+        System.out.printf("Wycenione przejazdy: %d, suma opłat: %s (%d ms)%n", report.getRentalCount(),
+                Money.format(report.getTotalCents()), report.getElapsed().toMillis());
+        for (SubscriptionPlan plan : SubscriptionPlan.values()) {
+            System.out.printf("  %s: %d przejazdów, %s%n", plan.getDescription(),
+                    report.getRentalCount(plan), Money.format(report.getTotalCents(plan)));
+        }
+        if (report.getUnpricedCount() > 0) {
+            System.out.println("Przejazdy bez opłaty naliczonej przy zwrocie: " + report.getUnpricedCount());
+        }
+        if (report.getMismatchCount() == 0) {
+            System.out.println("Weryfikacja z opłatami naliczonymi przy zwrotach: zgodne.");
+        } else {
+            // plans, zones or the tariff changed after these rentals were priced
+            System.out.println("Weryfikacja z opłatami naliczonymi przy zwrotach: niezgodne "
+                    + report.getMismatchCount() + ", np. " + Arrays.toString(report.getMismatchSample()));
+        }
+
+        System.out.print("Podaj ID użytkownika, aby zmienić jego plan (Enter - pomiń): ");
+        String userId = scanner.nextLine().trim();
+        if (userId.isEmpty()) {
+            return;
+        }
+        User user = system.findUser(userId);
+        SubscriptionPlan[] plans = SubscriptionPlan.values();
+        System.out.println("Obecny plan: " + fares.getPlan(user).getDescription());
+        for (int i = 0; i < plans.length; i++) {
+            System.out.println((i + 1) + ". " + plans[i].getDescription());
+        }
+        System.out.print("Wybierz plan: ");
+        int choice = getUserChoice();
+        if (choice < 1 || choice > plans.length) {
+            System.out.println("Nieprawidłowy plan.");
+            return;
+        }
+        fares.setPlan(user, plans[choice - 1]);
+        System.out.println("Plan zmieniony na: " + plans[choice - 1].getDescription());
     }
 }
@@ -0,0 +1,228 @@
+package com.rental.util;
+
+/**
+ * Mapa {@code long -> int} z adresowaniem otwartym (sondowanie liniowe),
+ * przechowująca klucze i wartości w dwóch tablicach prymitywnych - bez
+ * obiektów wpisów i bez opakowywania liczb. Wpis zajmuje 12 bajtów,
+ * a przy współczynniku wypełnienia 0,75 średnio około 16 bajtów.
+ *
+ * <p>Klasa nie jest bezpieczna wątkowo.
+ */
+public final class LongIntHashMap {
+    private static final long EMPTY_KEY = 0L;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private final int missingValue;
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+    // key 0 marks empty slots, so its entry is kept aside
+    private boolean hasZeroKey;
+    private int zeroKeyValue;
+
+    /**
+     * @param expectedSize przewidywana liczba wpisów
+     * @param missingValue wartość zwracana dla brakującego klucza
+     */
+    public LongIntHashMap(int expectedSize, int missingValue) {
+        this.missingValue = missingValue;
+        allocate(capacityFor(expectedSize));
+    }
+
+    public int size() {
+        return size + (hasZeroKey ? 1 : 0);
+    }
+
+    /**
+     * @return wartość dla klucza lub wartość "brak" podana w konstruktorze
+     */
+    public int get(long key) {
+        if (key == EMPTY_KEY) {
+            return hasZeroKey ? zeroKeyValue : missingValue;
+        }
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            long existing = keys[slot];
+            if (existing == key) {
+                return values[slot];
+            }
+            if (existing == EMPTY_KEY) {
+                return missingValue;
+            }
+        }
+    }
+
+    /**
+     * @return poprzednia wartość dla klucza lub wartość "brak"
+     */
+    public int put(long key, int value) {
+        if (key == EMPTY_KEY) {
+            int previous = hasZeroKey ? zeroKeyValue : missingValue;
+            hasZeroKey = true;
+            zeroKeyValue = value;
+            return previous;
+        }
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            long existing = keys[slot];
+            if (existing == key) {
+                int previous = values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            if (existing == EMPTY_KEY) {
+                keys[slot] = key;
+                values[slot] = value;
+                if (++size >= resizeAt) {
+                    rehash(keys.length * 2);
+                }
+                return missingValue;
+            }
+        }
+    }
+
+    /**
+     * Dodaje {@code delta} do wartości klucza; brakujący klucz traktowany
+     * jest jak klucz o wartości 0.
+     *
+     * @return nowa wartość dla klucza
+     */
+    public int addTo(long key, int delta) {
+        if (key == EMPTY_KEY) {
+            zeroKeyValue = (hasZeroKey ? zeroKeyValue : 0) + delta;
+            hasZeroKey = true;
+            return zeroKeyValue;
+        }
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            long existing = keys[slot];
+            if (existing == key) {
+                return values[slot] += delta;
+            }
+            if (existing == EMPTY_KEY) {
+                keys[slot] = key;
+                values[slot] = delta;
+                if (++size >= resizeAt) {
+                    rehash(keys.length * 2);
+                }
+                return delta;
+            }
+        }
+    }
+
+    /**
+     * Przekazuje odbiorcy wszystkie wpisy mapy, w nieokreślonej kolejności.
+     */
+    public void forEach(EntryConsumer consumer) {
+        if (hasZeroKey) {
+            consumer.accept(EMPTY_KEY, zeroKeyValue);
+        }
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != EMPTY_KEY) {
+                consumer.accept(keys[slot], values[slot]);
+            }
+        }
+    }
+
+    /**
+     * @return usunięta wartość lub wartość "brak"
+     */
+    public int remove(long key) {
+        if (key == EMPTY_KEY) {
+            int previous = hasZeroKey ? zeroKeyValue : missingValue;
+            hasZeroKey = false;
+            return previous;
+        }
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            long existing = keys[slot];
+            if (existing == EMPTY_KEY) {
+                return missingValue;
+            }
+            if (existing == key) {
+                int previous = values[slot];
+                shiftBack(slot);
+                size--;
+                return previous;
+            }
+        }
+    }
+
+    /**
+     * Szacuje liczbę bajtów zajmowanych przez tablice mapy.
+     */
+    public long memoryBytes() {
+        return (long) keys.length * (Long.BYTES + Integer.BYTES);
+    }
+
+    // Closes the gap left by a removed entry so that later probes still reach every key
+    private void shiftBack(int gap) {
+        int slot = gap;
+        while (true) {
+            slot = (slot + 1) & mask;
+            long key = keys[slot];
+            if (key == EMPTY_KEY) {
+                break;
+            }
+            int home = slot(key);
+            // move the entry if its home slot is not within (gap, slot]
+            if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+                keys[gap] = key;
+                values[gap] = values[slot];
+                gap = slot;
+            }
+        }
+        keys[gap] = EMPTY_KEY;
+    }
+
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void rehash(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalStateException("Mapa osiągnęła maksymalny rozmiar: " + size());
+        }
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != EMPTY_KEY) {
+                int slot = slot(key);
+                while (keys[slot] != EMPTY_KEY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) Math.min(capacity * (double) LOAD_FACTOR, capacity - 1);
+    }
+
+    private static int capacityFor(int expectedSize) {
+        long needed = (long) Math.ceil(Math.max(expectedSize, 4) / (double) LOAD_FACTOR) + 1;
+        if (needed > 1 << 30) {
+            throw new IllegalArgumentException("Zbyt duża pojemność mapy: " + expectedSize);
+        }
+        return Integer.highestOneBit((int) needed - 1) << 1;
+    }
+
+    /**
+     * Odbiorca wpisów mapy, bez opakowywania kluczy i wartości.
+     */
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(long key, int value);
+    }
+
+    @Override
+    public String toString() {
+        return "LongIntHashMap{size=" + size() + ", capacity=" + keys.length + '}';
+    }
+}
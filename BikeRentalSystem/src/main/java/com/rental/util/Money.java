@@ -0,0 +1,20 @@
+package com.rental.util;
+
+/**
+ * Kwoty pieniężne przechowywane są jako liczba groszy w zmiennej
+ * {@code long}, bez arytmetyki zmiennoprzecinkowej i jej zaokrągleń.
+ */
+public final class Money {
+
+    private Money() {
+    }
+
+    /**
+     * @return kwota w zapisie "12,34 zł"
+     */
+    public static String format(long cents) {
+        String sign = cents < 0 ? "-" : "";
+        long abs = Math.abs(cents);
+        return String.format("%s%d,%02d zł", sign, abs / 100, abs % 100);
+    }
+}
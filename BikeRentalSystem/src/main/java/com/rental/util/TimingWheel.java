@@ -0,0 +1,199 @@
+package com.rental.util;
+
+import java.util.function.Consumer;
+
+/**
+ * Hierarchiczne koło czasowe (Varghese i Lauck) odmierzające terminy
+ * z dokładnością do jednego taktu. Każdy poziom ma 64 przegródki;
+ * poziom 0 obejmuje 64 takty, każdy kolejny 64 razy więcej. Termin
+ * trafia do przegródki najniższego poziomu, który go obejmuje, a gdy
+ * niższy poziom zatoczy pełne koło, zawartość bieżącej przegródki
+ * poziomu wyższego rozdzielana jest niżej. Dodanie i anulowanie terminu
+ * kosztują O(1), a każdy termin przenoszony jest najwyżej
+ * {@code LEVELS - 1} razy - niezależnie od liczby oczekujących terminów.
+ *
+ * <p>Przegródki są listami dwukierunkowymi zbudowanymi z samych
+ * terminów ({@link Timeout}), więc anulowanie niczego nie przeszukuje.
+ * Terminy dalsze niż zasięg koła (64^4 taktów) odkładane są w ostatniej
+ * przegródce i przenoszone, aż znajdą się w zasięgu.
+ *
+ * <p>Klasa nie jest bezpieczna wątkowo.
+ *
+ * @param <T> typ obiektów, którym wyznaczane są terminy
+ */
+public final class TimingWheel<T> {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+
+    private final long tickMillis;
+    // sentinel heads of circular slot lists, LEVELS * SLOTS of them
+    private final Timeout<T>[] slots;
+    private long currentTick = Long.MIN_VALUE;
+    private int size;
+
+    /**
+     * @param tickMillis długość taktu w milisekundach - dokładność, z jaką
+     *                   zgłaszane są minione terminy
+     */
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Długość taktu musi być dodatnia: " + tickMillis);
+        }
+        this.tickMillis = tickMillis;
+        this.slots = (Timeout<T>[]) new Timeout<?>[LEVELS * SLOTS];
+        for (int i = 0; i < slots.length; i++) {
+            Timeout<T> head = new Timeout<>(null, 0);
+            head.prev = head;
+            head.next = head;
+            slots[i] = head;
+        }
+    }
+
+    /**
+     * Wyznacza termin dla obiektu. Termin, który już minął, zostanie
+     * zgłoszony po najbliższym takcie.
+     *
+     * @param value          obiekt, którego dotyczy termin
+     * @param deadlineMillis termin w milisekundach (w tej samej skali co
+     *                       czas przekazywany do {@link #advance})
+     * @param nowMillis      bieżący czas; przy pierwszym użyciu ustawia
+     *                       początek odliczania koła
+     * @return uchwyt pozwalający anulować termin
+     */
+    public Timeout<T> schedule(T value, long deadlineMillis, long nowMillis) {
+        start(nowMillis);
+        Timeout<T> timeout = new Timeout<>(value, Math.floorDiv(deadlineMillis, tickMillis));
+        // a deadline that has already passed fires on the next tick
+        insert(timeout, currentTick + 1);
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Anuluje termin. Anulowanie terminu już zgłoszonego lub
+     * anulowanego nic nie robi.
+     *
+     * @return {@code true} jeśli termin oczekiwał i został anulowany
+     */
+    public boolean cancel(Timeout<T> timeout) {
+        if (timeout.next == null) {
+            return false;
+        }
+        unlink(timeout);
+        size--;
+        return true;
+    }
+
+    /**
+     * Przesuwa koło do podanej chwili i przekazuje odbiorcy obiekty,
+     * których termin minął, w kolejności przegródek. Cofnięcie czasu
+     * niczego nie zmienia.
+     *
+     * @param nowMillis bieżący czas w milisekundach
+     * @param expired   odbiorca obiektów z minionym terminem
+     * @return liczba zgłoszonych terminów
+     */
+    public int advance(long nowMillis, Consumer<? super T> expired) {
+        start(nowMillis);
+        long targetTick = Math.floorDiv(nowMillis, tickMillis);
+        int fired = 0;
+        while (currentTick < targetTick) {
+            if (size == 0) {
+                // nothing to cascade or fire, so the empty stretch can be skipped outright
+                currentTick = targetTick;
+                break;
+            }
+            currentTick++;
+            cascade();
+            Timeout<T> head = slots[(int) (currentTick & SLOT_MASK)];
+            while (head.next != head) {
+                Timeout<T> timeout = head.next;
+                unlink(timeout);
+                size--;
+                fired++;
+                expired.accept(timeout.value);
+            }
+        }
+        return fired;
+    }
+
+    /**
+     * @return liczba oczekujących terminów
+     */
+    public int size() {
+        return size;
+    }
+
+    private void start(long nowMillis) {
+        if (currentTick == Long.MIN_VALUE) {
+            currentTick = Math.floorDiv(nowMillis, tickMillis);
+        }
+    }
+
+    // Redistributes the higher-level slots whose turn has come as the lower levels wrap around
+    private void cascade() {
+        int top = 0;
+        while (top < LEVELS - 1 && (currentTick & ((1L << (SLOT_BITS * (top + 1))) - 1)) == 0) {
+            top++;
+        }
+        // top-down, so entries moved out of a higher slot land in lower slots not yet emptied this tick
+        for (int level = top; level >= 1; level--) {
+            Timeout<T> head = slots[level * SLOTS + (int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK)];
+            Timeout<T> timeout = head.next;
+            head.prev = head;
+            head.next = head;
+            while (timeout != head) {
+                Timeout<T> next = timeout.next;
+                insert(timeout, currentTick);
+                timeout = next;
+            }
+        }
+    }
+
+    private void insert(Timeout<T> timeout, long earliestTick) {
+        long tick = Math.max(timeout.deadlineTick, earliestTick);
+        int level = 0;
+        while (level < LEVELS - 1 && (tick >>> (SLOT_BITS * (level + 1))) != (currentTick >>> (SLOT_BITS * (level + 1)))) {
+            level++;
+        }
+        int topShift = SLOT_BITS * (LEVELS - 1);
+        if (level == LEVELS - 1 && (tick >>> topShift) - (currentTick >>> topShift) >= SLOTS) {
+            // out of range: park in the top-level slot visited last, it will be redistributed from there
+            tick = currentTick - (1L << topShift);
+        }
+        Timeout<T> head = slots[level * SLOTS + (int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK)];
+        timeout.prev = head.prev;
+        timeout.next = head;
+        head.prev.next = timeout;
+        head.prev = timeout;
+    }
+
+    private static <T> void unlink(Timeout<T> timeout) {
+        timeout.prev.next = timeout.next;
+        timeout.next.prev = timeout.prev;
+        timeout.prev = null;
+        timeout.next = null;
+    }
+
+    /**
+     * Termin wyznaczony w kole; zarazem węzeł listy przegródki.
+     */
+    public static final class Timeout<T> {
+        private final T value;
+        private final long deadlineTick;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+
+        private Timeout(T value, long deadlineTick) {
+            this.value = value;
+            this.deadlineTick = deadlineTick;
+        }
+
+        public T getValue() {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.rental.analytics;
+
+import com.rental.model.Bike;
+import com.rental.model.Rental;
+import com.rental.model.Station;
+import com.rental.model.User;
+import com.rental.service.BikeRentalSystem;
+import com.rental.service.RentalOutcome;
+import com.rental.simulation.SimulationClock;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Liczniki przyrostowe rozdzielone na segmenty zgadzają się z przeliczeniem
+ * historii, a lista najczęstszych par nadąża za zmianami kolejności.
+ */
+class UsageAnalyticsTest {
+    private static final int STATIONS = 40;
+    private static final int USERS = 30;
+
+    @Test
+    void incrementalCountsMatchTheRecomputedHistory() throws Exception {
+        Instant start = Instant.parse("2024-03-01T00:00:00Z");
+        SimulationClock clock = new SimulationClock(start);
+        BikeRentalSystem system = new BikeRentalSystem();
+        system.setClock(clock);
+        system.setUsageAnalytics(UsageAnalytics.create());
+        for (int s = 0; s < STATIONS; s++) {
+            system.addStation("S" + s, "Stacja " + s, 20);
+            system.addBike("B" + s, "S" + s);
+            system.addBike("C" + s, "S" + s);
+        }
+        for (int u = 0; u < USERS; u++) {
+            system.registerUser("U" + u, "Użytkownik " + u);
+        }
+
+        Random random = new Random(7);
+        long now = start.toEpochMilli();
+        for (int trip = 0; trip < 5_000; trip++) {
+            // popular origins are skewed, so the top pairs keep changing places
+            String origin = "S" + Math.min(random.nextInt(STATIONS), random.nextInt(STATIONS));
+            User user = system.getUser(random.nextInt(USERS));
+            RentalOutcome rented = system.tryRentBike(user.getUserId(), origin);
+            now += 60_000L * (1 + random.nextInt(90));
+            clock.advanceTo(now);
+            if (rented.isSuccess()) {
+                String destination = "S" + random.nextInt(STATIONS / 4);
+                if (!system.tryReturnBike(rented.getRental().getBike().getBikeId(), destination).isSuccess()) {
+                    system.returnBike(rented.getRental().getBike().getBikeId(), origin);
+                }
+            }
+        }
+
+        UsageAnalytics analytics = system.getUsageAnalytics();
+        UsageAnalytics recomputed = UsageAnalytics.recompute(system.getAllUsers());
+        assertTrue(analytics.getTripCount() > 1_000, "za mało przejazdów");
+        assertEquals(List.of(), analytics.differences(recomputed, 10));
+        assertEquals(analytics.getTripCount(), recomputed.getTripCount());
+        assertEquals(analytics.getAverageDuration(), recomputed.getAverageDuration());
+        long hourly = 0;
+        for (int h = 0; h < UsageAnalytics.HOURS; h++) {
+            assertEquals(recomputed.getHourlyDemand(h), analytics.getHourlyDemand(h), "godzina " + h);
+            hourly += analytics.getHourlyDemand(h);
+        }
+        assertEquals(analytics.getTripCount(), hourly);
+
+        long arrivals = 0;
+        for (Station station : system.getAllStations()) {
+            StationUsage usage = analytics.getStationUsage(station);
+            StationUsage expected = recomputed.getStationUsage(station);
+            String label = "stacja " + station.getStationId();
+            assertEquals(expected.getDepartures(), usage.getDepartures(), label);
+            assertEquals(expected.getArrivals(), usage.getArrivals(), label);
+            assertEquals(expected.getAverageDuration(), usage.getAverageDuration(), label);
+            for (int h = 0; h < UsageAnalytics.HOURS; h++) {
+                assertEquals(expected.getDepartures(h), usage.getDepartures(h), label + ", godzina " + h);
+            }
+            arrivals += usage.getArrivals();
+        }
+        assertEquals(analytics.getTripCount(), arrivals, "zwroty nie sumują się do liczby przejazdów");
+
+        List<OriginDestination> top = analytics.getTopPairs(UsageAnalytics.TOP_PAIRS);
+        assertEquals(UsageAnalytics.TOP_PAIRS, top.size());
+        for (int i = 0; i < top.size(); i++) {
+            OriginDestination pair = top.get(i);
+            assertEquals(recomputed.getTopPairs(UsageAnalytics.TOP_PAIRS).get(i).getTrips(), pair.getTrips());
+            assertEquals(pair.getTrips(), analytics.getTripCount(system.findStation(pair.getOriginStationId()),
+                    system.findStation(pair.getDestinationStationId())));
+        }
+    }
+
+    @Test
+    void pairOutsideTheTopOvertakesTheLeaders() {
+        UsageAnalytics analytics = UsageAnalytics.create();
+        Station[] stations = new Station[UsageAnalytics.TOP_PAIRS + 3];
+        for (int s = 0; s < stations.length; s++) {
+            stations[s] = new Station("S" + s, "Stacja " + s, 10);
+            stations[s].setHandle(s);
+        }
+        // pairs S<s> -> S0 take s + 1 trips, so S0 -> S0 starts last and out of the top
+        for (int s = 0; s < stations.length; s++) {
+            for (int t = 0; t <= s; t++) {
+                analytics.record(trip(stations[s], stations[0]));
+            }
+        }
+        assertEquals("S" + (stations.length - 1), analytics.getTopPairs(1).get(0).getOriginStationId());
+        assertTrue(analytics.getTopPairs(UsageAnalytics.TOP_PAIRS).stream()
+                .noneMatch(pair -> pair.getOriginStationId().equals("S0")));
+
+        for (int t = 0; t < stations.length + 5; t++) {
+            analytics.record(trip(stations[0], stations[0]));
+        }
+        OriginDestination leader = analytics.getTopPairs(1).get(0);
+        assertEquals("S0", leader.getOriginStationId());
+        assertEquals(stations.length + 6, leader.getTrips());
+        assertEquals(List.of(), analytics.differences(rebuilt(analytics, stations), 10));
+    }
+
+    // --- Helpers ---
+
+    private static Rental trip(Station origin, Station destination) {
+        LocalDateTime start = LocalDateTime.of(2024, 3, 1, 8, 0);
+        Rental rental = new Rental(1, new User("U1", "Jan"), new Bike("B1"), origin, start);
+        rental.endRental(destination, start.plusMinutes(12));
+        return rental;
+    }
+
+    // The same trips recorded into a fresh instance, by pair count
+    private static UsageAnalytics rebuilt(UsageAnalytics source, Station[] stations) {
+        UsageAnalytics copy = UsageAnalytics.create();
+        for (Station origin : stations) {
+            for (Station destination : stations) {
+                for (int t = source.getTripCount(origin, destination); t > 0; t--) {
+                    copy.record(trip(origin, destination));
+                }
+            }
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,169 @@
+package com.rental.billing;
+
+import com.rental.model.Rental;
+import com.rental.model.User;
+import com.rental.service.BikeRentalSystem;
+import com.rental.simulation.SimulationClock;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Taryfa nalicza każdą rozpoczętą minutę i godzinę kary, a ponowna wycena
+ * historii według niezmienionej taryfy daje dokładnie opłaty naliczone
+ * przy zwrotach - także dla przejazdów rozpoczętych w ułamku sekundy.
+ */
+class FareEngineTest {
+    private static final Instant START = Instant.parse("2024-03-01T08:00:00.250Z");
+
+    @Test
+    void everyStartedMinuteAndOvertimeHourIsCharged() {
+        Tariff tariff = Tariff.standard();
+
+        assertEquals(200, tariff.fare(SubscriptionPlan.PAY_AS_YOU_GO, 0, 0, 0));
+        assertEquals(200, tariff.fare(SubscriptionPlan.PAY_AS_YOU_GO, 0, 0, -30));
+        assertEquals(250, tariff.fare(SubscriptionPlan.PAY_AS_YOU_GO, 0, 0, 1));
+        assertEquals(250, tariff.fare(SubscriptionPlan.PAY_AS_YOU_GO, 0, 0, 60));
+        assertEquals(300, tariff.fare(SubscriptionPlan.PAY_AS_YOU_GO, 0, 0, 61));
+        // minutes included in the plan are free, the first started minute past them is not
+        assertEquals(0, tariff.fare(SubscriptionPlan.MONTHLY, 0, 0, 20 * 60));
+        assertEquals(30, tariff.fare(SubscriptionPlan.MONTHLY, 0, 0, 20 * 60 + 1));
+        assertEquals(20, tariff.fare(SubscriptionPlan.ANNUAL, 0, 0, 30 * 60 + 1));
+        assertEquals(300, tariff.fare(SubscriptionPlan.ANNUAL, 5, 2, 0));
+
+        long twelveHours = Duration.ofHours(12).getSeconds();
+        long minutes = 12 * 60;
+        assertEquals(200 + minutes * 50, tariff.fare(SubscriptionPlan.PAY_AS_YOU_GO, 0, 0, twelveHours));
+        assertEquals(200 + (minutes + 1) * 50 + 5_000,
+                tariff.fare(SubscriptionPlan.PAY_AS_YOU_GO, 0, 0, twelveHours + 1));
+        assertEquals(200 + (minutes + 60) * 50 + 5_000,
+                tariff.fare(SubscriptionPlan.PAY_AS_YOU_GO, 0, 0, twelveHours + 3_600));
+        assertEquals(200 + (minutes + 61) * 50 + 2 * 5_000,
+                tariff.fare(SubscriptionPlan.PAY_AS_YOU_GO, 0, 0, twelveHours + 3_601));
+    }
+
+    @Test
+    void fareMatchesAReferenceComputedFromDurations() {
+        Random random = new Random(24);
+        Map<SubscriptionPlan, Tariff.PlanRates> rates = new EnumMap<>(SubscriptionPlan.class);
+        rates.put(SubscriptionPlan.PAY_AS_YOU_GO, new Tariff.PlanRates(150, 0, 45));
+        rates.put(SubscriptionPlan.MONTHLY, new Tariff.PlanRates(0, 15, 25));
+        rates.put(SubscriptionPlan.ANNUAL, new Tariff.PlanRates(0, 45, 15));
+        Tariff tariff = new Tariff(rates, 80, Duration.ofMinutes(90), 1_000);
+
+        for (int i = 0; i < 100_000; i++) {
+            SubscriptionPlan plan = SubscriptionPlan.values()[random.nextInt(3)];
+            int startZone = random.nextInt(4);
+            int endZone = random.nextInt(4);
+            long seconds = random.nextInt(4 * 3_600);
+            Tariff.PlanRates planRates = tariff.getRates(plan);
+
+            Duration duration = Duration.ofSeconds(seconds);
+            long startedMinutes = duration.toMinutes() + (duration.toSecondsPart() > 0 ? 1 : 0);
+            Duration overtime = duration.minus(tariff.getOvertimeAfter());
+            long startedHours = overtime.isNegative() || overtime.isZero() ? 0
+                    : overtime.toHours() + (overtime.toSecondsPart() > 0 || overtime.toMinutesPart() > 0 ? 1 : 0);
+            long expected = planRates.getUnlockCents()
+                    + Math.max(0, startedMinutes - planRates.getIncludedMinutes()) * planRates.getCentsPerMinute()
+                    + Math.abs(startZone - endZone) * tariff.getZoneCrossingCents()
+                    + startedHours * tariff.getOvertimeCentsPerHour();
+            assertEquals(expected, tariff.fare(plan, startZone, endZone, seconds),
+                    plan + " " + startZone + "->" + endZone + " " + seconds + " s");
+        }
+    }
+
+    @Test
+    void repricingWithTheSameTariffMatchesTheChargedFares() throws Exception {
+        Random random = new Random(7);
+        SimulationClock clock = new SimulationClock(START);
+        BikeRentalSystem system = new BikeRentalSystem();
+        system.setClock(clock);
+        FareEngine fares = system.getFareEngine();
+        for (int s = 0; s < 4; s++) {
+            fares.setZone(system.addStation("S" + s, "Stacja " + s, 50), s);
+        }
+        for (int u = 0; u < 30; u++) {
+            User user = system.registerUser("U" + u, "Użytkownik " + u);
+            fares.setPlan(user, SubscriptionPlan.values()[u % 3]);
+            system.addBike("B" + u, "S" + (u % 4));
+        }
+
+        long now = START.toEpochMilli();
+        long charged = 0;
+        for (int trip = 0; trip < 600; trip++) {
+            String userId = "U" + (trip % 30);
+            if (system.findUser(userId).isRenting()) {
+                // durations with a fraction of a second, so start and end round the same way on both paths
+                now += 1 + random.nextInt(3 * 3_600_000);
+                clock.advanceTo(now);
+                Rental rental = system.findUser(userId).getCurrentRental();
+                system.returnBike(rental.getBike().getBikeId(), "S" + random.nextInt(4));
+                assertTrue(rental.getFareCents() >= 0, "zwrot bez opłaty");
+                charged += rental.getFareCents();
+            } else {
+                now += random.nextInt(1_000);
+                clock.advanceTo(now);
+                for (int s = 0; !tryRent(system, userId, "S" + s); s++) {
+                    // the next station still has a bike
+                }
+            }
+        }
+
+        BillingReport same = fares.reprice(system.getAllUsers());
+        assertEquals(0, same.getMismatchCount());
+        assertEquals(0, same.getUnpricedCount());
+        assertEquals(charged, same.getTotalCents());
+        long perPlan = 0;
+        for (SubscriptionPlan plan : SubscriptionPlan.values()) {
+            perPlan += same.getTotalCents(plan);
+        }
+        assertEquals(charged, perPlan);
+
+        // a dearer unlock changes every pay-as-you-go fare, and only those
+        Map<SubscriptionPlan, Tariff.PlanRates> rates = new EnumMap<>(SubscriptionPlan.class);
+        Tariff standard = Tariff.standard();
+        for (SubscriptionPlan plan : SubscriptionPlan.values()) {
+            rates.put(plan, standard.getRates(plan));
+        }
+        rates.put(SubscriptionPlan.PAY_AS_YOU_GO, new Tariff.PlanRates(300, 0, 50));
+        Tariff dearer = new Tariff(rates, standard.getZoneCrossingCents(), standard.getOvertimeAfter(),
+                standard.getOvertimeCentsPerHour());
+        BillingReport changed = fares.reprice(system.getAllUsers(), dearer);
+        long payAsYouGo = same.getRentalCount(SubscriptionPlan.PAY_AS_YOU_GO);
+        assertEquals(payAsYouGo, changed.getMismatchCount());
+        assertEquals(charged + 100 * payAsYouGo, changed.getTotalCents());
+        long[] sample = changed.getMismatchSample();
+        assertEquals(Math.min(BillingReport.MISMATCH_SAMPLE, payAsYouGo), sample.length);
+        long[] sorted = sample.clone();
+        Arrays.sort(sorted);
+        assertArrayEquals(sorted, sample);
+    }
+
+    @Test
+    void unfinishedRentalCannotBePriced() throws Exception {
+        BikeRentalSystem system = new BikeRentalSystem();
+        system.addStation("S1", "Rynek", 2);
+        system.addBike("B1", "S1");
+        system.registerUser("U1", "Anna");
+        Rental rental = system.rentBike("U1", "S1");
+
+        assertThrows(IllegalArgumentException.class, () -> system.getFareEngine().price(rental));
+        assertThrows(IllegalArgumentException.class, () -> system.getFareEngine().setZone(rental.getStartStation(), -1));
+    }
+
+    // --- Helpers ---
+
+    private static boolean tryRent(BikeRentalSystem system, String userId, String stationId) {
+        return system.tryRentBike(userId, stationId).isSuccess();
+    }
+}
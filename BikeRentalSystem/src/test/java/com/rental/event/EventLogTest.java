@@ -0,0 +1,118 @@
+package com.rental.event;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Bufor pierścieniowy dziennika zdarzeń: przepełnienie odrzuca i zlicza
+ * nowe zdarzenia zamiast wstrzymywać wywołującego, a zamknięcie przekazuje
+ * odbiorcy wszystkie przyjęte zdarzenia w kolejności publikacji.
+ */
+class EventLogTest {
+
+    @Test
+    void fullBufferDropsNewEventsWithoutBlocking() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingSink sink = new RecordingSink() {
+            @Override
+            public void write(OperationEvent event) throws IOException {
+                writing.countDown();
+                await(release);
+                super.write(event);
+            }
+        };
+        EventLog log = EventLog.start(sink, 4);
+        log.publish(EventType.BIKE_RENTED, "U0", "B0", "S0", 0);
+        assertTrue(writing.await(10, TimeUnit.SECONDS), "konsument nie pobrał zdarzenia");
+
+        // the event held by the stuck sink still takes its slot, so three more fit
+        for (int i = 1; i <= 10; i++) {
+            log.publish(EventType.BIKE_RENTED, "U" + i, "B" + i, "S0", i);
+        }
+        assertEquals(7, log.getDroppedCount());
+        release.countDown();
+        log.close();
+
+        assertEquals(List.of(0L, 1L, 2L, 3L), sink.values);
+        assertTrue(sink.closed);
+        assertTrue(sink.flushes > 0);
+    }
+
+    @Test
+    void closeDrainsEveryAcceptedEventInOrder() {
+        RecordingSink sink = new RecordingSink();
+        EventLog log = EventLog.start(sink, 1 << 12);
+        List<Long> expected = new ArrayList<>();
+        for (long i = 0; i < 3_000; i++) {
+            log.publish(i % 2 == 0 ? EventType.BIKE_RENTED : EventType.USER_REGISTERED, "U" + i, "B" + i, null, i);
+            expected.add(i);
+        }
+        log.close();
+        // a second close does nothing
+        log.close();
+
+        assertEquals(0, log.getDroppedCount());
+        assertEquals(expected, sink.values);
+        assertEquals("U2999", sink.lastFirst);
+        assertTrue(sink.closed);
+    }
+
+    @Test
+    void disabledLogIgnoresEvents() {
+        EventLog log = EventLog.disabled();
+        log.publish(EventType.BIKE_RENTED, "U0", "B0", "S0", 0);
+        log.close();
+
+        assertFalse(log.isEnabled());
+        assertEquals(0, log.getDroppedCount());
+        assertThrows(IllegalArgumentException.class, () -> EventLog.start(new RecordingSink(), 6));
+    }
+
+    // --- Helpers ---
+
+    /**
+     * Zapamiętuje wartości zdarzeń; obiekt zdarzenia jest ponownie
+     * wykorzystywany, więc kopiuje pola przy zapisie.
+     */
+    private static class RecordingSink implements EventSink {
+        final List<Long> values = new ArrayList<>();
+        volatile String lastFirst;
+        volatile int flushes;
+        volatile boolean closed;
+
+        @Override
+        public void write(OperationEvent event) throws IOException {
+            values.add(event.getValue());
+            lastFirst = event.getFirst();
+        }
+
+        @Override
+        public void flush() {
+            flushes++;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.rental.feed;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Łączenie powtórzonych zmian w zbiorze zmian, protokół powiadamiania
+ * odbiorcy i dodawanie z wielu wątków naraz.
+ */
+class ChangeSetTest {
+
+    @Test
+    void repeatedChangesAreCoalescedAndDrainedInOrder() {
+        ChangeSet set = new ChangeSet();
+        for (int handle : new int[]{5, 3, 5, 70_000, 3, 5}) {
+            set.add(handle);
+        }
+
+        assertEquals(3, set.size());
+        assertArrayEquals(new int[]{5, 3, 70_000}, set.drain());
+        assertEquals(0, set.size());
+        assertArrayEquals(new int[0], set.drain());
+
+        // a drained station may be marked again
+        set.add(70_000);
+        set.add(5);
+        assertArrayEquals(new int[]{70_000, 5}, set.drain());
+    }
+
+    @Test
+    void filterKeepsOnlySubscribedStations() {
+        ChangeSet set = new ChangeSet();
+        long[] filter = {1L << 2 | 1L << 9};
+
+        set.addAll(new int[]{1, 2, 9, 64, 2}, filter);
+
+        assertArrayEquals(new int[]{2, 9}, set.drain());
+    }
+
+    @Test
+    void consumerIsNotifiedOnceUntilItFindsTheSetEmpty() {
+        ChangeSet set = new ChangeSet();
+
+        assertTrue(set.add(1), "pierwsza zmiana powiadamia odbiorcę");
+        assertFalse(set.add(2), "odbiorca już wie o zmianach");
+        assertArrayEquals(new int[]{1, 2}, set.drain());
+        // a change that arrives while the consumer is busy waits for its finish()
+        assertFalse(set.add(3));
+        assertTrue(set.finish(), "zmiana z czasu obsługi wymaga ponownego opróżnienia");
+        assertArrayEquals(new int[]{3}, set.drain());
+        assertFalse(set.finish());
+        assertTrue(set.add(4));
+    }
+
+    @Test
+    void concurrentAddsReachTheWaitingConsumer() throws InterruptedException {
+        ChangeSet set = new ChangeSet();
+        int producers = 8;
+        int handles = 5_000;
+        BitSet[] added = new BitSet[producers];
+        BitSet drained = new BitSet();
+        List<int[]> batches = new ArrayList<>();
+        Thread consumer = new Thread(() -> {
+            try {
+                while (true) {
+                    int[] batch = set.await();
+                    synchronized (batches) {
+                        batches.add(batch);
+                    }
+                }
+            } catch (InterruptedException e) {
+                // done
+            }
+        });
+        consumer.start();
+
+        CountDownLatch ready = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            BitSet mine = added[p] = new BitSet();
+            SplittableRandom random = new SplittableRandom(p);
+            Thread producer = new Thread(() -> {
+                try {
+                    ready.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 100_000; i++) {
+                    int handle = random.nextInt(handles);
+                    mine.set(handle);
+                    set.add(handle);
+                }
+            });
+            producer.start();
+            threads.add(producer);
+        }
+        ready.countDown();
+        for (Thread producer : threads) {
+            producer.join();
+        }
+
+        BitSet expected = new BitSet();
+        for (BitSet mine : added) {
+            expected.or(mine);
+        }
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (set.size() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        consumer.interrupt();
+        consumer.join(5_000);
+        assertFalse(consumer.isAlive(), "odbiorca nie zakończył się po przerwaniu");
+
+        for (int[] batch : batches) {
+            BitSet inBatch = new BitSet();
+            for (int handle : batch) {
+                assertFalse(inBatch.get(handle), "stacja dwa razy w jednej porcji: " + handle);
+                inBatch.set(handle);
+            }
+            drained.or(inBatch);
+        }
+        drained.or(toBitSet(set.drain()));
+        assertEquals(expected, drained);
+    }
+
+    private static BitSet toBitSet(int[] handles) {
+        BitSet bits = new BitSet();
+        for (int handle : handles) {
+            bits.set(handle);
+        }
+        return bits;
+    }
+}
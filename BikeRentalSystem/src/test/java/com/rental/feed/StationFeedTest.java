@@ -0,0 +1,288 @@
+package com.rental.feed;
+
+import com.rental.model.Station;
+import com.rental.service.BikeRentalSystem;
+import com.rental.service.RentalOutcome;
+import com.rental.service.StationStatusSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Rozsyłanie zmian stacji: wolny subskrybent dostaje połączone zmiany
+ * z najnowszym stanem, także przy dziesięciu tysiącach subskrybentów,
+ * a zamknięcie systemu zatrzymuje rozsyłanie.
+ */
+class StationFeedTest {
+    private static final int STATIONS = 4;
+    private static final int SUBSCRIBERS = 10_000;
+    private static final int FAILING_EVERY = 1_000;
+    private static final long TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    @Test
+    void slowSubscriberReceivesCoalescedLatestState() throws Exception {
+        try (BikeRentalSystem system = city()) {
+            CountDownLatch blocked = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            List<StationUpdate> updates = new CopyOnWriteArrayList<>();
+            StationSubscription subscription = system.subscribeToStations(update -> {
+                updates.add(update);
+                if (blocked.getCount() > 0) {
+                    blocked.countDown();
+                    await(release);
+                }
+            });
+            assertTrue(blocked.await(10, TimeUnit.SECONDS), "subskrybent nie dostał stanu początkowego");
+
+            // many changes of every station while the subscriber is stuck in its first update
+            int changes = 0;
+            for (int round = 0; round < 500; round++) {
+                for (int s = 0; s < STATIONS; s++) {
+                    RentalOutcome rented = system.tryRentBike("U0", "S" + s);
+                    assertTrue(rented.isSuccess());
+                    assertTrue(system.tryReturnBike(rented.getRental().getBike().getBikeId(),
+                            "S" + ((s + 1) % STATIONS)).isSuccess());
+                    changes += 3;
+                }
+            }
+            waitUntil(() -> subscription.getPendingCount() == STATIONS, "zmiany nie dotarły do subskrybenta");
+            assertEquals(STATIONS, subscription.getPendingCount(), "zaległości przekraczają liczbę stacji");
+            release.countDown();
+
+            StationStatusSnapshot status = system.getStationStatus();
+            ConcurrentHashMap<Integer, StationUpdate> latest = new ConcurrentHashMap<>();
+            waitUntil(() -> {
+                for (StationUpdate update : updates) {
+                    latest.put(update.getStationHandle(), update);
+                }
+                return matches(latest, status);
+            }, "subskrybent nie otrzymał najnowszego stanu");
+            // the initial state of every station, then at most one coalesced update per station
+            assertTrue(updates.size() <= 2 * STATIONS,
+                    updates.size() + " aktualizacji dla " + changes + " zmian");
+            for (StationUpdate update : updates.subList(STATIONS, updates.size())) {
+                assertEquals(status.getVersion(), update.getVersion(), "po zwolnieniu dostarczono stan sprzed zmian");
+            }
+        }
+    }
+
+    @Test
+    void tenThousandSubscribersGetOneCoalescedDeliveryWithTheFinalState() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        HeldExecutor held = new HeldExecutor(pool);
+        try (BikeRentalSystem system = city()) {
+            Thread testThread = Thread.currentThread();
+            AtomicReference<Thread> dispatcher = new AtomicReference<>();
+            AtomicLong dispatchedVersion = new AtomicLong(-1);
+            StationFeed feed = new StationFeed(() -> {
+                StationStatusSnapshot status = system.getStationStatus();
+                if (Thread.currentThread() != testThread) {
+                    dispatcher.set(Thread.currentThread());
+                    dispatchedVersion.set(status.getVersion());
+                }
+                return status;
+            }, held);
+            try {
+                AtomicInteger delivered = new AtomicInteger();
+                Recorder[] recorders = new Recorder[SUBSCRIBERS];
+                StationSubscription[] subscriptions = new StationSubscription[SUBSCRIBERS];
+                for (int i = 0; i < SUBSCRIBERS; i++) {
+                    recorders[i] = new Recorder(delivered, i % FAILING_EVERY == 0);
+                    subscriptions[i] = feed.subscribe(recorders[i]);
+                }
+
+                // every change goes to all subscribers while their deliveries are held back
+                int changes = 0;
+                for (int round = 0; round < 200; round++) {
+                    for (int s = 0; s < STATIONS; s++) {
+                        RentalOutcome rented = system.tryRentBike("U0", "S" + s);
+                        assertTrue(rented.isSuccess());
+                        feed.stationChanged(s);
+                        int destination = (s + 1) % STATIONS;
+                        assertTrue(system.tryReturnBike(rented.getRental().getBike().getBikeId(),
+                                "S" + destination).isSuccess());
+                        feed.stationChanged(destination);
+                        changes += 2;
+                    }
+                }
+                StationStatusSnapshot status = system.getStationStatus();
+                // the dispatcher took the final state and went back to waiting, so every change is marked
+                waitUntil(() -> dispatchedVersion.get() == status.getVersion() && dispatcher.get() != null
+                        && dispatcher.get().getState() == Thread.State.WAITING, "wątek rozsyłający nie nadąża");
+
+                assertEquals(SUBSCRIBERS, held.size(), "zlecono więcej niż jedno dostarczenie na subskrybenta");
+                for (StationSubscription subscription : subscriptions) {
+                    assertEquals(STATIONS, subscription.getPendingCount(), "zaległości przekraczają liczbę stacji");
+                }
+                assertEquals(0, delivered.get());
+                held.release();
+
+                waitUntil(() -> delivered.get() == SUBSCRIBERS * STATIONS, "nie dostarczono wszystkich aktualizacji");
+                for (int i = 0; i < SUBSCRIBERS; i++) {
+                    Recorder recorder = recorders[i];
+                    assertEquals(STATIONS, recorder.count, "subskrybent " + i + " dostał " + recorder.count
+                            + " aktualizacji dla " + changes + " zmian");
+                    for (int handle = 0; handle < STATIONS; handle++) {
+                        StationUpdate update = recorder.latest[handle];
+                        assertEquals(status.getVersion(), update.getVersion(), "subskrybent " + i);
+                        assertEquals(status.getAvailableBikes(handle), update.getAvailableBikes(), "subskrybent " + i);
+                        assertEquals(status.getFreeDocks(handle), update.getFreeDocks(), "subskrybent " + i);
+                    }
+                }
+                // a listener that throws still receives the remaining stations; the failure is counted after it returns
+                for (int i = 0; i < SUBSCRIBERS; i += FAILING_EVERY) {
+                    StationSubscription failing = subscriptions[i];
+                    waitUntil(() -> failing.getFailureCount() == 1, "nie policzono błędu subskrybenta");
+                }
+                assertEquals(0, subscriptions[1].getFailureCount());
+            } finally {
+                feed.close();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void closingTheSystemStopsTheFeed() throws Exception {
+        BikeRentalSystem system = city();
+        StationSubscription subscription = system.subscribeToStations(update -> { });
+        assertTrue(dispatcherAlive());
+
+        system.close();
+
+        assertTrue(subscription.isClosed());
+        waitUntil(() -> !dispatcherAlive(), "wątek rozsyłający działa po zamknięciu systemu");
+        assertThrows(IllegalStateException.class, () -> system.subscribeToStations(update -> { }));
+        // operations keep working without the feed
+        assertTrue(system.tryRentBike("U0", "S0").isSuccess());
+    }
+
+    // --- Helpers ---
+
+    /**
+     * Zapamiętuje ostatnią aktualizację każdej stacji; subskrybent
+     * oznaczony jako zawodny zgłasza wyjątek przy pierwszej aktualizacji.
+     */
+    private static final class Recorder implements StationUpdateListener {
+        private final AtomicInteger delivered;
+        private final boolean failing;
+        private final StationUpdate[] latest = new StationUpdate[STATIONS];
+        private int count;
+
+        Recorder(AtomicInteger delivered, boolean failing) {
+            this.delivered = delivered;
+            this.failing = failing;
+        }
+
+        @Override
+        public void stationChanged(StationUpdate update) {
+            latest[update.getStationHandle()] = update;
+            count++;
+            // published to the test thread by the shared counter
+            delivered.incrementAndGet();
+            if (failing && count == 1) {
+                throw new IllegalStateException("awaria subskrybenta");
+            }
+        }
+    }
+
+    /**
+     * Wstrzymuje zlecone zadania do {@link #release()}, potem przekazuje je
+     * dalej.
+     */
+    private static final class HeldExecutor implements Executor {
+        private final Executor target;
+        private final List<Runnable> held = new ArrayList<>();
+        private boolean released;
+
+        HeldExecutor(Executor target) {
+            this.target = target;
+        }
+
+        @Override
+        public synchronized void execute(Runnable task) {
+            if (released) {
+                target.execute(task);
+            } else {
+                held.add(task);
+            }
+        }
+
+        synchronized int size() {
+            return held.size();
+        }
+
+        synchronized void release() {
+            released = true;
+            held.forEach(target::execute);
+            held.clear();
+        }
+    }
+
+    private static BikeRentalSystem city() throws Exception {
+        BikeRentalSystem system = new BikeRentalSystem();
+        for (int s = 0; s < STATIONS; s++) {
+            system.addStation("S" + s, "Stacja " + s, 10);
+            for (int b = 0; b < 3; b++) {
+                system.addBike("B" + s + "-" + b, "S" + s);
+            }
+        }
+        system.registerUser("U0", "Jan");
+        return system;
+    }
+
+    private static boolean matches(ConcurrentHashMap<Integer, StationUpdate> latest, StationStatusSnapshot status) {
+        for (int handle = 0; handle < status.size(); handle++) {
+            Station station = status.getStation(handle);
+            StationUpdate update = latest.get(handle);
+            if (station == null || update == null || update.getAvailableBikes() != status.getAvailableBikes(handle)
+                    || update.getFreeDocks() != status.getFreeDocks(handle)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean dispatcherAlive() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .anyMatch(thread -> thread.getName().equals("station-feed-dispatcher") && thread.isAlive());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitUntil(Condition condition, String message) throws InterruptedException {
+        long deadline = System.nanoTime() + TIMEOUT_NANOS;
+        while (!condition.holds()) {
+            assertFalse(System.nanoTime() > deadline, message);
+            Thread.sleep(5);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Condition {
+        boolean holds();
+    }
+}
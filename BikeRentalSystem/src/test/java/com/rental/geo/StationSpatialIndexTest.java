@@ -0,0 +1,98 @@
+package com.rental.geo;
+
+import com.rental.model.Bike;
+import com.rental.model.Station;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Wyszukiwanie najbliższych stacji w siatce zwraca to samo co pełny
+ * przegląd wszystkich stacji, także po zmianach obsadzenia zgłoszonych
+ * przez stacje.
+ */
+class StationSpatialIndexTest {
+    private static final double LATITUDE = 50.06;
+    private static final double LONGITUDE = 19.94;
+
+    @Test
+    void nearestStationsMatchAFullScan() {
+        Random random = new Random(11);
+        StationSpatialIndex index = new StationSpatialIndex();
+        List<Station> stations = new ArrayList<>();
+        for (int s = 0; s < 500; s++) {
+            Station station = new Station("S" + s, "Stacja " + s, 4,
+                    LATITUDE + random.nextGaussian() * 0.05, LONGITUDE + random.nextGaussian() * 0.08);
+            for (int b = random.nextInt(5); b > 0; b--) {
+                station.dockBike(new Bike("B" + s + "-" + b));
+            }
+            index.add(station);
+            station.setListener(index);
+            stations.add(station);
+        }
+
+        for (int round = 0; round < 3; round++) {
+            for (int q = 0; q < 100; q++) {
+                // queries also land outside the grid, far from every station
+                double latitude = LATITUDE + random.nextGaussian() * 0.1;
+                double longitude = LONGITUDE + random.nextGaussian() * 0.15;
+                for (int minBikes = 0; minBikes <= 3; minBikes++) {
+                    int required = minBikes;
+                    assertEquals(scan(stations, latitude, longitude, 5, s -> s.getAvailableBikeCount() >= required),
+                            index.findNearestWithBikes(latitude, longitude, 5, minBikes),
+                            "zapytanie " + q + ", co najmniej " + minBikes + " rowerów");
+                }
+                Optional<Station> free = scan(stations, latitude, longitude, 1, s -> s.getAvailableSpots() > 0)
+                        .stream().findFirst();
+                assertEquals(free, index.findNearestWithFreeDock(latitude, longitude), "zapytanie " + q);
+            }
+            // empty and fill stations, so the per-cell counters have to follow
+            for (Station station : stations) {
+                if (random.nextBoolean()) {
+                    while (station.undockBike().isPresent()) {
+                        // drained
+                    }
+                } else {
+                    for (int b = 0; !station.isFull(); b++) {
+                        station.dockBike(new Bike("R" + round + "-" + station.getStationId() + "-" + b));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void stationsWithoutLocationAreSkipped() {
+        StationSpatialIndex index = new StationSpatialIndex();
+        Station unknown = new Station("S0", "Bez położenia", 2);
+        unknown.dockBike(new Bike("B0"));
+        Station known = new Station("S1", "Rynek", 2, LATITUDE, LONGITUDE);
+        index.add(unknown);
+        index.add(known);
+
+        assertTrue(index.findNearestWithBikes(LATITUDE, LONGITUDE, 3, 1).isEmpty());
+        assertEquals(List.of(known), index.findNearestWithBikes(LATITUDE, LONGITUDE, 3, 0));
+        assertEquals(Optional.of(known), index.findNearestWithFreeDock(LATITUDE + 1, LONGITUDE));
+        assertTrue(index.findNearestWithBikes(LATITUDE, LONGITUDE, 0, 0).isEmpty());
+    }
+
+    // --- Helpers ---
+
+    private static List<Station> scan(List<Station> stations, double latitude, double longitude, int k,
+            Predicate<Station> accepted) {
+        return stations.stream()
+                .filter(accepted)
+                .sorted(Comparator.comparingDouble(station -> StationSpatialIndex.distanceKm(
+                        latitude, longitude, station.getLatitude(), station.getLongitude())))
+                .limit(k)
+                .toList();
+    }
+}
@@ -0,0 +1,109 @@
+package com.rental.importer;
+
+import com.rental.model.Bike;
+import com.rental.model.Station;
+import com.rental.service.BikeRentalSystem;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Import zbiorczy: dzielenie wierszy CSV, raportowanie błędnych wierszy
+ * i wczytanie wszystkich poprawnych encji jedną niepodzielną zmianą.
+ */
+class BulkImporterTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void splitsQuotedFields() {
+        assertArrayEquals(new String[]{"S1", "Rynek, róg Floriańskiej", "10"},
+                BulkImporter.splitCsv("S1,\"Rynek, róg Floriańskiej\",10"));
+        assertArrayEquals(new String[]{"S2", "Plac \"Nowy\"", ""},
+                BulkImporter.splitCsv("S2,\"Plac \"\"Nowy\"\"\","));
+        assertArrayEquals(new String[]{"", "", ""}, BulkImporter.splitCsv(",,"));
+        assertThrows(IllegalArgumentException.class, () -> BulkImporter.splitCsv("S3,\"Dworzec,5"));
+    }
+
+    @Test
+    void reportsBadRowsAndImportsTheRest() throws Exception {
+        BikeRentalSystem system = new BikeRentalSystem();
+        system.addStation("OLD", "Stara stacja", 2);
+        system.addBike("B0", "OLD");
+        system.registerUser("U0", "Jan");
+        Path stations = write("stations.csv",
+                "stationId,locationName,capacity",
+                "S1,\"Rynek, róg\",2",
+                "S1,Duplikat,3",
+                "S2,Dworzec,zero",
+                "S3,Plac,1,50.06,19.94");
+        Path bikes = write("bikes.csv",
+                "bikeId,stationId",
+                "B1,s1",
+                "B2,S1",
+                "B3,S1",
+                "B4,OLD",
+                "B5,OLD",
+                "B6,NOWHERE",
+                "B1,S3",
+                "B0,S3");
+        Path users = write("users.csv",
+                "U1,Anna",
+                "U0,Jan",
+                "U1,Ewa");
+
+        ImportReport report = new BulkImporter(system, 2).importFiles(stations, bikes, users);
+
+        assertEquals(2, report.getStationsImported());
+        assertEquals(3, report.getBikesImported());
+        assertEquals(1, report.getUsersImported());
+        assertEquals(15, report.getRowsRead());
+        assertEquals(9, report.getErrorCount());
+        assertEquals(List.of("B1", "B2"), ids(system.findStation("S1").getDockedBikes()));
+        assertEquals(List.of("B0", "B4"), ids(system.findStation("OLD").getDockedBikes()));
+        assertEquals("Rynek, róg", system.findStation("S1").getLocationName());
+        assertTrue(system.findStation("S3").getDockedBikes().isEmpty());
+        assertEquals("Anna", system.findUser("U1").getName());
+        ImportError full = report.getErrors().stream()
+                .filter(error -> error.getLineNumber() == 6 && error.getFileName().equals("bikes.csv"))
+                .findFirst().orElseThrow();
+        assertTrue(full.getMessage().contains("pełna"), full.getMessage());
+    }
+
+    @Test
+    void rejectedLoadChangesNothing() throws Exception {
+        BikeRentalSystem system = new BikeRentalSystem();
+        Station live = system.addStation("OLD", "Stara stacja", 1);
+        system.addBike("B0", "OLD");
+        Station fresh = new Station("NEW", "Nowa stacja", 5);
+        Bike docked = new Bike("B1");
+        fresh.dockBike(docked);
+
+        // the live station has no free dock left, so the whole load is refused
+        assertThrows(IllegalArgumentException.class, () -> system.bulkLoad(List.of(fresh), List.of(docked),
+                List.of(), Map.of(live, List.of(new Bike("B2")))));
+
+        assertEquals(1, system.getAllStations().size());
+        assertEquals(1, system.getAllBikes().size());
+        assertEquals(List.of("B0"), ids(live.getDockedBikes()));
+    }
+
+    // --- Helpers ---
+
+    private Path write(String name, String... lines) throws Exception {
+        return Files.write(dir.resolve(name), List.of(lines));
+    }
+
+    private static List<String> ids(List<Bike> bikes) {
+        return bikes.stream().map(Bike::getBikeId).toList();
+    }
+}
@@ -0,0 +1,118 @@
+package com.rental.metrics;
+
+import com.rental.service.BikeRentalSystem;
+import com.rental.service.RentalFailure;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Histogram czasów odczytuje percentyle z błędem względnym w granicach
+ * szerokości przedziału i nie gubi zapisów wykonywanych równolegle;
+ * system zlicza w metrykach czasy i odmowy operacji.
+ */
+class LatencyHistogramTest {
+    // one power of two split into 32 sub-buckets
+    private static final double RELATIVE_ERROR = 1.0 / 32;
+
+    @Test
+    void everyValueFallsIntoABucketThatBoundsItTightly() {
+        long previousBound = -1;
+        for (int index = 0; index < LatencyHistogram.BUCKETS; index++) {
+            long bound = LatencyHistogram.bucketUpperBound(index);
+            assertTrue(bound > previousBound, "przedziały nie rosną przy " + index);
+            assertEquals(index, LatencyHistogram.bucketIndex(bound), "górna granica przedziału " + index);
+            assertEquals(index, LatencyHistogram.bucketIndex(previousBound + 1), "dolna granica przedziału " + index);
+            assertTrue(bound - previousBound - 1 <= Math.max(0, (previousBound + 1) * RELATIVE_ERROR),
+                    "przedział " + index + " jest za szeroki");
+            previousBound = bound;
+        }
+    }
+
+    @Test
+    void quantilesStayWithinTheBucketError() {
+        Random random = new Random(3);
+        LatencyHistogram histogram = new LatencyHistogram();
+        long[] values = new long[100_000];
+        long sum = 0;
+        for (int i = 0; i < values.length; i++) {
+            // log-normal-ish latencies from about a microsecond to tens of milliseconds
+            values[i] = (long) Math.exp(7 + random.nextGaussian() * 2);
+            histogram.record(values[i]);
+            sum += values[i];
+        }
+        Arrays.sort(values);
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(values.length, snapshot.getCount());
+        assertEquals(sum, snapshot.getSum());
+        for (double quantile : new double[]{0.5, 0.9, 0.99, 0.999, 1.0}) {
+            long exact = values[(int) Math.ceil(quantile * values.length) - 1];
+            long read = snapshot.valueAtQuantile(quantile);
+            assertTrue(read >= exact && read <= exact + exact * RELATIVE_ERROR + 1,
+                    "percentyl " + quantile + ": " + read + " zamiast " + exact);
+        }
+        assertEquals(snapshot.valueAtQuantile(1.0), snapshot.getMax());
+        assertEquals(0, new LatencyHistogram().snapshot().valueAtQuantile(0.99));
+    }
+
+    @Test
+    void concurrentRecordsAreAllCounted() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            Future<?>[] writers = new Future<?>[4];
+            for (int t = 0; t < writers.length; t++) {
+                writers[t] = pool.submit(() -> {
+                    for (int i = 0; i < 50_000; i++) {
+                        histogram.record(i % 1_000);
+                    }
+                });
+            }
+            for (Future<?> writer : writers) {
+                writer.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(200_000, snapshot.getCount());
+        assertEquals(4L * 50 * (999 * 1_000 / 2), snapshot.getSum());
+        // negative values count as zero, huge ones land in the last bucket
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(LatencyHistogram.bucketUpperBound(LatencyHistogram.BUCKETS - 1), histogram.snapshot().getMax());
+    }
+
+    @Test
+    void systemRecordsOperationsAndRefusals() throws Exception {
+        BikeRentalSystem system = new BikeRentalSystem();
+        system.setMetrics(Metrics.create());
+        system.addStation("S1", "Rynek", 2);
+        system.registerUser("U1", "Anna");
+        for (int i = 0; i < 3; i++) {
+            assertEquals(RentalFailure.NO_BIKES_AVAILABLE, system.tryRentBike("U1", "S1").getFailure());
+        }
+        system.addBike("B1", "S1");
+        system.returnBike(system.rentBike("U1", "S1").getBike().getBikeId(), "S1");
+
+        Metrics metrics = system.getMetrics();
+        assertEquals(4, metrics.latency(Operation.RENT_BIKE).getCount());
+        assertEquals(1, metrics.latency(Operation.RETURN_BIKE).getCount());
+        assertEquals(3, metrics.failureCount(Operation.RENT_BIKE, RentalFailure.NO_BIKES_AVAILABLE));
+        assertEquals(0, metrics.failureCount(Operation.RETURN_BIKE, RentalFailure.STATION_FULL));
+        String exported = system.exportMetrics();
+        assertTrue(exported.contains(Metrics.FAILURES + "{operation=\"" + Operation.RENT_BIKE.label()
+                + "\",reason=\"no_bikes_available\"} 3"), exported);
+        assertEquals(0, Metrics.disabled().latency(Operation.RENT_BIKE).getCount());
+    }
+}
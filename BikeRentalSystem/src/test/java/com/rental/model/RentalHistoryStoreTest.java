@@ -0,0 +1,125 @@
+package com.rental.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Rozmiar kolumn magazynu historii względem układu opisanego w dokumentacji
+ * klasy oraz dopisywanie z wielu wątków naraz.
+ */
+class RentalHistoryStoreTest {
+    private static final int ROW_BYTES = 40;
+    private static final int MIN_INDEX_BYTES = 16;
+    private static final int MAX_INDEX_BYTES = 32;
+    private static final LocalDateTime START = LocalDateTime.of(2024, 5, 1, 8, 0);
+
+    private final Station from = new Station("S1", "Rynek", 10);
+    private final Station to = new Station("S2", "Dworzec", 10);
+    private final Bike bike = new Bike("B1");
+
+    @Test
+    void fullColumnsTakeFortyBytesPerRowPlusTheIndex() {
+        RentalHistoryStore store = new RentalHistoryStore();
+        User user = new User("U1", "Jan", store);
+        // a power of two times the initial capacity fills the columns of one segment exactly
+        int rows = 64 << 11;
+        for (int i = 0; i < rows; i++) {
+            store.append(rental(i + 1, user, i));
+        }
+
+        assertEquals(rows, store.size());
+        long indexBytes = store.columnBytes() - (long) ROW_BYTES * rows;
+        assertTrue(indexBytes >= (long) MIN_INDEX_BYTES * rows && indexBytes <= (long) MAX_INDEX_BYTES * rows,
+                "indeks zajmuje " + (double) indexBytes / rows + " B na wiersz");
+    }
+
+    @Test
+    void rowsOfManyUsersStayWithinTheDocumentedBound() {
+        RentalHistoryStore store = new RentalHistoryStore();
+        int users = 1000;
+        int perUser = 100;
+        List<int[]> rows = new ArrayList<>();
+        long id = 1;
+        for (int u = 0; u < users; u++) {
+            User user = new User("U" + u, "Użytkownik " + u, store);
+            int[] userRows = new int[perUser];
+            for (int i = 0; i < perUser; i++) {
+                userRows[i] = store.append(rental(id++, user, i));
+            }
+            rows.add(userRows);
+        }
+
+        long total = (long) users * perUser;
+        assertEquals(total, store.size());
+        double perRow = (double) store.columnBytes() / total;
+        // growth by doubling may reserve up to a second row's worth of columns
+        assertTrue(perRow >= ROW_BYTES + MIN_INDEX_BYTES && perRow <= 2 * ROW_BYTES + MAX_INDEX_BYTES,
+                "magazyn zajmuje " + perRow + " B na wiersz");
+
+        Rental last = store.findRental(id - 1);
+        assertNotNull(last);
+        assertEquals("U" + (users - 1), last.getUser().getUserId());
+        assertEquals(START.plusMinutes(perUser - 1), last.getStartTime());
+        assertNull(store.findRental(id));
+        User first = last.getUser();
+        assertEquals(1, store.materialize(rows.get(0)[0], first).getRentalId());
+    }
+
+    @Test
+    void concurrentAppendsKeepEveryRow() throws InterruptedException {
+        RentalHistoryStore store = new RentalHistoryStore();
+        int threads = 8;
+        int perThread = 20_000;
+        int[][] rows = new int[threads][perThread];
+        User[] users = new User[threads];
+        CountDownLatch ready = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            users[t] = new User("U" + t, "Użytkownik " + t, store);
+            Thread worker = new Thread(() -> {
+                try {
+                    ready.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    rows[thread][i] = store.append(rental((long) thread * perThread + i + 1, users[thread], i));
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        ready.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertEquals(threads * perThread, store.size());
+        for (int t = 0; t < threads; t++) {
+            for (int i = 0; i < perThread; i += 997) {
+                Rental rental = store.materialize(rows[t][i], users[t]);
+                assertEquals((long) t * perThread + i + 1, rental.getRentalId());
+                assertSame(users[t], store.findRental(rental.getRentalId()).getUser());
+            }
+        }
+    }
+
+    private Rental rental(long id, User user, int minute) {
+        LocalDateTime start = START.plusMinutes(minute);
+        Rental rental = new Rental(id, user, bike, from, start);
+        rental.endRental(to, start.plusSeconds(30));
+        return rental;
+    }
+}
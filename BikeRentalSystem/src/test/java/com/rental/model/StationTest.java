@@ -0,0 +1,101 @@
+package com.rental.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Doki stacji w buforze cyklicznym: rowery wychodzą od najdawniej
+ * zadokowanego także po wielokrotnym zawinięciu bufora, a liczniki
+ * i rezerwacje zgadzają się z zawartością.
+ */
+class StationTest {
+
+    @Test
+    void bikesLeaveInDockingOrderAcrossWrapAround() {
+        Station station = new Station("S1", "Rynek", 3);
+        List<Bike> expected = new ArrayList<>();
+        int next = 0;
+        for (int round = 0; round < 10; round++) {
+            // keep the dock partly full, so head and tail wrap at different moments
+            while (!station.isFull()) {
+                Bike bike = new Bike("B" + next++);
+                station.dockBike(bike);
+                expected.add(bike);
+            }
+            assertEquals(expected, station.getDockedBikesView());
+            assertEquals(expected, station.getDockedBikes());
+            assertSame(expected.get(0), station.getNextBike());
+            for (int i = 0; i < 2; i++) {
+                Bike bike = station.undockBike().orElseThrow();
+                assertSame(expected.remove(0), bike, "rower spoza kolejności dokowania");
+                assertNull(bike.getCurrentStation());
+                assertFalse(bike.isAvailable());
+            }
+        }
+        assertEquals(1, station.getDockedBikeCount());
+        assertEquals(2, station.getAvailableSpots());
+        assertSame(expected.get(0), station.undockBike().orElseThrow());
+        assertTrue(station.undockBike().isEmpty());
+        assertNull(station.getNextBike());
+    }
+
+    @Test
+    void dockingChecksCapacityAndTheBikesStation() {
+        Station station = new Station("S1", "Rynek", 2);
+        Station other = new Station("S2", "Dworzec", 1);
+        Bike bike = new Bike("B1");
+        station.dockBike(bike);
+
+        // docking again on the same station changes nothing
+        station.dockBike(bike);
+        assertEquals(1, station.getDockedBikeCount());
+        assertTrue(station.isDocked(bike));
+        station.dockBike(new Bike("B2"));
+        assertThrows(IllegalStateException.class, () -> station.dockBike(new Bike("B3")));
+        assertThrows(IllegalStateException.class, () -> other.dockBike(bike));
+        assertFalse(other.isDocked(bike));
+    }
+
+    @Test
+    void reservationsHoldTheOldestBikes() {
+        Station station = new Station("S1", "Rynek", 4);
+        Bike[] bikes = {new Bike("B1"), new Bike("B2"), new Bike("B3")};
+        for (Bike bike : bikes) {
+            station.dockBike(bike);
+        }
+        List<int[]> changes = new ArrayList<>();
+        station.setListener((changed, previousCount, count, previousAvailable, available) ->
+                changes.add(new int[]{previousCount, count, previousAvailable, available}));
+
+        assertTrue(station.reserveBike());
+        assertTrue(station.reserveBike());
+        assertEquals(1, station.getAvailableBikeCount());
+        assertEquals(List.of(bikes[0]), station.getAvailableBikes());
+        assertSame(bikes[0], station.undockReservedBike());
+        assertSame(bikes[1], station.undockBike().orElseThrow());
+        // the remaining bike is held for the second reservation
+        assertTrue(station.isEmpty());
+        assertTrue(station.undockBike().isEmpty());
+        assertFalse(station.reserveBike());
+        station.releaseReservation();
+        assertThrows(IllegalStateException.class, station::releaseReservation);
+        assertThrows(IllegalStateException.class, station::undockReservedBike);
+        assertEquals(List.of(bikes[2]), station.getAvailableBikes());
+
+        int[][] expected = {{3, 3, 3, 2}, {3, 3, 2, 1}, {3, 2, 1, 1}, {2, 1, 1, 0}, {1, 1, 0, 1}};
+        assertEquals(expected.length, changes.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertArrayEquals(expected[i], changes.get(i), "zmiana " + i);
+        }
+    }
+}
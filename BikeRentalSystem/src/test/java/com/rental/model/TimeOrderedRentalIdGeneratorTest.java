@@ -0,0 +1,52 @@
+package com.rental.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Identyfikatory z generatora uporządkowanego w czasie są unikalne także
+ * po ponownym uruchomieniu, jeśli generator pozna odtworzone identyfikatory.
+ */
+class TimeOrderedRentalIdGeneratorTest {
+
+    @Test
+    void restartedGeneratorDoesNotReissueBorrowedIds() {
+        // far more ids than one millisecond holds, so the lane borrows milliseconds ahead of the clock
+        TimeOrderedRentalIdGenerator before = new TimeOrderedRentalIdGenerator();
+        Set<Long> issued = new HashSet<>();
+        long last = 0;
+        for (int i = 0; i < 50_000; i++) {
+            long id = before.nextId();
+            assertTrue(id > last, "identyfikatory pasa nie rosną");
+            last = id;
+            issued.add(id);
+        }
+
+        TimeOrderedRentalIdGenerator after = new TimeOrderedRentalIdGenerator();
+        for (long id : issued) {
+            after.advancePast(id);
+        }
+        for (int i = 0; i < 50_000; i++) {
+            long id = after.nextId();
+            assertTrue(id > last, "generator po ponownym uruchomieniu wydał identyfikator sprzed niego");
+            assertTrue(issued.add(id), "powtórzony identyfikator " + id);
+        }
+    }
+
+    @Test
+    void foreignAndLegacyIdsDoNotMoveTheLanes() {
+        TimeOrderedRentalIdGenerator generator = new TimeOrderedRentalIdGenerator(1);
+        long otherNode = new TimeOrderedRentalIdGenerator(2).nextId();
+        long legacy = RentalIdGenerator.fromLegacyId("123e4567-e89b-12d3-a456-426614174000");
+        for (long id : new long[]{otherNode, legacy, Long.MAX_VALUE, -1L}) {
+            generator.advancePast(id);
+        }
+
+        long drift = TimeOrderedRentalIdGenerator.timestampMillis(generator.nextId()) - System.currentTimeMillis();
+        assertTrue(Math.abs(drift) < 1_000, "czas identyfikatora odbiega od zegara o " + drift + " ms");
+    }
+}
@@ -0,0 +1,371 @@
+package com.rental.persistence;
+
+import com.rental.billing.FareEngine;
+import com.rental.billing.Tariff;
+import com.rental.exception.NoBikesAvailableException;
+import com.rental.exception.StationFullException;
+import com.rental.model.Bike;
+import com.rental.model.Rental;
+import com.rental.model.Station;
+import com.rental.model.User;
+import com.rental.service.BikeRentalSystem;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Odtwarzanie dziennika po awarii w trakcie zapisu: rekordy pełne są
+ * zachowywane, a przerwany lub uszkodzony ogon i wszystko za nim - odrzucane.
+ * Opłaty naliczone przy zwrotach odtwarzane są z dziennika, bez ponownej wyceny.
+ */
+class RentalJournalRecoveryTest {
+    private static final int SEGMENT_SIZE = 1024;
+    private static final int RECORD_OVERHEAD = 2 * Integer.BYTES;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void tornTailIsWipedAndCompleteRecordsAreKept() throws IOException {
+        writeUsers(0, 10);
+        Path segment = segments().get(0);
+        int end = endOfRecords(segment, Integer.MAX_VALUE);
+        // a record cut short by a crash: its length is written, the rest is not
+        patch(segment, end, ByteBuffer.allocate(7).putInt(40).put((byte) 1).putShort((short) 3));
+
+        List<String> users = replayUsers();
+        assertEquals(userIds(0, 10), users);
+        byte[] bytes = Files.readAllBytes(segment);
+        for (int p = end; p < bytes.length; p++) {
+            assertEquals(0, bytes[p], "ogon nie został wyczyszczony na pozycji " + p);
+        }
+
+        // new records continue right after the last complete one
+        writeUsers(10, 2);
+        assertEquals(userIds(0, 12), replayUsers());
+    }
+
+    @Test
+    void recordWithCrcMismatchEndsTheReplay() throws IOException {
+        writeUsers(0, 10);
+        Path segment = segments().get(0);
+        int sixth = endOfRecords(segment, 5);
+        // flip one byte of the sixth record's payload
+        byte[] bytes = Files.readAllBytes(segment);
+        int payload = sixth + Integer.BYTES + 3;
+        patch(segment, payload, ByteBuffer.allocate(1).put((byte) (bytes[payload] ^ 0x5A)));
+
+        assertEquals(userIds(0, 5), replayUsers());
+        byte[] after = Files.readAllBytes(segment);
+        for (int p = sixth; p < after.length; p++) {
+            assertEquals(0, after[p]);
+        }
+        writeUsers(100, 1);
+        assertEquals(List.of("U0", "U1", "U2", "U3", "U4", "U100"), replayUsers());
+    }
+
+    @Test
+    void gapLeftByAnUnwrittenRecordEndsTheReplay() throws IOException {
+        writeUsers(0, 10);
+        Path segment = segments().get(0);
+        int fourth = endOfRecords(segment, 3);
+        int fifth = endOfRecords(segment, 4);
+        // the fourth record was reserved but never copied, while later ones were
+        patch(segment, fourth, ByteBuffer.allocate(fifth - fourth).position(fifth - fourth));
+
+        assertEquals(userIds(0, 3), replayUsers());
+        writeUsers(100, 1);
+        assertEquals(List.of("U0", "U1", "U2", "U100"), replayUsers());
+    }
+
+    @Test
+    void concurrentAppendsAcrossSegmentsAreAllReplayed() throws Exception {
+        int threads = 4;
+        int perThread = 500;
+        try (RentalJournal journal = RentalJournal.open(directory, SEGMENT_SIZE, 1)) {
+            journal.replay(new UserCollector());
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            try {
+                List<Future<?>> writers = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    int thread = t;
+                    writers.add(pool.submit(() -> {
+                        for (int u = 0; u < perThread; u++) {
+                            journal.logUserRegistered("T" + thread + "-" + u, "Użytkownik numer " + u);
+                        }
+                    }));
+                }
+                for (Future<?> writer : writers) {
+                    writer.get(30, TimeUnit.SECONDS);
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+
+        List<String> users = replayUsers();
+        assertTrue(segments().size() > 10, "test wymaga wielu segmentów");
+        assertEquals(threads * perThread, users.size());
+        for (int t = 0; t < threads; t++) {
+            String prefix = "T" + t + "-";
+            List<String> own = users.stream().filter(id -> id.startsWith(prefix)).toList();
+            for (int u = 0; u < perThread; u++) {
+                assertEquals(prefix + u, own.get(u), "rekordy wątku " + t + " w złej kolejności");
+            }
+        }
+    }
+
+    @Test
+    void segmentsAfterACorruptRecordAreDeleted() throws IOException {
+        writeUsers(0, 200);
+        List<Path> segments = segments();
+        assertTrue(segments.size() >= 3, "test wymaga co najmniej trzech segmentów");
+        Path first = segments.get(0);
+        int records = recordCount(first);
+        // corrupt the length of the last record of the first segment
+        int last = endOfRecords(first, records - 1);
+        patch(first, last, ByteBuffer.allocate(Integer.BYTES).putInt(SEGMENT_SIZE * 4));
+
+        assertEquals(userIds(0, records - 1), replayUsers());
+        assertEquals(List.of(first), segments());
+    }
+
+    @Test
+    void processKilledWhileWritingRecoversAConsistentFleet() throws Exception {
+        Path java = Path.of(System.getProperty("java.home"), "bin", "java");
+        Process writer = new ProcessBuilder(java.toString(), "-cp", System.getProperty("java.class.path"),
+                JournalWriter.class.getName(), directory.toString())
+                .redirectErrorStream(true)
+                .start();
+        try {
+            // the writer prints a line once its city is in the journal, then keeps renting and returning
+            BufferedReader output = new BufferedReader(new InputStreamReader(writer.getInputStream(), StandardCharsets.UTF_8));
+            String line;
+            do {
+                line = output.readLine();
+                assertTrue(line != null, "proces zapisujący nie wystartował");
+            } while (!line.equals(JournalWriter.READY));
+            Thread.sleep(300);
+        } finally {
+            writer.destroyForcibly();
+            writer.waitFor(10, TimeUnit.SECONDS);
+        }
+        assertFalse(writer.isAlive());
+
+        try (RentalJournal journal = RentalJournal.open(directory, SEGMENT_SIZE * 64, 10)) {
+            BikeRentalSystem system = new BikeRentalSystem(journal);
+            assertEquals(JournalWriter.STATIONS, system.getAllStations().size());
+
+            Set<Bike> seen = new HashSet<>();
+            for (Station station : system.getAllStations()) {
+                List<Bike> docked = station.getDockedBikes();
+                assertTrue(docked.size() <= station.getCapacity());
+                for (Bike bike : docked) {
+                    assertTrue(seen.add(bike), "rower na dwóch stacjach: " + bike.getBikeId());
+                }
+            }
+            int returned = 0;
+            for (int u = 0; u < JournalWriter.USERS; u++) {
+                User user = system.findUser("U" + u);
+                if (user.getCurrentRental() != null) {
+                    assertTrue(seen.add(user.getCurrentRental().getBike()));
+                }
+                returned += system.getUserHistory(user.getUserId()).size();
+            }
+            assertEquals(JournalWriter.BIKES, seen.size());
+            assertTrue(returned > 0, "proces zapisujący nie zdążył nic zwrócić");
+
+            // the recovered journal accepts new records after the recovered ones
+            system.registerUser("nowy", "Po awarii");
+        }
+    }
+
+    @Test
+    void chargedFareSurvivesATariffChange() throws Exception {
+        Instant start = Instant.parse("2024-03-01T08:00:00Z");
+        long charged;
+        long rentalId;
+        try (RentalJournal journal = RentalJournal.open(directory, SEGMENT_SIZE * 64, 10)) {
+            BikeRentalSystem system = new BikeRentalSystem(journal);
+            // penalties after 10 minutes, unlike the default tariff used after the restart
+            system.setFareEngine(new FareEngine(Tariff.standard(Duration.ofMinutes(10))));
+            system.setClock(Clock.fixed(start, ZoneOffset.UTC));
+            system.addStation("S1", "Rynek", 5);
+            system.addBike("B1", "S1");
+            system.registerUser("U1", "Jan");
+            rentalId = system.rentBike("U1", "S1").getRentalId();
+            system.setClock(Clock.fixed(start.plus(Duration.ofMinutes(25)), ZoneOffset.UTC));
+            charged = system.returnBike("B1", "S1").getFareCents();
+        }
+
+        try (RentalJournal journal = RentalJournal.open(directory, SEGMENT_SIZE * 64, 10)) {
+            BikeRentalSystem system = new BikeRentalSystem(journal);
+            Rental restored = system.findRental(rentalId).orElseThrow();
+            assertEquals(charged, restored.getFareCents(), "odtworzenie wyceniło przejazd ponownie");
+            assertTrue(charged > system.getFareEngine().price(restored), "taryfa testu nie różni się od domyślnej");
+        }
+    }
+
+    /**
+     * Proces zapisujący dziennik bez końca; test zabija go w dowolnym momencie.
+     */
+    public static final class JournalWriter {
+        static final int STATIONS = 4;
+        static final int BIKES = 12;
+        static final int USERS = 8;
+        static final String READY = "gotowe";
+
+        public static void main(String[] args) throws Exception {
+            RentalJournal journal = RentalJournal.open(Path.of(args[0]), SEGMENT_SIZE * 64, 1);
+            BikeRentalSystem system = new BikeRentalSystem(journal);
+            for (int s = 0; s < STATIONS; s++) {
+                system.addStation("S" + s, "Stacja " + s, BIKES);
+            }
+            for (int b = 0; b < BIKES; b++) {
+                system.addBike("B" + b, "S" + (b % STATIONS));
+            }
+            for (int u = 0; u < USERS; u++) {
+                system.registerUser("U" + u, "Użytkownik " + u);
+            }
+            System.out.println(READY);
+            System.out.flush();
+            Random random = new Random(1);
+            while (true) {
+                User user = system.findUser("U" + random.nextInt(USERS));
+                String station = "S" + random.nextInt(STATIONS);
+                try {
+                    if (user.getCurrentRental() == null) {
+                        system.rentBike(user.getUserId(), station);
+                    } else {
+                        system.returnBike(user.getCurrentRental().getBike().getBikeId(), station);
+                    }
+                } catch (NoBikesAvailableException | StationFullException e) {
+                    // the next random pick goes elsewhere
+                }
+            }
+        }
+    }
+
+    // --- Helpers ---
+
+    private void writeUsers(int first, int count) throws IOException {
+        try (RentalJournal journal = RentalJournal.open(directory, SEGMENT_SIZE, 1)) {
+            journal.replay(new UserCollector());
+            for (int u = first; u < first + count; u++) {
+                journal.logUserRegistered("U" + u, "Użytkownik numer " + u);
+            }
+        }
+    }
+
+    private List<String> replayUsers() throws IOException {
+        UserCollector collector = new UserCollector();
+        try (RentalJournal journal = RentalJournal.open(directory, SEGMENT_SIZE, 1)) {
+            journal.replay(collector);
+        }
+        return collector.users;
+    }
+
+    private static List<String> userIds(int first, int count) {
+        List<String> ids = new ArrayList<>();
+        for (int u = first; u < first + count; u++) {
+            ids.add("U" + u);
+        }
+        return ids;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    /**
+     * @return pozycja za {@code records} pierwszymi rekordami segmentu
+     * (albo za wszystkimi, jeśli jest ich mniej)
+     */
+    private static int endOfRecords(Path segment, int records) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(segment));
+        int position = 0;
+        for (int r = 0; r < records && position + Integer.BYTES <= bytes.limit(); r++) {
+            int length = bytes.getInt(position);
+            if (length == 0) {
+                break;
+            }
+            position += length + RECORD_OVERHEAD;
+        }
+        return position;
+    }
+
+    private static int recordCount(Path segment) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(segment));
+        int position = 0;
+        int records = 0;
+        while (position + Integer.BYTES <= bytes.limit() && bytes.getInt(position) != 0) {
+            position += bytes.getInt(position) + RECORD_OVERHEAD;
+            records++;
+        }
+        return records;
+    }
+
+    private static void patch(Path segment, int position, ByteBuffer patch) throws IOException {
+        byte[] bytes = Files.readAllBytes(segment);
+        patch.flip();
+        patch.get(bytes, position, patch.remaining());
+        Files.write(segment, bytes);
+    }
+
+    private static final class UserCollector implements JournalRecordHandler {
+        final List<String> users = new ArrayList<>();
+
+        @Override
+        public void userRegistered(String userId, String name) {
+            users.add(userId);
+        }
+
+        @Override
+        public void stationAdded(String stationId, String locationName, int capacity, double latitude, double longitude) {
+        }
+
+        @Override
+        public void bikeAdded(String bikeId, String stationId) {
+        }
+
+        @Override
+        public void bikeRented(long rentalId, String userId, String bikeId, String stationId, LocalDateTime startTime) {
+        }
+
+        @Override
+        public void bikeReturned(String bikeId, String stationId, LocalDateTime endTime, long fareCents) {
+        }
+
+        @Override
+        public void bikesTransferred(String fromStationId, String toStationId, int count) {
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.rental.rebalancing;
+
+import com.rental.exception.NoBikesAvailableException;
+import com.rental.exception.StationFullException;
+import com.rental.model.Bike;
+import com.rental.model.Station;
+import com.rental.persistence.RentalJournal;
+import com.rental.service.BikeRentalSystem;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Plan przewozów przenosi rowery wyłącznie ze stacji z nadmiarem na stacje
+ * z niedoborem, a jego wykonanie przybliża stacje do celu. Przewozy
+ * w przeciwnych kierunkach nie blokują się wzajemnie i są odtwarzane
+ * z dziennika.
+ */
+class RebalancingPlannerTest {
+    private static final int STATIONS = 1_000;
+    private static final int CAPACITY = 10;
+    private static final int TARGET = CAPACITY / 2;
+    private static final int TRUCK = 3;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void planMovesSurplusToDeficitAndApplyReachesTheTarget() throws Exception {
+        Random random = new Random(9);
+        BikeRentalSystem system = new BikeRentalSystem();
+        int bikes = 0;
+        for (int s = 0; s < STATIONS; s++) {
+            system.addStation("S" + s, "Stacja " + s, CAPACITY,
+                    50.0 + random.nextDouble() * 0.1, 19.9 + random.nextDouble() * 0.1);
+            // a quarter of the stations start empty, so deficits outweigh the surplus
+            for (int b = random.nextInt(CAPACITY + 4) - 3; b > 0; b--) {
+                system.addBike("B" + bikes++, "S" + s);
+            }
+        }
+        Map<String, Integer> before = new HashMap<>();
+        int surplus = 0;
+        int deficit = 0;
+        for (Station station : system.getAllStations()) {
+            int count = station.getAvailableBikeCount();
+            before.put(station.getStationId(), count);
+            surplus += Math.max(0, count - TARGET);
+            deficit += Math.max(0, TARGET - count);
+        }
+
+        RebalancingPlan plan = new RebalancingPlanner(0.5, TRUCK).plan(system.getAllStations());
+
+        Map<String, Integer> planned = new HashMap<>();
+        for (Transfer transfer : plan.getTransfers()) {
+            assertTrue(transfer.getBikes() > 0 && transfer.getBikes() <= TRUCK, transfer.toString());
+            planned.merge(transfer.getFromStationId(), -transfer.getBikes(), Integer::sum);
+            planned.merge(transfer.getToStationId(), transfer.getBikes(), Integer::sum);
+        }
+        for (Map.Entry<String, Integer> change : planned.entrySet()) {
+            int count = before.get(change.getKey());
+            int after = count + change.getValue();
+            // a station only gives away its surplus or only fills its deficit
+            assertTrue(count >= TARGET ? after >= TARGET && after <= count : after <= TARGET && after >= count,
+                    change.getKey() + ": " + count + " -> " + after);
+        }
+        assertEquals(surplus - plan.getUnmetSurplus(), plan.getBikesMoved());
+        assertEquals(deficit - plan.getUnmetDeficit(), plan.getBikesMoved());
+        assertTrue(plan.getUnmetSurplus() == 0 || plan.getUnmetDeficit() == 0, plan.toString());
+
+        assertEquals(plan.getBikesMoved(), RebalancingPlanner.apply(system, plan));
+        int total = 0;
+        for (Station station : system.getAllStations()) {
+            int expected = before.get(station.getStationId()) + planned.getOrDefault(station.getStationId(), 0);
+            assertEquals(expected, station.getAvailableBikeCount(), station.getStationId());
+            total += station.getDockedBikeCount();
+        }
+        assertEquals(bikes, total, "rowery zniknęły lub się pojawiły");
+    }
+
+    @Test
+    void opposingTransfersDoNotDeadlock() throws Exception {
+        BikeRentalSystem system = new BikeRentalSystem();
+        system.addStation("A", "Rynek", 20);
+        system.addStation("B", "Dworzec", 20);
+        for (int b = 0; b < 10; b++) {
+            system.addBike("A" + b, "A");
+            system.addBike("B" + b, "B");
+        }
+
+        // without a fixed lock order each thread would hold its source and wait for the other's
+        CyclicBarrier start = new CyclicBarrier(2);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> forward = pool.submit(() -> shuttle(system, "A", "B", start));
+            Future<?> backward = pool.submit(() -> shuttle(system, "B", "A", start));
+            forward.get(1, TimeUnit.MINUTES);
+            backward.get(1, TimeUnit.MINUTES);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(20, system.findStation("A").getDockedBikeCount() + system.findStation("B").getDockedBikeCount());
+        assertThrows(IllegalArgumentException.class, () -> system.transferBikes("A", "A", 1));
+        assertThrows(IllegalArgumentException.class, () -> system.transferBikes("A", "B", 0));
+    }
+
+    @Test
+    void transfersAreReplayedFromTheJournal() throws Exception {
+        List<String> atA;
+        List<String> atB;
+        try (RentalJournal journal = RentalJournal.open(directory)) {
+            BikeRentalSystem system = new BikeRentalSystem(journal);
+            system.addStation("A", "Rynek", 5);
+            system.addStation("B", "Dworzec", 5);
+            for (int b = 0; b < 4; b++) {
+                system.addBike("B" + b, "A");
+            }
+            system.transferBikes("A", "B", 3);
+            system.transferBikes("B", "A", 1);
+            atA = ids(system.findStation("A"));
+            atB = ids(system.findStation("B"));
+        }
+
+        try (RentalJournal journal = RentalJournal.open(directory)) {
+            BikeRentalSystem system = new BikeRentalSystem(journal);
+            // the same bikes in the same dock order, so later rentals take the same bike
+            assertEquals(atA, ids(system.findStation("A")));
+            assertEquals(atB, ids(system.findStation("B")));
+            assertEquals(List.of("B3", "B0"), atA);
+        }
+    }
+
+    // --- Helpers ---
+
+    private static Void shuttle(BikeRentalSystem system, String from, String to, CyclicBarrier start) throws Exception {
+        start.await();
+        for (int i = 0; i < 20_000; i++) {
+            try {
+                system.transferBikes(from, to, 1 + i % 3);
+            } catch (NoBikesAvailableException | StationFullException e) {
+                // the other direction drained this station for now
+            }
+        }
+        return null;
+    }
+
+    private static List<String> ids(Station station) {
+        return station.getDockedBikes().stream().map(Bike::getBikeId).toList();
+    }
+}
@@ -0,0 +1,152 @@
+package com.rental.service;
+
+import com.rental.exception.NoBikesAvailableException;
+import com.rental.exception.NotRentingException;
+import com.rental.model.Rental;
+import com.rental.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Zwroty korzystają z indeksu aktywnych wypożyczeń według roweru, a nie
+ * z przeglądania użytkowników.
+ */
+class ActiveRentalReturnTest {
+
+    @Test
+    void returnsFindTheRentalAfterManyUsersRented() throws Exception {
+        int users = 5_000;
+        BikeRentalSystem system = cityWithRiders(users);
+        List<Rental> rentals = new ArrayList<>(users);
+        for (int u = 0; u < users; u++) {
+            rentals.add(system.rentBike("U" + u, "S" + (u % 50)));
+        }
+
+        for (int u = users - 1; u >= 0; u -= 3) {
+            Rental rental = rentals.get(u);
+            String bikeId = rental.getBike().getBikeId();
+            assertSame(rental.getUser(), system.findUserRentingBike(bikeId));
+            assertSame(rental, system.returnBike(bikeId, "S" + (u % 50)));
+            assertFalse(rental.getUser().isRenting());
+            assertThrows(NotRentingException.class, () -> system.findUserRentingBike(bikeId));
+            List<Rental> history = system.getUserHistory(rental.getUser().getUserId());
+            assertEquals(1, history.size(), "zwrot nie trafił do historii");
+            assertEquals(rental.getRentalId(), history.get(0).getRentalId());
+        }
+        // rentals that were not returned are still found
+        assertSame(rentals.get(0), system.findActiveRental(rentals.get(0).getBike().getBikeId()));
+    }
+
+    @Test
+    void secondReturnOfTheSameBikeIsRefused() throws Exception {
+        BikeRentalSystem system = cityWithRiders(2);
+        Rental rental = system.rentBike("U0", "S0");
+        String bikeId = rental.getBike().getBikeId();
+
+        system.returnBike(bikeId, "S1");
+        assertThrows(NotRentingException.class, () -> system.returnBike(bikeId, "S2"));
+
+        assertEquals(1, system.getUserHistory("U0").size());
+        assertEquals(1, system.findStation("S1").getDockedBikes().stream()
+                .filter(bike -> bike.getBikeId().equals(bikeId)).count());
+    }
+
+    @Test
+    void returnRacingAReRentOfTheSameBikeKeepsTheNewRental() throws Exception {
+        BikeRentalSystem system = new BikeRentalSystem();
+        system.addStation("S0", "Start", 1);
+        system.addStation("S1", "Meta", 1);
+        system.addBike("B0", "S0");
+        User first = system.registerUser("U0", "Pierwszy");
+        User second = system.registerUser("U1", "Drugi");
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int round = 0; round < 2_000; round++) {
+                Rental old = system.rentBike(first.getUserId(), "S0");
+                CyclicBarrier startLine = new CyclicBarrier(2);
+                Future<Rental> returned = executor.submit(() -> {
+                    startLine.await();
+                    return system.returnBike("B0", "S1");
+                });
+                Future<Rental> reRented = executor.submit(() -> {
+                    startLine.await();
+                    while (true) {
+                        try {
+                            return system.rentBike(second.getUserId(), "S1");
+                        } catch (NoBikesAvailableException e) {
+                            // the return has not docked the bike yet
+                        }
+                    }
+                });
+
+                assertSame(old, returned.get());
+                Rental current = reRented.get();
+                assertSame(current, system.findActiveRental("B0"));
+                assertSame(second, system.findUserRentingBike("B0"));
+                assertFalse(first.isRenting());
+
+                // a late retry of the first return ends the new rental, not the finished one
+                assertSame(current, system.returnBike("B0", "S0"));
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(2_000, system.getUserHistory("U0").size());
+        assertEquals(2_000, system.getUserHistory("U1").size());
+    }
+
+    @Test
+    void returnCostDoesNotGrowWithTheNumberOfUsers() throws Exception {
+        double small = nanosPerRentAndReturn(1_000);
+        double large = nanosPerRentAndReturn(100_000);
+        // a scan over users would make the large city about 100 times slower
+        assertTrue(large < small * 5 + 2_000, "zwrot: " + small + " ns przy 1000 użytkowników, "
+                + large + " ns przy 100000");
+    }
+
+    private static double nanosPerRentAndReturn(int users) throws Exception {
+        BikeRentalSystem system = cityWithRiders(users);
+        int rounds = 20_000;
+        double best = Double.MAX_VALUE;
+        for (int attempt = 0; attempt < 5; attempt++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                String station = "S" + (i % 50);
+                Rental rental = system.rentBike("U" + (i % users), station);
+                system.returnBike(rental.getBike().getBikeId(), station);
+            }
+            best = Math.min(best, (System.nanoTime() - start) / (double) rounds);
+        }
+        return best;
+    }
+
+    private static BikeRentalSystem cityWithRiders(int users) throws Exception {
+        BikeRentalSystem system = new BikeRentalSystem();
+        int stations = 50;
+        int bikes = Math.min(users, 5_000);
+        int capacity = bikes / stations + 2;
+        for (int s = 0; s < stations; s++) {
+            system.addStation("S" + s, "Stacja " + s, capacity);
+        }
+        for (int b = 0; b < bikes; b++) {
+            system.addBike("B" + b, "S" + (b % stations));
+        }
+        for (int u = 0; u < users; u++) {
+            system.registerUser("U" + u, "Użytkownik " + u);
+        }
+        return system;
+    }
+}
@@ -0,0 +1,133 @@
+package com.rental.service;
+
+import com.rental.exception.NoBikesAvailableException;
+import com.rental.exception.NotRentingException;
+import com.rental.exception.StationFullException;
+import com.rental.exception.UserAlreadyRentingException;
+import com.rental.model.Bike;
+import com.rental.model.Rental;
+import com.rental.model.Station;
+import com.rental.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Wiele wątków wypożycza i zwraca rowery na wspólnych użytkownikach
+ * i stacjach; po zakończeniu sprawdzane są niezmienniki floty.
+ */
+class BikeRentalSystemConcurrencyTest {
+    private static final int THREADS = 8;
+    private static final int OPERATIONS_PER_THREAD = 20_000;
+    private static final int STATIONS = 6;
+    private static final int CAPACITY = 12;
+    private static final int BIKES = 40;
+    private static final int USERS = 48;
+
+    @Test
+    void rentalsAndReturnsKeepTheFleetConsistent() throws Exception {
+        BikeRentalSystem system = new BikeRentalSystem();
+        for (int s = 0; s < STATIONS; s++) {
+            system.addStation("S" + s, "Stacja " + s, CAPACITY);
+        }
+        for (int b = 0; b < BIKES; b++) {
+            system.addBike("B" + b, "S" + (b % STATIONS));
+        }
+        List<User> users = new ArrayList<>();
+        for (int u = 0; u < USERS; u++) {
+            users.add(system.registerUser("U" + u, "Użytkownik " + u));
+        }
+
+        AtomicLong rents = new AtomicLong();
+        AtomicLong returns = new AtomicLong();
+        CyclicBarrier startLine = new CyclicBarrier(THREADS);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            long seed = t;
+            workers.add(executor.submit(() -> {
+                Random random = new Random(seed);
+                startLine.await();
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    String station = "S" + random.nextInt(STATIONS);
+                    User user = users.get(random.nextInt(USERS));
+                    Rental current = user.getCurrentRental();
+                    try {
+                        if (current == null) {
+                            system.rentBike(user.getUserId(), station);
+                            rents.incrementAndGet();
+                        } else {
+                            system.returnBike(current.getBike().getBikeId(), station);
+                            returns.incrementAndGet();
+                        }
+                    } catch (NoBikesAvailableException | StationFullException | UserAlreadyRentingException
+                             | NotRentingException expected) {
+                        // another thread got to the station or the user first
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        executor.shutdown();
+
+        // every bike is in exactly one place: docked at one station or held by one rental
+        Set<Bike> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        int docked = 0;
+        for (Station station : system.getAllStations()) {
+            List<Bike> bikes = station.getDockedBikes();
+            assertTrue(bikes.size() <= station.getCapacity(), "przepełniona stacja " + station.getStationId());
+            for (Bike bike : bikes) {
+                assertTrue(seen.add(bike), "rower na dwóch stacjach: " + bike.getBikeId());
+                assertSame(station, bike.getCurrentStation());
+                assertNull(activeRental(system, bike), "zadokowany rower ma aktywne wypożyczenie");
+            }
+            docked += bikes.size();
+        }
+        Map<Bike, User> holders = new IdentityHashMap<>();
+        long history = 0;
+        for (User user : users) {
+            Rental rental = user.getCurrentRental();
+            if (rental != null) {
+                assertSame(user, rental.getUser());
+                assertTrue(seen.add(rental.getBike()), "rower wypożyczony i zadokowany: " + rental.getBike().getBikeId());
+                // one user per bike and, since getCurrentRental is single-valued, one rental per user
+                assertNull(holders.put(rental.getBike(), user));
+                assertSame(rental, activeRental(system, rental.getBike()));
+            }
+            history += system.getUserHistory(user.getUserId()).size();
+        }
+
+        assertEquals(BIKES, seen.size(), "zgubione lub zdublowane rowery");
+        assertEquals(BIKES, docked + holders.size());
+        assertEquals(rents.get() - returns.get(), holders.size());
+        assertEquals(returns.get(), history);
+        assertTrue(returns.get() > 0, "test nie wykonał żadnego zwrotu");
+    }
+
+    private static Rental activeRental(BikeRentalSystem system, Bike bike) {
+        try {
+            return system.findActiveRental(bike.getBikeId());
+        } catch (NotRentingException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.rental.service;
+
+import com.rental.model.Bike;
+import com.rental.model.Station;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Uchwyty encji są zwarte i trwałe, prowadzą do tych samych obiektów
+ * co identyfikatory tekstowe, a operacje na uchwytach dają te same
+ * wyniki co operacje na identyfikatorach.
+ */
+class HandleApiTest {
+    // more bikes than one chunk of the handle table holds
+    private static final int BIKES = 10_000;
+
+    @Test
+    void handlesAreDenseAndLeadToTheSameEntities() throws Exception {
+        BikeRentalSystem system = new BikeRentalSystem();
+        Station first = system.addStation("s1", "Rynek", BIKES);
+        system.addStation("S2", "Dworzec", 1);
+        for (int b = 0; b < BIKES; b++) {
+            system.addBike("B" + b, "S1");
+        }
+
+        assertEquals(0, system.stationHandle("S1"));
+        // station ids are normalized before the handle is looked up
+        assertEquals(0, system.stationHandle("s1"));
+        assertEquals(1, system.stationHandle("S2"));
+        assertSame(first, system.getStation(0));
+        for (int b = 0; b < BIKES; b++) {
+            int handle = system.bikeHandle("B" + b);
+            assertEquals(b, handle);
+            Bike bike = system.getBike(handle);
+            assertEquals("B" + b, bike.getBikeId());
+            assertEquals(handle, bike.getHandle());
+        }
+
+        assertEquals(-1, system.bikeHandle("NOBIKE"));
+        assertEquals(-1, system.stationHandle("NOWHERE"));
+        assertEquals(-1, system.userHandle("NOBODY"));
+        assertNull(system.getBike(BIKES));
+        assertNull(system.getBike(-1));
+        assertNull(system.getUser(0));
+    }
+
+    @Test
+    void handleOperationsAgreeWithTheIdOperations() throws Exception {
+        BikeRentalSystem system = new BikeRentalSystem();
+        system.addStation("FULL", "Pełna", 1);
+        system.addBike("B1", "FULL");
+        system.registerUser("U1", "Anna");
+        int user = system.userHandle("U1");
+        int full = system.stationHandle("FULL");
+
+        assertSame(RentalOutcome.failure(RentalFailure.USER_NOT_FOUND), system.tryRentBike(-1, full));
+        assertSame(RentalOutcome.failure(RentalFailure.STATION_NOT_FOUND), system.tryRentBike(user, 99));
+        RentalOutcome rented = system.tryRentBike(user, full);
+        assertTrue(rented.isSuccess());
+        assertSame(RentalOutcome.failure(RentalFailure.USER_ALREADY_RENTING), system.tryRentBike("U1", "FULL"));
+
+        int bike = system.bikeHandle(rented.getRental().getBike().getBikeId());
+        assertSame(RentalOutcome.failure(RentalFailure.BIKE_NOT_FOUND), system.tryReturnBike(99, full));
+        assertSame(RentalOutcome.failure(RentalFailure.STATION_NOT_FOUND), system.tryReturnBike(bike, 99));
+        assertSame(rented.getRental(), system.tryReturnBike(bike, full).getRental());
+        assertSame(RentalOutcome.failure(RentalFailure.NOT_RENTING), system.tryReturnBike("B1", "FULL"));
+        assertSame(RentalOutcome.failure(RentalFailure.NOT_RENTING), system.tryReturnBike(bike, full));
+    }
+}
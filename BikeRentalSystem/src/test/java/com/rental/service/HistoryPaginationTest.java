@@ -0,0 +1,159 @@
+package com.rental.service;
+
+import com.rental.exception.StationNotFoundException;
+import com.rental.exception.UserNotFoundException;
+import com.rental.model.HistoryPage;
+import com.rental.model.HistoryQuery;
+import com.rental.model.Rental;
+import com.rental.simulation.SimulationClock;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Strony historii wypożyczeń, pobierane kolejno po kursorze, składają się
+ * na całą pasującą historię od najnowszego wypożyczenia - bez powtórzeń
+ * i luk, także gdy między stronami dochodzą nowe wypożyczenia.
+ */
+class HistoryPaginationTest {
+    private static final Instant START = Instant.parse("2024-03-01T08:00:00Z");
+    private static final int RENTALS = 250;
+
+    @Test
+    void pagesCoverTheWholeHistoryNewestFirst() throws Exception {
+        SimulationClock clock = new SimulationClock(START);
+        BikeRentalSystem system = systemWithHistory(clock);
+        List<Long> expected = newestFirst(system.getUserHistory("U1"), rental -> true);
+
+        List<Long> paged = new ArrayList<>();
+        HistoryPage page = system.getUserHistory("U1", HistoryQuery.latest(7));
+        paged.addAll(ids(page));
+        // rentals finished between pages are newer than the cursor and do not shift later pages
+        rent(system, clock, RENTALS, 3);
+        while (page.hasNext()) {
+            page = system.getUserHistory("U1", HistoryQuery.latest(7).after(page.getNextCursor()));
+            assertTrue(page.getRentals().size() <= 7, "strona większa niż limit");
+            paged.addAll(ids(page));
+        }
+        assertEquals(expected, paged);
+        assertNull(page.getNextCursor());
+        assertEquals(RENTALS + 3, system.getUserHistory("U1").size());
+        assertEquals(RENTALS + 3,
+                system.getUserHistory("U1", HistoryQuery.latest(HistoryQuery.MAX_LIMIT)).getRentals().size());
+    }
+
+    @Test
+    void timeRangeAndStationNarrowEveryPage() throws Exception {
+        SimulationClock clock = new SimulationClock(START);
+        BikeRentalSystem system = systemWithHistory(clock);
+        List<Rental> history = system.getUserHistory("U1");
+        // the bounds fall on start times shared by two rentals, so ties at both ends are covered
+        LocalDateTime from = history.get(40).getStartTime();
+        LocalDateTime to = history.get(200).getStartTime();
+
+        Predicate<Rental> inRange = rental -> !rental.getStartTime().isBefore(from) && rental.getStartTime().isBefore(to);
+        assertEquals(newestFirst(history, inRange), allPages(system, HistoryQuery.latest(9).between(from, to)));
+
+        Predicate<Rental> atS2 = rental -> "S2".equals(rental.getStartStation().getStationId())
+                || "S2".equals(rental.getEndStation().getStationId());
+        List<Long> expected = newestFirst(history, inRange.and(atS2));
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, allPages(system, HistoryQuery.latest(5).between(from, to).atStation("S2")));
+        // a station the user never visited gives one empty page
+        HistoryPage empty = system.getUserHistory("U1", HistoryQuery.latest().atStation("S4"));
+        assertTrue(empty.getRentals().isEmpty());
+        assertFalse(empty.hasNext());
+    }
+
+    @Test
+    void invalidQueriesAreRefused() throws Exception {
+        SimulationClock clock = new SimulationClock(START);
+        BikeRentalSystem system = systemWithHistory(clock);
+        system.registerUser("U2", "Ewa");
+
+        assertThrows(IllegalArgumentException.class, () -> HistoryQuery.latest(0));
+        assertThrows(IllegalArgumentException.class, () -> HistoryQuery.latest(HistoryQuery.MAX_LIMIT + 1));
+        LocalDateTime now = LocalDateTime.of(2024, 3, 1, 8, 0);
+        assertThrows(IllegalArgumentException.class, () -> HistoryQuery.latest().between(now, now));
+        assertThrows(IllegalArgumentException.class,
+                () -> system.getUserHistory("U1", HistoryQuery.latest().after("abc")));
+        assertThrows(IllegalArgumentException.class,
+                () -> system.getUserHistory("U1", HistoryQuery.latest().after("-1")));
+        assertThrows(StationNotFoundException.class,
+                () -> system.getUserHistory("U1", HistoryQuery.latest().atStation("NOWHERE")));
+        assertThrows(UserNotFoundException.class, () -> system.getUserHistory("NOBODY", HistoryQuery.latest()));
+
+        // a cursor past the history reads from its end, and a user without history gets an empty page
+        assertEquals(HistoryQuery.DEFAULT_LIMIT,
+                system.getUserHistory("U1", HistoryQuery.latest().after("1000000")).getRentals().size());
+        HistoryPage empty = system.getUserHistory("U2", HistoryQuery.latest());
+        assertTrue(empty.getRentals().isEmpty());
+        assertFalse(empty.hasNext());
+    }
+
+    // --- Helpers ---
+
+    private static BikeRentalSystem systemWithHistory(SimulationClock clock) throws Exception {
+        BikeRentalSystem system = new BikeRentalSystem();
+        system.setClock(clock);
+        for (int s = 1; s <= 4; s++) {
+            system.addStation("S" + s, "Stacja " + s, 10);
+        }
+        system.addBike("B1", "S1");
+        system.registerUser("U1", "Anna");
+        rent(system, clock, 0, RENTALS);
+        return system;
+    }
+
+    /**
+     * Wykonuje przejazdy po kolei między stacjami S1-S3; co dwa przejazdy
+     * zaczynają się w tej samej minucie.
+     */
+    private static void rent(BikeRentalSystem system, SimulationClock clock, int first, int count) throws Exception {
+        for (int i = first; i < first + count; i++) {
+            clock.advanceTo(START.plus(Duration.ofMinutes(i / 2)).toEpochMilli());
+            String bike = system.rentBike("U1", "S" + (1 + i % 3)).getBike().getBikeId();
+            system.returnBike(bike, "S" + (1 + (i + 1) % 3));
+        }
+    }
+
+    private static List<Long> allPages(BikeRentalSystem system, HistoryQuery first) throws Exception {
+        List<Long> paged = new ArrayList<>();
+        Set<String> cursors = new HashSet<>();
+        HistoryPage page = system.getUserHistory("U1", first);
+        paged.addAll(ids(page));
+        while (page.hasNext()) {
+            assertTrue(cursors.add(page.getNextCursor()), "kursor się powtórzył");
+            page = system.getUserHistory("U1", first.after(page.getNextCursor()));
+            paged.addAll(ids(page));
+        }
+        return paged;
+    }
+
+    private static List<Long> newestFirst(List<Rental> history, Predicate<Rental> filter) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = history.size() - 1; i >= 0; i--) {
+            if (filter.test(history.get(i))) {
+                ids.add(history.get(i).getRentalId());
+            }
+        }
+        return ids;
+    }
+
+    private static List<Long> ids(HistoryPage page) {
+        return page.getRentals().stream().map(Rental::getRentalId).toList();
+    }
+}
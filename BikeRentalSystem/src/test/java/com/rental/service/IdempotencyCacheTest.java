@@ -0,0 +1,155 @@
+package com.rental.service;
+
+import com.rental.exception.NotRentingException;
+import com.rental.model.Bike;
+import com.rental.model.Rental;
+import com.rental.model.Station;
+import com.rental.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pamięć idempotencji: trwające operacje nie są usuwane, oczekujący
+ * dostają wyjątek właściciela bez opakowania, a klucze należą do użytkowników.
+ */
+class IdempotencyCacheTest {
+
+    @Test
+    void operationInFlightSurvivesOverflow() throws Exception {
+        // one entry per stripe, so the other keys overflow every stripe many times
+        IdempotencyCache cache = new IdempotencyCache(IdempotencyCache.STRIPES, Duration.ofHours(1));
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        RentalOutcome expected = success("R1");
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<RentalOutcome> owner = pool.submit(() -> cache.execute("U1", "k", "rent\0" + 1, () -> {
+                runs.incrementAndGet();
+                await(release);
+                return expected;
+            }));
+            waitUntil(() -> runs.get() == 1);
+            for (int i = 0; i < 1_000; i++) {
+                RentalOutcome other = success("R" + i);
+                cache.execute("U" + i, "k" + i, "rent\0" + 1, () -> other);
+            }
+            assertTrue(cache.getEvictionCount() > 0);
+
+            Future<RentalOutcome> retry = pool.submit(() -> cache.execute("U1", "k", "rent\0" + 1, () -> {
+                runs.incrementAndGet();
+                return success("R-retry");
+            }));
+            waitUntil(() -> cache.getHitCount() == 1);
+            release.countDown();
+
+            assertSame(expected, owner.get(10, TimeUnit.SECONDS));
+            assertSame(expected, retry.get(10, TimeUnit.SECONDS));
+            assertEquals(1, runs.get(), "ponowienie wykonało operację drugi raz");
+            assertTrue(cache.size() <= IdempotencyCache.STRIPES, "przepełnienie nie zostało usunięte");
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void waitingRequestGetsTheOwnersException() throws Exception {
+        IdempotencyCache cache = IdempotencyCache.create();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("awaria");
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<RentalOutcome> owner = pool.submit(() -> cache.execute("U1", "k", "rent\0" + 1, () -> {
+                started.countDown();
+                await(release);
+                throw failure;
+            }));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            Future<Throwable> waiting = pool.submit(() -> {
+                try {
+                    cache.execute("U1", "k", "rent\0" + 1, () -> success("R2"));
+                    return null;
+                } catch (Throwable e) {
+                    return e;
+                }
+            });
+            waitUntil(() -> cache.getHitCount() == 1);
+            release.countDown();
+
+            assertSame(failure, waiting.get(10, TimeUnit.SECONDS));
+            assertSame(failure, assertThrows(Exception.class, () -> owner.get(10, TimeUnit.SECONDS)).getCause());
+            assertEquals(0, cache.size());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void keysBelongToUsersAndRequestsCompareResolvedIds() throws Exception {
+        BikeRentalSystem system = new BikeRentalSystem();
+        system.addStation("S1", "Rynek", 10);
+        system.addStation("S2", "Dworzec", 10);
+        system.addBike("B1", "S1");
+        system.addBike("B2", "S1");
+        system.registerUser("U1", "Jan");
+        system.registerUser("U2", "Anna");
+
+        Rental first = system.rentBike("U1", "S1", "k");
+        // the station id spelled differently is the same request
+        assertSame(first, system.rentBike("U1", "s1", "k"));
+        Rental second = system.rentBike("U2", "S1", "k");
+        assertNotSame(first, second, "klucz innego użytkownika zwrócił cudze wypożyczenie");
+
+        String bikeId = first.getBike().getBikeId();
+        assertThrows(NotRentingException.class, () -> system.returnBike("U2", bikeId, "S2", "r"));
+        Rental returned = system.returnBike("U1", bikeId, "S2", "r");
+        assertSame(returned, system.returnBike("U1", bikeId, "s2", "r"));
+        assertEquals(RentalFailure.IDEMPOTENCY_KEY_REUSED,
+                system.tryReturnBike("U1", bikeId, "S1", "r").getFailure());
+        assertEquals(RentalFailure.USER_NOT_FOUND,
+                system.tryReturnBike("U9", bikeId, "S2", "r").getFailure());
+    }
+
+    // --- Helpers ---
+
+    private static RentalOutcome success(String id) {
+        Station station = new Station("S" + id, "Stacja", 10);
+        return RentalOutcome.success(new Rental(id.hashCode(), new User("U" + id, "Jan"), new Bike("B" + id), station,
+                LocalDateTime.of(2024, 3, 1, 8, 0)));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitUntil(Condition condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.holds()) {
+            assertTrue(System.nanoTime() < deadline, "nie doczekano się stanu");
+            Thread.sleep(5);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Condition {
+        boolean holds();
+    }
+}
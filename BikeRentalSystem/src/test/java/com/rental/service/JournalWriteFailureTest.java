@@ -0,0 +1,67 @@
+package com.rental.service;
+
+import com.rental.exception.BikeNotFoundException;
+import com.rental.exception.StationNotFoundException;
+import com.rental.exception.UserNotFoundException;
+import com.rental.model.Bike;
+import com.rental.model.Rental;
+import com.rental.model.Station;
+import com.rental.persistence.RentalJournal;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Rekord dziennika zapisywany jest przed zmianą stanu, więc nieudany
+ * zapis nie gubi roweru ani nie zostawia zmiany, której nie ma w dzienniku.
+ */
+class JournalWriteFailureTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void failedAppendChangesNothing() throws Exception {
+        RentalJournal journal = RentalJournal.open(directory, RentalJournal.DEFAULT_SEGMENT_SIZE, 10);
+        BikeRentalSystem system = new BikeRentalSystem(journal);
+        Station rynek = system.addStation("S1", "Rynek", 5);
+        Station dworzec = system.addStation("S2", "Dworzec", 5);
+        system.addBike("B1", "S1");
+        system.addBike("B2", "S1");
+        system.registerUser("U1", "Jan");
+        system.registerUser("U2", "Anna");
+        Rental rental = system.rentBike("U1", "S1");
+        // every append fails from now on
+        journal.close();
+
+        assertThrows(IllegalStateException.class, () -> system.rentBike("U2", "S1"));
+        assertFalse(system.findUser("U2").isRenting());
+        assertEquals(List.of("B2"), rynek.getDockedBikes().stream().map(Bike::getBikeId).toList(),
+                "rower zniknął ze stacji mimo nieudanego zapisu");
+        assertTrue(system.findBike("B2").isAvailable());
+
+        assertThrows(IllegalStateException.class, () -> system.returnBike("B1", "S2"));
+        assertSame(rental, system.findUser("U1").getCurrentRental());
+        assertNull(rental.getEndTime());
+        assertTrue(dworzec.getDockedBikes().isEmpty());
+        assertSame(system.findUser("U1"), system.findUserRentingBike("B1"));
+
+        assertThrows(IllegalStateException.class, () -> system.transferBikes("S1", "S2", 1));
+        assertEquals(1, rynek.getAvailableBikeCount());
+        assertThrows(IllegalStateException.class, () -> system.registerUser("U3", "Ewa"));
+        assertThrows(IllegalStateException.class, () -> system.addStation("S3", "Plac", 5));
+        assertThrows(IllegalStateException.class, () -> system.addBike("B3", "S2"));
+        assertThrows(UserNotFoundException.class, () -> system.findUser("U3"));
+        assertThrows(StationNotFoundException.class, () -> system.findStation("S3"));
+        assertThrows(BikeNotFoundException.class, () -> system.findBike("B3"));
+        assertEquals(2, system.getAllStations().size());
+    }
+}
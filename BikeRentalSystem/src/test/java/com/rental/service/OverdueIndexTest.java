@@ -0,0 +1,103 @@
+package com.rental.service;
+
+import com.rental.model.Bike;
+import com.rental.model.Rental;
+import com.rental.model.Station;
+import com.rental.model.User;
+import com.rental.simulation.SimulationClock;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Wypożyczenia po terminie odczytywane są z czoła indeksu, a znacznik
+ * zgłoszonych sprawia, że każde zgłaszane jest raz - także gdy wypożyczenie
+ * wskazywane przez znacznik zostało już zakończone.
+ */
+class OverdueIndexTest {
+    private static final Instant START = Instant.parse("2024-03-01T08:00:00Z");
+
+    @Test
+    void eachOverdueRentalIsReportedOnce() throws Exception {
+        SimulationClock clock = new SimulationClock(START);
+        BikeRentalSystem system = new BikeRentalSystem();
+        system.setClock(clock);
+        system.setMaxRentalDuration(Duration.ofMinutes(60));
+        system.addStation("S1", "Rynek", 10);
+        List<String> bikes = new ArrayList<>();
+        for (int u = 0; u < 5; u++) {
+            system.addBike("B" + u, "S1");
+            system.registerUser("U" + u, "Użytkownik " + u);
+        }
+        // U<n> rents at minute 10 * n, so its deadline is minute 60 + 10 * n
+        for (int u = 0; u < 5; u++) {
+            at(clock, 10 * u);
+            bikes.add(system.rentBike("U" + u, "S1").getBike().getBikeId());
+        }
+
+        at(clock, 75);
+        assertEquals(List.of("U0", "U1"), users(system.findOverdueRentals(Duration.ZERO)));
+        assertEquals(List.of("U0"), users(system.findOverdueRentals(Duration.ofMinutes(10))));
+        assertEquals(2, system.reportOverdueRentals());
+        assertEquals(0, system.reportOverdueRentals());
+
+        // U1 carried the watermark, U2 ends before its deadline
+        at(clock, 78);
+        system.returnBike(bikes.get(1), "S1");
+        system.returnBike(bikes.get(2), "S1");
+        at(clock, 95);
+        assertEquals(List.of("U0", "U3"), users(system.findOverdueRentals(Duration.ZERO)));
+        assertEquals(1, system.reportOverdueRentals());
+
+        system.returnBike(bikes.get(0), "S1");
+        at(clock, 200);
+        assertEquals(1, system.reportOverdueRentals());
+        assertEquals(List.of("U3", "U4"), users(system.findOverdueRentals(Duration.ZERO)));
+        // a changed limit applies to rentals already open
+        system.setMaxRentalDuration(Duration.ofMinutes(165));
+        assertEquals(List.of("U3"), users(system.findOverdueRentals(Duration.ZERO)));
+    }
+
+    @Test
+    void rentalsStartedTogetherAreOrderedById() {
+        OverdueIndex index = new OverdueIndex();
+        Station station = new Station("S1", "Rynek", 10);
+        LocalDateTime start = LocalDateTime.of(2024, 3, 1, 8, 0);
+        List<Rental> rentals = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            rentals.add(new Rental(10 - i, new User("U" + i, "Jan"), new Bike("B" + i), station, start));
+        }
+        for (int i = 0; i < rentals.size(); i++) {
+            index.add(i, rentals.get(i), 1_000);
+        }
+
+        List<Rental> reported = new ArrayList<>();
+        assertEquals(0, index.reportStartedBefore(1_000, reported::add));
+        assertEquals(4, index.reportStartedBefore(1_001, reported::add));
+        assertEquals(List.of(rentals.get(3), rentals.get(2), rentals.get(1), rentals.get(0)), reported);
+
+        // removing a rental under a bike that now belongs to another rental changes nothing
+        index.remove(0, rentals.get(1));
+        index.remove(2, rentals.get(2));
+        assertEquals(List.of(rentals.get(3), rentals.get(1), rentals.get(0)), index.startedBefore(1_001));
+        assertEquals(0, index.reportStartedBefore(2_000, reported::add));
+        index.add(2, new Rental(20, new User("U9", "Ewa"), new Bike("B2"), station, start), 1_500);
+        assertEquals(1, index.reportStartedBefore(2_000, reported::add));
+    }
+
+    // --- Helpers ---
+
+    private static void at(SimulationClock clock, int minute) {
+        clock.advanceTo(START.plus(Duration.ofMinutes(minute)).toEpochMilli());
+    }
+
+    private static List<String> users(List<Rental> rentals) {
+        return rentals.stream().map(rental -> rental.getUser().getUserId()).toList();
+    }
+}
@@ -0,0 +1,98 @@
+package com.rental.service;
+
+import com.rental.exception.BikeNotFoundException;
+import com.rental.exception.NoBikesAvailableException;
+import com.rental.exception.NotRentingException;
+import com.rental.exception.StationFullException;
+import com.rental.exception.StationNotFoundException;
+import com.rental.exception.UserAlreadyRentingException;
+import com.rental.exception.UserNotFoundException;
+import com.rental.model.Rental;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Wypożyczenia i zwroty bez wyjątków: każda odmowa ma swój kod,
+ * niczego nie zmienia, a metody zgłaszające wyjątki odpowiadają
+ * temu samemu kodowi.
+ */
+class RentalOutcomeTest {
+
+    @Test
+    void rentRefusalsReturnSharedCodesAndChangeNothing() throws Exception {
+        BikeRentalSystem system = city();
+        Rental rental = system.rentBike("U1", "FULL");
+
+        assertRentRefused(system, "NOBODY", "FULL", RentalFailure.USER_NOT_FOUND, UserNotFoundException.class);
+        assertRentRefused(system, "U2", "NOWHERE", RentalFailure.STATION_NOT_FOUND, StationNotFoundException.class);
+        assertRentRefused(system, "U1", "FULL", RentalFailure.USER_ALREADY_RENTING, UserAlreadyRentingException.class);
+        assertRentRefused(system, "U2", "EMPTY", RentalFailure.NO_BIKES_AVAILABLE, NoBikesAvailableException.class);
+
+        assertSame(rental, system.findActiveRental(rental.getBike().getBikeId()));
+        assertFalse(system.findUser("U2").isRenting());
+        assertEquals(0, system.findStation("FULL").getDockedBikeCount());
+        assertEquals(0, system.getHistoryStore().size(), "odmowa trafiła do historii");
+    }
+
+    @Test
+    void returnRefusalsReturnSharedCodesAndChangeNothing() throws Exception {
+        BikeRentalSystem system = city();
+        system.addBike("B2", "EMPTY");
+        Rental rental = system.rentBike("U1", "EMPTY");
+        String bikeId = rental.getBike().getBikeId();
+        system.addBike("B3", "EMPTY");
+
+        assertReturnRefused(system, "NOBIKE", "EMPTY", RentalFailure.BIKE_NOT_FOUND, BikeNotFoundException.class);
+        assertReturnRefused(system, "B3", "EMPTY", RentalFailure.NOT_RENTING, NotRentingException.class);
+        assertReturnRefused(system, bikeId, "NOWHERE", RentalFailure.STATION_NOT_FOUND, StationNotFoundException.class);
+        assertReturnRefused(system, bikeId, "FULL", RentalFailure.STATION_FULL, StationFullException.class);
+
+        assertSame(rental, system.findActiveRental(bikeId));
+        assertNull(rental.getBike().getCurrentStation());
+        assertEquals(1, system.findStation("FULL").getDockedBikeCount());
+        assertEquals(0, system.getHistoryStore().size());
+
+        RentalOutcome returned = system.tryReturnBike(bikeId, "EMPTY");
+        assertTrue(returned.isSuccess());
+        assertSame(rental, returned.getRental());
+        assertNull(returned.getFailure());
+    }
+
+    // --- Helpers ---
+
+    /**
+     * Stacja FULL ma jedno miejsce zajęte przez rower B1, stacja EMPTY
+     * nie ma rowerów; U1 i U2 nie wypożyczają.
+     */
+    private static BikeRentalSystem city() throws Exception {
+        BikeRentalSystem system = new BikeRentalSystem();
+        system.addStation("FULL", "Pełna", 1);
+        system.addStation("EMPTY", "Pusta", 3);
+        system.addBike("B1", "FULL");
+        system.registerUser("U1", "Anna");
+        system.registerUser("U2", "Jan");
+        return system;
+    }
+
+    private static void assertRentRefused(BikeRentalSystem system, String userId, String stationId,
+            RentalFailure expected, Class<? extends Exception> exception) {
+        RentalOutcome outcome = system.tryRentBike(userId, stationId);
+        assertFalse(outcome.isSuccess());
+        assertNull(outcome.getRental());
+        assertSame(RentalOutcome.failure(expected), outcome, "odmowa nie jest współdzielonym wynikiem");
+        assertThrows(exception, () -> system.rentBike(userId, stationId));
+    }
+
+    private static void assertReturnRefused(BikeRentalSystem system, String bikeId, String stationId,
+            RentalFailure expected, Class<? extends Exception> exception) {
+        RentalOutcome outcome = system.tryReturnBike(bikeId, stationId);
+        assertSame(RentalOutcome.failure(expected), outcome, "odmowa nie jest współdzielonym wynikiem");
+        assertThrows(exception, () -> system.returnBike(bikeId, stationId));
+    }
+}
@@ -0,0 +1,108 @@
+package com.rental.service;
+
+import com.rental.model.Station;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Migawka stanu stacji jest spójna w całości: stacje z różnych porcji,
+ * sumy i numer wersji pochodzą z jednej chwili, a odczyt bez zmian
+ * zwraca tę samą migawkę.
+ */
+class StationStatusBoardTest {
+    private static final int WRITES = 200_000;
+
+    @Test
+    void readersNeverSeeStationsFromDifferentMoments() throws Exception {
+        StationStatusBoard board = new StationStatusBoard();
+        // the two stations live in different chunks
+        Station first = station(0);
+        Station second = station(StationStatusSnapshot.CHUNK_SIZE + 1);
+        board.publish(first, 0, 0, WRITES);
+        board.publish(second, 0, 0, WRITES);
+
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<Integer>> readers = new ArrayList<>();
+            for (int r = 0; r < 2; r++) {
+                readers.add(pool.submit(() -> {
+                    int reads = 0;
+                    long lastVersion = -1;
+                    while (!done.get()) {
+                        StationStatusSnapshot status = board.current();
+                        int a = status.getDockedBikes(first.getHandle());
+                        int b = status.getDockedBikes(second.getHandle());
+                        // the writer always moves the first station ahead, then the second one after it
+                        assertTrue(a == b || a == b + 1, "migawka łączy stany z różnych chwil: " + a + ", " + b);
+                        assertEquals(a + b, status.getTotalDockedBikes(), "sumy z innej chwili niż stacje");
+                        assertEquals(2 + a + b, status.getVersion(), "wersja z innej chwili niż stacje");
+                        assertTrue(status.getVersion() >= lastVersion, "wersja się cofnęła");
+                        lastVersion = status.getVersion();
+                        reads++;
+                    }
+                    return reads;
+                }));
+            }
+            Future<?> writer = pool.submit(() -> {
+                for (int i = 1; i <= WRITES; i++) {
+                    board.publish(first, i, i, WRITES - i);
+                    board.publish(second, i, i, WRITES - i);
+                }
+                done.set(true);
+            });
+            writer.get(1, TimeUnit.MINUTES);
+            for (Future<Integer> reader : readers) {
+                assertTrue(reader.get(1, TimeUnit.MINUTES) > 0);
+            }
+        } finally {
+            done.set(true);
+            pool.shutdownNow();
+        }
+
+        StationStatusSnapshot last = board.current();
+        assertEquals(2L * WRITES, last.getTotalDockedBikes());
+        assertEquals(0, last.getTotalFreeDocks());
+        assertSame(second, last.getStation(second.getHandle()));
+        assertEquals(second.getHandle() + 1, last.size());
+    }
+
+    @Test
+    void readWithoutChangesReturnsTheSameSnapshot() {
+        StationStatusBoard board = new StationStatusBoard();
+        Station station = station(3);
+        board.publish(station, 4, 3, 6);
+        StationStatusSnapshot status = board.current();
+
+        assertSame(status, board.current());
+        assertEquals(3, status.getAvailableBikes(3));
+        assertEquals(0, status.getDockedBikes(2));
+        assertNull(status.getStation(2));
+
+        board.publish(station, 5, 5, 5);
+        // a published snapshot never changes afterwards
+        assertEquals(3, status.getAvailableBikes(3));
+        assertEquals(5, board.current().getAvailableBikes(3));
+        assertEquals(status.getVersion() + 1, board.current().getVersion());
+    }
+
+    // --- Helpers ---
+
+    private static Station station(int handle) {
+        Station station = new Station("S" + handle, "Stacja " + handle, 10);
+        station.setHandle(handle);
+        return station;
+    }
+}
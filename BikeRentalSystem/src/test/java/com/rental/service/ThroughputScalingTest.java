@@ -0,0 +1,114 @@
+package com.rental.service;
+
+import com.rental.model.Rental;
+import com.rental.persistence.RentalJournal;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Przepustowość wypożyczeń i zwrotów z włączonym dziennikiem rośnie
+ * z liczbą wątków, gdy wątki korzystają z różnych stacji. Na maszynie
+ * z jednym rdzeniem test jest pomijany.
+ */
+class ThroughputScalingTest {
+    private static final int MAX_THREADS = 4;
+    private static final int STATIONS_PER_THREAD = 8;
+    private static final int CYCLES_PER_THREAD = 50_000;
+    private static final int ROUNDS = 3;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void journaledRentalsScaleWithThreads() throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+        assumeTrue(cores >= 2, "pomiar skalowania wymaga co najmniej dwóch rdzeni");
+        int threads = Math.min(cores, MAX_THREADS);
+
+        try (RentalJournal journal = RentalJournal.open(directory, 16 * 1024 * 1024, 10);
+             BikeRentalSystem system = new BikeRentalSystem(journal)) {
+            for (int t = 0; t < threads; t++) {
+                system.registerUser(userId(t), "Użytkownik " + t);
+                for (int s = 0; s < STATIONS_PER_THREAD; s++) {
+                    system.addStation(stationId(t, s), "Stacja " + t + "-" + s, 4);
+                    system.addBike("B" + t + "-" + s, stationId(t, s));
+                }
+            }
+            // warm-up, so that both measurements run compiled code
+            cyclesPerSecond(system, threads);
+
+            double single = 0;
+            double parallel = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                single = Math.max(single, cyclesPerSecond(system, 1));
+                parallel = Math.max(parallel, cyclesPerSecond(system, threads));
+            }
+            double speedup = parallel / single;
+            // well below linear, but far above what a lock shared by all appends allows
+            double expected = 1 + (threads - 1) * 0.4;
+            assertTrue(speedup >= expected, String.format(
+                    "przyspieszenie %.2f dla %d wątków, oczekiwano co najmniej %.2f (1 wątek: %.0f cykli/s, %d wątków: %.0f cykli/s)",
+                    speedup, threads, expected, single, threads, parallel));
+        }
+    }
+
+    // --- Helpers ---
+
+    /**
+     * Każdy wątek wypożycza i zwraca rowery na własnych stacjach.
+     *
+     * @return łączna liczba cykli wypożyczenie + zwrot na sekundę
+     */
+    private static double cyclesPerSecond(BikeRentalSystem system, int threads) throws Exception {
+        CyclicBarrier startLine = new CyclicBarrier(threads + 1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                String userId = userId(t);
+                String[] stations = new String[STATIONS_PER_THREAD];
+                for (int s = 0; s < STATIONS_PER_THREAD; s++) {
+                    stations[s] = stationId(t, s);
+                }
+                workers.add(executor.submit(() -> {
+                    startLine.await();
+                    for (int i = 0; i < CYCLES_PER_THREAD; i++) {
+                        String station = stations[i % STATIONS_PER_THREAD];
+                        Rental rental = system.rentBike(userId, station);
+                        system.returnBike(rental.getBike().getBikeId(), station);
+                    }
+                    return null;
+                }));
+            }
+            startLine.await();
+            long start = System.nanoTime();
+            for (Future<?> worker : workers) {
+                worker.get(2, TimeUnit.MINUTES);
+            }
+            long elapsed = System.nanoTime() - start;
+            return (double) threads * CYCLES_PER_THREAD * TimeUnit.SECONDS.toNanos(1) / elapsed;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static String userId(int thread) {
+        return "U" + thread;
+    }
+
+    private static String stationId(int thread, int station) {
+        return "S" + thread + "-" + station;
+    }
+}
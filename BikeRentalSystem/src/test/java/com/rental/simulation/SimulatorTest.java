@@ -0,0 +1,156 @@
+package com.rental.simulation;
+
+import com.rental.model.Bike;
+import com.rental.model.Rental;
+import com.rental.model.Station;
+import com.rental.model.User;
+import com.rental.service.BikeRentalSystem;
+import com.rental.service.RentalFailure;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Deterministyczne przebiegi symulatora: liczby podróży w raporcie
+ * i zachowanie floty po zakończeniu symulacji.
+ */
+class SimulatorTest {
+    private static final LocalDateTime START = LocalDateTime.of(2024, 5, 6, 0, 0);
+    private static final long SEED = 42;
+
+    @Test
+    void handWrittenDemandGivesExactCounts() throws Exception {
+        BikeRentalSystem system = new BikeRentalSystem();
+        system.addStation("A", "Rynek", 2);
+        system.addStation("B", "Dworzec", 2);
+        system.addBike("B1", "A");
+        Demand demand = new Demand(List.of(
+                new Trip(0, "A", "B", 600),
+                // the only bike is on its way to B
+                new Trip(60, "A", "B", 300),
+                new Trip(120, "A", "X", 300),
+                new Trip(900, "B", "A", 120)));
+
+        SimulationReport report = new Simulator(system, START, SEED).run(demand);
+
+        assertEquals(4, report.getTripsRequested());
+        assertEquals(1, report.getTripsSkipped());
+        assertEquals(2, report.getRentsSucceeded());
+        assertEquals(1, report.getRentFailures(RentalFailure.NO_BIKES_AVAILABLE));
+        assertEquals(1, report.getFailedRents());
+        assertEquals(2, report.getReturnsSucceeded());
+        assertEquals(0, report.getFullStationReturns());
+        assertEquals(1020, report.getSimulatedSeconds());
+
+        assertEquals(List.of("B1"), ids(system.getAvailableBikesAtStation("A")));
+        assertEquals(2, system.getHistoryStore().size());
+        for (User user : system.getAllUsers()) {
+            assertEquals(null, user.getCurrentRental());
+        }
+    }
+
+    @Test
+    void syntheticDayConservesTheFleet() throws Exception {
+        int bikes = 60;
+        BikeRentalSystem system = city(bikes);
+        Demand demand = Demand.synthetic(system.getAllStations(), 3000, SEED);
+
+        SimulationReport report = new Simulator(system, START, SEED).run(demand);
+
+        assertEquals(3000, report.getTripsRequested());
+        assertEquals(0, report.getTripsSkipped());
+        assertEquals(report.getTripsRequested(), report.getRentsSucceeded() + report.getFailedRents());
+        assertEquals(report.getRentsSucceeded(), report.getReturnsSucceeded() + report.getReturnsAbandoned());
+        assertTrue(report.getRentsSucceeded() > 0 && report.getFailedRents() > 0 && report.getFullStationReturns() > 0,
+                "przebieg powinien obejmować udane i nieudane wypożyczenia oraz objazdy pełnych stacji");
+        assertEquals(report.getReturnsSucceeded(), system.getHistoryStore().size());
+
+        // every bike is docked exactly once or still ridden by an abandoned rider
+        Set<Bike> seen = new HashSet<>();
+        for (Station station : system.getAllStations()) {
+            List<Bike> docked = station.getDockedBikes();
+            assertTrue(docked.size() <= station.getCapacity());
+            for (Bike bike : docked) {
+                assertTrue(seen.add(bike), "rower na dwóch stacjach: " + bike.getBikeId());
+            }
+        }
+        long riding = 0;
+        for (User user : system.getAllUsers()) {
+            Rental rental = user.getCurrentRental();
+            if (rental != null) {
+                assertTrue(seen.add(rental.getBike()), "rower wypożyczony i zadokowany: " + rental.getBike().getBikeId());
+                riding++;
+            }
+        }
+        assertEquals(report.getReturnsAbandoned(), riding);
+        assertEquals(bikes, seen.size());
+    }
+
+    @Test
+    void sameSeedGivesTheSameReport() throws Exception {
+        SimulationReport first = runSynthetic();
+        SimulationReport second = runSynthetic();
+
+        assertEquals(first.getRentsSucceeded(), second.getRentsSucceeded());
+        for (RentalFailure failure : RentalFailure.values()) {
+            assertEquals(first.getRentFailures(failure), second.getRentFailures(failure), failure.name());
+        }
+        assertEquals(first.getReturnsSucceeded(), second.getReturnsSucceeded());
+        assertEquals(first.getFullStationReturns(), second.getFullStationReturns());
+        assertEquals(first.getReturnsAbandoned(), second.getReturnsAbandoned());
+        assertEquals(first.getSimulatedSeconds(), second.getSimulatedSeconds());
+    }
+
+    @Test
+    void zoneViewFollowsTheSimulationClock() {
+        SimulationClock clock = new SimulationClock(Instant.parse("2024-05-06T00:00:00Z"));
+        Clock warsaw = clock.withZone(ZoneId.of("Europe/Warsaw"));
+
+        clock.advanceTo(Instant.parse("2024-05-06T06:30:00Z").toEpochMilli());
+        // the clock never goes back, also through a view
+        clock.advanceTo(0);
+
+        assertEquals(clock.instant(), warsaw.instant());
+        assertEquals(LocalDateTime.of(2024, 5, 6, 8, 30), LocalDateTime.now(warsaw));
+        assertSame(clock, clock.withZone(ZoneOffset.UTC));
+    }
+
+    // --- Helpers ---
+
+    private static SimulationReport runSynthetic() throws Exception {
+        BikeRentalSystem system = city(60);
+        return new Simulator(system, START, SEED).run(Demand.synthetic(system.getAllStations(), 3000, SEED));
+    }
+
+    // A small grid of stations with coordinates, so full-station detours go to the nearest free dock
+    private static BikeRentalSystem city(int bikes) throws Exception {
+        BikeRentalSystem system = new BikeRentalSystem();
+        int stations = 12;
+        for (int s = 0; s < stations; s++) {
+            system.addStation("S" + s, "Stacja " + s, 4 + s % 5, 52.20 + (s / 4) * 0.01, 21.00 + (s % 4) * 0.01);
+        }
+        int placed = 0;
+        for (int s = 0; placed < bikes; s = (s + 1) % stations) {
+            Station station = system.getAllStations().get(s);
+            if (station.getAvailableSpots() > 0) {
+                system.addBike("B" + placed++, station.getStationId());
+            }
+        }
+        return system;
+    }
+
+    private static List<String> ids(List<Bike> bikes) {
+        return bikes.stream().map(Bike::getBikeId).toList();
+    }
+}
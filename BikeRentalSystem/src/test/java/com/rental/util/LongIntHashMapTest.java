@@ -0,0 +1,85 @@
+package com.rental.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Mapa z adresowaniem otwartym zachowuje się jak {@link HashMap} przy
+ * wielokrotnym powiększaniu tablic i przy usuwaniu wpisów z łańcuchów
+ * sondowania, także dla klucza 0 oznaczającego pusty slot.
+ */
+class LongIntHashMapTest {
+    private static final int MISSING = -1;
+
+    @Test
+    void matchesAHashMapThroughResizesAndRemovals() {
+        Random random = new Random(5);
+        LongIntHashMap map = new LongIntHashMap(1, MISSING);
+        Map<Long, Integer> expected = new HashMap<>();
+        List<Long> keys = new ArrayList<>();
+        long initialBytes = map.memoryBytes();
+
+        for (int i = 0; i < 200_000; i++) {
+            int operation = random.nextInt(10);
+            if (operation < 6 || keys.isEmpty()) {
+                // time-ordered ids share their high bits, which is what the hash has to spread
+                long key = i % 50_000 == 0 ? 0L : (1L << 40) + random.nextInt(1 << 20);
+                int value = random.nextInt(1_000_000);
+                assertEquals(expected.getOrDefault(key, MISSING).intValue(), map.put(key, value), "put " + key);
+                if (expected.put(key, value) == null) {
+                    keys.add(key);
+                }
+            } else {
+                long key = keys.get(random.nextInt(keys.size()));
+                if (operation < 8) {
+                    assertEquals(expected.getOrDefault(key, MISSING).intValue(), map.remove(key), "remove " + key);
+                    expected.remove(key);
+                } else {
+                    assertEquals(expected.getOrDefault(key, MISSING).intValue(), map.get(key), "get " + key);
+                }
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (long key : keys) {
+            assertEquals(expected.getOrDefault(key, MISSING).intValue(), map.get(key), "klucz " + key);
+        }
+        assertEquals(MISSING, map.get(42));
+        assertTrue(map.memoryBytes() > initialBytes, "tablice nie urosły");
+        // load factor 0.75, so the arrays hold at most about 2.7 slots per entry after doubling
+        assertTrue(map.memoryBytes() <= 12L * 3 * Math.max(expected.size(), 16),
+                map.memoryBytes() + " bajtów dla " + expected.size() + " wpisów");
+    }
+
+    @Test
+    void removalKeepsCollidingKeysReachable() {
+        LongIntHashMap map = new LongIntHashMap(4, MISSING);
+        // enough keys to build long probe runs that wrap around the small table
+        for (long key = 1; key <= 6; key++) {
+            map.put(key, (int) key * 10);
+        }
+        for (long key = 1; key <= 6; key += 2) {
+            assertEquals((int) key * 10, map.remove(key));
+            assertEquals(MISSING, map.remove(key));
+        }
+        for (long key = 2; key <= 6; key += 2) {
+            assertEquals((int) key * 10, map.get(key), "klucz " + key);
+        }
+        assertEquals(3, map.size());
+
+        assertEquals(MISSING, map.put(0L, 7));
+        assertEquals(7, map.get(0L));
+        assertEquals(4, map.size());
+        assertEquals(7, map.remove(0L));
+        assertEquals(MISSING, map.get(0L));
+        assertEquals(3, map.size());
+    }
+}
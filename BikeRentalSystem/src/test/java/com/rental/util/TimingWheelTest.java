@@ -0,0 +1,96 @@
+package com.rental.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Koło czasowe zgłasza każdy termin w pierwszym przesunięciu, które
+ * sięga jego taktu - także terminy przenoszone kaskadowo z wyższych
+ * poziomów i terminy spoza zasięgu koła - a anulowane terminy pomija.
+ */
+class TimingWheelTest {
+    private static final long TICK = 10;
+    // ticks covered by the four levels of 64 slots
+    private static final long RANGE = 1L << 24;
+
+    @Test
+    void deadlinesOnEveryLevelFireOnTheirTick() {
+        Random random = new Random(21);
+        TimingWheel<Integer> wheel = new TimingWheel<>(TICK);
+        long now = 1_000_003;
+        Map<Integer, Long> deadlines = new HashMap<>();
+        Map<Integer, TimingWheel.Timeout<Integer>> timeouts = new HashMap<>();
+        int next = 0;
+
+        while (now < 1_000_003 + 2 * RANGE * TICK) {
+            // new deadlines from the next tick to past the wheel's range, scheduled as time goes on
+            for (int i = random.nextInt(20); i > 0; i--) {
+                long deadline = now + TICK + (long) (Math.pow(random.nextDouble(), 4) * 1.5 * RANGE * TICK);
+                deadlines.put(next, deadline);
+                timeouts.put(next, wheel.schedule(next, deadline, now));
+                next++;
+            }
+            if (!timeouts.isEmpty() && random.nextInt(4) == 0) {
+                Integer victim = timeouts.keySet().iterator().next();
+                assertTrue(wheel.cancel(timeouts.remove(victim)));
+                deadlines.remove(victim);
+            }
+
+            long previous = now;
+            now += 1 + (long) (random.nextDouble() * random.nextDouble() * 200_000 * TICK);
+            Set<Integer> expected = new HashSet<>();
+            for (Map.Entry<Integer, Long> entry : deadlines.entrySet()) {
+                if (Math.floorDiv(entry.getValue(), TICK) <= Math.floorDiv(now, TICK)) {
+                    expected.add(entry.getKey());
+                }
+            }
+            List<Integer> fired = new ArrayList<>();
+            assertEquals(expected.size(), wheel.advance(now, fired::add));
+            assertEquals(expected, new HashSet<>(fired), "przesunięcie z " + previous + " do " + now);
+            for (int i = 1; i < fired.size(); i++) {
+                assertTrue(deadlines.get(fired.get(i - 1)) / TICK <= deadlines.get(fired.get(i)) / TICK,
+                        "terminy zgłoszone poza kolejnością taktów");
+            }
+            for (Integer value : fired) {
+                deadlines.remove(value);
+                assertFalse(wheel.cancel(timeouts.remove(value)), "anulowano zgłoszony termin");
+            }
+            assertEquals(deadlines.size(), wheel.size());
+        }
+        assertTrue(next > 1_000, "za mało terminów");
+    }
+
+    @Test
+    void passedDeadlineFiresOnTheNextTickAndTimeNeverGoesBack() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK);
+        List<String> fired = new ArrayList<>();
+        wheel.schedule("past", 0, 1_000);
+        wheel.schedule("soon", 1_025, 1_000);
+
+        assertEquals(0, wheel.advance(1_009, fired::add));
+        assertEquals(0, wheel.advance(500, fired::add));
+        assertEquals(1, wheel.advance(1_010, fired::add));
+        assertEquals(List.of("past"), fired);
+        assertEquals(0, wheel.advance(1_019, fired::add));
+        assertEquals(1, wheel.advance(1_020, fired::add));
+        assertEquals(List.of("past", "soon"), fired);
+        assertEquals(0, wheel.size());
+
+        // an empty wheel skips ahead, and new deadlines count from the new position
+        assertEquals(0, wheel.advance(1_000_000_000L, fired::add));
+        wheel.schedule("later", 1_000_000_000L + 64 * 64 * TICK, 1_000_000_000L);
+        assertEquals(0, wheel.advance(1_000_000_000L + 64 * 64 * TICK - 1, fired::add));
+        assertEquals(1, wheel.advance(1_000_000_000L + 64 * 64 * TICK, fired::add));
+    }
+}